@@ -0,0 +1,227 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.mockito.stubbing.Answer;
+
+import com.atlassian.bitbucket.branch.model.BranchClassifier;
+import com.atlassian.bitbucket.branch.model.BranchModel;
+import com.atlassian.bitbucket.branch.model.BranchModelService;
+import com.atlassian.bitbucket.branch.model.BranchType;
+import com.atlassian.bitbucket.content.ChangeType;
+import com.atlassian.bitbucket.project.Project;
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.pull.PullRequestRef;
+import com.atlassian.bitbucket.repository.Branch;
+import com.atlassian.bitbucket.repository.Ref;
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.bitbucket.scm.git.command.merge.conflict.GitMergeConflict;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.bitbucket.user.ApplicationUser;
+import com.atlassian.bitbucket.user.EscalatedSecurityContext;
+import com.atlassian.bitbucket.user.SecurityService;
+import com.atlassian.bitbucket.util.Operation;
+import com.atlassian.bitbucket.util.PageImpl;
+import com.atlassian.bitbucket.util.PageRequest;
+
+/**
+ * Branch name corpora and mocked Bitbucket objects shared by the benchmarks.
+ */
+public final class BenchmarkFixtures
+{
+  private static final String[] PREFIXES = {"release/", "hotfix/"};
+  private static final String[] FAMILIES = {"", "app-", "core/", "platform/api-", "svc/v"};
+  private static final String[] QUALIFIERS = {"-rc1", "-text", "-SNAPSHOT", "-hotfix"};
+
+  private BenchmarkFixtures()
+  {
+  }
+
+  /**
+   * Returns branch names shaped like a long lived repository's: several families with two and three
+   * part versions, a sprinkling of qualified versions, and the default branch.
+   */
+  public static List<String> branchNames(int count, long seed)
+  {
+    Random random = new Random(seed);
+    List<String> names = new ArrayList<String>(count);
+    names.add("master");
+    while (names.size() < count) {
+      StringBuilder name = new StringBuilder(PREFIXES[random.nextInt(PREFIXES.length)])
+        .append(FAMILIES[random.nextInt(FAMILIES.length)])
+        .append(1 + random.nextInt(12))
+        .append('.')
+        .append(random.nextInt(20));
+      if (random.nextInt(3) == 0) {
+        name.append('.').append(random.nextInt(10));
+      }
+      if (random.nextInt(10) == 0) {
+        name.append(QUALIFIERS[random.nextInt(QUALIFIERS.length)]);
+      }
+      names.add(name.toString());
+    }
+    return names;
+  }
+
+  /**
+   * Returns release branches of one family, release/app-8.0 upwards.
+   */
+  public static List<Branch> releaseBranches(int count)
+  {
+    List<Branch> branches = new ArrayList<Branch>(count);
+    for (int i = 0; i < count; i++) {
+      branches.add(branch("release/app-8." + i, "c0ffee" + i));
+    }
+    return branches;
+  }
+
+  public static Branch branch(String displayId, String latestCommit)
+  {
+    Branch branch = mock(Branch.class);
+    when(branch.getId()).thenReturn("refs/heads/" + displayId);
+    when(branch.getDisplayId()).thenReturn(displayId);
+    when(branch.getLatestCommit()).thenReturn(latestCommit);
+    return branch;
+  }
+
+  public static Repository repository()
+  {
+    Project project = mock(Project.class);
+    when(project.getKey()).thenReturn("PRJ");
+    Repository repository = mock(Repository.class);
+    when(repository.getId()).thenReturn(1);
+    when(repository.getSlug()).thenReturn("repo");
+    when(repository.getProject()).thenReturn(project);
+    return repository;
+  }
+
+  public static PullRequest pullRequest(Repository repository, String toBranchDisplayId)
+  {
+    return pullRequest(repository, "f00d", toBranchDisplayId, "c0ffee0");
+  }
+
+  public static PullRequest pullRequest(Repository repository, String fromCommit, String toBranchDisplayId, String toCommit)
+  {
+    PullRequestRef fromRef = pullRequestRef(repository, "feature/benchmark", fromCommit);
+    PullRequestRef toRef = pullRequestRef(repository, toBranchDisplayId, toCommit);
+    PullRequest pullRequest = mock(PullRequest.class);
+    when(pullRequest.getId()).thenReturn(1L);
+    when(pullRequest.getFromRef()).thenReturn(fromRef);
+    when(pullRequest.getToRef()).thenReturn(toRef);
+    when(pullRequest.isOpen()).thenReturn(true);
+    return pullRequest;
+  }
+
+  public static MergeConflictDetector detector(PullRequest pullRequest)
+  {
+    return new MergeConflictDetector(mock(ApplicationUser.class), pullRequest, "http://localhost:7990/bitbucket");
+  }
+
+  public static List<GitMergeConflict> conflicts(int count)
+  {
+    List<GitMergeConflict> conflicts = new ArrayList<GitMergeConflict>(count);
+    for (int i = 0; i < count; i++) {
+      GitMergeConflict conflict = mock(GitMergeConflict.class);
+      when(conflict.getMessage()).thenReturn("Merge conflict in src/main/java/com/example/module" + (i % 50) + "/File" + i + ".java");
+      when(conflict.getOurChange()).thenReturn(ChangeType.MODIFY);
+      when(conflict.getTheirChange()).thenReturn(ChangeType.MODIFY);
+      conflicts.add(conflict);
+    }
+    return conflicts;
+  }
+
+  /**
+   * Returns a branch model whose release branches are the given branches.
+   */
+  public static BranchModelService branchModelService(List<Branch> releaseBranches)
+  {
+    BranchType release = mock(BranchType.class);
+    when(release.getId()).thenReturn("RELEASE");
+    when(release.getPrefix()).thenReturn("release/");
+    BranchClassifier classifier = mock(BranchClassifier.class);
+    when(classifier.getType(any(Ref.class))).thenReturn(release);
+    when(classifier.getBranchesByType(any(BranchType.class), any(PageRequest.class)))
+      .thenAnswer(invocation -> new PageImpl<Branch>((PageRequest) invocation.getArguments()[1], releaseBranches, true));
+    BranchModel model = mock(BranchModel.class);
+    when(model.getClassifier()).thenReturn(classifier);
+    BranchModelService modelService = mock(BranchModelService.class);
+    when(modelService.getModel(any(Repository.class))).thenReturn(model);
+    return modelService;
+  }
+
+  /**
+   * Returns properties that answer every plugin property with the default the plugin asks for,
+   * as an instance without any of them set in bitbucket.properties would.
+   */
+  public static ApplicationPropertiesService applicationProperties()
+  {
+    ApplicationPropertiesService properties = mock(ApplicationPropertiesService.class);
+    when(properties.getBaseUrl()).thenReturn(URI.create("http://localhost:7990/bitbucket"));
+    Answer<Object> defaultValue = invocation -> invocation.getArguments()[1];
+    when(properties.getPluginProperty(anyString(), anyString())).thenAnswer(defaultValue);
+    when(properties.getPluginProperty(anyString(), anyInt())).thenAnswer(defaultValue);
+    when(properties.getPluginProperty(anyString(), anyLong())).thenAnswer(defaultValue);
+    when(properties.getPluginProperty(anyString(), anyBoolean())).thenAnswer(defaultValue);
+    return properties;
+  }
+
+  /**
+   * Returns a security service that runs everything asked of it with the permission it asks for.
+   */
+  @SuppressWarnings("unchecked")
+  public static SecurityService securityService()
+  {
+    EscalatedSecurityContext escalated = mock(EscalatedSecurityContext.class);
+    try {
+      when(escalated.call(any(Operation.class))).thenAnswer(invocation -> ((Operation<?, ?>) invocation.getArguments()[0]).perform());
+    } catch (Throwable t) {
+      throw new IllegalStateException(t);
+    }
+    SecurityService securityService = mock(SecurityService.class);
+    when(securityService.withPermission(any(), any())).thenReturn(escalated);
+    return securityService;
+  }
+
+  public static <T> List<T> shuffled(List<T> values, long seed)
+  {
+    List<T> copy = new ArrayList<T>(values);
+    Collections.shuffle(copy, new Random(seed));
+    return copy;
+  }
+
+  private static PullRequestRef pullRequestRef(Repository repository, String displayId, String latestCommit)
+  {
+    PullRequestRef ref = mock(PullRequestRef.class);
+    when(ref.getId()).thenReturn("refs/heads/" + displayId);
+    when(ref.getDisplayId()).thenReturn(displayId);
+    when(ref.getLatestCommit()).thenReturn(latestCommit);
+    when(ref.getRepository()).thenReturn(repository);
+    return ref;
+  }
+}
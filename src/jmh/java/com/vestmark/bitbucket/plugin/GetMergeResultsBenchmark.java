@@ -0,0 +1,164 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.pull.PullRequestSearchRequest;
+import com.atlassian.bitbucket.pull.PullRequestService;
+import com.atlassian.bitbucket.repository.Branch;
+import com.atlassian.bitbucket.repository.RefService;
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.bitbucket.repository.ResolveRefRequest;
+import com.atlassian.bitbucket.scm.MergeCommandParameters;
+import com.atlassian.bitbucket.scm.git.command.GitCommand;
+import com.atlassian.bitbucket.scm.git.command.GitCommandBuilderFactory;
+import com.atlassian.bitbucket.scm.git.command.GitExtendedCommandFactory;
+import com.atlassian.bitbucket.scm.git.command.merge.GitMergeException;
+import com.atlassian.bitbucket.scm.git.command.merge.conflict.GitMergeConflict;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.bitbucket.user.SecurityService;
+import com.atlassian.bitbucket.util.PageImpl;
+import com.atlassian.bitbucket.util.PageRequest;
+
+/**
+ * End to end cost of a merge conflict check for a pull request into the oldest of a family of
+ * release branches, through target resolution, the executor, the result cache and model building.
+ * Git is replaced by a merge that conflicts after a fixed latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GetMergeResultsBenchmark
+{
+  @Param({"0", "20"})
+  public int mergeLatencyMs;
+
+  @Param({"5", "20"})
+  public int targets;
+
+  @Param({"true", "false"})
+  public boolean cached;
+
+  private MergeExecutor mergeExecutor;
+  private MergeConflictChecker checker;
+  private PullRequest pullRequest;
+
+  // Mocks record every invocation, so the stack is rebuilt each iteration to keep that bounded.
+  @Setup(Level.Iteration)
+  public void setUp()
+    throws Exception
+  {
+    Repository repository = BenchmarkFixtures.repository();
+    List<Branch> releases = BenchmarkFixtures.releaseBranches(targets);
+    Branch master = BenchmarkFixtures.branch("master", "0ddba11");
+    Map<String, Branch> branchesById = new HashMap<String, Branch>();
+    for (Branch branch : releases) {
+      branchesById.put(branch.getId(), branch);
+    }
+
+    RefService refService = mock(RefService.class);
+    when(refService.getDefaultBranch(any(Repository.class))).thenReturn(master);
+    when(refService.resolveRef(any(ResolveRefRequest.class)))
+      .thenAnswer(invocation -> branchesById.get(((ResolveRefRequest) invocation.getArguments()[0]).getRefId()));
+
+    PullRequestService pullRequestService = mock(PullRequestService.class);
+    when(pullRequestService.search(any(PullRequestSearchRequest.class), any(PageRequest.class)))
+      .thenAnswer(invocation -> new PageImpl<PullRequest>((PageRequest) invocation.getArguments()[1],
+                                                          Collections.<PullRequest>emptyList(), true));
+
+    List<GitMergeConflict> mergeConflicts = BenchmarkFixtures.conflicts(20);
+    GitMergeException conflicts = mock(GitMergeException.class);
+    when(conflicts.getConflicts()).thenReturn(mergeConflicts);
+    GitMergeException failure = mock(GitMergeException.class);
+    when(failure.getCause()).thenReturn(conflicts);
+    @SuppressWarnings("unchecked")
+    GitCommand<Branch> merge = mock(GitCommand.class);
+    when(merge.call()).thenAnswer(invocation -> {
+      if (mergeLatencyMs > 0) {
+        Thread.sleep(mergeLatencyMs);
+      }
+      throw failure;
+    });
+    GitExtendedCommandFactory extendedCmdFactory = mock(GitExtendedCommandFactory.class);
+    when(extendedCmdFactory.merge(any(Repository.class), any(MergeCommandParameters.class))).thenReturn(merge);
+
+    // Leaves every merge to the mocked dry run, as git cannot classify it.
+    GitCommandBuilderFactory builderFactory = mock(GitCommandBuilderFactory.class);
+    when(builderFactory.builder(any(Repository.class))).thenThrow(new IllegalStateException("No git repository"));
+
+    ApplicationPropertiesService properties = BenchmarkFixtures.applicationProperties();
+    mergeExecutor = new MergeExecutor(MergeExecutor.DEFAULT_THREADS, MergeExecutor.DEFAULT_REPOSITORY_THREADS,
+                                      MergeExecutor.DEFAULT_QUEUE_SIZE);
+    DryRunMergeEngine dryRunEngine = new DryRunMergeEngine(properties, extendedCmdFactory);
+    MergeConflictMetrics metrics = new MergeConflictMetrics(MergeConflictMetrics.DEFAULT_SLOW_REQUEST_MS);
+    // A single node, so every merge runs here.
+    MergeWorkDispatcher dispatcher = new MergeWorkDispatcher(properties, new InProcessMergeWorkTransport.Cluster().join("benchmark"),
+                                                             pullRequestService, refService, mock(SecurityService.class), metrics);
+    checker = new MergeConflictChecker(properties, dryRunEngine, new MergeTreeMergeEngine(new GitMergeTree(properties, builderFactory), dryRunEngine),
+                                       refService,
+                                       BenchmarkFixtures.branchModelService(releases),
+                                       new MergeResultCache(cached ? MergeResultCache.DEFAULT_MAX_SIZE : 0),
+                                       new InMemoryMergeResultStore(cached ? TimeUnit.HOURS.toMillis(1) : 0),
+                                       mergeExecutor, new ReleaseBranchIndex(properties),
+                                       new AutoMergeFailureIndex(pullRequestService, BenchmarkFixtures.securityService(), TimeUnit.HOURS.toMillis(1),
+                                                                 AutoMergeFailureIndex.DEFAULT_MAX_PAIRS),
+                                       metrics,
+                                       new MergeClassifier(builderFactory, pullRequestService, MergeClassifier.DEFAULT_DISJOINT),
+                                       dispatcher);
+    pullRequest = BenchmarkFixtures.pullRequest(repository, releases.get(0).getDisplayId());
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown()
+  {
+    mergeExecutor.destroy();
+  }
+
+  @Benchmark
+  public List<MergeResultsModel> getMergeResults()
+  {
+    MergeConflictDetector mcd = BenchmarkFixtures.detector(pullRequest);
+    checker.checkAll(mcd);
+    mcd.sortMergeResults();
+    return mcd.getMergeResultsModelList();
+  }
+}
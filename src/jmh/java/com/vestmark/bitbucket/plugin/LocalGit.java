@@ -0,0 +1,392 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import org.mockito.stubbing.Answer;
+
+import com.atlassian.bitbucket.content.ChangeType;
+import com.atlassian.bitbucket.io.LineReader;
+import com.atlassian.bitbucket.repository.Branch;
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.bitbucket.scm.CommandExitHandler;
+import com.atlassian.bitbucket.scm.CommandOutputHandler;
+import com.atlassian.bitbucket.scm.MergeCommandParameters;
+import com.atlassian.bitbucket.scm.git.command.GitCommand;
+import com.atlassian.bitbucket.scm.git.command.GitCommandBuilderFactory;
+import com.atlassian.bitbucket.scm.git.command.GitExtendedCommandFactory;
+import com.atlassian.bitbucket.scm.git.command.GitScmCommandBuilder;
+import com.atlassian.bitbucket.scm.git.command.merge.GitMergeException;
+import com.atlassian.bitbucket.scm.git.command.merge.conflict.GitMergeConflict;
+
+/**
+ * A git repository on local disk for benchmarks that need real merges, with Bitbucket's git
+ * command factories stood in for by mocks that run the git executable. Commits are written with
+ * git fast-import so that large trees are quick to build.
+ */
+public final class LocalGit
+{
+  private static final String IDENTITY = "Benchmark <benchmark@example.com> 1700000000 +0000";
+  // Pipes are drained on threads of their own, the common pool would stall with many git processes running.
+  private static final ExecutorService PIPE_READERS = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "local-git-pipe");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Path directory;
+
+  private LocalGit(Path directory)
+  {
+    this.directory = directory;
+  }
+
+  /**
+   * Creates an empty repository in a new temporary directory.
+   */
+  public static LocalGit create(String prefix)
+  {
+    return create(prefix, false);
+  }
+
+  /**
+   * Creates an empty repository, bare like the ones Bitbucket hosts if asked, in a new temporary
+   * directory.
+   */
+  public static LocalGit create(String prefix, boolean bare)
+  {
+    try {
+      LocalGit git = new LocalGit(Files.createTempDirectory(prefix));
+      if (bare) {
+        git.git("init", "--quiet", "--bare");
+      } else {
+        git.git("init", "--quiet");
+      }
+      git.git("config", "user.name", "Benchmark");
+      git.git("config", "user.email", "benchmark@example.com");
+      return git;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public Path getDirectory()
+  {
+    return directory;
+  }
+
+  /**
+   * Commits the given files on top of parent, or as a root commit if parent is null, and points
+   * the branch at it. A null content deletes the file. Returns the new commit's hash.
+   */
+  public String commit(String branch, String parent, Map<String, String> files)
+  {
+    return commit(Collections.singletonList(new Commit(branch, parent, files))).get(branch);
+  }
+
+  /**
+   * Writes the commits in order in a single fast-import run and returns the hash each branch ends
+   * up at. A commit's parent may be a hash or a branch written earlier in the same run.
+   */
+  public Map<String, String> commit(List<Commit> commits)
+  {
+    StringBuilder stream = new StringBuilder();
+    Set<String> written = new HashSet<String>();
+    for (Commit commit : commits) {
+      stream.append("commit refs/heads/").append(commit.branch).append('\n')
+            .append("committer ").append(IDENTITY).append('\n');
+      data(stream, "Commit on " + commit.branch);
+      // A branch continues from its own tip without a from once it is in the run, and before that
+      // fast-import only lets it name its tip as a commit.
+      if (commit.parent != null && !(commit.parent.equals(commit.branch) && written.contains(commit.branch))) {
+        stream.append("from ")
+              .append(commit.parent.matches("[0-9a-f]{40}") ? commit.parent : "refs/heads/" + commit.parent)
+              .append(commit.parent.equals(commit.branch) ? "^0" : "")
+              .append('\n');
+      }
+      written.add(commit.branch);
+      for (Map.Entry<String, String> file : commit.files.entrySet()) {
+        if (file.getValue() == null) {
+          stream.append("D ").append(file.getKey()).append('\n');
+        } else {
+          stream.append("M 100644 inline ").append(file.getKey()).append('\n');
+          data(stream, file.getValue());
+        }
+      }
+      stream.append('\n');
+    }
+    Result result = run(Arrays.asList("fast-import", "--quiet", "--force"), stream.toString().getBytes(StandardCharsets.UTF_8));
+    if (result.exitCode != 0) {
+      throw new IllegalStateException("git fast-import failed: " + result.stderr);
+    }
+    Map<String, String> heads = new HashMap<String, String>();
+    for (String line : git("for-each-ref", "--format=%(objectname) %(refname:strip=2)", "refs/heads").split("\n")) {
+      int space = line.indexOf(' ');
+      heads.put(line.substring(space + 1), line.substring(0, space));
+    }
+    return heads;
+  }
+
+  /**
+   * Runs a git command that must succeed and returns its output without the trailing newline.
+   */
+  public String git(String... arguments)
+  {
+    Result result = run(Arrays.asList(arguments), null);
+    if (result.exitCode != 0) {
+      throw new IllegalStateException("git " + String.join(" ", arguments) + " failed: " + result.stderr);
+    }
+    return new String(result.stdout, StandardCharsets.UTF_8).trim();
+  }
+
+  /**
+   * Returns a factory whose builders run git in this repository, whatever repository they are for.
+   */
+  public GitCommandBuilderFactory builderFactory()
+  {
+    GitCommandBuilderFactory factory = mock(GitCommandBuilderFactory.class);
+    when(factory.builder(any(Repository.class))).thenAnswer(invocation -> builder());
+    return factory;
+  }
+
+  /**
+   * Returns a factory whose merges stand in for Bitbucket's dry run merge of fromCommit into
+   * toCommit: a temporary worktree is checked out at the target, the source merged into it without
+   * committing, and the worktree removed again. Conflicts are thrown the way Bitbucket reports them.
+   */
+  public GitExtendedCommandFactory dryRunMergeFactory(String fromCommit, String toCommit)
+  {
+    @SuppressWarnings("unchecked")
+    GitCommand<Branch> merge = mock(GitCommand.class);
+    when(merge.call()).thenAnswer(invocation -> dryRunMerge(fromCommit, toCommit));
+    GitExtendedCommandFactory factory = mock(GitExtendedCommandFactory.class);
+    when(factory.merge(any(Repository.class), any(MergeCommandParameters.class))).thenReturn(merge);
+    return factory;
+  }
+
+  /**
+   * Returns a factory whose merges stand in for Bitbucket's dry run merge of whichever branches
+   * they are asked to merge, the same way as {@link #dryRunMergeFactory(String, String)}.
+   */
+  public GitExtendedCommandFactory dryRunMergeFactory()
+  {
+    GitExtendedCommandFactory factory = mock(GitExtendedCommandFactory.class);
+    when(factory.merge(any(Repository.class), any(MergeCommandParameters.class))).thenAnswer(invocation -> {
+      MergeCommandParameters parameters = (MergeCommandParameters) invocation.getArguments()[1];
+      @SuppressWarnings("unchecked")
+      GitCommand<Branch> merge = mock(GitCommand.class);
+      when(merge.call()).thenAnswer(call -> dryRunMerge(parameters.getFromBranch(), parameters.getToBranch()));
+      return merge;
+    });
+    return factory;
+  }
+
+  /**
+   * Deletes the repository, worktrees and all.
+   */
+  public void delete()
+  {
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Branch dryRunMerge(String fromCommit, String toCommit)
+    throws IOException
+  {
+    Path worktree = Files.createTempDirectory(directory, "dry-run");
+    git("worktree", "add", "--quiet", "--detach", worktree.toString(), toCommit);
+    try {
+      Result merge = run(Arrays.asList("-C", worktree.toString(), "merge", "--quiet", "--no-commit", "--no-ff", fromCommit), null);
+      if (merge.exitCode == 0) {
+        return null;
+      }
+      String unmerged = git("-C", worktree.toString(), "diff", "--name-only", "--diff-filter=U");
+      List<GitMergeConflict> conflicts = new ArrayList<GitMergeConflict>();
+      for (String path : unmerged.split("\n")) {
+        if (path.isEmpty()) {
+          continue;
+        }
+        GitMergeConflict conflict = mock(GitMergeConflict.class);
+        when(conflict.getMessage()).thenReturn("Merge conflict in " + path);
+        when(conflict.getOurChange()).thenReturn(ChangeType.MODIFY);
+        when(conflict.getTheirChange()).thenReturn(ChangeType.MODIFY);
+        conflicts.add(conflict);
+      }
+      GitMergeException failure = mock(GitMergeException.class);
+      when(failure.getConflicts()).thenReturn(conflicts);
+      throw failure;
+    } finally {
+      git("worktree", "remove", "--force", worktree.toString());
+    }
+  }
+
+  private GitScmCommandBuilder builder()
+  {
+    List<String> arguments = new ArrayList<String>();
+    CommandExitHandler[] exitHandler = new CommandExitHandler[1];
+    return mock(GitScmCommandBuilder.class, (Answer<Object>) invocation -> {
+      switch (invocation.getMethod().getName()) {
+        case "command":
+        case "argument":
+          arguments.add((String) invocation.getArguments()[0]);
+          return invocation.getMock();
+        case "exitHandler":
+          exitHandler[0] = (CommandExitHandler) invocation.getArguments()[0];
+          return invocation.getMock();
+        case "build":
+          return command(arguments, exitHandler[0], (CommandOutputHandler<?>) invocation.getArguments()[0]);
+        default:
+          throw new UnsupportedOperationException(invocation.getMethod().getName());
+      }
+    });
+  }
+
+  private <T> GitCommand<T> command(List<String> arguments, CommandExitHandler exitHandler, CommandOutputHandler<T> outputHandler)
+  {
+    @SuppressWarnings("unchecked")
+    GitCommand<T> command = mock(GitCommand.class);
+    when(command.call()).thenAnswer(invocation -> {
+      Result result = run(arguments, null);
+      read(outputHandler, result.stdout);
+      String name = "git " + String.join(" ", arguments);
+      if (exitHandler != null) {
+        exitHandler.onExit(name, result.exitCode, result.stderr, null);
+      } else if (result.exitCode != 0) {
+        throw new IllegalStateException(name + " exited with " + result.exitCode + ": " + result.stderr);
+      }
+      return outputHandler.getOutput();
+    });
+    return command;
+  }
+
+  // The plugin's output handlers read lines, they are handed the output the way Bitbucket would.
+  private static void read(CommandOutputHandler<?> outputHandler, byte[] output)
+    throws IOException
+  {
+    BufferedReader lines = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(output), StandardCharsets.UTF_8));
+    LineReader reader = lines::readLine;
+    if (outputHandler instanceof MergeTreeOutputHandler) {
+      ((MergeTreeOutputHandler) outputHandler).processReader(reader);
+    } else if (outputHandler instanceof LinesOutputHandler) {
+      ((LinesOutputHandler) outputHandler).processReader(reader);
+    } else {
+      throw new UnsupportedOperationException(outputHandler.getClass().getName());
+    }
+  }
+
+  private Result run(List<String> arguments, byte[] input)
+  {
+    List<String> command = new ArrayList<String>();
+    command.add("git");
+    command.addAll(arguments);
+    try {
+      Process process = new ProcessBuilder(command).directory(directory.toFile()).start();
+      CompletableFuture<byte[]> stdout = CompletableFuture.supplyAsync(() -> readAll(process.getInputStream()), PIPE_READERS);
+      CompletableFuture<byte[]> stderr = CompletableFuture.supplyAsync(() -> readAll(process.getErrorStream()), PIPE_READERS);
+      try (OutputStream stdin = process.getOutputStream()) {
+        if (input != null) {
+          stdin.write(input);
+        }
+      } catch (IOException e) {
+        // Git stopped reading because it failed, its exit code and stderr say why.
+      }
+      int exitCode = process.waitFor();
+      return new Result(exitCode, stdout.join(), new String(stderr.join(), StandardCharsets.UTF_8).trim());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static byte[] readAll(InputStream in)
+  {
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void data(StringBuilder stream, String content)
+  {
+    stream.append("data ").append(content.getBytes(StandardCharsets.UTF_8).length).append('\n').append(content).append('\n');
+  }
+
+  public static final class Commit
+  {
+    private final String branch;
+    private final String parent;
+    private final Map<String, String> files;
+
+    public Commit(String branch, String parent, Map<String, String> files)
+    {
+      this.branch = branch;
+      this.parent = parent;
+      this.files = files;
+    }
+  }
+
+  private static final class Result
+  {
+    private final int exitCode;
+    private final byte[] stdout;
+    private final String stderr;
+
+    Result(int exitCode, byte[] stdout, String stderr)
+    {
+      this.exitCode = exitCode;
+      this.stdout = stdout;
+      this.stderr = stderr;
+    }
+  }
+}
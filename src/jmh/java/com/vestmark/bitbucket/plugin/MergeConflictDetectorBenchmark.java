@@ -0,0 +1,96 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.repository.Branch;
+import com.atlassian.bitbucket.scm.git.command.merge.conflict.GitMergeConflict;
+
+/**
+ * Sorting a detector's results and building the REST models for them, with many targets and long
+ * conflicting file lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeConflictDetectorBenchmark
+{
+  @Param({"10", "50"})
+  public int targets;
+
+  @Param({"10", "1000"})
+  public int conflicts;
+
+  private List<MergeResult> results;
+  private MergeConflictDetector detector;
+
+  @Setup(Level.Trial)
+  public void setUpResults()
+  {
+    MergeConflicts.Builder builder = new MergeConflicts.Builder(MergeConflictChecker.DEFAULT_MAX_CONFLICTS);
+    for (GitMergeConflict conflict : BenchmarkFixtures.conflicts(conflicts)) {
+      builder.add(conflict);
+    }
+    MergeConflicts mergeConflicts = builder.build();
+    results = new ArrayList<MergeResult>(targets);
+    for (Branch branch : BenchmarkFixtures.releaseBranches(targets)) {
+      results.add(new MergeResult(branch, mergeConflicts, new ArrayList<String>(), true));
+    }
+  }
+
+  // A fresh detector per invocation so every sort starts from the same shuffled order.
+  @Setup(Level.Invocation)
+  public void setUpDetector()
+  {
+    PullRequest pullRequest = BenchmarkFixtures.pullRequest(BenchmarkFixtures.repository(), "release/app-8.0");
+    detector = BenchmarkFixtures.detector(pullRequest);
+    for (MergeResult result : BenchmarkFixtures.shuffled(results, 11L)) {
+      detector.addResult(result);
+    }
+  }
+
+  @Benchmark
+  public MergeConflictDetector sortMergeResults()
+  {
+    detector.sortMergeResults();
+    return detector;
+  }
+
+  @Benchmark
+  public List<MergeResultsModel> getMergeResultsModelList()
+  {
+    return detector.getMergeResultsModelList();
+  }
+}
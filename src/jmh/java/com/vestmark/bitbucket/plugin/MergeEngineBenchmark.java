@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.atlassian.bitbucket.repository.Branch;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+
+/**
+ * The two merge engines merging the same pull request in a synthetic local repository. The dry run
+ * engine's merge is stood in for by a merge in a temporary worktree, which is what Bitbucket's dry
+ * run merge does on disk, and the merge-tree engine runs git merge-tree in the repository itself.
+ * Both sides change 50 files besides the conflicting ones. Needs git 2.38 or later on the path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MergeEngineBenchmark
+{
+  private static final int CHANGED_FILES = 50;
+
+  @Param({"dry-run", "merge-tree"})
+  public String engineName;
+
+  @Param({"1000", "10000"})
+  public int files;
+
+  @Param({"0", "20"})
+  public int conflicts;
+
+  private LocalGit git;
+  private MergeEngine engine;
+  private MergeConflictDetector detector;
+  private Branch target;
+
+  @Setup(Level.Trial)
+  public void setUpRepository()
+  {
+    git = LocalGit.create("mcd-merge-engine");
+    Map<String, String> base = new HashMap<String, String>();
+    for (int i = 0; i < files; i++) {
+      base.put(path(i), content(i, "base"));
+    }
+    String baseCommit = git.commit("master", null, base);
+    Map<String, String> targetChanges = new HashMap<String, String>();
+    Map<String, String> sourceChanges = new HashMap<String, String>();
+    for (int i = 0; i < conflicts; i++) {
+      targetChanges.put(path(i), content(i, "target"));
+      sourceChanges.put(path(i), content(i, "source"));
+    }
+    for (int i = 0; i < CHANGED_FILES; i++) {
+      targetChanges.put(path(conflicts + i), content(conflicts + i, "target"));
+      sourceChanges.put(path(conflicts + CHANGED_FILES + i), content(conflicts + CHANGED_FILES + i, "source"));
+    }
+    String targetCommit = git.commit("release/app-8.0", baseCommit, targetChanges);
+    String sourceCommit = git.commit("feature/benchmark", baseCommit, sourceChanges);
+
+    ApplicationPropertiesService properties = BenchmarkFixtures.applicationProperties();
+    DryRunMergeEngine dryRunEngine = new DryRunMergeEngine(properties, git.dryRunMergeFactory(sourceCommit, targetCommit));
+    engine = MergeTreeMergeEngine.NAME.equals(engineName)
+      ? new MergeTreeMergeEngine(new GitMergeTree(properties, git.builderFactory()), dryRunEngine)
+      : dryRunEngine;
+    detector = BenchmarkFixtures.detector(BenchmarkFixtures.pullRequest(BenchmarkFixtures.repository(), sourceCommit,
+                                                                        "release/app-8.0", targetCommit));
+    target = BenchmarkFixtures.branch("release/app-8.0", targetCommit);
+
+    MergeResult result = engine.merge(detector, target);
+    if (!result.isCacheable() || result.getMergeConflictsTotal() != conflicts) {
+      throw new IllegalStateException(engineName + " found " + result.getMergeConflictsTotal() + " conflicts, expected "
+                                      + conflicts + ": " + result.getMessages());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown()
+  {
+    git.delete();
+  }
+
+  @Benchmark
+  public MergeResult merge()
+  {
+    return engine.merge(detector, target);
+  }
+
+  // Spread over directories the way a real source tree is.
+  private static String path(int i)
+  {
+    return "src/main/java/com/example/module" + (i % 50) + "/File" + i + ".java";
+  }
+
+  private static String content(int i, String side)
+  {
+    StringBuilder content = new StringBuilder();
+    content.append("// ").append(side).append('\n');
+    for (int line = 0; line < 40; line++) {
+      content.append("int value").append(line).append(" = ").append(i * line).append(";\n");
+    }
+    return content.toString();
+  }
+}
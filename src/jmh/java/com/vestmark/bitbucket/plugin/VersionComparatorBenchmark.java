@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Branch name comparison, sorting and family lookups over a generated corpus of branch names.
+ * Names are compared and sorted within their family, as the plugin only ever orders branches of one
+ * family, and any exception from the comparator fails the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VersionComparatorBenchmark
+{
+  private static final int PAIRS = 1024;
+
+  @Param({"100", "2000"})
+  public int branches;
+
+  private List<List<String>> families;
+  private String[] left;
+  private String[] right;
+  private Pattern splitPattern;
+
+  @Setup
+  public void setUp()
+  {
+    Map<String, List<String>> byFamily = new LinkedHashMap<String, List<String>>();
+    for (String name : BenchmarkFixtures.branchNames(branches, 42L)) {
+      String family = VersionComparator.AS_STRING.getFamily(name);
+      byFamily.computeIfAbsent((family == null) ? "" : family, f -> new ArrayList<String>()).add(name);
+    }
+    families = new ArrayList<List<String>>(byFamily.values());
+    Random random = new Random(7L);
+    left = new String[PAIRS];
+    right = new String[PAIRS];
+    for (int i = 0; i < PAIRS; i++) {
+      List<String> family = families.get(random.nextInt(families.size()));
+      left[i] = family.get(random.nextInt(family.size()));
+      right[i] = family.get(random.nextInt(family.size()));
+    }
+    splitPattern = Pattern.compile(VersionComparator.DEFAULT_SPLIT_PATTERN);
+  }
+
+  @Benchmark
+  public void compare(Blackhole blackhole)
+  {
+    for (int i = 0; i < PAIRS; i++) {
+      blackhole.consume(VersionComparator.AS_STRING.compare(left[i], right[i]));
+    }
+  }
+
+  @Benchmark
+  public void sort(Blackhole blackhole)
+  {
+    for (List<String> family : families) {
+      List<String> sorted = new ArrayList<String>(family);
+      sorted.sort(VersionComparator.AS_STRING);
+      blackhole.consume(sorted);
+    }
+  }
+
+  @Benchmark
+  public void getFamily(Blackhole blackhole)
+  {
+    for (int i = 0; i < PAIRS; i++) {
+      blackhole.consume(VersionComparator.AS_STRING.getFamily(left[i]));
+    }
+  }
+
+  @Benchmark
+  public void getVersion(Blackhole blackhole)
+  {
+    for (int i = 0; i < PAIRS; i++) {
+      blackhole.consume(VersionComparator.AS_STRING.getVersion(left[i]));
+    }
+  }
+
+  /**
+   * The cost of a cache miss, paid once per branch name.
+   */
+  @Benchmark
+  public void parse(Blackhole blackhole)
+  {
+    for (int i = 0; i < PAIRS; i++) {
+      blackhole.consume(VersionKey.parse(left[i], splitPattern));
+    }
+  }
+}
@@ -0,0 +1,682 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+
+import com.atlassian.bitbucket.auth.AuthenticationContext;
+import com.atlassian.bitbucket.permission.PermissionService;
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.pull.PullRequestService;
+import com.atlassian.bitbucket.repository.RefService;
+import com.atlassian.bitbucket.scm.git.command.GitCommandBuilderFactory;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.bitbucket.user.ApplicationUser;
+import com.atlassian.bitbucket.user.EscalatedSecurityContext;
+import com.atlassian.bitbucket.user.SecurityService;
+import com.atlassian.bitbucket.util.Operation;
+
+/**
+ * Load test of the merge conflict REST resource on a single machine, offline and without a
+ * Bitbucket server. A synthetic bare repository is generated on local disk and the plugin's real
+ * components are wired to it, with git run for every merge. Each client sends a weighted mix of
+ * requests for random pull requests as a separate user until the time is up, and the test reports
+ * latency percentiles and throughput for each kind of request, and the most git processes seen
+ * running at once. With --nodes the components are wired once per node, as a Data Center cluster
+ * spreading its merges over a shared work queue, and --lose-node takes a node out part way. Run it
+ * with mvn -Ploadtest test -Dloadtest.args="--clients=100 ..." or with --help for the options. The merge-tree engine and cascade requests need git 2.38 or later, and
+ * the git process count needs Linux's /proc.
+ */
+public final class LoadTest
+{
+  private static final String PLUGIN_PROPERTY_PREFIX = "plugin.";
+  private static final int TOO_MANY_REQUESTS = 429;
+  // Option, default and description, in the order --help lists them.
+  private static final String[][] OPTIONS = {
+    {"families", "4", "release branch families"},
+    {"branches", "50", "release branches in each family"},
+    {"depth", "2", "parts in a release version, 2 for release/producta-1.0"},
+    {"files", "2000", "source files in the repository"},
+    {"pull-requests", "500", "open pull requests"},
+    {"conflict-density", "0.2", "share of pull requests that conflict further up their cascade"},
+    {"clients", "50", "concurrent clients, each a separate user"},
+    {"duration", "60", "seconds measured"},
+    {"warmup", "10", "seconds run before measuring"},
+    {"think-ms", "0", "pause between a client's requests"},
+    {"poll-ms", "500", "interval at which the modal polls its job, as the browser does"},
+    {"mix", "modal=50,summary=20,detail=10,cascade=10,results=5,repository=5", "weights of the request types"},
+    {"engine", MergeConflictChecker.DEFAULT_MERGE_ENGINE, "merge engine, dry-run or merge-tree"},
+    {"cold", "false", "disable the result cache and store, so every request merges"},
+    {"nodes", "1", "cluster nodes sharing a merge work queue and result store, clients spread over them"},
+    {"lose-node", "0", "seconds into the measured run at which the last node leaves the cluster, 0 for never"},
+    {"seed", "1", "seed for the repository and the clients"},
+    {"keep", "false", "keep the generated repository"},
+  };
+  private static final ThreadLocal<ApplicationUser> CURRENT_USER = new ThreadLocal<ApplicationUser>();
+
+  private enum RequestType
+  {
+    MODAL, RESULTS, SUMMARY, DETAIL, CASCADE, REPOSITORY;
+
+    String getName()
+    {
+      return name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  private final Map<String, String> options;
+  private final SyntheticRepository synthetic;
+  private final int[] cumulativeWeights;
+  private final InProcessMergeWorkTransport.Cluster cluster;
+  private final List<Node> nodes;
+  private final Request request;
+  private final HttpServletRequest httpRequest;
+  private final AtomicReference<Throwable> firstFailure;
+  private volatile long measureFrom;
+  private volatile long end;
+
+  private LoadTest(Map<String, String> options, SyntheticRepository synthetic)
+  {
+    this.options = options;
+    this.synthetic = synthetic;
+    cumulativeWeights = parseMix(options.get("mix"));
+    firstFailure = new AtomicReference<Throwable>();
+
+    Map<String, String> pluginProperties = new HashMap<String, String>();
+    pluginProperties.put(MergeConflictChecker.MERGE_ENGINE_PROPERTY, options.get("engine"));
+    boolean cold = Boolean.parseBoolean(options.get("cold"));
+    if (cold) {
+      pluginProperties.put(MergeResultCache.MAX_SIZE_PROPERTY, "0");
+    }
+    int nodeCount = intOption(options, "nodes");
+    if (nodeCount > 1) {
+      pluginProperties.put(MergeWorkDispatcher.ENABLED_PROPERTY, "true");
+    }
+    for (Map.Entry<String, String> option : options.entrySet()) {
+      if (option.getKey().startsWith(PLUGIN_PROPERTY_PREFIX)) {
+        pluginProperties.put(option.getKey(), option.getValue());
+      }
+    }
+    ApplicationPropertiesService properties = properties(pluginProperties);
+    AuthenticationContext authenticationContext = StandIn.of(AuthenticationContext.class)
+                                                         .answering("getCurrentUser", arguments -> CURRENT_USER.get())
+                                                         .returning("isAuthenticated", true)
+                                                         .build();
+    // Shared by every node, as the shared home is.
+    MergeResultStore resultStore = new InMemoryMergeResultStore(cold ? 0 : TimeUnit.HOURS.toMillis(1));
+    cluster = new InProcessMergeWorkTransport.Cluster();
+    nodes = new ArrayList<Node>(nodeCount);
+    for (int i = 0; i < nodeCount; i++) {
+      nodes.add(new Node("node-" + (i + 1), properties, authenticationContext, resultStore));
+    }
+    // No If-None-Match, every client asks as if for the first time.
+    request = StandIn.of(Request.class).build();
+    httpRequest = StandIn.of(HttpServletRequest.class).returning("getRemoteAddr", "127.0.0.1").build();
+  }
+
+  public static void main(String[] args)
+    throws Exception
+  {
+    Map<String, String> options;
+    try {
+      options = parseOptions(args);
+      parseMix(options.get("mix"));
+      if (!options.get("engine").equals(DryRunMergeEngine.NAME) && !options.get("engine").equals(MergeTreeMergeEngine.NAME)) {
+        throw new IllegalArgumentException("Unknown merge engine: " + options.get("engine"));
+      }
+      if (intOption(options, "nodes") < 1) {
+        throw new IllegalArgumentException("--nodes must be at least 1");
+      }
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      printUsage();
+      System.exit(2);
+      return;
+    }
+    if (options.containsKey("help")) {
+      printUsage();
+      return;
+    }
+
+    long generating = System.nanoTime();
+    SyntheticRepository synthetic = SyntheticRepository.create(intOption(options, "families"), intOption(options, "branches"),
+                                                               intOption(options, "depth"), intOption(options, "files"),
+                                                               intOption(options, "pull-requests"),
+                                                               Double.parseDouble(options.get("conflict-density")),
+                                                               Long.parseLong(options.get("seed")));
+    System.out.printf("Generated %s in %.1f s: %d release branches, %d pull requests of which %d conflict up their cascade%n",
+                      synthetic.getGit().getDirectory(), (System.nanoTime() - generating) / 1e9,
+                      synthetic.getReleaseBranches().size(), synthetic.getPullRequests().size(),
+                      synthetic.getConflictingPullRequests());
+    LoadTest test = new LoadTest(options, synthetic);
+    try {
+      test.run();
+    } finally {
+      test.nodes.forEach(Node::destroy);
+      if (!Boolean.parseBoolean(options.get("keep"))) {
+        synthetic.delete();
+      }
+    }
+  }
+
+  private void run()
+    throws InterruptedException
+  {
+    int clientCount = intOption(options, "clients");
+    long warmupNanos = TimeUnit.SECONDS.toNanos(intOption(options, "warmup"));
+    long durationNanos = TimeUnit.SECONDS.toNanos(intOption(options, "duration"));
+    System.out.printf("Running %d clients on %d node%s with %s merges for %d s after %d s of warmup, mix %s%n", clientCount,
+                      nodes.size(), (nodes.size() == 1) ? "" : "s", options.get("engine"), TimeUnit.NANOSECONDS.toSeconds(durationNanos),
+                      TimeUnit.NANOSECONDS.toSeconds(warmupNanos), options.get("mix"));
+
+    GitProcessSampler sampler = new GitProcessSampler();
+    Thread samplerThread = new Thread(sampler, "git-process-sampler");
+    samplerThread.setDaemon(true);
+    samplerThread.start();
+
+    measureFrom = System.nanoTime() + warmupNanos;
+    end = measureFrom + durationNanos;
+    int loseNodeSeconds = intOption(options, "lose-node");
+    if (nodes.size() > 1 && loseNodeSeconds > 0) {
+      Thread loser = new Thread(() -> loseNode(nodes.get(nodes.size() - 1), measureFrom + TimeUnit.SECONDS.toNanos(loseNodeSeconds)),
+                                "load-test-lose-node");
+      loser.setDaemon(true);
+      loser.start();
+    }
+    long seed = Long.parseLong(options.get("seed"));
+    List<Client> clients = new ArrayList<Client>(clientCount);
+    List<Thread> threads = new ArrayList<Thread>(clientCount);
+    for (int i = 0; i < clientCount; i++) {
+      Client client = new Client(i, nodes.get(i % nodes.size()), new Random(seed + i));
+      clients.add(client);
+      threads.add(new Thread(client, "load-test-client-" + i));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long finished = Math.min(System.nanoTime(), end);
+    samplerThread.interrupt();
+
+    report(clients, finished - measureFrom, sampler);
+  }
+
+  private void report(List<Client> clients, long measuredNanos, GitProcessSampler sampler)
+  {
+    Samples all = new Samples();
+    System.out.printf("%n%-11s %8s %8s %8s %8s %9s %9s %9s %9s%n", "request", "count", "ok", "rejected", "failed", "p50 ms",
+                      "p95 ms", "p99 ms", "max ms");
+    for (RequestType type : RequestType.values()) {
+      Samples samples = new Samples();
+      for (Client client : clients) {
+        samples.addAll(client.samples[type.ordinal()]);
+      }
+      if (samples.count > 0) {
+        printRow(type.getName(), samples);
+        all.addAll(samples);
+      }
+    }
+    printRow("all", all);
+    double seconds = measuredNanos / 1e9;
+    System.out.printf("%nThroughput: %.1f requests/s over %.0f s%n", all.count / seconds, seconds);
+    System.out.println("Peak git processes: " + (sampler.isAvailable() ? Integer.toString(sampler.getPeak()) : "not available without /proc"));
+    if (nodes.size() > 1) {
+      long distributed = 0;
+      long fallbacks = 0;
+      for (Node node : nodes) {
+        distributed += node.metrics.getDistributedMergeCount();
+        fallbacks += node.metrics.getClusterFallbackCount();
+      }
+      System.out.printf("Cluster: %d merges answered through the work queue, %d run by the requesting node instead%n",
+                        distributed, fallbacks);
+      for (Node node : nodes) {
+        System.out.printf("  %-8s ran %d merges for the cluster%n", node.id, node.metrics.getClusterWorkCount());
+      }
+    }
+    Throwable failure = firstFailure.get();
+    if (failure != null) {
+      System.out.println("First failure: " + failure);
+    }
+  }
+
+  private static void printRow(String name, Samples samples)
+  {
+    long[] latencies = Arrays.copyOf(samples.latencies, samples.count);
+    Arrays.sort(latencies);
+    System.out.printf("%-11s %8d %8d %8d %8d %9.1f %9.1f %9.1f %9.1f%n", name, samples.count, samples.ok, samples.rejected,
+                      samples.failed, percentileMillis(latencies, 0.50), percentileMillis(latencies, 0.95),
+                      percentileMillis(latencies, 0.99), percentileMillis(latencies, 1.0));
+  }
+
+  private static double percentileMillis(long[] sorted, double fraction)
+  {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int rank = (int) Math.ceil(fraction * sorted.length);
+    return sorted[Math.max(0, rank - 1)] / 1e6;
+  }
+
+  // Leaves its clients on the node, which runs their merges itself from then on.
+  private void loseNode(Node node, long at)
+  {
+    try {
+      TimeUnit.NANOSECONDS.sleep(at - System.nanoTime());
+    } catch (InterruptedException e) {
+      return;
+    }
+    cluster.leave(node.id);
+    System.out.printf("%s left the cluster%n", node.id);
+  }
+
+  private Response send(MergeConflictDetectorService service, RequestType type, PullRequest pullRequest, Random random)
+    throws InterruptedException
+  {
+    String repoId = Integer.toString(synthetic.getRepository().getId());
+    String pullRequestId = Long.toString(pullRequest.getId());
+    switch (type) {
+      case MODAL:
+        return openModal(service, repoId, pullRequestId);
+      case RESULTS:
+        return service.getMergeResults(repoId, pullRequestId, request, httpRequest);
+      case SUMMARY:
+        return service.getMergeSummary(repoId, pullRequestId, request, httpRequest);
+      case DETAIL:
+        return service.getMergeDetail(repoId, pullRequestId, pullRequest.getToRef().getDisplayId(), 0, 100, request, httpRequest);
+      case CASCADE:
+        return service.getCascade(repoId, pullRequestId, request, httpRequest);
+      case REPOSITORY:
+        int pages = Math.max(1, (synthetic.getPullRequests().size() + 99) / 100);
+        return service.getRepositoryMergeResults(repoId, "OPEN", random.nextInt(pages) * 100, 100, httpRequest);
+      default:
+        throw new IllegalArgumentException(type.getName());
+    }
+  }
+
+  // Starts a job and polls it until it is done, the way the pull request modal does.
+  private Response openModal(MergeConflictDetectorService service, String repoId, String pullRequestId)
+    throws InterruptedException
+  {
+    long pollMs = intOption(options, "poll-ms");
+    Response response = service.startMergeCheck(repoId, pullRequestId, request, httpRequest);
+    while (response.getStatus() == Response.Status.OK.getStatusCode()) {
+      MergeCheckJobModel job = (MergeCheckJobModel) response.getEntity();
+      if (job.isDone()) {
+        break;
+      }
+      Thread.sleep(pollMs);
+      response = service.getMergeCheck(repoId, pullRequestId, job.getJobId(), job.getCursor());
+    }
+    return response;
+  }
+
+  private RequestType pick(Random random)
+  {
+    int ticket = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    int type = 0;
+    while (ticket >= cumulativeWeights[type]) {
+      type++;
+    }
+    return RequestType.values()[type];
+  }
+
+  private static int[] parseMix(String mix)
+  {
+    int[] weights = new int[RequestType.values().length];
+    for (String entry : mix.split(",")) {
+      String[] weight = entry.trim().split("=", 2);
+      RequestType type = Arrays.stream(RequestType.values())
+                               .filter(t -> t.getName().equals(weight[0]))
+                               .findFirst()
+                               .orElseThrow(() -> new IllegalArgumentException("Unknown request type in mix: " + weight[0]));
+      try {
+        weights[type.ordinal()] = Integer.parseInt(weight[1]);
+      } catch (RuntimeException e) {
+        throw new IllegalArgumentException("Bad weight in mix: " + entry);
+      }
+    }
+    for (int i = 1; i < weights.length; i++) {
+      weights[i] += weights[i - 1];
+    }
+    if (weights[weights.length - 1] <= 0) {
+      throw new IllegalArgumentException("The mix has no weight: " + mix);
+    }
+    return weights;
+  }
+
+  private static Map<String, String> parseOptions(String[] args)
+  {
+    Map<String, String> options = new LinkedHashMap<String, String>();
+    for (String[] option : OPTIONS) {
+      options.put(option[0], option[1]);
+    }
+    for (String arg : args) {
+      // A bare "help" too, as XML comments in the pom cannot show a double dash.
+      if (arg.equals("help")) {
+        options.put(arg, "true");
+        continue;
+      }
+      if (!arg.startsWith("--")) {
+        throw new IllegalArgumentException("Unexpected argument: " + arg);
+      }
+      int equals = arg.indexOf('=');
+      String name = (equals < 0) ? arg.substring(2) : arg.substring(2, equals);
+      if (!options.containsKey(name) && !name.equals("help") && !name.startsWith(PLUGIN_PROPERTY_PREFIX)) {
+        throw new IllegalArgumentException("Unknown option: " + arg);
+      }
+      options.put(name, (equals < 0) ? "true" : arg.substring(equals + 1));
+    }
+    return options;
+  }
+
+  private static int intOption(Map<String, String> options, String name)
+  {
+    try {
+      return Integer.parseInt(options.get(name));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("--" + name + " must be a number: " + options.get(name));
+    }
+  }
+
+  private static void printUsage()
+  {
+    System.out.println("Options, each given as --name=value:");
+    for (String[] option : OPTIONS) {
+      System.out.printf("  --%-18s %s (default %s)%n", option[0], option[2], option[1]);
+    }
+    System.out.printf("  --%-18s sets a plugin property, such as --%s=16%n", "plugin.mcd.<name>", MergeExecutor.THREADS_PROPERTY);
+  }
+
+  /**
+   * Properties with the plugin's defaults, except for those given.
+   */
+  private static ApplicationPropertiesService properties(Map<String, String> pluginProperties)
+  {
+    return StandIn.of(ApplicationPropertiesService.class)
+                  .returning("getBaseUrl", URI.create("http://localhost:7990/bitbucket"))
+                  .answering("getPluginProperty", arguments -> {
+                    String value = pluginProperties.get((String) arguments[0]);
+                    Object defaultValue = (arguments.length > 1) ? arguments[1] : null;
+                    if (value == null) {
+                      return defaultValue;
+                    }
+                    if (defaultValue instanceof Integer) {
+                      return Integer.valueOf(value);
+                    }
+                    if (defaultValue instanceof Long) {
+                      return Long.valueOf(value);
+                    }
+                    if (defaultValue instanceof Boolean) {
+                      return Boolean.valueOf(value);
+                    }
+                    return value;
+                  })
+                  .build();
+  }
+
+  // Runs everything asked of it with the permission it asks for.
+  private static SecurityService securityService()
+  {
+    EscalatedSecurityContext escalated = StandIn.of(EscalatedSecurityContext.class)
+                                                .answering("call", arguments -> {
+                                                  try {
+                                                    return ((Operation<?, ?>) arguments[0]).perform();
+                                                  } catch (RuntimeException e) {
+                                                    throw e;
+                                                  } catch (Throwable t) {
+                                                    throw new IllegalStateException(t);
+                                                  }
+                                                })
+                                                .build();
+    return StandIn.of(SecurityService.class).returning("withPermission", escalated).build();
+  }
+
+  private final class Client
+      implements Runnable
+  {
+    private final ApplicationUser user;
+    private final Node node;
+    private final Random random;
+    private final Samples[] samples;
+
+    Client(int index, Node node, Random random)
+    {
+      user = StandIn.of(ApplicationUser.class)
+                    .returning("getId", index + 1)
+                    .returning("getName", "client" + index)
+                    .returning("getSlug", "client" + index)
+                    .build();
+      this.node = node;
+      this.random = random;
+      samples = new Samples[RequestType.values().length];
+      for (int i = 0; i < samples.length; i++) {
+        samples[i] = new Samples();
+      }
+    }
+
+    @Override
+    public void run()
+    {
+      CURRENT_USER.set(user);
+      long thinkMs = intOption(options, "think-ms");
+      List<PullRequest> pullRequests = synthetic.getPullRequests();
+      try {
+        for (long started = System.nanoTime(); started < end; started = System.nanoTime()) {
+          RequestType type = pick(random);
+          Response response = null;
+          try {
+            response = send(node.service, type, pullRequests.get(random.nextInt(pullRequests.size())), random);
+          } catch (RuntimeException e) {
+            firstFailure.compareAndSet(null, e);
+          }
+          long finished = System.nanoTime();
+          int status = (response == null) ? -1 : response.getStatus();
+          // Requests still running when the time is up are counted, they were sent while measuring.
+          if (started >= measureFrom) {
+            samples[type.ordinal()].add(finished - started, status);
+          }
+          if (status == TOO_MANY_REQUESTS) {
+            // Backs off for as long as it is told to, up to the end of the run.
+            Object retryAfter = response.getMetadata().getFirst("Retry-After");
+            long retryAfterMs = TimeUnit.SECONDS.toMillis((retryAfter == null) ? 1 : Long.parseLong(retryAfter.toString()));
+            Thread.sleep(Math.max(0, Math.min(retryAfterMs, TimeUnit.NANOSECONDS.toMillis(end - finished))));
+          } else if (thinkMs > 0) {
+            Thread.sleep(thinkMs);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * One node of the stand-in cluster, with its own executor, cache and metrics in front of the
+   * shared result store and work queue.
+   */
+  private final class Node
+  {
+    private final String id;
+    private final MergeExecutor mergeExecutor;
+    private final MergeConflictMetrics metrics;
+    private final MergeWorkDispatcher dispatcher;
+    private final MergeCheckJobManager jobManager;
+    private final MergeConflictDetectorService service;
+
+    Node(String id, ApplicationPropertiesService properties, AuthenticationContext authenticationContext,
+         MergeResultStore resultStore)
+    {
+      this.id = id;
+      PullRequestService pullRequestService = synthetic.pullRequestService();
+      RefService refService = synthetic.refService();
+      GitCommandBuilderFactory builderFactory = synthetic.getGit().builderFactory();
+      DryRunMergeEngine dryRunEngine = new DryRunMergeEngine(properties, synthetic.getGit().dryRunMergeFactory());
+      GitMergeTree mergeTree = new GitMergeTree(properties, builderFactory);
+      MergeResultCache resultCache = new MergeResultCache(properties);
+      mergeExecutor = new MergeExecutor(properties);
+      metrics = new MergeConflictMetrics(properties);
+      dispatcher = new MergeWorkDispatcher(properties, cluster.join(id), pullRequestService, refService, securityService(), metrics);
+      MergeConflictChecker checker = new MergeConflictChecker(properties, dryRunEngine, new MergeTreeMergeEngine(mergeTree, dryRunEngine),
+                                                              refService, synthetic.branchModelService(), resultCache, resultStore,
+                                                              mergeExecutor, new ReleaseBranchIndex(properties),
+                                                              new AutoMergeFailureIndex(properties, pullRequestService, securityService()), metrics,
+                                                              new MergeClassifier(properties, builderFactory, pullRequestService), dispatcher);
+      jobManager = new MergeCheckJobManager(checker, metrics);
+      service = new MergeConflictDetectorService(pullRequestService, authenticationContext,
+                                                 StandIn.of(PermissionService.class).returning("hasGlobalPermission", true).build(),
+                                                 synthetic.repositoryService(), checker,
+                                                 jobManager, resultCache,
+                                                 mergeExecutor, metrics,
+                                                 new ConflictPredictor(pullRequestService, refService, checker),
+                                                 new AdmissionController(properties, metrics), new CascadeSimulator(properties, mergeTree, mergeExecutor, metrics));
+      dispatcher.afterPropertiesSet();
+      jobManager.afterPropertiesSet();
+    }
+
+    void destroy()
+    {
+      jobManager.destroy();
+      dispatcher.destroy();
+      mergeExecutor.destroy();
+    }
+  }
+
+  // Latencies of one client's requests of one type, and how they were answered.
+  private static final class Samples
+  {
+    private long[] latencies = new long[1024];
+    private int count;
+    private int ok;
+    private int rejected;
+    private int failed;
+
+    void add(long nanos, int status)
+    {
+      if (count == latencies.length) {
+        latencies = Arrays.copyOf(latencies, count * 2);
+      }
+      latencies[count++] = nanos;
+      if (status >= 200 && status < 300) {
+        ok++;
+      } else if (status == TOO_MANY_REQUESTS) {
+        rejected++;
+      } else {
+        failed++;
+      }
+    }
+
+    void addAll(Samples other)
+    {
+      if (count + other.count > latencies.length) {
+        latencies = Arrays.copyOf(latencies, count + other.count);
+      }
+      System.arraycopy(other.latencies, 0, latencies, count, other.count);
+      count += other.count;
+      ok += other.ok;
+      rejected += other.rejected;
+      failed += other.failed;
+    }
+  }
+
+  /**
+   * Counts this process's git children in /proc every few milliseconds and keeps the highest count.
+   */
+  private static final class GitProcessSampler
+      implements Runnable
+  {
+    private static final long INTERVAL_MS = 10;
+
+    private final Path proc = Paths.get("/proc");
+    private final String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+    private final AtomicInteger peak = new AtomicInteger();
+
+    boolean isAvailable()
+    {
+      return Files.isDirectory(proc.resolve(pid));
+    }
+
+    int getPeak()
+    {
+      return peak.get();
+    }
+
+    @Override
+    public void run()
+    {
+      if (!isAvailable()) {
+        return;
+      }
+      try {
+        while (!Thread.currentThread().isInterrupted()) {
+          peak.accumulateAndGet(countGitChildren(), Math::max);
+          Thread.sleep(INTERVAL_MS);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private int countGitChildren()
+    {
+      int count = 0;
+      try (DirectoryStream<Path> processes = Files.newDirectoryStream(proc, "[0-9]*")) {
+        for (Path process : processes) {
+          String stat;
+          try {
+            stat = new String(Files.readAllBytes(process.resolve("stat")), StandardCharsets.US_ASCII);
+          } catch (IOException e) {
+            // Exited while listing.
+            continue;
+          }
+          // pid (comm) state ppid ..., the command name may itself contain spaces or parentheses.
+          int open = stat.indexOf('(');
+          int close = stat.lastIndexOf(')');
+          if (open < 0 || close < open || !"git".equals(stat.substring(open + 1, close))) {
+            continue;
+          }
+          String[] fields = stat.substring(close + 2).split(" ", 3);
+          if (fields.length > 1 && fields[1].equals(pid)) {
+            count++;
+          }
+        }
+      } catch (IOException e) {
+        return 0;
+      }
+      return count;
+    }
+  }
+}
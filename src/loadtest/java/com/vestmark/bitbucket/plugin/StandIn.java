@@ -0,0 +1,105 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Builds an implementation of a Bitbucket interface that answers a few methods and returns null,
+ * zero or false from the rest. The load test uses these in place of mocks for anything called on
+ * every request, as mocks remember each invocation and a long run would fill the heap with them.
+ */
+final class StandIn<T>
+{
+  private final Class<T> type;
+  private final Map<String, Function<Object[], Object>> answers;
+
+  private StandIn(Class<T> type)
+  {
+    this.type = type;
+    answers = new HashMap<String, Function<Object[], Object>>();
+  }
+
+  static <T> StandIn<T> of(Class<T> type)
+  {
+    return new StandIn<T>(type);
+  }
+
+  StandIn<T> returning(String method, Object value)
+  {
+    return answering(method, arguments -> value);
+  }
+
+  StandIn<T> answering(String method, Function<Object[], Object> answer)
+  {
+    answers.put(method, answer);
+    return this;
+  }
+
+  T build()
+  {
+    Map<String, Function<Object[], Object>> answers = new HashMap<String, Function<Object[], Object>>(this.answers);
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, arguments) -> {
+      Function<Object[], Object> answer = answers.get(method.getName());
+      if (answer != null) {
+        return answer.apply(arguments);
+      }
+      switch (method.getName()) {
+        case "equals":
+          return proxy == arguments[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+        default:
+          return defaultValue(method);
+      }
+    }));
+  }
+
+  private static Object defaultValue(Method method)
+  {
+    Class<?> returnType = method.getReturnType();
+    if (!returnType.isPrimitive() || returnType == void.class) {
+      return null;
+    }
+    if (returnType == boolean.class) {
+      return false;
+    }
+    if (returnType == char.class) {
+      return '\0';
+    }
+    if (returnType == long.class) {
+      return 0L;
+    }
+    if (returnType == float.class) {
+      return 0f;
+    }
+    if (returnType == double.class) {
+      return 0d;
+    }
+    if (returnType == byte.class) {
+      return (byte) 0;
+    }
+    if (returnType == short.class) {
+      return (short) 0;
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.atlassian.bitbucket.branch.model.BranchClassifier;
+import com.atlassian.bitbucket.branch.model.BranchModel;
+import com.atlassian.bitbucket.branch.model.BranchModelService;
+import com.atlassian.bitbucket.branch.model.BranchType;
+import com.atlassian.bitbucket.project.Project;
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.pull.PullRequestParticipant;
+import com.atlassian.bitbucket.pull.PullRequestRef;
+import com.atlassian.bitbucket.pull.PullRequestService;
+import com.atlassian.bitbucket.pull.PullRequestState;
+import com.atlassian.bitbucket.repository.Branch;
+import com.atlassian.bitbucket.repository.RefService;
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.bitbucket.repository.RepositoryService;
+import com.atlassian.bitbucket.repository.ResolveRefRequest;
+import com.atlassian.bitbucket.user.ApplicationUser;
+import com.atlassian.bitbucket.util.PageImpl;
+import com.atlassian.bitbucket.util.PageRequest;
+
+/**
+ * A bare repository shaped like a long lived product's. Each family of release branches is a chain
+ * in version order, every release changing a file of its own that the releases after it carry too.
+ * Open pull requests come from feature branches off a random release and change a few source files.
+ * A share of them, the conflict density, also change the file of a release further up their family,
+ * so their cascade conflicts from that release on. The default branch has a change of its own.
+ */
+public final class SyntheticRepository
+{
+  private static final int FILE_LINES = 20;
+  private static final int FILES_PER_PULL_REQUEST = 3;
+
+  private final LocalGit git;
+  private final Repository repository;
+  private final Branch defaultBranch;
+  private final List<Branch> releaseBranches;
+  private final Map<String, Branch> branchesById;
+  private final List<PullRequest> pullRequests;
+  private final int conflictingPullRequests;
+
+  private SyntheticRepository(LocalGit git, Repository repository, Branch defaultBranch, List<Branch> releaseBranches,
+                              List<PullRequest> pullRequests, int conflictingPullRequests)
+  {
+    this.git = git;
+    this.repository = repository;
+    this.defaultBranch = defaultBranch;
+    this.releaseBranches = releaseBranches;
+    this.pullRequests = pullRequests;
+    this.conflictingPullRequests = conflictingPullRequests;
+    branchesById = new HashMap<String, Branch>();
+    branchesById.put(defaultBranch.getId(), defaultBranch);
+    for (Branch branch : releaseBranches) {
+      branchesById.put(branch.getId(), branch);
+    }
+  }
+
+  /**
+   * Generates the repository. Versions have versionDepth parts, release/producta-1.0 to 1.9 then
+   * 2.0 and so on for a depth of two.
+   */
+  public static SyntheticRepository create(int families, int branchesPerFamily, int versionDepth, int files,
+                                           int pullRequestCount, double conflictDensity, long seed)
+  {
+    LocalGit git = LocalGit.create("mcd-load-test", true);
+    try {
+      return generate(git, families, branchesPerFamily, versionDepth, files, pullRequestCount, conflictDensity, new Random(seed));
+    } catch (RuntimeException e) {
+      git.delete();
+      throw e;
+    }
+  }
+
+  private static SyntheticRepository generate(LocalGit git, int families, int branchesPerFamily, int versionDepth, int files,
+                                              int pullRequestCount, double conflictDensity, Random random)
+  {
+    Map<String, String> base = new HashMap<String, String>();
+    for (int i = 0; i < files; i++) {
+      base.put(sourcePath(i), content("base " + i));
+    }
+    for (int family = 0; family < families; family++) {
+      for (int release = 0; release < branchesPerFamily; release++) {
+        base.put(releasePath(family, release), content("base"));
+      }
+    }
+    base.put("VERSION", content("base"));
+    String baseCommit = git.commit("master", null, base);
+
+    List<LocalGit.Commit> commits = new ArrayList<LocalGit.Commit>();
+    List<String> releaseNames = new ArrayList<String>();
+    for (int family = 0; family < families; family++) {
+      for (int release = 0; release < branchesPerFamily; release++) {
+        String name = "release/" + familyName(family) + version(release, versionDepth);
+        commits.add(new LocalGit.Commit(name, (release == 0) ? baseCommit : releaseNames.get(releaseNames.size() - 1),
+                                        Collections.singletonMap(releasePath(family, release), content(name))));
+        releaseNames.add(name);
+      }
+    }
+    commits.add(new LocalGit.Commit("master", "master", Collections.singletonMap("VERSION", content("master"))));
+
+    int[] targets = new int[pullRequestCount];
+    int conflicting = 0;
+    for (int id = 1; id <= pullRequestCount; id++) {
+      int family = random.nextInt(families);
+      boolean conflicts = branchesPerFamily > 1 && random.nextDouble() < conflictDensity;
+      int release = random.nextInt(conflicts ? branchesPerFamily - 1 : branchesPerFamily);
+      Map<String, String> changes = new HashMap<String, String>();
+      for (int i = 0; i < FILES_PER_PULL_REQUEST && i < files; i++) {
+        int file = random.nextInt(files);
+        changes.put(sourcePath(file), content("pull request " + id + " " + file));
+      }
+      if (conflicts) {
+        int upstream = release + 1 + random.nextInt(branchesPerFamily - release - 1);
+        changes.put(releasePath(family, upstream), content("pull request " + id));
+        conflicting++;
+      }
+      targets[id - 1] = family * branchesPerFamily + release;
+      commits.add(new LocalGit.Commit(featureName(id), releaseNames.get(targets[id - 1]), changes));
+    }
+    Map<String, String> heads = git.commit(commits);
+
+    Repository repository = repository();
+    Branch defaultBranch = branch("master", heads.get("master"));
+    List<Branch> releaseBranches = new ArrayList<Branch>(releaseNames.size());
+    for (String name : releaseNames) {
+      releaseBranches.add(branch(name, heads.get(name)));
+    }
+    List<PullRequest> pullRequests = new ArrayList<PullRequest>(pullRequestCount);
+    for (int id = 1; id <= pullRequestCount; id++) {
+      String target = releaseNames.get(targets[id - 1]);
+      pullRequests.add(pullRequest(id, ref(repository, featureName(id), heads.get(featureName(id))),
+                                   ref(repository, target, heads.get(target))));
+    }
+    return new SyntheticRepository(git, repository, defaultBranch, releaseBranches, pullRequests, conflicting);
+  }
+
+  public Repository getRepository()
+  {
+    return repository;
+  }
+
+  public List<Branch> getReleaseBranches()
+  {
+    return releaseBranches;
+  }
+
+  public List<PullRequest> getPullRequests()
+  {
+    return pullRequests;
+  }
+
+  public int getConflictingPullRequests()
+  {
+    return conflictingPullRequests;
+  }
+
+  public LocalGit getGit()
+  {
+    return git;
+  }
+
+  public RepositoryService repositoryService()
+  {
+    return StandIn.of(RepositoryService.class)
+                  .answering("getById", arguments -> ((Integer) arguments[0] == repository.getId()) ? repository : null)
+                  .build();
+  }
+
+  public RefService refService()
+  {
+    return StandIn.of(RefService.class)
+                  .returning("getDefaultBranch", defaultBranch)
+                  .answering("resolveRef", arguments -> branchesById.get(((ResolveRefRequest) arguments[0]).getRefId()))
+                  .build();
+  }
+
+  /**
+   * Returns the repository's pull requests whatever the search asks for, a page at a time.
+   */
+  public PullRequestService pullRequestService()
+  {
+    return StandIn.of(PullRequestService.class)
+                  .answering("getById", arguments -> {
+                    long id = (Long) arguments[1];
+                    return ((Integer) arguments[0] == repository.getId() && id >= 1 && id <= pullRequests.size())
+                      ? pullRequests.get((int) id - 1)
+                      : null;
+                  })
+                  .answering("search", arguments -> {
+                    PageRequest pageRequest = (PageRequest) arguments[1];
+                    int start = Math.min(pageRequest.getStart(), pullRequests.size());
+                    int end = Math.min(start + pageRequest.getLimit(), pullRequests.size());
+                    return new PageImpl<PullRequest>(pageRequest, pullRequests.subList(start, end), end == pullRequests.size());
+                  })
+                  .build();
+  }
+
+  /**
+   * Returns a branch model whose release branches are everything under release/.
+   */
+  public BranchModelService branchModelService()
+  {
+    BranchType release = StandIn.of(BranchType.class)
+                                .returning("getId", "RELEASE")
+                                .returning("getPrefix", "release/")
+                                .build();
+    BranchClassifier classifier = StandIn.of(BranchClassifier.class)
+                                         .returning("getType", release)
+                                         .answering("getBranchesByType", arguments -> {
+                                           PageRequest pageRequest = (PageRequest) arguments[1];
+                                           int start = Math.min(pageRequest.getStart(), releaseBranches.size());
+                                           int end = Math.min(start + pageRequest.getLimit(), releaseBranches.size());
+                                           return new PageImpl<Branch>(pageRequest, releaseBranches.subList(start, end),
+                                                                       end == releaseBranches.size());
+                                         })
+                                         .build();
+    BranchModel model = StandIn.of(BranchModel.class).returning("getClassifier", classifier).build();
+    return StandIn.of(BranchModelService.class).returning("getModel", model).build();
+  }
+
+  public void delete()
+  {
+    git.delete();
+  }
+
+  // Letters only, a digit would be taken as part of the version.
+  private static String familyName(int family)
+  {
+    StringBuilder name = new StringBuilder("product");
+    for (int i = family; i >= 0; i = i / 26 - 1) {
+      name.append((char) ('a' + i % 26));
+    }
+    return name.append('-').toString();
+  }
+
+  private static String version(int release, int depth)
+  {
+    StringBuilder version = new StringBuilder();
+    int rest = release;
+    for (int part = 1; part < depth; part++) {
+      version.insert(0, "." + rest % 10);
+      rest /= 10;
+    }
+    return version.insert(0, 1 + rest).toString();
+  }
+
+  private static String featureName(int id)
+  {
+    return "feature/pr-" + id;
+  }
+
+  private static String sourcePath(int i)
+  {
+    return "src/main/java/com/example/module" + (i % 50) + "/File" + i + ".java";
+  }
+
+  private static String releasePath(int family, int release)
+  {
+    return "releases/" + familyName(family) + "/" + release + ".txt";
+  }
+
+  private static String content(String change)
+  {
+    StringBuilder content = new StringBuilder();
+    for (int line = 0; line < FILE_LINES; line++) {
+      content.append(change).append(' ').append(line).append('\n');
+    }
+    return content.toString();
+  }
+
+  private static Repository repository()
+  {
+    Project project = StandIn.of(Project.class).returning("getKey", "PRJ").build();
+    return StandIn.of(Repository.class)
+                  .returning("getId", 1)
+                  .returning("getSlug", "synthetic")
+                  .returning("getName", "synthetic")
+                  .returning("getProject", project)
+                  .build();
+  }
+
+  private static Branch branch(String displayId, String latestCommit)
+  {
+    return StandIn.of(Branch.class)
+                  .returning("getId", "refs/heads/" + displayId)
+                  .returning("getDisplayId", displayId)
+                  .returning("getLatestCommit", latestCommit)
+                  .build();
+  }
+
+  private static PullRequestRef ref(Repository repository, String displayId, String latestCommit)
+  {
+    return StandIn.of(PullRequestRef.class)
+                  .returning("getId", "refs/heads/" + displayId)
+                  .returning("getDisplayId", displayId)
+                  .returning("getLatestCommit", latestCommit)
+                  .returning("getRepository", repository)
+                  .build();
+  }
+
+  private static PullRequest pullRequest(long id, PullRequestRef fromRef, PullRequestRef toRef)
+  {
+    ApplicationUser user = StandIn.of(ApplicationUser.class)
+                                  .returning("getId", 0)
+                                  .returning("getName", "author" + id)
+                                  .returning("getSlug", "author" + id)
+                                  .build();
+    PullRequestParticipant author = StandIn.of(PullRequestParticipant.class).returning("getUser", user).build();
+    return StandIn.of(PullRequest.class)
+                  .returning("getId", id)
+                  .returning("getTitle", "Pull request " + id)
+                  .returning("getFromRef", fromRef)
+                  .returning("getToRef", toRef)
+                  .returning("getAuthor", author)
+                  .returning("getState", PullRequestState.OPEN)
+                  .returning("isOpen", true)
+                  .build();
+  }
+}
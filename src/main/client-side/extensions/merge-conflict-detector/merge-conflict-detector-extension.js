@@ -1,5 +1,13 @@
 import { ModalExtension } from '@atlassian/clientside-extensions';
 import 'regenerator-runtime/runtime'
+
+// Complete results are kept in sessionStorage, keyed by pull request and commits, so reopening the modal shows them at once.
+const STORAGE_PREFIX = 'mcd:';
+// File rows added each time a branch's list is expanded further.
+const FILE_PAGE_SIZE = 100;
+// Times a job the server no longer knows is started again before its results are fetched synchronously.
+const MAX_JOB_RESTARTS = 3;
+
 /**
  * @clientside-extension
  * @extension-point bitbucket.ui.pullrequest.overview.summary
@@ -29,59 +37,272 @@ export default ModalExtension.factory((pluginApi, context) => {
                 var projectHref = window.location.href;
                 var baseUrl = projectHref.split("\/projects\/")[0];
                 var mcdEndpoint = baseUrl + '/rest/mcd/1.0/merge-conflicts/' + context.repository.id + '/' + context.pullRequest.id;
-                container.innerHTML = '<div><p>Loading results...</p><aui-spinner size="large"></aui-spinner></div>';
+                var compareUrlPrefix = projectHref + '/repos/' + context.repository.slug + '/compare/diff?sourceBranch=' + encodeURIComponent(context.pullRequest.fromRef.id) + '&targetBranch=';
+                var pollInterval = 500;
+                var storagePrefix = STORAGE_PREFIX + context.repository.id + '/' + context.pullRequest.id + '/';
+                var storageKey = storagePrefix + context.pullRequest.fromRef.latestCommit + '/' + context.pullRequest.toRef.latestCommit;
+
+                var checked = readChecked();
+                var table = null;
+                if (checked) {
+                  table = createTable();
+                  checked.results.forEach(result => table.appendChild(resultGroup(result)));
+                } else {
+                  container.innerHTML = '<div><p>Loading results...</p><aui-spinner size="large"></aui-spinner></div>';
+                }
 
                 setHtmlTable();
 
+                // Starts a background check and fills in each target's rows as soon as its merge finishes.
+                // Results shown from sessionStorage are sent as If-None-Match, and left as they are when the
+                // server answers that nothing has changed, which it does without running any merges.
                 async function setHtmlTable() {
-                  var response = await fetch(mcdEndpoint);
-                  var mcdJson = await response.json(); 
-                  var compareUrlPrefix = projectHref + '/repos/' + context.repository.slug + '/compare/diff?sourceBranch=' + context.pullRequest.fromRef.id + '&targetBranch=';
-                  var tableHead = '<div><table class="aui"><thead><tr><th id="conflict">Result</th><th id="toBranch">Merge Target</th><th id="files">Conflicting Files</th><th id="message">(Source&nbsp;/&nbsp;Target)&nbsp;Changes</th></tr></thead>';
-                  var tableData = '';
-                  for(var i = 0; i < mcdJson.length; i++) {
-                    var obj = mcdJson[i];
-                    if (obj.mergeConflicts > 0) {
-                      clean = false;
-                      tableData += '<tr><td><span class="aui-lozenge aui-lozenge-error">' + obj.mergeConflicts + ' Conflicts</span></td><td>' + obj.toBranchDisplayId +'</td><td><table><tbody>';
-                      for (var j = 0; j < obj.mergeFiles.length; j++) {i
-                        var fileName = obj.mergeFiles[j];
-                        var formattedFileName = formatFileForTable(fileName);
-                        tableData += '<tr><td valign="top"><span class="aui-lozenge aui-lozenge-subtle aui-lozenge-complete"><a href="' + compareUrlPrefix + obj.toBranchId + '#' + fileName + '">Compare</a></span></td><td>' + formattedFileName + '</td></tr>';
+                  var headers = {'X-Atlassian-Token': 'no-check'};
+                  if (checked) {
+                    headers['If-None-Match'] = '"' + checked.etag + '"';
+                  }
+                  var response = await fetch(mcdEndpoint + '/jobs', {method: 'POST', headers: headers});
+                  if (checked && response.status === 412) {
+                    return;
+                  }
+                  if (!response.ok) {
+                    if (!checked) {
+                      container.textContent = 'The merge conflict check is not available right now (' + response.status + '), please try again later.';
+                    }
+                    return;
+                  }
+                  var job = await response.json();
+                  if (!table) {
+                    table = createTable();
+                  }
+                  var stale, groups, filled, results;
+                  track(job.targets);
+
+                  var restarts = 0;
+                  while (true) {
+                    job.results.forEach(result => {
+                      var group = resultGroup(result);
+                      var existing = groups.get(result.toBranchDisplayId);
+                      // A target can have more than one result, such as the automatic merge failure check on the default branch.
+                      if (existing && !filled.has(existing)) {
+                        table.replaceChild(group, existing);
+                      } else {
+                        table.appendChild(group);
                       }
-                      tableData += '</tbody></table></td><td><table><tbody>';
-                      for (var j = 0; j < obj.mergeMessages.length; j++) {
-                        tableData += '<tr><td>' + formatMessageForTable(obj.mergeMessages[j]) + '</td></tr>';
+                      groups.set(result.toBranchDisplayId, group);
+                      filled.add(group);
+                      results.push(result);
+                    });
+                    if (job.done) {
+                      break;
+                    }
+                    await new Promise(resolve => setTimeout(resolve, pollInterval));
+                    response = await fetch(mcdEndpoint + '/jobs/' + job.jobId + '?cursor=' + job.cursor);
+                    if (response.status === 404) {
+                      // Jobs are kept on the node that started them, so a poll answered by another node of the cluster does
+                      // not find it. The job is started again, where merges that already finished come from the cache, and
+                      // after MAX_JOB_RESTARTS the results are fetched in one request that waits for them instead.
+                      restarts++;
+                      response = (restarts <= MAX_JOB_RESTARTS)
+                        ? await fetch(mcdEndpoint + '/jobs', {method: 'POST', headers: {'X-Atlassian-Token': 'no-check'}})
+                        : await fetch(mcdEndpoint);
+                      if (response.ok) {
+                        var restarted = await response.json();
+                        job = Array.isArray(restarted) ? {results: restarted, done: true} : restarted;
+                        // Every result comes again from the start and replaces the rows shown so far.
+                        track(job.targets || []);
+                        continue;
                       }
-                      tableData += '</tbody></table></td></tr>';
-                    } else {
-                      tableData += '<tr><td><span class="aui-lozenge aui-lozenge-success">Clean</span></td><td>' + obj.toBranchDisplayId +'</td><td>None</td><td>None</td></tr>';
                     }
+                    if (!response.ok) {
+                      var notice = container.appendChild(document.createElement('p'));
+                      notice.textContent = 'The merge conflict check stopped answering (' + response.status + '), reopen this dialog to try again.';
+                      removeChecked();
+                      return;
+                    }
+                    job = await response.json();
+                  }
+                  stale.forEach(group => {
+                    if (!filled.has(group) && group.parentNode === table) {
+                      table.removeChild(group);
+                    }
+                  });
+                  // Results with a failure that may not repeat come without an etag and are not kept.
+                  if (job.etag) {
+                    writeChecked({etag: job.etag, results: results});
+                  } else {
+                    removeChecked();
+                  }
+
+                  // Rows from sessionStorage or an earlier job stay until this check replaces them.
+                  function track(targets) {
+                    stale = Array.from(table.tBodies);
+                    groups = new Map();
+                    filled = new Set();
+                    results = [];
+                    clean = true;
+                    stale.forEach(group => { if (!groups.has(group.dataset.target)) groups.set(group.dataset.target, group); });
+                    targets.forEach(target => {
+                      if (!groups.has(target)) {
+                        groups.set(target, table.appendChild(pendingGroup(target)));
+                      }
+                    });
                   }
-                  var tableEnd = '</table></div>';
+                }
 
-                  var final = tableHead + tableData + tableEnd;
-                  container.innerHTML = final;
+                function createTable() {
+                  container.innerHTML = '<div><table class="aui"><thead><tr><th id="conflict">Result</th><th id="toBranch">Merge Target</th><th id="files">Conflicting Files</th><th id="message">(Source&nbsp;/&nbsp;Target)&nbsp;Changes</th></tr></thead></table></div>';
+                  return container.querySelector('table');
                 }
-               
+
+                // Each target gets its own tbody, holding its summary row and any file rows shown under it.
+                function pendingGroup(toBranchDisplayId) {
+                  var group = document.createElement('tbody');
+                  group.dataset.target = toBranchDisplayId;
+                  group.appendChild(summaryRow('aui-lozenge-subtle', 'Checking', toBranchDisplayId));
+                  return group;
+                }
+
+                function resultGroup(obj) {
+                  var group = document.createElement('tbody');
+                  group.dataset.target = obj.toBranchDisplayId;
+                  var row;
+                  if (obj.mergeConflicts > 0) {
+                    clean = false;
+                    row = summaryRow('aui-lozenge-error', obj.mergeConflicts + ' Conflicts', obj.toBranchDisplayId);
+                    var files = obj.mergeFiles || [];
+                    var messages = obj.mergeMessages || [];
+                    // Past plugin.mcd.conflicts.max only the first files are sent, mergeConflicts still counts them all.
+                    var showLabel = 'Show ' + (obj.truncated ? 'first ' : '') + files.length + (files.length === 1 ? ' file' : ' files');
+                    var toggle = document.createElement('button');
+                    toggle.className = 'aui-button aui-button-link';
+                    toggle.textContent = showLabel;
+                    row.cells[2].appendChild(toggle);
+                    var shown = [];
+                    toggle.addEventListener('click', () => {
+                      if (shown.length > 0) {
+                        shown.forEach(fileRow => group.removeChild(fileRow));
+                        shown = [];
+                        toggle.textContent = showLabel;
+                      } else {
+                        showFiles(group, obj.toBranchId, files, messages, 0, shown);
+                        toggle.textContent = 'Hide files';
+                      }
+                    });
+                  } else if (obj.pending) {
+                    row = summaryRow('aui-lozenge-subtle', 'Checking', obj.toBranchDisplayId);
+                  } else if (obj.mergeMessages && obj.mergeMessages.length > 0) {
+                    clean = false;
+                    row = summaryRow('aui-lozenge-current', 'Warning', obj.toBranchDisplayId);
+                    row.cells[3].textContent = obj.mergeMessages.join(' ');
+                  } else {
+                    row = summaryRow('aui-lozenge-success', 'Clean', obj.toBranchDisplayId);
+                    row.cells[2].textContent = 'None';
+                    row.cells[3].textContent = 'None';
+                  }
+                  group.appendChild(row);
+                  return group;
+                }
+
+                function summaryRow(lozengeClass, lozengeText, toBranchDisplayId) {
+                  var row = document.createElement('tr');
+                  for (var i = 0; i < 4; i++) {
+                    row.appendChild(document.createElement('td'));
+                  }
+                  var lozenge = document.createElement('span');
+                  lozenge.className = 'aui-lozenge ' + lozengeClass;
+                  lozenge.textContent = lozengeText;
+                  row.cells[0].appendChild(lozenge);
+                  row.cells[1].textContent = toBranchDisplayId;
+                  return row;
+                }
+
+                // Adds a page of file rows from start on, followed by a row to show the next page if there is one.
+                function showFiles(group, toBranchId, files, messages, start, shown) {
+                  var rows = document.createDocumentFragment();
+                  var end = Math.min(files.length, start + FILE_PAGE_SIZE);
+                  for (var i = start; i < end; i++) {
+                    var row = document.createElement('tr');
+                    row.appendChild(document.createElement('td'));
+                    row.appendChild(document.createElement('td'));
+                    var fileCell = row.appendChild(document.createElement('td'));
+                    var compare = document.createElement('span');
+                    compare.className = 'aui-lozenge aui-lozenge-subtle aui-lozenge-complete';
+                    var link = compare.appendChild(document.createElement('a'));
+                    // Branch names may hold characters such as & or # that would otherwise end the parameter.
+                    link.href = compareUrlPrefix + encodeURIComponent(toBranchId) + '#' + files[i];
+                    link.textContent = 'Compare';
+                    fileCell.appendChild(compare);
+                    fileCell.appendChild(document.createTextNode(' ' + formatFileForTable(files[i])));
+                    row.appendChild(document.createElement('td')).textContent = (i < messages.length) ? formatMessageForTable(messages[i]) : '';
+                    rows.appendChild(row);
+                    shown.push(row);
+                  }
+                  if (end < files.length) {
+                    var moreRow = document.createElement('tr');
+                    moreRow.appendChild(document.createElement('td'));
+                    moreRow.appendChild(document.createElement('td'));
+                    var more = document.createElement('button');
+                    more.className = 'aui-button aui-button-link';
+                    more.textContent = 'Show ' + Math.min(FILE_PAGE_SIZE, files.length - end) + ' more of ' + (files.length - end);
+                    more.addEventListener('click', () => {
+                      group.removeChild(moreRow);
+                      shown.splice(shown.indexOf(moreRow), 1);
+                      showFiles(group, toBranchId, files, messages, end, shown);
+                    });
+                    moreRow.appendChild(document.createElement('td')).appendChild(more);
+                    moreRow.appendChild(document.createElement('td'));
+                    rows.appendChild(moreRow);
+                    shown.push(moreRow);
+                  }
+                  group.appendChild(rows);
+                }
+
                 function formatMessageForTable(messageToBeFormatted) {
                   return messageToBeFormatted.replace(/Source change:/g,'').replace(/Target change:/g,'/');
                 }
 
+                // Shortens each long path in the line to its first three and last three directories.
                 function formatFileForTable(fileToBeFormatted) {
-                  var stringReturn ='';
-                  var words = fileToBeFormatted.split(' ');
-                  for (var k = 0; k < words.length; k++) {
-                    if (words[k].includes('/')) {
-                      var elements = fileToBeFormatted.split('/');
-                      if (elements.length > 6) {
-                        stringReturn += elements[0] + '/' + elements[1] + '/' + elements [2] + '/.../' + elements[elements.length -3] + '/' + elements[elements.length -2] + '/' + elements[elements.length -1] + ' ';
+                  return fileToBeFormatted.split(' ').map(word => {
+                    var elements = word.split('/');
+                    if (elements.length <= 6) {
+                      return word;
+                    }
+                    return elements.slice(0, 3).join('/') + '/.../' + elements.slice(-3).join('/');
+                  }).join(' ');
+                }
+
+                function readChecked() {
+                  try {
+                    var stored = window.sessionStorage.getItem(storageKey);
+                    return stored ? JSON.parse(stored) : null;
+                  } catch (e) {
+                    return null;
+                  }
+                }
+
+                // Results for earlier commits of the pull request are dropped, they will not be shown again.
+                function writeChecked(value) {
+                  try {
+                    removeChecked();
+                    window.sessionStorage.setItem(storageKey, JSON.stringify(value));
+                  } catch (e) {
+                    // Storage is full or disabled, the next open runs the check again.
+                  }
+                }
+
+                function removeChecked() {
+                  try {
+                    for (var i = window.sessionStorage.length - 1; i >= 0; i--) {
+                      var key = window.sessionStorage.key(i);
+                      if (key && key.indexOf(storagePrefix) === 0) {
+                        window.sessionStorage.removeItem(key);
                       }
-                    } else {
-                      stringReturn += words[k] + ' ';
                     }
+                  } catch (e) {
+                    // Nothing stored.
                   }
-                  return stringReturn;;
                 }
             });
         }
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Decides whether a request to the merge conflicts resource may run. Each client, a user or an
+ * anonymous address, and each repository has a token bucket refilled at its per minute rate. Admitted
+ * requests then share a fixed number of slots, and requests beyond those wait in a bounded queue.
+ * Requests that are rate limited, find the queue full or wait too long are rejected straight away
+ * with a hint of when to retry. Limits are configured in bitbucket.properties:
+ * <ul>
+ *   <li>plugin.mcd.admission.concurrent - requests running at once</li>
+ *   <li>plugin.mcd.admission.queue.size - requests waiting for a slot before new ones are rejected</li>
+ *   <li>plugin.mcd.admission.queue.timeout.ms - how long a request waits for a slot</li>
+ *   <li>plugin.mcd.ratelimit.client.per.minute - requests per user or anonymous address, zero for no limit</li>
+ *   <li>plugin.mcd.ratelimit.repository.per.minute - requests per repository, zero for no limit</li>
+ *   <li>plugin.mcd.ratelimit.trusted.proxies - comma separated addresses of reverse proxies whose
+ *       X-Forwarded-For header names the anonymous client, none by default</li>
+ * </ul>
+ * Without trusted proxies every anonymous client behind a reverse proxy has the proxy's address and
+ * so shares one bucket.
+ */
+@Component
+public class AdmissionController
+{
+  public static final String CONCURRENT_PROPERTY = "plugin.mcd.admission.concurrent";
+  public static final String QUEUE_SIZE_PROPERTY = "plugin.mcd.admission.queue.size";
+  public static final String QUEUE_TIMEOUT_PROPERTY = "plugin.mcd.admission.queue.timeout.ms";
+  public static final String CLIENT_RATE_PROPERTY = "plugin.mcd.ratelimit.client.per.minute";
+  public static final String REPOSITORY_RATE_PROPERTY = "plugin.mcd.ratelimit.repository.per.minute";
+  public static final String TRUSTED_PROXIES_PROPERTY = "plugin.mcd.ratelimit.trusted.proxies";
+  public static final int DEFAULT_CONCURRENT = 8;
+  public static final int DEFAULT_QUEUE_SIZE = 32;
+  public static final int DEFAULT_QUEUE_TIMEOUT_MS = 5000;
+  public static final int DEFAULT_CLIENT_RATE = 60;
+  public static final int DEFAULT_REPOSITORY_RATE = 600;
+  // Buckets idle this long are full again anyway, so they are dropped.
+  private static final long BUCKET_EXPIRY_MINUTES = 5;
+  private static final int MAX_BUCKETS = 10000;
+
+  public enum Rejection
+  {
+    CLIENT_RATE,
+    REPOSITORY_RATE,
+    QUEUE_FULL,
+    QUEUE_TIMEOUT
+  }
+
+  private final MergeConflictMetrics metrics;
+  private final int concurrent;
+  private final int queueSize;
+  private final long queueTimeoutMs;
+  private final int clientRate;
+  private final int repositoryRate;
+  private final Set<String> trustedProxies;
+  private final Semaphore slots;
+  private final AtomicInteger queued;
+  private final Cache<String, TokenBucket> clientBuckets;
+  private final Cache<Integer, TokenBucket> repositoryBuckets;
+
+  @Autowired
+  public AdmissionController(@ComponentImport ApplicationPropertiesService applicationPropertiesService,
+                             MergeConflictMetrics metrics)
+  {
+    this(applicationPropertiesService.getPluginProperty(CONCURRENT_PROPERTY, DEFAULT_CONCURRENT),
+         applicationPropertiesService.getPluginProperty(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE),
+         applicationPropertiesService.getPluginProperty(QUEUE_TIMEOUT_PROPERTY, DEFAULT_QUEUE_TIMEOUT_MS),
+         applicationPropertiesService.getPluginProperty(CLIENT_RATE_PROPERTY, DEFAULT_CLIENT_RATE),
+         applicationPropertiesService.getPluginProperty(REPOSITORY_RATE_PROPERTY, DEFAULT_REPOSITORY_RATE),
+         parseAddresses(applicationPropertiesService.getPluginProperty(TRUSTED_PROXIES_PROPERTY, "")),
+         metrics);
+  }
+
+  public AdmissionController(int concurrent, int queueSize, int queueTimeoutMs, int clientRate, int repositoryRate,
+                             Set<String> trustedProxies, MergeConflictMetrics metrics)
+  {
+    this.metrics = metrics;
+    this.concurrent = Math.max(1, concurrent);
+    this.queueSize = Math.max(0, queueSize);
+    this.queueTimeoutMs = Math.max(0, queueTimeoutMs);
+    this.clientRate = clientRate;
+    this.repositoryRate = repositoryRate;
+    this.trustedProxies = Collections.unmodifiableSet(new HashSet<>(trustedProxies));
+    slots = new Semaphore(this.concurrent, true);
+    queued = new AtomicInteger();
+    clientBuckets = CacheBuilder.newBuilder()
+                                .maximumSize(MAX_BUCKETS)
+                                .expireAfterAccess(BUCKET_EXPIRY_MINUTES, TimeUnit.MINUTES)
+                                .build();
+    repositoryBuckets = CacheBuilder.newBuilder()
+                                    .maximumSize(MAX_BUCKETS)
+                                    .expireAfterAccess(BUCKET_EXPIRY_MINUTES, TimeUnit.MINUTES)
+                                    .build();
+  }
+
+  /**
+   * Returns the address to rate limit an anonymous request by. When the request came through a
+   * trusted proxy this is the nearest untrusted address in its X-Forwarded-For header, since only
+   * trusted proxies vouch for the entries they append; otherwise it is the remote address itself.
+   */
+  public String getClientAddress(String remoteAddr, String forwardedFor)
+  {
+    if (forwardedFor == null || !trustedProxies.contains(remoteAddr)) {
+      return remoteAddr;
+    }
+    String[] hops = forwardedFor.split(",");
+    String client = remoteAddr;
+    for (int i = hops.length - 1; i >= 0; i--) {
+      String hop = hops[i].trim();
+      if (hop.isEmpty()) {
+        continue;
+      }
+      client = hop;
+      if (!trustedProxies.contains(hop)) {
+        break;
+      }
+    }
+    return client;
+  }
+
+  /**
+   * Admits the request or rejects it, waiting for a slot when all are taken and the queue has room.
+   * An admitted request holds its slot until the returned admission is closed.
+   */
+  public Admission admit(String client, int repositoryId)
+  {
+    long waitSeconds = take(clientBuckets, client, clientRate);
+    if (waitSeconds > 0) {
+      return reject(Rejection.CLIENT_RATE, waitSeconds);
+    }
+    waitSeconds = take(repositoryBuckets, repositoryId, repositoryRate);
+    if (waitSeconds > 0) {
+      return reject(Rejection.REPOSITORY_RATE, waitSeconds);
+    }
+    if (slots.tryAcquire()) {
+      metrics.recordAdmitted(0);
+      return new Admission(null, 0);
+    }
+    if (queued.incrementAndGet() > queueSize) {
+      queued.decrementAndGet();
+      return reject(Rejection.QUEUE_FULL, getQueueRetrySeconds());
+    }
+    long started = System.nanoTime();
+    boolean acquired;
+    try {
+      acquired = slots.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      acquired = false;
+    } finally {
+      queued.decrementAndGet();
+    }
+    if (!acquired) {
+      return reject(Rejection.QUEUE_TIMEOUT, getQueueRetrySeconds());
+    }
+    metrics.recordAdmitted(System.nanoTime() - started);
+    return new Admission(null, 0);
+  }
+
+  public int getConcurrent()
+  {
+    return concurrent;
+  }
+
+  public int getRunning()
+  {
+    return concurrent - slots.availablePermits();
+  }
+
+  public int getQueueSize()
+  {
+    return queueSize;
+  }
+
+  public int getQueued()
+  {
+    return queued.get();
+  }
+
+  public AdmissionStatsModel toModel()
+  {
+    return new AdmissionStatsModel(this);
+  }
+
+  private Admission reject(Rejection rejection, long retryAfterSeconds)
+  {
+    metrics.recordRejected(rejection);
+    return new Admission(rejection, retryAfterSeconds);
+  }
+
+  // A full queue drains in about as long as the requests in it are allowed to wait.
+  private long getQueueRetrySeconds()
+  {
+    return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(queueTimeoutMs));
+  }
+
+  // Returns zero if a token was taken, otherwise the seconds until one will be available.
+  private static <K> long take(Cache<K, TokenBucket> buckets, K key, int perMinute)
+  {
+    if (perMinute <= 0) {
+      return 0;
+    }
+    try {
+      return buckets.get(key, () -> new TokenBucket(perMinute)).take();
+    } catch (ExecutionException e) {
+      // Creating a bucket cannot fail.
+      return 0;
+    }
+  }
+
+  private static Set<String> parseAddresses(String addresses)
+  {
+    Set<String> parsed = new HashSet<>();
+    for (String address : addresses.split(",")) {
+      if (!address.trim().isEmpty()) {
+        parsed.add(address.trim());
+      }
+    }
+    return parsed;
+  }
+
+  /**
+   * The outcome of asking for admission. Closing an admitted request frees its slot, closing a
+   * rejected one does nothing.
+   */
+  public final class Admission
+      implements AutoCloseable
+  {
+    private final Rejection rejection;
+    private final long retryAfterSeconds;
+    private final AtomicBoolean closed;
+
+    private Admission(Rejection rejection, long retryAfterSeconds)
+    {
+      this.rejection = rejection;
+      this.retryAfterSeconds = retryAfterSeconds;
+      closed = new AtomicBoolean(rejection != null);
+    }
+
+    public boolean isAdmitted()
+    {
+      return rejection == null;
+    }
+
+    /**
+     * Returns why the request was rejected, or null if it was admitted.
+     */
+    public Rejection getRejection()
+    {
+      return rejection;
+    }
+
+    public long getRetryAfterSeconds()
+    {
+      return retryAfterSeconds;
+    }
+
+    @Override
+    public void close()
+    {
+      if (closed.compareAndSet(false, true)) {
+        slots.release();
+      }
+    }
+  }
+
+  /**
+   * Holds up to a minute's worth of requests and refills continuously at the per minute rate.
+   */
+  private static final class TokenBucket
+  {
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(int perMinute)
+    {
+      capacity = perMinute;
+      tokensPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+      tokens = capacity;
+      refilledAt = System.nanoTime();
+    }
+
+    synchronized long take()
+    {
+      long now = System.nanoTime();
+      tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+      refilledAt = now;
+      if (tokens >= 1) {
+        tokens -= 1;
+        return 0;
+      }
+      return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano / TimeUnit.SECONDS.toNanos(1)));
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import javax.xml.bind.annotation.*;
+
+@XmlRootElement(name = "admissionstatsmodel")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+public class AdmissionStatsModel {
+
+    private int concurrent;
+    private int running;
+    private int queueSize;
+    private int queued;
+
+    public AdmissionStatsModel(AdmissionController admissionController) {
+      this.concurrent = admissionController.getConcurrent();
+      this.running = admissionController.getRunning();
+      this.queueSize = admissionController.getQueueSize();
+      this.queued = admissionController.getQueued();
+    }
+
+    public int getConcurrent() {
+      return concurrent;
+    }
+
+    public int getRunning() {
+      return running;
+    }
+
+    public int getQueueSize() {
+      return queueSize;
+    }
+
+    public int getQueued() {
+      return queued;
+    }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.pull.PullRequestSearchRequest;
+import com.atlassian.bitbucket.pull.PullRequestService;
+import com.atlassian.bitbucket.pull.PullRequestState;
+import com.atlassian.bitbucket.permission.Permission;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.bitbucket.user.SecurityService;
+import com.atlassian.bitbucket.util.PagedIterable;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Open "Automatic merge failure" pull requests for each pair of source and target repository.
+ * A pair is built by searching its open pull requests the first time it is asked about, after
+ * which pull request events keep it current, including events that arrive while it is being built.
+ * Events only reach the node they happen on, so each pair is rebuilt after
+ * plugin.mcd.failures.rebuild.minutes to pick up changes made through the other nodes of a cluster.
+ * The search runs with repository read permission, whoever is asking, so that an anonymous or
+ * restricted caller cannot build an index that misses the pull requests it is not allowed to see.
+ * Pairs nobody asks about again are dropped once they are twice as old as the rebuild interval,
+ * and at most plugin.mcd.failures.max.pairs are kept.
+ */
+@Component
+public class AutoMergeFailureIndex
+{
+  public static final String REBUILD_PROPERTY = "plugin.mcd.failures.rebuild.minutes";
+  public static final int DEFAULT_REBUILD_MINUTES = 15;
+  public static final String MAX_PAIRS_PROPERTY = "plugin.mcd.failures.max.pairs";
+  public static final int DEFAULT_MAX_PAIRS = 10000;
+  private static final int PAGE_SIZE = 100;
+  private static final String BUILD_REASON = "Finding automatic merge failure pull requests";
+
+  private final PullRequestService pullRequestService;
+  private final SecurityService securityService;
+  private final long rebuildMs;
+  private final ConcurrentMap<Long, PairIndex> indexes;
+  private final ConcurrentMap<Long, Build> builds;
+
+  @Autowired
+  public AutoMergeFailureIndex(@ComponentImport ApplicationPropertiesService applicationPropertiesService,
+                               @ComponentImport PullRequestService pullRequestService,
+                               @ComponentImport SecurityService securityService)
+  {
+    this(pullRequestService,
+         securityService,
+         TimeUnit.MINUTES.toMillis(applicationPropertiesService.getPluginProperty(REBUILD_PROPERTY, DEFAULT_REBUILD_MINUTES)),
+         applicationPropertiesService.getPluginProperty(MAX_PAIRS_PROPERTY, DEFAULT_MAX_PAIRS));
+  }
+
+  public AutoMergeFailureIndex(PullRequestService pullRequestService, SecurityService securityService, long rebuildMs,
+                               int maxPairs)
+  {
+    this.pullRequestService = pullRequestService;
+    this.securityService = securityService;
+    this.rebuildMs = rebuildMs;
+    indexes = CacheBuilder.newBuilder()
+                          .maximumSize(maxPairs)
+                          .expireAfterWrite(2 * Math.max(1, rebuildMs), TimeUnit.MILLISECONDS)
+                          .<Long, PairIndex>build()
+                          .asMap();
+    builds = new ConcurrentHashMap<Long, Build>();
+  }
+
+  public boolean hasOpenFailure(int fromRepositoryId, int toRepositoryId)
+  {
+    long key = pairKey(fromRepositoryId, toRepositoryId);
+    PairIndex index = indexes.get(key);
+    if (index != null && !index.isStale()) {
+      return index.hasFailures();
+    }
+    Build build = new Build();
+    Build running = builds.putIfAbsent(key, build);
+    if (running != null) {
+      // Someone else is building the pair, a stale index will do until they are done.
+      return (index != null) ? index.hasFailures() : running.built.join().hasFailures();
+    }
+    try {
+      return build(key, fromRepositoryId, toRepositoryId, build).hasFailures();
+    } catch (RuntimeException e) {
+      build.built.completeExceptionally(e);
+      throw e;
+    } finally {
+      builds.remove(key, build);
+    }
+  }
+
+  /**
+   * Records an opened, reopened or retitled pull request.
+   */
+  public void update(PullRequest pullRequest)
+  {
+    apply(pullRequest, pullRequest.isOpen() && isAutoMergeFailure(pullRequest));
+  }
+
+  /**
+   * Forgets a declined, merged or deleted pull request.
+   */
+  public void remove(PullRequest pullRequest)
+  {
+    apply(pullRequest, false);
+  }
+
+  // Pairs that have not been built yet will pick the pull request up when they are. A build in
+  // progress is looked at first: once it is gone its index is the one in the map.
+  private void apply(PullRequest pullRequest, boolean failure)
+  {
+    long key = pairKey(pullRequest.getFromRef().getRepository().getId(), pullRequest.getToRef().getRepository().getId());
+    Build build = builds.get(key);
+    if (build != null) {
+      build.record(pullRequest.getId(), failure);
+    }
+    PairIndex index = indexes.get(key);
+    if (index != null) {
+      index.set(pullRequest.getId(), failure);
+    }
+  }
+
+  // Searches without holding anything, then applies the events that arrived meanwhile on top.
+  private PairIndex build(long key, int fromRepositoryId, int toRepositoryId, Build build)
+  {
+    PairIndex index = new PairIndex();
+    PullRequestSearchRequest request = new PullRequestSearchRequest.Builder().state(PullRequestState.OPEN)
+      .fromRepositoryId(fromRepositoryId)
+      .toRepositoryId(toRepositoryId)
+      .build();
+    securityService.withPermission(Permission.REPO_READ, BUILD_REASON).call(() -> {
+      for (PullRequest pullRequest : new PagedIterable<PullRequest>(pr -> pullRequestService.search(request, pr), PAGE_SIZE)) {
+        if (isAutoMergeFailure(pullRequest)) {
+          index.set(pullRequest.getId(), true);
+        }
+      }
+      return null;
+    });
+    synchronized (build) {
+      build.finish(index);
+      indexes.put(key, index);
+    }
+    build.built.complete(index);
+    return index;
+  }
+
+  private static boolean isAutoMergeFailure(PullRequest pullRequest)
+  {
+    return MergeConflictChecker.AUTO_MERGE_FAIL.equals(pullRequest.getTitle());
+  }
+
+  private static long pairKey(int fromRepositoryId, int toRepositoryId)
+  {
+    return ((long) fromRepositoryId << 32) | (toRepositoryId & 0xffffffffL);
+  }
+
+  private final class PairIndex
+  {
+    private final Set<Long> failures = ConcurrentHashMap.newKeySet();
+    private final long builtAt = System.currentTimeMillis();
+
+    boolean isStale()
+    {
+      return System.currentTimeMillis() - builtAt > rebuildMs;
+    }
+
+    boolean hasFailures()
+    {
+      return !failures.isEmpty();
+    }
+
+    void set(long pullRequestId, boolean failure)
+    {
+      if (failure) {
+        failures.add(pullRequestId);
+      } else {
+        failures.remove(pullRequestId);
+      }
+    }
+  }
+
+  // Events for a pair that is being built, held until the search is done.
+  private static final class Build
+  {
+    private final CompletableFuture<PairIndex> built = new CompletableFuture<PairIndex>();
+    private final Map<Long, Boolean> changes = new HashMap<Long, Boolean>();
+    private PairIndex index;
+
+    synchronized void record(long pullRequestId, boolean failure)
+    {
+      if (index != null) {
+        index.set(pullRequestId, failure);
+      } else {
+        changes.put(pullRequestId, failure);
+      }
+    }
+
+    synchronized void finish(PairIndex index)
+    {
+      for (Map.Entry<Long, Boolean> change : changes.entrySet()) {
+        index.set(change.getKey(), change.getValue());
+      }
+      this.index = index;
+    }
+  }
+}
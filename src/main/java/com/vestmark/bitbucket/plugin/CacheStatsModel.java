@@ -0,0 +1,53 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import javax.xml.bind.annotation.*;
+
+import com.google.common.cache.CacheStats;
+
+@XmlRootElement(name = "cachestatsmodel")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+public class CacheStatsModel {
+
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public CacheStatsModel(long size, CacheStats stats) {
+      this.size = size;
+      this.hitCount = stats.hitCount();
+      this.missCount = stats.missCount();
+      this.evictionCount = stats.evictionCount();
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    public long getHitCount() {
+      return hitCount;
+    }
+
+    public long getMissCount() {
+      return missCount;
+    }
+
+    public long getEvictionCount() {
+      return evictionCount;
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.hook.repository.PreRepositoryHookContext;
+import com.atlassian.bitbucket.hook.repository.PullRequestMergeHookRequest;
+import com.atlassian.bitbucket.hook.repository.RepositoryHookResult;
+import com.atlassian.bitbucket.hook.repository.RepositoryMergeCheck;
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.repository.Branch;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Merge check that vetoes a pull request whose merge would conflict further down the release
+ * cascade. It runs on every render of the merge button, so it never merges anything itself: it
+ * only reads results this node holds in memory for the current commits, and the release branches
+ * to look them up for are resolved once per target branch commit and kept for
+ * TARGETS_EXPIRE_SECONDS. When any result is missing the pull request is queued for
+ * precomputation, which also picks up results computed by other nodes, and the merge is held back
+ * as still being checked.
+ * A merge that fails is retried the same way and its error shown, up to
+ * plugin.mcd.cascade.check.attempts times, and nothing is held back for longer than
+ * plugin.mcd.cascade.check.timeout.ms. Past either limit the merge is let through unchecked and a
+ * warning logged, rather than blocking the pull request for good. The pull request's own target
+ * branch is left to Bitbucket's own conflict check.
+ */
+@Component
+public class CascadeMergeCheck
+    implements RepositoryMergeCheck
+{
+  public static final String ATTEMPTS_PROPERTY = "plugin.mcd.cascade.check.attempts";
+  public static final int DEFAULT_ATTEMPTS = 3;
+  public static final String TIMEOUT_PROPERTY = "plugin.mcd.cascade.check.timeout.ms";
+  public static final int DEFAULT_TIMEOUT_MS = 300000;
+  private static final int MAX_LISTED_TARGETS = 5;
+  private static final int MAX_TRACKED_CHECKS = 10000;
+  private static final int MAX_CACHED_TARGETS = 1000;
+  // Release branches move without the target branch moving, so their commits are not kept for long.
+  private static final int TARGETS_EXPIRE_SECONDS = 30;
+
+  private static final Logger log = LoggerFactory.getLogger(CascadeMergeCheck.class);
+
+  private final MergeConflictChecker checker;
+  private final PrecomputeQueue precomputeQueue;
+  private final int maxAttempts;
+  private final long timeoutMs;
+  // When each pull request, at its current commits, was first held back as still being checked.
+  private final Cache<String, Long> checkingSince;
+  // The branches pull requests into a target branch cascade into, by the target branch's commit.
+  private final Cache<String, List<Branch>> targets;
+
+  @Autowired
+  public CascadeMergeCheck(@ComponentImport ApplicationPropertiesService applicationPropertiesService,
+                           MergeConflictChecker checker,
+                           PrecomputeQueue precomputeQueue)
+  {
+    this.checker = checker;
+    this.precomputeQueue = precomputeQueue;
+    maxAttempts = Math.max(1, applicationPropertiesService.getPluginProperty(ATTEMPTS_PROPERTY, DEFAULT_ATTEMPTS));
+    timeoutMs = applicationPropertiesService.getPluginProperty(TIMEOUT_PROPERTY, DEFAULT_TIMEOUT_MS);
+    checkingSince = CacheBuilder.newBuilder()
+                                .maximumSize(MAX_TRACKED_CHECKS)
+                                .expireAfterWrite(Math.max(timeoutMs, 0) * 2 + 1, TimeUnit.MILLISECONDS)
+                                .build();
+    targets = CacheBuilder.newBuilder()
+                          .maximumSize(MAX_CACHED_TARGETS)
+                          .expireAfterWrite(TARGETS_EXPIRE_SECONDS, TimeUnit.SECONDS)
+                          .build();
+  }
+
+  @Override
+  public RepositoryHookResult preUpdate(PreRepositoryHookContext context, PullRequestMergeHookRequest request)
+  {
+    PullRequest pullRequest = request.getPullRequest();
+    MergeConflictDetector mcd = checker.createDetector(pullRequest.getAuthor().getUser(), pullRequest);
+    List<MergeResult> conflicted = new ArrayList<MergeResult>();
+    List<MergeResult> retrying = new ArrayList<MergeResult>();
+    List<MergeResult> unchecked = new ArrayList<MergeResult>();
+    boolean checking = false;
+    for (Branch target : getTargets(mcd)) {
+      if (target.getId().equals(mcd.getToBranchId())) {
+        continue;
+      }
+      MergeResult result = checker.getCachedResult(mcd, target);
+      if (result == null) {
+        MergeConflictChecker.FailedMerge failed = checker.getFailedMerge(mcd, target);
+        if (failed == null) {
+          checking = true;
+        } else if (failed.getAttempts() < maxAttempts) {
+          retrying.add(failed.getResult());
+        } else {
+          unchecked.add(failed.getResult());
+        }
+      } else if (result.getMergeConflictsTotal() > 0) {
+        conflicted.add(result);
+      }
+    }
+    // Known conflicts veto the merge whether or not the other targets are done.
+    if (!conflicted.isEmpty()) {
+      return RepositoryHookResult.rejected("Merge conflicts in the release cascade", describe(conflicted));
+    }
+    String checkKey = mcd.getToRepo().getId() + "/" + pullRequest.getId() + "/" + mcd.getFromBranch().getLatestCommit()
+                      + "/" + mcd.getToBranch().getLatestCommit();
+    if (checking || !retrying.isEmpty()) {
+      long now = System.currentTimeMillis();
+      long since = checkingSince.asMap().computeIfAbsent(checkKey, key -> now);
+      if (now - since <= timeoutMs) {
+        precomputeQueue.enqueue(pullRequest, null, PrecomputeQueue.Priority.PULL_REQUEST);
+        if (!retrying.isEmpty()) {
+          return RepositoryHookResult.rejected("Could not check the release cascade for merge conflicts, retrying...",
+                                               describeFailures(retrying) + " It is being tried again, refresh the "
+                                               + "page in a moment.");
+        }
+        return RepositoryHookResult.rejected("Checking the release cascade for merge conflicts...",
+                                             "The branches this pull request cascades into are being checked for merge "
+                                             + "conflicts. Refresh the page in a moment.");
+      }
+      log.warn("Letting pull request {} merge without a complete release cascade check, it has been checking for {} ms",
+               checkKey, now - since);
+    }
+    if (!unchecked.isEmpty()) {
+      log.warn("Letting pull request {} merge without a complete release cascade check: {}", checkKey,
+               describeFailures(unchecked));
+    }
+    checkingSince.invalidate(checkKey);
+    return RepositoryHookResult.accepted();
+  }
+
+  private List<Branch> getTargets(MergeConflictDetector mcd)
+  {
+    String key = mcd.getToRepo().getId() + "/" + mcd.getToBranchId() + "/" + mcd.getToBranch().getLatestCommit();
+    List<Branch> cached = targets.getIfPresent(key);
+    if (cached == null) {
+      cached = checker.getTargets(mcd);
+      targets.put(key, cached);
+    }
+    return cached;
+  }
+
+  private static String describeFailures(List<MergeResult> failed)
+  {
+    StringBuilder detail = new StringBuilder("The merge into ");
+    for (int i = 0; i < failed.size() && i < MAX_LISTED_TARGETS; i++) {
+      MergeResult result = failed.get(i);
+      if (i > 0) {
+        detail.append(", ");
+      }
+      detail.append(result.getToBranchDisplayId());
+      if (!result.getNotes().isEmpty()) {
+        detail.append(" (").append(String.join(" ", result.getNotes())).append(')');
+      }
+    }
+    if (failed.size() > MAX_LISTED_TARGETS) {
+      detail.append(" and ").append(failed.size() - MAX_LISTED_TARGETS).append(" more branches");
+    }
+    return detail.append(" could not be checked.").toString();
+  }
+
+  private static String describe(List<MergeResult> conflicted)
+  {
+    StringBuilder detail = new StringBuilder("After merging, the automatic merge would conflict with ");
+    for (int i = 0; i < conflicted.size() && i < MAX_LISTED_TARGETS; i++) {
+      MergeResult result = conflicted.get(i);
+      if (i > 0) {
+        detail.append(", ");
+      }
+      detail.append(result.getToBranchDisplayId())
+            .append(" (")
+            .append(result.getMergeConflictsTotal())
+            .append((result.getMergeConflictsTotal() == 1) ? " file)" : " files)");
+    }
+    if (conflicted.size() > MAX_LISTED_TARGETS) {
+      detail.append(" and ").append(conflicted.size() - MAX_LISTED_TARGETS).append(" more branches");
+    }
+    return detail.append(". Open the Merge Conflict Detector for the conflicting files.").toString();
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import javax.xml.bind.annotation.*;
+import java.util.List;
+
+/**
+ * A simulated run of the automatic merge cascade. Status is CLEAN when every hop merges, CONFLICTED
+ * when the cascade stops at breaksAt, FAILED with the reason in message, PENDING when it was
+ * still running at the request deadline, or UNSUPPORTED for a pull request from a fork, which
+ * cannot be simulated. Hops holds the result of each hop that was merged, in
+ * cascade order, and notReached the branches after the stop.
+ */
+@XmlRootElement(name = "cascademodel")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+public class CascadeModel {
+
+    private String status;
+    private String breaksAt;
+    private List<MergeResultsModel> hops;
+    private List<String> notReached;
+    private String message;
+
+    public CascadeModel(String status,
+                        String breaksAt,
+                        List<MergeResultsModel> hops,
+                        List<String> notReached,
+                        String message) {
+      this.status = status;
+      this.breaksAt = breaksAt;
+      this.hops = hops;
+      this.notReached = notReached;
+      this.message = message;
+    }
+
+    public String getStatus() {
+      return status;
+    }
+
+    public String getBreaksAt() {
+      return breaksAt;
+    }
+
+    public List<MergeResultsModel> getHops() {
+      return hops;
+    }
+
+    public List<String> getNotReached() {
+      return notReached;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+}
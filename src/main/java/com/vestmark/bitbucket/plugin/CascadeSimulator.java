@@ -0,0 +1,264 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.repository.Branch;
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+/**
+ * Simulates the automatic merge cascade the way Bitbucket runs it: the pull request is merged into
+ * its target, that merge into the next release branch, and so on to the default branch. Each hop
+ * merges the tree the previous hop produced, so conflicts with changes brought in by earlier hops
+ * are found, which separate merges of the pull request into each target miss. The merges run with
+ * git merge-tree and create no commits or working copies. The merge base of each later hop is
+ * found as if the earlier hops had been committed. The simulation stops at the first hop that
+ * conflicts. Outcomes are cached by the commits on both sides of every hop.
+ * <p>
+ * Each hop runs on the MergeExecutor within the repository's share of its threads, and requests
+ * for the same cascade share one simulation. A request waits no longer than
+ * plugin.mcd.request.timeout.ms, after which the cascade is reported as pending. Pull requests
+ * from forks are not simulated, their commits are not in the target repository for merge-tree to
+ * read.
+ */
+@Component
+public class CascadeSimulator
+{
+  // Changes whenever the shape of the results changes, so clients do not keep stale copies.
+  private static final String ETAG_VERSION = "1";
+  private static final int MAX_CACHED = 1000;
+
+  private final GitMergeTree mergeTree;
+  private final MergeExecutor mergeExecutor;
+  private final MergeConflictMetrics metrics;
+  private final long requestTimeoutMs;
+  private final Cache<String, CascadeModel> cascades;
+  private final SingleFlight<String, CascadeModel> flights;
+
+  @Autowired
+  public CascadeSimulator(@ComponentImport ApplicationPropertiesService applicationPropertiesService,
+                          GitMergeTree mergeTree,
+                          MergeExecutor mergeExecutor,
+                          MergeConflictMetrics metrics)
+  {
+    this.mergeTree = mergeTree;
+    this.mergeExecutor = mergeExecutor;
+    this.metrics = metrics;
+    // Zero or less waits for the whole cascade, however long it takes.
+    requestTimeoutMs = applicationPropertiesService.getPluginProperty(MergeConflictChecker.REQUEST_TIMEOUT_PROPERTY,
+                                                                      MergeConflictChecker.DEFAULT_REQUEST_TIMEOUT_MS);
+    cascades = CacheBuilder.newBuilder().maximumSize(MAX_CACHED).build();
+    flights = new SingleFlight<String, CascadeModel>(metrics::recordCoalescedCheck);
+  }
+
+  /**
+   * Returns a strong entity tag for the cascade through the targets, known before any merge runs.
+   */
+  public String getETag(MergeConflictDetector mcd, List<Branch> targets)
+  {
+    return Hashing.sha256()
+                  .hashString(ETAG_VERSION + ":cascade:" + MergeConflictChecker.getCheckKey(mcd, targets), StandardCharsets.UTF_8)
+                  .toString();
+  }
+
+  /**
+   * Runs the cascade through the targets in the order given, which is the order returned by
+   * MergeConflictChecker.getTargets. A cascade still running at the deadline is reported as PENDING
+   * and left to finish and fill the cache, unless nobody else is waiting for it. A pull request from
+   * a fork is reported as UNSUPPORTED without running anything.
+   */
+  public CascadeModel simulate(MergeConflictDetector mcd, List<Branch> targets)
+  {
+    if (mcd.getFromRepo().getId() != mcd.getToRepo().getId()) {
+      return new CascadeModel("UNSUPPORTED", null, new ArrayList<MergeResultsModel>(), getDisplayIds(targets, 0),
+                              "The cascade cannot be simulated for a pull request from a fork.");
+    }
+    String key = MergeConflictChecker.getCheckKey(mcd, targets);
+    CascadeModel cached = cascades.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+    CompletableFuture<CascadeModel> flight = flights.execute(key, () -> new Cascade(key, mcd, targets).start());
+    try {
+      return (requestTimeoutMs > 0) ? flight.get(requestTimeoutMs, TimeUnit.MILLISECONDS) : flight.get();
+    } catch (TimeoutException e) {
+      abandon(key, flight);
+      metrics.recordTimedOutCheck();
+      return pending(targets);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      abandon(key, flight);
+      return pending(targets);
+    } catch (CancellationException e) {
+      // Joined a cascade just as everyone else gave up on it.
+      return pending(targets);
+    } catch (ExecutionException e) {
+      return failed(new ArrayList<MergeResultsModel>(), targets, 0, e.getCause());
+    }
+  }
+
+  // Hops not yet started are dropped once nobody is waiting, a running hop is left to finish.
+  private void abandon(String key, CompletableFuture<CascadeModel> flight)
+  {
+    if (flights.abandon(key, flight)) {
+      metrics.recordCancelledMerge();
+    }
+  }
+
+  private static CascadeModel pending(List<Branch> targets)
+  {
+    return new CascadeModel("PENDING", null, new ArrayList<MergeResultsModel>(), getDisplayIds(targets, 0),
+                            "The cascade is still being checked, try again shortly.");
+  }
+
+  private static CascadeModel failed(List<MergeResultsModel> hops, List<Branch> targets, int from, Throwable e)
+  {
+    Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+    // Not cached, the failure may not repeat.
+    return new CascadeModel("FAILED", null, hops, getDisplayIds(targets, from), cause.getMessage());
+  }
+
+  /**
+   * One run of the cascade. Each hop is submitted to the executor when the one before finishes, so
+   * the hops of one cascade never run at once and a cancelled cascade submits no more of them.
+   */
+  private final class Cascade
+  {
+    private final String key;
+    private final Repository repository;
+    private final String fromCommit;
+    private final List<Branch> targets;
+    // The commits whose merge the carried tree stands for.
+    private final List<String> merged = new ArrayList<String>();
+    private final List<MergeResultsModel> hops = new ArrayList<MergeResultsModel>();
+    private final CompletableFuture<CascadeModel> result = new CompletableFuture<CascadeModel>();
+    private volatile CompletableFuture<CascadeModel> running;
+    private String carried;
+
+    Cascade(String key, MergeConflictDetector mcd, List<Branch> targets)
+    {
+      this.key = key;
+      this.targets = targets;
+      repository = mcd.getToRepo();
+      fromCommit = mcd.getFromBranch().getLatestCommit();
+      merged.add(fromCommit);
+      carried = fromCommit;
+    }
+
+    CompletableFuture<CascadeModel> start()
+    {
+      result.whenComplete((cascade, e) -> {
+        CompletableFuture<CascadeModel> hop = running;
+        if (result.isCancelled() && hop != null) {
+          hop.cancel(false);
+        }
+      });
+      next(0);
+      return result;
+    }
+
+    private void next(int i)
+    {
+      if (result.isDone()) {
+        return;
+      }
+      if (i == targets.size()) {
+        result.complete(cache(key, new CascadeModel("CLEAN", null, hops, new ArrayList<String>(), null)));
+        return;
+      }
+      CompletableFuture<CascadeModel> hop;
+      try {
+        hop = mergeExecutor.submit(repository, () -> merge(i));
+      } catch (RuntimeException e) {
+        result.complete(failed(hops, targets, i, e));
+        return;
+      }
+      running = hop;
+      // Cancelled while the hop was being submitted.
+      if (result.isCancelled()) {
+        hop.cancel(false);
+      }
+      hop.whenComplete((stop, e) -> {
+        if (e != null) {
+          result.complete(failed(hops, targets, i, e));
+        } else if (stop != null) {
+          result.complete(stop);
+        } else {
+          next(i + 1);
+        }
+      });
+    }
+
+    // Returns the outcome if the cascade stops at this hop, or null to go on to the next.
+    private CascadeModel merge(int i)
+    {
+      Branch target = targets.get(i);
+      MergeTreeResult hop;
+      try {
+        if (i == 0) {
+          hop = mergeTree.merge(repository, fromCommit, target.getLatestCommit(), null);
+        } else {
+          String mergeBase = mergeTree.getMergeBase(repository, target.getLatestCommit(), merged);
+          if (mergeBase == null) {
+            return new CascadeModel("FAILED", null, hops, getDisplayIds(targets, i),
+                                    target.getDisplayId() + " has no history in common with the cascade.");
+          }
+          hop = mergeTree.merge(repository, carried, target.getLatestCommit(), mergeBase);
+        }
+      } catch (RuntimeException e) {
+        return failed(hops, targets, i, e);
+      }
+      hops.add(new MergeResult(target, hop.getMergeConflicts(), hop.getNotes(), true).toModel());
+      if (!hop.isClean()) {
+        return cache(key, new CascadeModel("CONFLICTED", target.getDisplayId(), hops, getDisplayIds(targets, i + 1), null));
+      }
+      merged.add(target.getLatestCommit());
+      carried = hop.getTreeId();
+      return null;
+    }
+  }
+
+  private CascadeModel cache(String key, CascadeModel cascade)
+  {
+    cascades.put(key, cascade);
+    return cascade;
+  }
+
+  private static List<String> getDisplayIds(List<Branch> targets, int from)
+  {
+    List<String> displayIds = new ArrayList<String>();
+    for (Branch target : targets.subList(from, targets.size())) {
+      displayIds.add(target.getDisplayId());
+    }
+    return displayIds;
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index from changed paths to the pull requests that change them. Two pull requests can
+ * only conflict with each other if they change a path in common, so this finds the pairs worth a
+ * dry run merge without merging every pair.
+ */
+public class ChangedPathIndex
+{
+  private final Map<String, List<Long>> pullRequestsByPath;
+
+  public ChangedPathIndex()
+  {
+    pullRequestsByPath = new HashMap<String, List<Long>>();
+  }
+
+  public void add(long pullRequestId, Collection<String> paths)
+  {
+    for (String path : paths) {
+      pullRequestsByPath.computeIfAbsent(path, p -> new ArrayList<Long>()).add(pullRequestId);
+    }
+  }
+
+  /**
+   * Returns every pair of pull requests that change at least one path in common, with the number
+   * of paths they share.
+   */
+  public Map<Pair, Integer> getOverlappingPairs()
+  {
+    Map<Pair, Integer> pairs = new HashMap<Pair, Integer>();
+    for (List<Long> pullRequests : pullRequestsByPath.values()) {
+      for (int i = 0; i < pullRequests.size(); i++) {
+        for (int j = i + 1; j < pullRequests.size(); j++) {
+          pairs.merge(Pair.of(pullRequests.get(i), pullRequests.get(j)), 1, Integer::sum);
+        }
+      }
+    }
+    return pairs;
+  }
+
+  /**
+   * Two pull request ids, lowest first.
+   */
+  public static final class Pair
+  {
+    private final long first;
+    private final long second;
+
+    private Pair(long first, long second)
+    {
+      this.first = first;
+      this.second = second;
+    }
+
+    public static Pair of(long a, long b)
+    {
+      return (a <= b) ? new Pair(a, b) : new Pair(b, a);
+    }
+
+    public long getFirst()
+    {
+      return first;
+    }
+
+    public long getSecond()
+    {
+      return second;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Pair)) {
+        return false;
+      }
+      Pair other = (Pair) o;
+      return first == other.first && second == other.second;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return Long.hashCode(first) * 31 + Long.hashCode(second);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import javax.xml.bind.annotation.*;
+import java.util.List;
+
+@XmlRootElement(name = "conflictpredictionmodel")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+public class ConflictPredictionModel {
+
+    private String targetBranchId;
+    private int pullRequestCount;
+    private long prunedPairCount;
+    private List<PredictedConflictModel> predictions;
+
+    public ConflictPredictionModel(String targetBranchId,
+                                   int pullRequestCount,
+                                   long prunedPairCount,
+                                   List<PredictedConflictModel> predictions) {
+      this.targetBranchId = targetBranchId;
+      this.pullRequestCount = pullRequestCount;
+      this.prunedPairCount = prunedPairCount;
+      this.predictions = predictions;
+    }
+
+    public String getTargetBranchId() {
+      return targetBranchId;
+    }
+
+    public int getPullRequestCount() {
+      return pullRequestCount;
+    }
+
+    public long getPrunedPairCount() {
+      return prunedPairCount;
+    }
+
+    public List<PredictedConflictModel> getPredictions() {
+      return predictions;
+    }
+
+}
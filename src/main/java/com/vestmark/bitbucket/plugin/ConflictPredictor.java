@@ -0,0 +1,164 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.content.AbstractChangeCallback;
+import com.atlassian.bitbucket.content.Change;
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.pull.PullRequestChangesRequest;
+import com.atlassian.bitbucket.pull.PullRequestSearchRequest;
+import com.atlassian.bitbucket.pull.PullRequestService;
+import com.atlassian.bitbucket.pull.PullRequestState;
+import com.atlassian.bitbucket.repository.Branch;
+import com.atlassian.bitbucket.repository.Ref;
+import com.atlassian.bitbucket.repository.RefService;
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.bitbucket.repository.ResolveRefRequest;
+import com.atlassian.bitbucket.repository.StandardRefType;
+import com.atlassian.bitbucket.user.ApplicationUser;
+import com.atlassian.bitbucket.util.PageRequestImpl;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Predicts which open pull requests into a branch will conflict with each other once one of them
+ * is merged. Each pull request's changed paths go into a ChangedPathIndex, and only pairs that
+ * change a path in common get a dry run merge of one source branch into the other. Pull requests
+ * from forks are left out, their source branches cannot be merged within the target repository.
+ * The merges share the request's deadline, plugin.mcd.request.timeout.ms, like any other batch of
+ * merges; pairs whose merge did not finish by then are reported with -1 conflicts.
+ */
+@Component
+public class ConflictPredictor
+{
+  public static final int MAX_PULL_REQUESTS = 100;
+  private static final int MAX_CACHED_PULL_REQUESTS = 2000;
+
+  private final PullRequestService pullRequestService;
+  private final RefService refService;
+  private final MergeConflictChecker checker;
+  // Changed paths by pull request and the commits on both sides, so a rescoped pull request is re-read.
+  private final Cache<String, Set<String>> changedPaths;
+
+  @Autowired
+  public ConflictPredictor(@ComponentImport PullRequestService pullRequestService,
+                           @ComponentImport RefService refService,
+                           MergeConflictChecker checker)
+  {
+    this.pullRequestService = pullRequestService;
+    this.refService = refService;
+    this.checker = checker;
+    changedPaths = CacheBuilder.newBuilder()
+                               .maximumSize(MAX_CACHED_PULL_REQUESTS)
+                               .build();
+  }
+
+  /**
+   * Checks the open pull requests into the given branch against each other, up to
+   * MAX_PULL_REQUESTS of them.
+   */
+  public ConflictPredictionModel predict(ApplicationUser user, Repository repository, String targetBranchId)
+  {
+    PullRequestSearchRequest request = new PullRequestSearchRequest.Builder().state(PullRequestState.OPEN)
+      .toRepositoryId(repository.getId())
+      .toRefId(targetBranchId)
+      .build();
+    Map<Long, PullRequest> pullRequests = new HashMap<Long, PullRequest>();
+    ChangedPathIndex index = new ChangedPathIndex();
+    for (PullRequest pullRequest : pullRequestService.search(request, new PageRequestImpl(0, MAX_PULL_REQUESTS)).getValues()) {
+      if (pullRequest.getFromRef().getRepository().getId() == repository.getId()) {
+        pullRequests.put(pullRequest.getId(), pullRequest);
+        index.add(pullRequest.getId(), getChangedPaths(pullRequest));
+      }
+    }
+
+    Map<ChangedPathIndex.Pair, Integer> overlapping = index.getOverlappingPairs();
+    List<ChangedPathIndex.Pair> pairs = new ArrayList<ChangedPathIndex.Pair>();
+    List<Branch> otherSources = new ArrayList<Branch>();
+    List<CompletableFuture<MergeResult>> merges = new ArrayList<CompletableFuture<MergeResult>>();
+    MergeConflictChecker.MergeBatch batch = checker.startBatch();
+    for (ChangedPathIndex.Pair pair : overlapping.keySet()) {
+      Branch otherSource = getSourceBranch(pullRequests.get(pair.getSecond()));
+      if (otherSource == null) {
+        continue;
+      }
+      pairs.add(pair);
+      otherSources.add(otherSource);
+      merges.add(batch.submit(checker.createDetector(user, pullRequests.get(pair.getFirst())), otherSource));
+    }
+
+    List<PredictedConflictModel> predictions = new ArrayList<PredictedConflictModel>();
+    for (int i = 0; i < pairs.size(); i++) {
+      ChangedPathIndex.Pair pair = pairs.get(i);
+      MergeResult result = batch.await(otherSources.get(i), merges.get(i));
+      predictions.add(new PredictedConflictModel(pair.getFirst(),
+                                                 pair.getSecond(),
+                                                 overlapping.get(pair),
+                                                 result.isCacheable() ? result.getMergeConflictsTotal() : -1,
+                                                 result.getFiles()));
+    }
+    batch.finish();
+    long allPairs = (long) pullRequests.size() * (pullRequests.size() - 1) / 2;
+    return new ConflictPredictionModel(targetBranchId, pullRequests.size(), allPairs - overlapping.size(), predictions);
+  }
+
+  private Set<String> getChangedPaths(PullRequest pullRequest)
+  {
+    String key = pullRequest.getToRef().getRepository().getId() + ":" + pullRequest.getId() + ":"
+                 + pullRequest.getFromRef().getLatestCommit() + ":" + pullRequest.getToRef().getLatestCommit();
+    Set<String> paths = changedPaths.getIfPresent(key);
+    if (paths == null) {
+      Set<String> collected = new HashSet<String>();
+      pullRequestService.streamChanges(new PullRequestChangesRequest.Builder(pullRequest).build(), new AbstractChangeCallback() {
+        @Override
+        public boolean onChange(Change change)
+          throws IOException
+        {
+          collected.add(change.getPath().toString());
+          // Both sides of a move or rename.
+          if (change.getSrcPath() != null) {
+            collected.add(change.getSrcPath().toString());
+          }
+          return true;
+        }
+      });
+      paths = collected;
+      changedPaths.put(key, paths);
+    }
+    return paths;
+  }
+
+  private Branch getSourceBranch(PullRequest pullRequest)
+  {
+    Ref ref = refService.resolveRef(new ResolveRefRequest.Builder(pullRequest.getFromRef().getRepository())
+                                      .refId(pullRequest.getFromRef().getId())
+                                      .type(StandardRefType.BRANCH)
+                                      .build());
+    return (ref instanceof Branch) ? (Branch) ref : null;
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.repository.Branch;
+import com.atlassian.bitbucket.scm.MergeCommandParameters;
+import com.atlassian.bitbucket.scm.MergeException;
+import com.atlassian.bitbucket.scm.git.command.GitExtendedCommandFactory;
+import com.atlassian.bitbucket.scm.git.command.merge.GitMergeException;
+import com.atlassian.bitbucket.scm.git.command.merge.conflict.GitMergeConflict;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+
+/**
+ * Bitbucket's own dry run merge, which merges in a temporary working copy of the repository.
+ */
+@Component
+public class DryRunMergeEngine
+    implements MergeEngine
+{
+  public static final String NAME = "dry-run";
+  private static final String GIT_MERGE_EXCEPTION = "com.atlassian.bitbucket.scm.git.command.merge.GitMergeException";
+
+  private final GitExtendedCommandFactory extendedCmdFactory;
+  private final int maxConflicts;
+
+  @Autowired
+  public DryRunMergeEngine(@ComponentImport ApplicationPropertiesService applicationPropertiesService,
+                           @ComponentImport GitExtendedCommandFactory extendedCmdFactory)
+  {
+    this.extendedCmdFactory = extendedCmdFactory;
+    // Conflicts past this are counted but not kept. Zero or less keeps all of them.
+    maxConflicts = applicationPropertiesService.getPluginProperty(MergeConflictChecker.MAX_CONFLICTS_PROPERTY,
+                                                                  MergeConflictChecker.DEFAULT_MAX_CONFLICTS);
+  }
+
+  @Override
+  public String getName()
+  {
+    return NAME;
+  }
+
+  @Override
+  public MergeResult merge(MergeConflictDetector mcd, Branch toBranch)
+  {
+    List<String> message = new LinkedList<String>();
+    MergeCommandParameters params = new MergeCommandParameters
+      .Builder()
+      .dryRun(true)
+      .author(mcd.getUser())
+      .fromBranch(mcd.getFromBranchId())
+      .toBranch(toBranch.getId())
+      .message("MergeConflictDetector dry run merge check.")
+      .build();
+    try {
+      Branch result = extendedCmdFactory.merge(mcd.getToRepo(), params).call();
+      // A result from the merge indicates an unsuccessful dry run!
+      if (result != null) {
+        message.add("Merge committed! Commit ID: " + result.getLatestCommit());
+        return new MergeResult(toBranch, null, message, false);
+      }
+      return new MergeResult(toBranch, null, message, true);
+    } catch (MergeException e) {
+      // The conflicts are not always on the exception thrown, it can wrap the one that has them.
+      List<GitMergeConflict> conflicts = findConflicts(e);
+      if (conflicts == null) {
+        message.add(e.getMessage());
+        return new MergeResult(toBranch, null, message, false);
+      }
+      MergeConflicts.Builder mergeConflicts = new MergeConflicts.Builder(maxConflicts);
+      for (GitMergeConflict mergeConflict : conflicts) {
+        mergeConflicts.add(mergeConflict);
+      }
+      return new MergeResult(toBranch, mergeConflicts.build(), message, true);
+    } catch (Exception e) {
+      // Non Merge Exception
+      message.add(e.getMessage());
+      return new MergeResult(toBranch, null, message, false);
+    }
+  }
+
+  // Returns the first conflicts reported along the exception's causes, or null if there are none.
+  // GitMergeException is matched by name and the cast left to fail, not tested with instanceof: the
+  // exception can come from a class loader other than the plugin's, where instanceof is false and
+  // the cast throws, as the original check found. Such conflicts are reported as a failed merge.
+  private static List<GitMergeConflict> findConflicts(Throwable e)
+  {
+    for (Throwable cause = e; cause != null; cause = (cause.getCause() == cause) ? null : cause.getCause()) {
+      if (isGitMergeException(cause)) {
+        try {
+          List<GitMergeConflict> conflicts = ((GitMergeException) cause).getConflicts();
+          if (conflicts != null && !conflicts.isEmpty()) {
+            return conflicts;
+          }
+        } catch (ClassCastException f) {
+          return null;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static boolean isGitMergeException(Throwable e)
+  {
+    for (Class<?> type = e.getClass(); type != null; type = type.getSuperclass()) {
+      if (GIT_MERGE_EXCEPTION.equals(type.getName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import javax.xml.bind.annotation.*;
+
+@XmlRootElement(name = "executorstatsmodel")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+public class ExecutorStatsModel {
+
+    private int poolSize;
+    private int activeWorkers;
+    private int queueDepth;
+    private long completedTasks;
+
+    public ExecutorStatsModel(MergeExecutor executor) {
+      this.poolSize = executor.getPoolSize();
+      this.activeWorkers = executor.getActiveWorkers();
+      this.queueDepth = executor.getQueueDepth();
+      this.completedTasks = executor.getCompletedTasks();
+    }
+
+    public int getPoolSize() {
+      return poolSize;
+    }
+
+    public int getActiveWorkers() {
+      return activeWorkers;
+    }
+
+    public int getQueueDepth() {
+      return queueDepth;
+    }
+
+    public long getCompletedTasks() {
+      return completedTasks;
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.i18n.KeyedMessage;
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.bitbucket.scm.CommandExitHandler;
+import com.atlassian.bitbucket.scm.CommandFailedException;
+import com.atlassian.bitbucket.scm.git.command.GitCommandBuilderFactory;
+import com.atlassian.bitbucket.scm.git.command.GitScmCommandBuilder;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+
+/**
+ * Merges with git merge-tree --write-tree, which works on the bare repository: the merged tree is
+ * written to the object store and nothing else is touched, no commit, index or working copy. Needs
+ * git 2.38, or 2.40 to merge trees against a given merge base.
+ */
+@Component
+public class GitMergeTree
+{
+  // merge-tree exits with 1 when the merge has conflicts, and git with 129 on unknown options.
+  private static final int EXIT_CONFLICTS = 1;
+  private static final int EXIT_USAGE = 129;
+
+  private final GitCommandBuilderFactory builderFactory;
+  private final int maxConflicts;
+
+  @Autowired
+  public GitMergeTree(@ComponentImport ApplicationPropertiesService applicationPropertiesService,
+                      @ComponentImport GitCommandBuilderFactory builderFactory)
+  {
+    this.builderFactory = builderFactory;
+    maxConflicts = applicationPropertiesService.getPluginProperty(MergeConflictChecker.MAX_CONFLICTS_PROPERTY,
+                                                                  MergeConflictChecker.DEFAULT_MAX_CONFLICTS);
+  }
+
+  /**
+   * Merges theirs into ours, both commits or, given a merge base, trees. Without a merge base git
+   * finds the merge bases of the two commits itself.
+   */
+  public MergeTreeResult merge(Repository repository, String ours, String theirs, String mergeBase)
+  {
+    GitScmCommandBuilder builder = builderFactory.builder(repository)
+                                                 .command("merge-tree")
+                                                 .argument("--write-tree")
+                                                 .argument("--name-only")
+                                                 .argument("-z");
+    if (mergeBase != null) {
+      builder.argument("--merge-base=" + mergeBase);
+    }
+    return builder.argument(ours)
+                  .argument(theirs)
+                  .exitHandler(new ExitHandler())
+                  .build(new MergeTreeOutputHandler(ours, maxConflicts))
+                  .call();
+  }
+
+  /**
+   * Returns a merge base of the commit and a merge of all of the others, or null if they have no
+   * common history.
+   */
+  public String getMergeBase(Repository repository, String commit, List<String> others)
+  {
+    GitScmCommandBuilder builder = builderFactory.builder(repository)
+                                                 .command("merge-base")
+                                                 .argument(commit);
+    for (String other : others) {
+      builder.argument(other);
+    }
+    // merge-base exits with 1 when there is none.
+    List<String> bases = builder.exitHandler(new ExitHandler())
+                                .build(new LinesOutputHandler())
+                                .call();
+    return (bases == null || bases.isEmpty()) ? null : bases.get(0);
+  }
+
+  // Exit code 1 is an answer for both commands used here, not a failure.
+  private static class ExitHandler
+      implements CommandExitHandler
+  {
+    @Override
+    public void onCancel(String command, int exitCode, String stdErr, Throwable thrown)
+    {
+      throw failed(command + " was cancelled", thrown);
+    }
+
+    @Override
+    public void onExit(String command, int exitCode, String stdErr, Throwable thrown)
+    {
+      if (thrown == null && (exitCode == 0 || exitCode == EXIT_CONFLICTS)) {
+        return;
+      }
+      if (exitCode == EXIT_USAGE) {
+        throw new MergeTreeUnsupportedException(command + " is not supported by this version of git: " + stdErr);
+      }
+      throw failed(command + " exited with " + exitCode + ": " + stdErr, thrown);
+    }
+
+    private static CommandFailedException failed(String message, Throwable thrown)
+    {
+      String detail = (thrown == null) ? message : message + " (" + thrown.getMessage() + ")";
+      return new CommandFailedException(new KeyedMessage("mcd.git.failed", detail, detail));
+    }
+  }
+}
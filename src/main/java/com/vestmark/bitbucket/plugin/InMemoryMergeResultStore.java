@@ -0,0 +1,82 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * MergeResultStore for a single process, for tests and benchmarks. A time to live of zero keeps
+ * nothing.
+ */
+public class InMemoryMergeResultStore
+    implements MergeResultStore
+{
+  private final long ttlMs;
+  private final ConcurrentMap<MergeResultCache.Key, Entry> results;
+
+  public InMemoryMergeResultStore(long ttlMs)
+  {
+    this.ttlMs = ttlMs;
+    results = new ConcurrentHashMap<MergeResultCache.Key, Entry>();
+  }
+
+  @Override
+  public MergeResult get(MergeResultCache.Key key)
+  {
+    Entry entry = results.get(key);
+    if (entry == null || isExpired(entry)) {
+      return null;
+    }
+    return entry.result;
+  }
+
+  @Override
+  public void put(MergeResultCache.Key key, MergeResult result)
+  {
+    if (ttlMs > 0) {
+      results.put(key, new Entry(result.withToBranch(null), System.currentTimeMillis()));
+    }
+  }
+
+  @Override
+  public void removeExpired()
+  {
+    results.values().removeIf(this::isExpired);
+  }
+
+  @Override
+  public void removeRepository(int repositoryId)
+  {
+    results.keySet().removeIf(key -> key.getRepositoryId() == repositoryId);
+  }
+
+  private boolean isExpired(Entry entry)
+  {
+    return System.currentTimeMillis() - entry.storedAt > ttlMs;
+  }
+
+  private static final class Entry
+  {
+    private final MergeResult result;
+    private final long storedAt;
+
+    Entry(MergeResult result, long storedAt)
+    {
+      this.result = result;
+      this.storedAt = storedAt;
+    }
+  }
+}
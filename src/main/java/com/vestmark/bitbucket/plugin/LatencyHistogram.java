@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of durations over fixed millisecond buckets. Percentiles are reported as
+ * the upper bound of the bucket they fall in, which is plenty to tell a 50ms merge from a 5s one.
+ */
+public class LatencyHistogram
+{
+  private static final long[] BUCKET_BOUNDS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, 60000};
+
+  private final LongAdder[] buckets;
+  private final LongAdder count;
+  private final LongAdder totalNanos;
+  private final AtomicLong maxNanos;
+
+  public LatencyHistogram()
+  {
+    buckets = new LongAdder[BUCKET_BOUNDS_MS.length + 1];
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+    }
+    count = new LongAdder();
+    totalNanos = new LongAdder();
+    maxNanos = new AtomicLong();
+  }
+
+  public void record(long nanos)
+  {
+    long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+    int bucket = 0;
+    while (bucket < BUCKET_BOUNDS_MS.length && millis > BUCKET_BOUNDS_MS[bucket]) {
+      bucket++;
+    }
+    buckets[bucket].increment();
+    count.increment();
+    totalNanos.add(nanos);
+    maxNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  public long getCount()
+  {
+    return count.sum();
+  }
+
+  public long getMeanMillis()
+  {
+    long n = count.sum();
+    return (n == 0) ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.sum() / n);
+  }
+
+  public long getMaxMillis()
+  {
+    return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+  }
+
+  /**
+   * Returns the bucket bound the given fraction of durations fall within, or the maximum for
+   * durations beyond the last bucket.
+   */
+  public long getPercentileMillis(double fraction)
+  {
+    long n = count.sum();
+    if (n == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(fraction * n);
+    long seen = 0;
+    for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+      seen += buckets[i].sum();
+      if (seen >= rank) {
+        return BUCKET_BOUNDS_MS[i];
+      }
+    }
+    return getMaxMillis();
+  }
+
+  public LatencyStatsModel toModel()
+  {
+    return new LatencyStatsModel(this);
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import javax.xml.bind.annotation.*;
+
+@XmlRootElement(name = "latencystatsmodel")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+public class LatencyStatsModel {
+
+    private long count;
+    private long meanMillis;
+    private long p50Millis;
+    private long p95Millis;
+    private long p99Millis;
+    private long maxMillis;
+
+    public LatencyStatsModel(LatencyHistogram histogram) {
+      this.count = histogram.getCount();
+      this.meanMillis = histogram.getMeanMillis();
+      this.p50Millis = histogram.getPercentileMillis(0.50);
+      this.p95Millis = histogram.getPercentileMillis(0.95);
+      this.p99Millis = histogram.getPercentileMillis(0.99);
+      this.maxMillis = histogram.getMaxMillis();
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getMeanMillis() {
+      return meanMillis;
+    }
+
+    public long getP50Millis() {
+      return p50Millis;
+    }
+
+    public long getP95Millis() {
+      return p95Millis;
+    }
+
+    public long getP99Millis() {
+      return p99Millis;
+    }
+
+    public long getMaxMillis() {
+      return maxMillis;
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.atlassian.bitbucket.io.LineReader;
+import com.atlassian.bitbucket.io.LineReaderOutputHandler;
+import com.atlassian.bitbucket.scm.CommandOutputHandler;
+
+/**
+ * Collects every line a git command writes.
+ */
+class LinesOutputHandler
+    extends LineReaderOutputHandler
+    implements CommandOutputHandler<List<String>>
+{
+  private final List<String> lines;
+
+  LinesOutputHandler()
+  {
+    super(StandardCharsets.UTF_8);
+    lines = new ArrayList<String>();
+  }
+
+  @Override
+  public List<String> getOutput()
+  {
+    return lines;
+  }
+
+  @Override
+  protected void processReader(LineReader reader)
+    throws IOException
+  {
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (!line.isEmpty()) {
+        lines.add(line);
+      }
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A merge conflict check running in the background. Results are appended as each merge finishes
+ * and read back by clients with a cursor into the result list.
+ */
+public class MergeCheckJob
+{
+  private final String id;
+  private final int repositoryId;
+  private final long pullRequestId;
+  private final List<String> targets;
+  private final String eTag;
+  private final List<MergeResultsModel> results;
+  private boolean repeatable;
+  private volatile boolean done;
+  private volatile long finishedAt;
+
+  public MergeCheckJob(String id, int repositoryId, long pullRequestId, List<String> targets, String eTag)
+  {
+    this.id = id;
+    this.repositoryId = repositoryId;
+    this.pullRequestId = pullRequestId;
+    this.targets = targets;
+    this.eTag = eTag;
+    results = new ArrayList<MergeResultsModel>();
+    repeatable = true;
+  }
+
+  public String getId()
+  {
+    return id;
+  }
+
+  public int getRepositoryId()
+  {
+    return repositoryId;
+  }
+
+  public long getPullRequestId()
+  {
+    return pullRequestId;
+  }
+
+  public List<String> getTargets()
+  {
+    return targets;
+  }
+
+  public boolean isDone()
+  {
+    return done;
+  }
+
+  public long getFinishedAt()
+  {
+    return finishedAt;
+  }
+
+  public synchronized void addResult(MergeResult result)
+  {
+    results.add(result.toModel());
+    repeatable &= result.isCacheable();
+  }
+
+  public synchronized void finish()
+  {
+    finishedAt = System.currentTimeMillis();
+    done = true;
+  }
+
+  /**
+   * Finishes a job that could not run all of its merges. Its results are never given an entity tag.
+   */
+  public synchronized void fail()
+  {
+    repeatable = false;
+    finish();
+  }
+
+  /**
+   * Returns the job's state with the results added since the given cursor. The entity tag of the
+   * results is included once the job is done, unless one of them failed in a way that may not repeat.
+   */
+  public synchronized MergeCheckJobModel toModel(int cursor)
+  {
+    int from = Math.max(0, Math.min(cursor, results.size()));
+    return new MergeCheckJobModel(id, targets, new ArrayList<MergeResultsModel>(results.subList(from, results.size())),
+                                  results.size(), done, (done && repeatable) ? eTag : null);
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.repository.Branch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Starts merge conflict checks in the background and keeps them around long enough for the modal
+ * to collect their results. Finished jobs are swept once they have been kept long enough, whether or
+ * not new jobs are started.
+ */
+@Component
+public class MergeCheckJobManager
+    implements InitializingBean, DisposableBean
+{
+  private static final long FINISHED_JOB_RETENTION_MS = TimeUnit.MINUTES.toMillis(10);
+  private static final long SWEEP_INTERVAL_MINUTES = 1;
+
+  private final MergeConflictChecker checker;
+  private final MergeConflictMetrics metrics;
+  private final ConcurrentMap<String, MergeCheckJob> jobs;
+  // Unfinished jobs by check key, so identical checks started together share a job.
+  private final ConcurrentMap<String, MergeCheckJob> runningJobs;
+  private ScheduledExecutorService sweeper;
+
+  @Autowired
+  public MergeCheckJobManager(MergeConflictChecker checker, MergeConflictMetrics metrics)
+  {
+    this.checker = checker;
+    this.metrics = metrics;
+    jobs = new ConcurrentHashMap<String, MergeCheckJob>();
+    runningJobs = new ConcurrentHashMap<String, MergeCheckJob>();
+  }
+
+  @Override
+  public void afterPropertiesSet()
+  {
+    sweeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("mcd-job-sweeper")
+                                                                                   .setDaemon(true)
+                                                                                   .build());
+    sweeper.scheduleWithFixedDelay(this::removeExpiredJobs, SWEEP_INTERVAL_MINUTES, SWEEP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+  }
+
+  @Override
+  public void destroy()
+  {
+    sweeper.shutdownNow();
+  }
+
+  /**
+   * Queues every dry run merge for the pull request and returns immediately. The automatic merge
+   * failure check runs once all of the merges have finished. If the same check, by pull request
+   * and commits, is already running its job is returned instead.
+   */
+  public MergeCheckJob start(MergeConflictDetector mcd)
+  {
+    return start(mcd, eTag -> false);
+  }
+
+  /**
+   * Starts the check unless isCurrent accepts its entity tag, in which case null is returned and
+   * the tag is left on the detector.
+   */
+  public MergeCheckJob start(MergeConflictDetector mcd, Predicate<String> isCurrent)
+  {
+    MergeCheckTimings timings = metrics.startCheck(mcd);
+    List<Branch> targets;
+    String eTag;
+    try {
+      targets = checker.getTargets(mcd);
+      eTag = checker.getETag(mcd, targets);
+    } catch (RuntimeException e) {
+      metrics.finishCheck(timings);
+      throw e;
+    }
+    timings.endPhase(MergeCheckTimings.Phase.TARGETS);
+    if (isCurrent.test(eTag)) {
+      mcd.setETag(eTag);
+      metrics.finishCheck(timings);
+      return null;
+    }
+    String checkKey = MergeConflictChecker.getCheckKey(mcd, targets);
+    MergeCheckJob newJob = new MergeCheckJob(UUID.randomUUID().toString(),
+                                             mcd.getToRepo().getId(),
+                                             mcd.getPullRequest().getId(),
+                                             targets.stream().map(Branch::getDisplayId).collect(Collectors.toList()),
+                                             eTag);
+    MergeCheckJob job = runningJobs.compute(checkKey, (key, running) -> (running != null && !running.isDone()) ? running : newJob);
+    if (job != newJob) {
+      metrics.recordCoalescedCheck();
+      metrics.finishCheck(timings);
+      return job;
+    }
+    jobs.put(job.getId(), job);
+    // The job is already shared, so it must finish however its merges fail to start, or callers
+    // joining it would poll forever.
+    try {
+      List<CompletableFuture<Void>> merges = new ArrayList<CompletableFuture<Void>>();
+      for (Branch target : targets) {
+        CompletableFuture<MergeResult> merge;
+        try {
+          merge = checker.submitMerge(mcd, target);
+        } catch (RuntimeException e) {
+          merge = CompletableFuture.completedFuture(new MergeResult(target, Arrays.asList(e.getMessage())));
+        }
+        merges.add(merge.thenAccept(job::addResult));
+      }
+      CompletableFuture.allOf(merges.toArray(new CompletableFuture[0]))
+                       .thenApply(v -> {
+                         timings.endPhase(MergeCheckTimings.Phase.MERGES);
+                         // An index lookup, so it runs here rather than taking a merge slot.
+                         MergeResult autoMergeFailure = checker.checkForAutoMergeFailure(mcd);
+                         timings.endPhase(MergeCheckTimings.Phase.AUTO_MERGE_FAILURE);
+                         return autoMergeFailure;
+                       })
+                       .whenComplete((result, e) -> {
+                         runningJobs.remove(checkKey, job);
+                         if (e != null) {
+                           // Some results are missing, so the job must not hand out an entity tag
+                           // that would let the modal keep them.
+                           job.fail();
+                         } else {
+                           if (result != null) {
+                             job.addResult(result);
+                           }
+                           job.finish();
+                         }
+                         metrics.finishCheck(timings);
+                       });
+    } catch (RuntimeException e) {
+      runningJobs.remove(checkKey, job);
+      job.fail();
+      metrics.finishCheck(timings);
+      throw e;
+    }
+    return job;
+  }
+
+  public MergeCheckJob get(String jobId)
+  {
+    return jobs.get(jobId);
+  }
+
+  private void removeExpiredJobs()
+  {
+    long cutoff = System.currentTimeMillis() - FINISHED_JOB_RETENTION_MS;
+    jobs.values().removeIf(job -> job.isDone() && job.getFinishedAt() < cutoff);
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import javax.xml.bind.annotation.*;
+import java.util.List;
+
+@XmlRootElement(name = "mergecheckjobmodel")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+public class MergeCheckJobModel {
+
+    private String jobId;
+    private List<String> targets;
+    private List<MergeResultsModel> results;
+    private int cursor;
+    private boolean done;
+    private String etag;
+
+    public MergeCheckJobModel(String jobId,
+                              List<String> targets,
+                              List<MergeResultsModel> results,
+                              int cursor,
+                              boolean done,
+                              String etag) {
+      this.jobId = jobId;
+      this.targets = targets;
+      this.results = results;
+      this.cursor = cursor;
+      this.done = done;
+      this.etag = etag;
+    }
+
+    public String getJobId() {
+      return jobId;
+    }
+
+    public List<String> getTargets() {
+      return targets;
+    }
+
+    public List<MergeResultsModel> getResults() {
+      return results;
+    }
+
+    public int getCursor() {
+      return cursor;
+    }
+
+    public boolean isDone() {
+      return done;
+    }
+
+    public String getEtag() {
+      return etag;
+    }
+
+}
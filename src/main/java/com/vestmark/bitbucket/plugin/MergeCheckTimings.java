@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phase breakdown of a single merge conflict check, from resolving its targets to the automatic
+ * merge failure check.
+ */
+public class MergeCheckTimings
+{
+  public enum Phase
+  {
+    TARGETS,
+    MERGES,
+    AUTO_MERGE_FAILURE
+  }
+
+  private final String label;
+  private final long startedAt;
+  private final Map<Phase, Long> phases;
+  private long phaseStartedAt;
+
+  MergeCheckTimings(String label)
+  {
+    this.label = label;
+    startedAt = System.nanoTime();
+    phaseStartedAt = startedAt;
+    phases = new EnumMap<Phase, Long>(Phase.class);
+  }
+
+  public String getLabel()
+  {
+    return label;
+  }
+
+  /**
+   * Ends the given phase, which is taken to have started when the previous one ended.
+   */
+  public synchronized void endPhase(Phase phase)
+  {
+    long now = System.nanoTime();
+    phases.put(phase, now - phaseStartedAt);
+    phaseStartedAt = now;
+  }
+
+  public synchronized Map<Phase, Long> getPhaseNanos()
+  {
+    return new EnumMap<Phase, Long>(phases);
+  }
+
+  public long getElapsedNanos()
+  {
+    return System.nanoTime() - startedAt;
+  }
+
+  @Override
+  public synchronized String toString()
+  {
+    StringBuilder breakdown = new StringBuilder();
+    for (Map.Entry<Phase, Long> phase : phases.entrySet()) {
+      breakdown.append(phase.getKey().name().toLowerCase())
+               .append('=')
+               .append(TimeUnit.NANOSECONDS.toMillis(phase.getValue()))
+               .append("ms ");
+    }
+    return breakdown.append("total=").append(TimeUnit.NANOSECONDS.toMillis(getElapsedNanos())).append("ms").toString();
+  }
+}
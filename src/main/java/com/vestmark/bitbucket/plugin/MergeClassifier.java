@@ -0,0 +1,185 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.pull.PullRequestMergeConfig;
+import com.atlassian.bitbucket.pull.PullRequestMergeStrategy;
+import com.atlassian.bitbucket.pull.PullRequestService;
+import com.atlassian.bitbucket.repository.Branch;
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.bitbucket.scm.git.command.GitCommandBuilderFactory;
+import com.atlassian.bitbucket.scm.git.command.GitScmCommandBuilder;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Settles merges whose outcome is known without merging. A single git merge-base of the two
+ * commits tells whether the source is already in the target or the target has not moved since,
+ * and the target repository's default merge strategy tells what merging then does: a fast forward,
+ * or a new commit that cannot conflict. Strategies that only fast forward are not settled any other
+ * way. With plugin.mcd.classify.disjoint the files changed on each side since the merge base are
+ * also compared, at the cost of two more git processes, and merges that change different files are
+ * settled too. Anything it cannot settle is left to a dry run merge.
+ */
+@Component
+public class MergeClassifier
+{
+  public static final String DISJOINT_PROPERTY = "plugin.mcd.classify.disjoint";
+  public static final boolean DEFAULT_DISJOINT = false;
+  // Bitbucket's own default when a repository has not chosen one.
+  static final String DEFAULT_STRATEGY = "no-ff";
+  // Sides with more changes than this are left to the merge, which is no slower at that point.
+  private static final int MAX_CHANGED_PATHS = 10000;
+  private static final Set<String> FAST_FORWARDING = new HashSet<String>(Arrays.asList("ff", "ff-only", "rebase-ff-only"));
+  private static final Set<String> FAST_FORWARD_ONLY = new HashSet<String>(Arrays.asList("ff-only", "squash-ff-only"));
+
+  private final GitCommandBuilderFactory builderFactory;
+  private final PullRequestService pullRequestService;
+  private final boolean disjoint;
+  // Default merge strategy by target repository, read again now and then in case it is changed.
+  private final Cache<Integer, String> strategies;
+
+  @Autowired
+  public MergeClassifier(@ComponentImport ApplicationPropertiesService applicationPropertiesService,
+                         @ComponentImport GitCommandBuilderFactory builderFactory,
+                         @ComponentImport PullRequestService pullRequestService)
+  {
+    this(builderFactory, pullRequestService, applicationPropertiesService.getPluginProperty(DISJOINT_PROPERTY, DEFAULT_DISJOINT));
+  }
+
+  public MergeClassifier(GitCommandBuilderFactory builderFactory, PullRequestService pullRequestService, boolean disjoint)
+  {
+    this.builderFactory = builderFactory;
+    this.pullRequestService = pullRequestService;
+    this.disjoint = disjoint;
+    strategies = CacheBuilder.newBuilder()
+                             .expireAfterWrite(1, TimeUnit.MINUTES)
+                             .build();
+  }
+
+  /**
+   * Returns how merging the pull request's source into the target can be decided, MERGED meaning
+   * a dry run merge is needed. Any failure to read the history or the merge strategy also falls
+   * back to the merge.
+   */
+  public MergeDecision classify(MergeConflictDetector mcd, Branch toBranch)
+  {
+    try {
+      String strategyId = strategies.get(mcd.getToRepo().getId(), () -> getStrategyId(mcd));
+      return classify(mcd.getToRepo(), mcd.getFromBranch().getLatestCommit(), toBranch.getLatestCommit(), strategyId);
+    } catch (ExecutionException | RuntimeException e) {
+      return MergeDecision.MERGED;
+    }
+  }
+
+  private MergeDecision classify(Repository repository, String fromCommit, String toCommit, String strategyId)
+  {
+    List<String> mergeBases = git(repository, "merge-base", "--all", fromCommit, toCommit);
+    // No common history, or a criss-cross merge that the changed files cannot speak for.
+    if (mergeBases.size() != 1) {
+      return MergeDecision.MERGED;
+    }
+    String mergeBase = mergeBases.get(0);
+    MergeDecision decision = decide(mergeBase, fromCommit, toCommit, strategyId);
+    if (decision != MergeDecision.MERGED || !disjoint || FAST_FORWARD_ONLY.contains(strategyId)) {
+      return decision;
+    }
+    List<String> sourceChanges = git(repository, "diff", "--name-only", "--no-renames", mergeBase, fromCommit);
+    if (sourceChanges.size() > MAX_CHANGED_PATHS) {
+      return MergeDecision.MERGED;
+    }
+    List<String> targetChanges = git(repository, "diff", "--name-only", "--no-renames", mergeBase, toCommit);
+    if (targetChanges.size() > MAX_CHANGED_PATHS) {
+      return MergeDecision.MERGED;
+    }
+    return isDisjoint(sourceChanges, targetChanges) ? MergeDecision.DISJOINT_CHANGES : MergeDecision.MERGED;
+  }
+
+  /**
+   * Decides a merge from the single merge base of its two commits and the merge strategy alone,
+   * MERGED meaning it cannot be.
+   */
+  static MergeDecision decide(String mergeBase, String fromCommit, String toCommit, String strategyId)
+  {
+    if (mergeBase.equals(fromCommit)) {
+      return MergeDecision.ALREADY_MERGED;
+    }
+    if (mergeBase.equals(toCommit)) {
+      return FAST_FORWARDING.contains(strategyId) ? MergeDecision.FAST_FORWARD : MergeDecision.TARGET_UNCHANGED;
+    }
+    return MergeDecision.MERGED;
+  }
+
+  /**
+   * True if no file is changed on both sides and no file on one side is a directory on the other,
+   * which would be a file/directory conflict.
+   */
+  static boolean isDisjoint(List<String> sourceChanges, List<String> targetChanges)
+  {
+    Set<String> sourceFiles = new HashSet<String>(sourceChanges);
+    Set<String> sourceDirectories = directories(sourceChanges);
+    Set<String> targetDirectories = directories(targetChanges);
+    for (String path : targetChanges) {
+      if (sourceFiles.contains(path) || sourceDirectories.contains(path)) {
+        return false;
+      }
+    }
+    for (String path : sourceChanges) {
+      if (targetDirectories.contains(path)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Set<String> directories(List<String> paths)
+  {
+    Set<String> directories = new HashSet<String>();
+    for (String path : paths) {
+      for (int slash = path.indexOf('/'); slash > 0; slash = path.indexOf('/', slash + 1)) {
+        directories.add(path.substring(0, slash));
+      }
+    }
+    return directories;
+  }
+
+  private String getStrategyId(MergeConflictDetector mcd)
+  {
+    PullRequestMergeConfig config = pullRequestService.getMergeConfig(mcd.getPullRequest());
+    PullRequestMergeStrategy strategy = (config == null) ? null : config.getDefaultStrategy();
+    return (strategy == null || strategy.getId() == null) ? DEFAULT_STRATEGY : strategy.getId();
+  }
+
+  private List<String> git(Repository repository, String command, String... arguments)
+  {
+    GitScmCommandBuilder builder = builderFactory.builder(repository).command(command);
+    for (String argument : arguments) {
+      builder.argument(argument);
+    }
+    return builder.build(new LinesOutputHandler()).call();
+  }
+}
@@ -0,0 +1,715 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.branch.model.BranchClassifier;
+import com.atlassian.bitbucket.branch.model.BranchModelService;
+import com.atlassian.bitbucket.branch.model.BranchType;
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.repository.Branch;
+import com.atlassian.bitbucket.repository.Ref;
+import com.atlassian.bitbucket.repository.RefService;
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.bitbucket.repository.ResolveRefRequest;
+import com.atlassian.bitbucket.repository.StandardRefType;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.bitbucket.user.ApplicationUser;
+import com.atlassian.bitbucket.util.Page;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+/**
+ * Finds the merge targets of a pull request and runs the dry run merges against them. Shared by the
+ * REST resource and anything else that needs merge results outside of a request.
+ */
+@Component
+public class MergeConflictChecker
+{
+  public static final String AUTO_MERGE_FAIL = "Automatic merge failure";
+  public static final String BATCH_MERGES_PROPERTY = "plugin.mcd.batch.merges";
+  public static final int DEFAULT_BATCH_MERGES = 8;
+  public static final String REQUEST_TIMEOUT_PROPERTY = "plugin.mcd.request.timeout.ms";
+  public static final int DEFAULT_REQUEST_TIMEOUT_MS = 30000;
+  public static final String MAX_CONFLICTS_PROPERTY = "plugin.mcd.conflicts.max";
+  public static final int DEFAULT_MAX_CONFLICTS = 1000;
+  public static final String MERGE_ENGINE_PROPERTY = "plugin.mcd.merge.engine";
+  public static final String DEFAULT_MERGE_ENGINE = DryRunMergeEngine.NAME;
+  // Failed merges are remembered for the merge check, which needs to tell them from merges still running.
+  private static final int MAX_FAILED_MERGES = 10000;
+  private static final long FAILED_MERGE_EXPIRY_MINUTES = 60;
+  // Changes whenever the shape of the results changes, so clients do not keep stale copies.
+  private static final String ETAG_VERSION = "2";
+
+  private final ApplicationPropertiesService applicationPropertiesService;
+  private final MergeEngine mergeEngine;
+  private final RefService refService;
+  private final BranchModelService modelService;
+  private final MergeResultCache resultCache;
+  private final MergeResultStore resultStore;
+  private final MergeExecutor mergeExecutor;
+  private final ReleaseBranchIndex releaseBranchIndex;
+  private final AutoMergeFailureIndex autoMergeFailureIndex;
+  private final MergeConflictMetrics metrics;
+  private final MergeClassifier classifier;
+  private final MergeWorkDispatcher dispatcher;
+  private final int batchMerges;
+  private final long requestTimeoutMs;
+  private final SingleFlight<String, List<MergeResult>> checkFlights;
+  private final SingleFlight<MergeResultCache.Key, MergeResult> mergeFlights;
+  private final Cache<MergeResultCache.Key, FailedMerge> failedMerges;
+
+  @Autowired
+  public MergeConflictChecker(@ComponentImport ApplicationPropertiesService applicationPropertiesService,
+                              DryRunMergeEngine dryRunEngine,
+                              MergeTreeMergeEngine mergeTreeEngine,
+                              @ComponentImport RefService refService,
+                              @ComponentImport BranchModelService modelService,
+                              MergeResultCache resultCache,
+                              MergeResultStore resultStore,
+                              MergeExecutor mergeExecutor,
+                              ReleaseBranchIndex releaseBranchIndex,
+                              AutoMergeFailureIndex autoMergeFailureIndex,
+                              MergeConflictMetrics metrics,
+                              MergeClassifier classifier,
+                              MergeWorkDispatcher dispatcher)
+  {
+    this.applicationPropertiesService = applicationPropertiesService;
+    this.refService = refService;
+    this.modelService = modelService;
+    this.resultCache = resultCache;
+    this.resultStore = resultStore;
+    this.mergeExecutor = mergeExecutor;
+    this.releaseBranchIndex = releaseBranchIndex;
+    this.autoMergeFailureIndex = autoMergeFailureIndex;
+    this.metrics = metrics;
+    this.classifier = classifier;
+    this.dispatcher = dispatcher;
+    checkFlights = new SingleFlight<String, List<MergeResult>>(metrics::recordCoalescedCheck);
+    mergeFlights = new SingleFlight<MergeResultCache.Key, MergeResult>(metrics::recordCoalescedMerge);
+    failedMerges = CacheBuilder.newBuilder()
+                               .maximumSize(MAX_FAILED_MERGES)
+                               .expireAfterWrite(FAILED_MERGE_EXPIRY_MINUTES, TimeUnit.MINUTES)
+                               .build();
+    batchMerges = Math.max(1, applicationPropertiesService.getPluginProperty(BATCH_MERGES_PROPERTY, DEFAULT_BATCH_MERGES));
+    // Zero or less waits for every merge, however long it takes.
+    requestTimeoutMs = applicationPropertiesService.getPluginProperty(REQUEST_TIMEOUT_PROPERTY, DEFAULT_REQUEST_TIMEOUT_MS);
+    mergeEngine = MergeTreeMergeEngine.NAME.equals(applicationPropertiesService.getPluginProperty(MERGE_ENGINE_PROPERTY, DEFAULT_MERGE_ENGINE))
+      ? mergeTreeEngine : dryRunEngine;
+    // Merges claimed from the cluster's work queue run on this node's executor like any other.
+    dispatcher.setWorker((pullRequest, toBranch) -> {
+      MergeConflictDetector mcd = createDetector(pullRequest.getAuthor().getUser(), pullRequest);
+      return mergeExecutor.submit(mcd.getToRepo(), () -> dryRunMerge(mcd, toBranch));
+    });
+  }
+
+  public MergeConflictDetector createDetector(ApplicationUser user, PullRequest pullRequest)
+  {
+    return new MergeConflictDetector(user, pullRequest, applicationPropertiesService.getBaseUrl().toString());
+  }
+
+  /**
+   * Returns the branches the pull request would be merged into: the target branch and its upstream
+   * releases in version order, followed by the default branch.
+   */
+  public List<Branch> getTargets(MergeConflictDetector mcd)
+  {
+    return getTargets(mcd, modelService.getModel(mcd.getToRepo()).getClassifier(), refService.getDefaultBranch(mcd.getToRepo()));
+  }
+
+  private List<Branch> getTargets(MergeConflictDetector mcd, BranchClassifier bc, Branch defaultBranch)
+  {
+    BranchType toBranchType = bc.getType(mcd.getToBranch());
+    List<Branch> targets = new ArrayList<Branch>();
+    // If the target is not master and is a release branch, find target branch and upstream releases (if any).
+    if (!mcd.getToBranchId().equals("refs/heads/master") && toBranchType != null && toBranchType.getId().equals("RELEASE") ) {
+      for (String branchId : releaseBranchIndex.getUpstreamBranchIds(mcd.getToRepo(), bc, toBranchType, mcd.getToBranchName())) {
+        Ref ref = refService.resolveRef(new ResolveRefRequest.Builder(mcd.getToRepo())
+                                          .refId(branchId)
+                                          .type(StandardRefType.BRANCH)
+                                          .build());
+        // The branch may have been deleted since it was indexed.
+        if (ref instanceof Branch) {
+          targets.add((Branch) ref);
+        }
+      }
+    }
+    targets.add(defaultBranch); // Always merge to default.
+    return targets;
+  }
+
+  /**
+   * Runs every dry run merge for the pull request and the automatic merge failure check, adding
+   * the results to the detector in target order. Concurrent checks of the same pull request at the
+   * same commits share one run. Targets whose merges have not finished within
+   * plugin.mcd.request.timeout.ms are added as pending.
+   */
+  public void checkAll(MergeConflictDetector mcd)
+  {
+    checkAll(mcd, eTag -> false);
+  }
+
+  /**
+   * Runs the check unless isCurrent accepts its entity tag, meaning the caller already has these
+   * results, in which case no merges are run and false is returned. Either way the tag is left on
+   * the detector, unless a result failed in a way that may not repeat.
+   */
+  public boolean checkAll(MergeConflictDetector mcd, Predicate<String> isCurrent)
+  {
+    MergeCheckTimings timings = metrics.startCheck(mcd);
+    try {
+      List<Branch> targets = getTargets(mcd);
+      timings.endPhase(MergeCheckTimings.Phase.TARGETS);
+      String eTag = getETag(mcd, targets);
+      if (isCurrent.test(eTag)) {
+        mcd.setETag(eTag);
+        return false;
+      }
+      String checkKey = getCheckKey(mcd, targets);
+      CompletableFuture<List<MergeResult>> check = checkFlights.execute(checkKey, () -> startChecks(mcd, targets, timings));
+      List<MergeResult> results;
+      try {
+        long remainingMs = requestTimeoutMs - TimeUnit.NANOSECONDS.toMillis(timings.getElapsedNanos());
+        results = (requestTimeoutMs > 0) ? check.get(Math.max(1, remainingMs), TimeUnit.MILLISECONDS) : check.get();
+      } catch (TimeoutException e) {
+        checkFlights.abandon(checkKey, check);
+        metrics.recordTimedOutCheck();
+        results = getPartialResults(mcd, targets);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        checkFlights.abandon(checkKey, check);
+        results = getPartialResults(mcd, targets);
+      } catch (ExecutionException e) {
+        throw (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : new CompletionException(e.getCause());
+      }
+      for (MergeResult result : results) {
+        mcd.addResult(result);
+      }
+      mcd.setETag(results.stream().allMatch(MergeResult::isCacheable) ? eTag : null);
+      // A check that joined another request's spent all of its time waiting on the merges.
+      if (!timings.getPhaseNanos().containsKey(MergeCheckTimings.Phase.MERGES)) {
+        timings.endPhase(MergeCheckTimings.Phase.MERGES);
+      }
+      return true;
+    } finally {
+      metrics.finishCheck(timings);
+    }
+  }
+
+  /**
+   * Returns a strong entity tag for the results of checking the pull request against the targets.
+   * It is a hash of the commits on both sides of each merge and of whether an automatic merge
+   * failure is open, so it is known before any merge runs.
+   */
+  public String getETag(MergeConflictDetector mcd, List<Branch> targets)
+  {
+    boolean autoMergeFailure = autoMergeFailureIndex.hasOpenFailure(mcd.getFromRepo().getId(), mcd.getToRepo().getId());
+    return hash(getCheckKey(mcd, targets) + ':' + autoMergeFailure);
+  }
+
+  /**
+   * Returns a strong entity tag for the result of merging the pull request into a single target.
+   */
+  public String getETag(MergeConflictDetector mcd, Branch target)
+  {
+    return hash(getCheckKey(mcd, Collections.singletonList(target)));
+  }
+
+  private static String hash(String key)
+  {
+    return Hashing.sha256().hashString(ETAG_VERSION + ':' + key, StandardCharsets.UTF_8).toString();
+  }
+
+  /**
+   * Identifies a check by pull request and the commits on both sides of each of its merges.
+   */
+  public static String getCheckKey(MergeConflictDetector mcd, List<Branch> targets)
+  {
+    StringBuilder key = new StringBuilder().append(mcd.getToRepo().getId())
+                                           .append('/')
+                                           .append(mcd.getPullRequest().getId())
+                                           .append(':')
+                                           .append(mcd.getFromBranch().getLatestCommit());
+    for (Branch target : targets) {
+      key.append(':').append(target.getId()).append('@').append(target.getLatestCommit());
+    }
+    return key.toString();
+  }
+
+  private CompletableFuture<List<MergeResult>> startChecks(MergeConflictDetector mcd, List<Branch> targets,
+                                                          MergeCheckTimings timings)
+  {
+    List<MergeResultCache.Key> keys = new ArrayList<MergeResultCache.Key>();
+    List<CompletableFuture<MergeResult>> flights = new ArrayList<CompletableFuture<MergeResult>>();
+    List<CompletableFuture<MergeResult>> merges = new ArrayList<CompletableFuture<MergeResult>>();
+    for (Branch target : targets) {
+      MergeResultCache.Key key = getMergeKey(mcd, target);
+      CompletableFuture<MergeResult> flight = startMerge(mcd, target, key);
+      keys.add(key);
+      flights.add(flight);
+      merges.add(toResult(target, flight));
+    }
+    CompletableFuture<List<MergeResult>> check = CompletableFuture.allOf(merges.toArray(new CompletableFuture[0]))
+      .thenApply(v -> {
+        timings.endPhase(MergeCheckTimings.Phase.MERGES);
+        List<MergeResult> results = new ArrayList<MergeResult>();
+        for (CompletableFuture<MergeResult> merge : merges) {
+          results.add(merge.join());
+        }
+        MergeResult autoMergeFailure = checkForAutoMergeFailure(mcd);
+        if (autoMergeFailure != null) {
+          results.add(autoMergeFailure);
+        }
+        timings.endPhase(MergeCheckTimings.Phase.AUTO_MERGE_FAILURE);
+        return results;
+      });
+    // Every request waiting for the check ran out of time, its merges are only needed by others.
+    check.whenComplete((results, e) -> {
+      if (check.isCancelled()) {
+        for (int i = 0; i < keys.size(); i++) {
+          abandonMerge(keys.get(i), flights.get(i));
+        }
+      }
+    });
+    return check;
+  }
+
+  /**
+   * Returns what is known of a check that ran out of time: targets whose merge results have been
+   * cached, and the rest as pending. A merge that failed is reported as pending too, the next
+   * request runs it again.
+   */
+  private List<MergeResult> getPartialResults(MergeConflictDetector mcd, List<Branch> targets)
+  {
+    List<MergeResult> results = new ArrayList<MergeResult>();
+    for (Branch target : targets) {
+      MergeResult cached = resultCache.get(getMergeKey(mcd, target));
+      results.add((cached != null) ? cached.withToBranch(target) : MergeResult.pending(target));
+    }
+    MergeResult autoMergeFailure = checkForAutoMergeFailure(mcd);
+    if (autoMergeFailure != null) {
+      results.add(autoMergeFailure);
+    }
+    return results;
+  }
+
+  /**
+   * Checks a page of pull requests into the same repository. The branch model, default branch,
+   * each target branch's cascade and each source repository's automatic merge failure check are
+   * looked up once for the whole page, and pull requests with the same source and target commits
+   * share a single dry run merge. No more than plugin.mcd.batch.merges merges are queued at a
+   * time, so a large page waits its turn rather than filling the executor's queue. The whole page
+   * waits no longer than plugin.mcd.request.timeout.ms, after which merges not yet started are
+   * skipped and those not yet finished are reported as pending.
+   */
+  public RepositoryMergeResultsModel checkRepository(ApplicationUser user, Repository repository, Page<PullRequest> pullRequests)
+  {
+    BranchClassifier bc = modelService.getModel(repository).getClassifier();
+    Branch defaultBranch = refService.getDefaultBranch(repository);
+    Map<String, List<Branch>> targetsByBranch = new HashMap<String, List<Branch>>();
+    MergeBatch batch = startBatch();
+    List<MergeConflictDetector> detectors = new ArrayList<MergeConflictDetector>();
+    List<List<CompletableFuture<MergeResult>>> detectorMerges = new ArrayList<List<CompletableFuture<MergeResult>>>();
+    for (PullRequest pullRequest : pullRequests.getValues()) {
+      MergeConflictDetector mcd = createDetector(user, pullRequest);
+      List<Branch> targets = targetsByBranch.computeIfAbsent(mcd.getToBranchId(), id -> getTargets(mcd, bc, defaultBranch));
+      List<CompletableFuture<MergeResult>> futures = new ArrayList<CompletableFuture<MergeResult>>();
+      for (Branch target : targets) {
+        futures.add(batch.submit(mcd, target));
+      }
+      detectors.add(mcd);
+      detectorMerges.add(futures);
+    }
+
+    Set<String> columns = new LinkedHashSet<String>();
+    Map<Integer, Boolean> autoMergeFailures = new HashMap<Integer, Boolean>();
+    for (int i = 0; i < detectors.size(); i++) {
+      MergeConflictDetector mcd = detectors.get(i);
+      List<Branch> targets = targetsByBranch.get(mcd.getToBranchId());
+      for (int j = 0; j < targets.size(); j++) {
+        mcd.addResult(batch.await(targets.get(j), detectorMerges.get(i).get(j)));
+        if (!targets.get(j).getId().equals(defaultBranch.getId())) {
+          columns.add(targets.get(j).getDisplayId());
+        }
+      }
+      autoMergeFailures.computeIfAbsent(mcd.getFromRepo().getId(), id -> autoMergeFailureIndex.hasOpenFailure(id, repository.getId()));
+    }
+    columns.add(defaultBranch.getDisplayId());
+    batch.finish();
+
+    List<String> targetColumns = new ArrayList<String>(columns);
+    List<PullRequestMergeResultsModel> rows = new ArrayList<PullRequestMergeResultsModel>();
+    for (MergeConflictDetector mcd : detectors) {
+      Integer[] conflicts = new Integer[targetColumns.size()];
+      for (MergeResult result : mcd.getMergeResults()) {
+        conflicts[targetColumns.indexOf(result.getToBranchDisplayId())] =
+          result.isCacheable() ? result.getMergeConflictsTotal() : -1;
+      }
+      rows.add(new PullRequestMergeResultsModel(mcd.getPullRequest().getId(),
+                                                mcd.getPullRequest().getTitle(),
+                                                mcd.getFromBranchName(),
+                                                mcd.getToBranchName(),
+                                                Arrays.asList(conflicts),
+                                                autoMergeFailures.get(mcd.getFromRepo().getId())));
+    }
+    return new RepositoryMergeResultsModel(repository.getId(), targetColumns, rows, pullRequests.getIsLastPage(),
+                                           pullRequests.getIsLastPage() ? null : pullRequests.getNextPageRequest().getStart());
+  }
+
+  /**
+   * Starts a batch of merges for one request, bounded by plugin.mcd.batch.merges and the request's
+   * deadline from now.
+   */
+  public MergeBatch startBatch()
+  {
+    return new MergeBatch();
+  }
+
+  /**
+   * Queues a dry run merge on the plugin's executor. Failures to run the merge are reported in the
+   * result rather than through the future.
+   */
+  public CompletableFuture<MergeResult> submitMerge(MergeConflictDetector mcd, Branch toBranch)
+  {
+    return toResult(toBranch, startMerge(mcd, toBranch, getMergeKey(mcd, toBranch)));
+  }
+
+  /**
+   * Runs the dry run merge into a single target, waiting no longer than plugin.mcd.request.timeout.ms.
+   * A merge that has not finished by then is reported as pending.
+   */
+  public MergeResult checkTarget(MergeConflictDetector mcd, Branch toBranch)
+  {
+    MergeResultCache.Key key = getMergeKey(mcd, toBranch);
+    CompletableFuture<MergeResult> flight = startMerge(mcd, toBranch, key);
+    CompletableFuture<MergeResult> merge = toResult(toBranch, flight);
+    if (requestTimeoutMs <= 0) {
+      return awaitMerge(toBranch, merge);
+    }
+    try {
+      return merge.get(requestTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      abandonMerge(key, flight);
+      metrics.recordTimedOutCheck();
+      return MergeResult.pending(toBranch);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      abandonMerge(key, flight);
+      return MergeResult.pending(toBranch);
+    } catch (ExecutionException e) {
+      return failedResult(toBranch, e.getCause());
+    }
+  }
+
+  private static MergeResultCache.Key getMergeKey(MergeConflictDetector mcd, Branch toBranch)
+  {
+    return MergeResultCache.Key.of(mcd.getToRepo(), mcd.getFromBranch().getLatestCommit(), toBranch.getLatestCommit());
+  }
+
+  // The same merge for another pull request or request shares one run, which may be on another node.
+  private CompletableFuture<MergeResult> startMerge(MergeConflictDetector mcd, Branch toBranch, MergeResultCache.Key key)
+  {
+    return mergeFlights.execute(key, () -> {
+      Supplier<CompletableFuture<MergeResult>> local = () -> mergeExecutor.submit(mcd.getToRepo(), () -> dryRunMerge(mcd, toBranch));
+      // Cached results are answered here, not sent round the cluster.
+      return (resultCache.get(key) != null) ? local.get() : dispatcher.submit(mcd, toBranch, local);
+    });
+  }
+
+  // A shared merge's result names the branch of whoever started it, each caller gets its own.
+  private CompletableFuture<MergeResult> toResult(Branch toBranch, CompletableFuture<MergeResult> flight)
+  {
+    return flight.handle((result, e) -> {
+      if (e == null) {
+        return result.withToBranch(toBranch);
+      }
+      Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+      // Joined a merge just as everyone else gave up on it.
+      return (cause instanceof CancellationException) ? MergeResult.pending(toBranch) : failedResult(toBranch, cause);
+    });
+  }
+
+  // Queued merges nobody else is waiting for are dropped, running ones are left to fill the cache.
+  private void abandonMerge(MergeResultCache.Key key, CompletableFuture<MergeResult> flight)
+  {
+    if (mergeFlights.abandon(key, flight)) {
+      metrics.recordCancelledMerge();
+    }
+  }
+
+  // Waits for a place among the batch's merges until the deadline, or for good without a timeout.
+  private boolean acquire(Semaphore window, long deadline)
+  {
+    if (requestTimeoutMs <= 0) {
+      window.acquireUninterruptibly();
+      return true;
+    }
+    try {
+      return window.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  // As awaitMerge, but gives up at the deadline and reports the merge as pending.
+  private MergeResult awaitMerge(Branch toBranch, CompletableFuture<MergeResult> merge, long deadline)
+  {
+    if (requestTimeoutMs <= 0) {
+      return awaitMerge(toBranch, merge);
+    }
+    try {
+      return merge.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      return MergeResult.pending(toBranch);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return MergeResult.pending(toBranch);
+    } catch (ExecutionException e) {
+      return failedResult(toBranch, e.getCause());
+    }
+  }
+
+  public MergeResult awaitMerge(Branch toBranch, CompletableFuture<MergeResult> merge)
+  {
+    try {
+      return merge.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return new MergeResult(toBranch, Arrays.asList("Interrupted waiting for merge check."));
+    } catch (ExecutionException e) {
+      return failedResult(toBranch, e.getCause());
+    }
+  }
+
+  /**
+   * Returns a result for the default branch if an automatic merge failure pull request is open
+   * between the repositories, or null if there is none.
+   */
+  public MergeResult checkForAutoMergeFailure(MergeConflictDetector mcd)
+  {
+    try {
+      if (autoMergeFailureIndex.hasOpenFailure(mcd.getFromRepo().getId(), mcd.getToRepo().getId())) {
+        // Repeatable for as long as the failure is open, which the entity tag covers.
+        return new MergeResult(
+          refService.getDefaultBranch(mcd.getToRepo()),
+          MergeConflicts.empty(),
+          Arrays.asList("Please check for " + AUTO_MERGE_FAIL + "!"),
+          true,
+          null);
+      }
+    }
+    catch (Exception e) {
+      return new MergeResult(refService.getDefaultBranch(mcd.getToRepo()), Arrays.asList(e.getMessage()));
+    }
+    return null;
+  }
+
+  private MergeResult failedResult(Branch toBranch, Throwable e)
+  {
+    return new MergeResult(toBranch, Arrays.asList(e.getMessage()));
+  }
+
+  /**
+   * Returns the result of merging the pull request into the target if it has already been
+   * computed, by this node or another, without running the merge. Returns null if it has not.
+   */
+  public MergeResult getComputedResult(MergeConflictDetector mcd, Branch toBranch)
+  {
+    return getComputedResult(getMergeKey(mcd, toBranch), toBranch);
+  }
+
+  /**
+   * Returns the result of merging the pull request into the target if this node has it in memory,
+   * without reading the shared home. Returns null if it has not.
+   */
+  public MergeResult getCachedResult(MergeConflictDetector mcd, Branch toBranch)
+  {
+    MergeResult cached = resultCache.get(getMergeKey(mcd, toBranch));
+    return (cached == null) ? null : cached.withToBranch(toBranch);
+  }
+
+  private MergeResult getComputedResult(MergeResultCache.Key key, Branch toBranch)
+  {
+    MergeResult cached = resultCache.get(key);
+    if (cached != null) {
+      return cached.withToBranch(toBranch);
+    }
+    // Computed by another node, or by this one before a restart.
+    MergeResult stored = resultStore.get(key);
+    if (stored != null) {
+      resultCache.put(key, stored);
+      return stored.withToBranch(toBranch);
+    }
+    return null;
+  }
+
+  /**
+   * Returns the latest failure to merge the pull request into the target at their current commits
+   * and how many times it has failed, or null if it has not failed since it was last merged.
+   */
+  public FailedMerge getFailedMerge(MergeConflictDetector mcd, Branch toBranch)
+  {
+    FailedMerge failed = failedMerges.getIfPresent(getMergeKey(mcd, toBranch));
+    return (failed == null) ? null : new FailedMerge(failed.result.withToBranch(toBranch), failed.attempts);
+  }
+
+  private MergeResult dryRunMerge(MergeConflictDetector mcd, Branch toBranch)
+  {
+    MergeResultCache.Key key = getMergeKey(mcd, toBranch);
+    MergeResult computed = getComputedResult(key, toBranch);
+    if (computed != null) {
+      return computed;
+    }
+    long started = System.nanoTime();
+    MergeDecision decision = classifier.classify(mcd, toBranch);
+    MergeResult result = (decision == MergeDecision.MERGED)
+      ? mergeEngine.merge(mcd, toBranch)
+      // Settled without merging, reported the same way as a clean dry run merge.
+      : new MergeResult(toBranch, null, new LinkedList<String>(), true, decision);
+    metrics.recordMerge(mcd.getToRepo(), toBranch, System.nanoTime() - started, result);
+    // Only clean merges and merge conflicts are a function of the commits, errors may be transient.
+    if (result.isCacheable()) {
+      resultCache.put(key, result);
+      resultStore.put(key, result);
+      failedMerges.invalidate(key);
+    } else {
+      failedMerges.asMap().merge(key, new FailedMerge(result, 1),
+                                 (failed, again) -> new FailedMerge(again.result, failed.attempts + 1));
+    }
+    return result;
+  }
+
+  /**
+   * Merges run for a single request. No more than plugin.mcd.batch.merges of them are queued at a
+   * time, identical merges within the batch share one run, and nothing waits past
+   * plugin.mcd.request.timeout.ms from the batch's start: merges that could not be started by then
+   * are reported as pending, as are those that have not finished. Not thread safe, a batch belongs
+   * to the request thread that started it.
+   */
+  public final class MergeBatch
+  {
+    private final Semaphore window;
+    private final long deadline;
+    private final Map<MergeResultCache.Key, CompletableFuture<MergeResult>> flights;
+    private final Map<MergeResultCache.Key, CompletableFuture<MergeResult>> merges;
+
+    private MergeBatch()
+    {
+      window = new Semaphore(batchMerges);
+      deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(requestTimeoutMs);
+      flights = new HashMap<MergeResultCache.Key, CompletableFuture<MergeResult>>();
+      merges = new HashMap<MergeResultCache.Key, CompletableFuture<MergeResult>>();
+    }
+
+    /**
+     * Starts merging the pull request's source into the target, waiting for a place among the
+     * batch's merges until the deadline. Failures are reported in the result.
+     */
+    public CompletableFuture<MergeResult> submit(MergeConflictDetector mcd, Branch toBranch)
+    {
+      MergeResultCache.Key key = getMergeKey(mcd, toBranch);
+      CompletableFuture<MergeResult> merge = merges.get(key);
+      if (merge == null) {
+        if (acquire(window, deadline)) {
+          CompletableFuture<MergeResult> flight = startMerge(mcd, toBranch, key);
+          flight.whenComplete((result, e) -> window.release());
+          flights.put(key, flight);
+          merge = toResult(toBranch, flight);
+        } else {
+          merge = CompletableFuture.completedFuture(MergeResult.pending(toBranch));
+        }
+        merges.put(key, merge);
+      }
+      return merge;
+    }
+
+    /**
+     * Waits for a merge of the batch until the deadline, reporting it as pending after that.
+     */
+    public MergeResult await(Branch toBranch, CompletableFuture<MergeResult> merge)
+    {
+      // The merge may have been shared with another target of the same commit, its result names that branch.
+      return awaitMerge(toBranch, merge, deadline).withToBranch(toBranch);
+    }
+
+    /**
+     * Abandons the merges that have not finished, once their results are no longer waited for, and
+     * counts the request as timed out if there were any.
+     */
+    public void finish()
+    {
+      boolean timedOut = false;
+      for (Map.Entry<MergeResultCache.Key, CompletableFuture<MergeResult>> flight : flights.entrySet()) {
+        if (!flight.getValue().isDone()) {
+          abandonMerge(flight.getKey(), flight.getValue());
+          timedOut = true;
+        }
+      }
+      if (timedOut) {
+        metrics.recordTimedOutCheck();
+      }
+    }
+  }
+
+  /**
+   * A merge that did not produce a result, with the number of times it has been tried.
+   */
+  public static final class FailedMerge
+  {
+    private final MergeResult result;
+    private final int attempts;
+
+    FailedMerge(MergeResult result, int attempts)
+    {
+      this.result = result;
+      this.attempts = attempts;
+    }
+
+    public MergeResult getResult()
+    {
+      return result;
+    }
+
+    public int getAttempts()
+    {
+      return attempts;
+    }
+  }
+}
@@ -24,7 +24,6 @@ import com.atlassian.bitbucket.pull.PullRequest;
 import com.atlassian.bitbucket.pull.PullRequestRef;
 import com.atlassian.bitbucket.repository.Branch;
 import com.atlassian.bitbucket.repository.Repository;
-import com.atlassian.bitbucket.scm.git.command.merge.conflict.GitMergeConflict;
 import com.atlassian.bitbucket.user.ApplicationUser;
 import com.vestmark.bitbucket.plugin.VersionComparator;
 import com.vestmark.bitbucket.plugin.MergeResult;
@@ -47,7 +46,9 @@ public class MergeConflictDetector
   private final String toBranchName;
   private final String compareUrlPrefix;
   private final List<MergeResult> mergeResults;
-  private final VersionComparator mergeResultsComparator;
+  private volatile String eTag;
+  private static final VersionComparator<MergeResult> mergeResultsComparator =
+    new VersionComparator<MergeResult>(MergeResult::getToBranchDisplayId);
 
   public MergeConflictDetector(ApplicationUser user, PullRequest pullRequest, String hostUrl)
   {
@@ -64,8 +65,8 @@ public class MergeConflictDetector
     compareUrlPrefix = hostUrl + "/projects/" + fromRepo.getProject().getKey() + "/repos/" 
                                + fromRepo.getSlug() + "/compare/diff?sourceBranch=" + fromBranchId 
                                + "&targetBranch=";
-    mergeResults = new LinkedList<MergeResult>();
-    mergeResultsComparator = new VersionComparator<MergeResult>(MergeResult::getToBranchDisplayId);
+    // Results may be added from merge worker threads.
+    mergeResults = Collections.synchronizedList(new ArrayList<MergeResult>());
   }
 
   public ApplicationUser getUser()
@@ -128,10 +129,22 @@ public class MergeConflictDetector
     return mergeResults;
   }
 
-  public void addResult(Branch toBranch, List<GitMergeConflict> mergeConflicts, 
-                        List<String> messages, List<String> files)
+  /**
+   * Returns the entity tag of the results, or null when they include a failure that may not repeat.
+   */
+  public String getETag()
   {
-    mergeResults.add(new MergeResult(toBranch, mergeConflicts, messages, files));
+    return eTag;
+  }
+
+  public void setETag(String eTag)
+  {
+    this.eTag = eTag;
+  }
+
+  public void addResult(Branch toBranch, MergeConflicts mergeConflicts, List<String> notes)
+  {
+    mergeResults.add(new MergeResult(toBranch, mergeConflicts, notes, false, null));
   }
 
   public void addResult(MergeResult result) {
@@ -139,12 +152,14 @@ public class MergeConflictDetector
   }
 
   public void sortMergeResults() {
-    Collections.sort(mergeResults, mergeResultsComparator);
+    synchronized (mergeResults) {
+      Collections.sort(mergeResults, mergeResultsComparator);
+    }
   }
 
   public boolean isRelated(Branch otherBranch)
   {
-    return VersionComparator.AS_STRING.getFamily(otherBranch.getDisplayId()).equals(VersionComparator.AS_STRING.getFamily(toBranchName));
+    return VersionComparator.AS_STRING.getKey(otherBranch.getDisplayId()).isSameFamily(VersionComparator.AS_STRING.getKey(toBranchName));
   }
   
   public boolean isUpstreamBranch(Branch toBranch)
@@ -154,12 +169,10 @@ public class MergeConflictDetector
 
   public List<MergeResultsModel> getMergeResultsModelList() {
     List<MergeResultsModel> resultsModelList = new ArrayList<MergeResultsModel>();
-    for (MergeResult result : mergeResults) {
-      resultsModelList.add(new MergeResultsModel(result.getToBranch().getDisplayId(),
-                                             result.getToBranch().getId(),
-                                             result.getMergeConflictsTotal(),
-                                             result.getMessages(),
-                                             result.getFiles()));       
+    synchronized (mergeResults) {
+      for (MergeResult result : mergeResults) {
+        resultsModelList.add(result.toModel());
+      }
     }
     return resultsModelList;
   }
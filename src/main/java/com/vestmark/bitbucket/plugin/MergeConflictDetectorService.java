@@ -14,192 +14,387 @@
 
 package com.vestmark.bitbucket.plugin;
 
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
-
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.util.CollectionUtils;
 
-import com.atlassian.bitbucket.server.ApplicationPropertiesService;
 import com.atlassian.bitbucket.auth.AuthenticationContext;
-import com.atlassian.bitbucket.branch.model.BranchClassifier;
-import com.atlassian.bitbucket.branch.model.BranchModelService;
-import com.atlassian.bitbucket.branch.model.BranchType;
+import com.atlassian.bitbucket.permission.Permission;
+import com.atlassian.bitbucket.permission.PermissionService;
 import com.atlassian.bitbucket.pull.PullRequest;
-import com.atlassian.bitbucket.pull.PullRequestOrder;
 import com.atlassian.bitbucket.pull.PullRequestSearchRequest;
 import com.atlassian.bitbucket.pull.PullRequestService;
 import com.atlassian.bitbucket.pull.PullRequestState;
 import com.atlassian.bitbucket.repository.Branch;
-import com.atlassian.bitbucket.repository.RefService;
-import com.atlassian.bitbucket.scm.MergeCommandParameters;
-import com.atlassian.bitbucket.scm.MergeException;
-import com.atlassian.bitbucket.scm.git.command.GitExtendedCommandFactory;
-import com.atlassian.bitbucket.scm.git.command.merge.GitMergeException;
-import com.atlassian.bitbucket.scm.git.command.merge.conflict.GitMergeConflict;
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.bitbucket.repository.RepositoryService;
+import com.atlassian.bitbucket.user.ApplicationUser;
 import com.atlassian.bitbucket.util.Page;
-import com.atlassian.bitbucket.util.PageRequest;
 import com.atlassian.bitbucket.util.PageRequestImpl;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
-import com.google.common.collect.ImmutableMap;
 
 import com.atlassian.plugins.rest.common.security.AnonymousAllowed;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
-import javax.annotation.PostConstruct;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
-* A resource of message.
+* A resource of message. Requests that can run merges go through the admission controller first and
+* are answered with 429 and Retry-After when they are turned away.
 */
 @Path("/merge-conflicts")
 public class MergeConflictDetectorService {
 
     private static final long serialVersionUID = 1L;
-    private static final String AUTO_MERGE_FAIL = "Automatic merge failure";
-    private static String HOST_URL;
+    private static final int MAX_BATCH_LIMIT = 500;
+    private static final int MAX_DETAIL_LIMIT = 1000;
+    // Not in javax.ws.rs.core.Response.Status until JAX-RS 2.0.
+    private static final int TOO_MANY_REQUESTS = 429;
 
-    private final ApplicationPropertiesService applicationPropertiesService; 
     private final AuthenticationContext authenticationContext;
-    private final GitExtendedCommandFactory extendedCmdFactory;
+    private final PermissionService permissionService;
     private final PullRequestService pullRequestService;
-    private final RefService refService;
-    private final BranchModelService modelService;
-    private final VersionComparator<Branch> branchComparator;
+    private final RepositoryService repositoryService;
+    private final MergeConflictChecker checker;
+    private final MergeCheckJobManager jobManager;
+    private final MergeResultCache resultCache;
+    private final MergeExecutor mergeExecutor;
+    private final MergeConflictMetrics metrics;
+    private final ConflictPredictor conflictPredictor;
+    private final AdmissionController admissionController;
+    private final CascadeSimulator cascadeSimulator;
 
     @Autowired
-    public MergeConflictDetectorService(@ComponentImport ApplicationPropertiesService applicationPropertiesService,
-                                        @ComponentImport PullRequestService pullRequestService, 
-                                        @ComponentImport GitExtendedCommandFactory extendedCmdFactory, 
+    public MergeConflictDetectorService(@ComponentImport PullRequestService pullRequestService, 
                                         @ComponentImport AuthenticationContext authenticationContext, 
-                                        @ComponentImport RefService refService,
-                                        @ComponentImport BranchModelService modelService) 
+                                        @ComponentImport PermissionService permissionService,
+                                        @ComponentImport RepositoryService repositoryService,
+                                        MergeConflictChecker checker,
+                                        MergeCheckJobManager jobManager,
+                                        MergeResultCache resultCache,
+                                        MergeExecutor mergeExecutor,
+                                        MergeConflictMetrics metrics,
+                                        ConflictPredictor conflictPredictor,
+                                        AdmissionController admissionController,
+                                        CascadeSimulator cascadeSimulator) 
    {
-      this.applicationPropertiesService = applicationPropertiesService;
       this.authenticationContext = authenticationContext;
-      this.extendedCmdFactory = extendedCmdFactory;
+      this.permissionService = permissionService;
       this.pullRequestService = pullRequestService;
-      this.refService = refService;
-      this.modelService = modelService;
-      branchComparator = new VersionComparator<Branch>(Branch::getDisplayId);
+      this.repositoryService = repositoryService;
+      this.checker = checker;
+      this.jobManager = jobManager;
+      this.resultCache = resultCache;
+      this.mergeExecutor = mergeExecutor;
+      this.metrics = metrics;
+      this.conflictPredictor = conflictPredictor;
+      this.admissionController = admissionController;
+      this.cascadeSimulator = cascadeSimulator;
     }
 
-    @PostConstruct
-    private void postConstruct() {
-      HOST_URL = applicationPropertiesService.getBaseUrl().toString();
+    @GET
+    @AnonymousAllowed
+    @Produces({MediaType.APPLICATION_JSON})
+    @Path("/{repoIdStr}/{pullRequestIdStr}")
+    public Response getMergeResults(@PathParam("repoIdStr") String repoIdParam, @PathParam("pullRequestIdStr") String pullRequestIdParam,
+                                    @Context Request request,
+                                    @Context HttpServletRequest httpRequest)
+    {
+      try (AdmissionController.Admission admission = admit(httpRequest, repoIdParam)) {
+        if (!admission.isAdmitted()) {
+          return tooManyRequests(admission);
+        }
+        MergeConflictDetector mcd = createDetector(repoIdParam, pullRequestIdParam);
+        if (!checker.checkAll(mcd, isCurrent(request))) {
+          return unchanged(request, mcd.getETag());
+        }
+        return tagged(Response.ok(mcd.getMergeResultsModelList()), mcd.getETag());
+      }
     }
 
+    /**
+     * Returns each target's status and counts without the conflicting files. Revalidating with
+     * If-None-Match is answered from the commit hashes alone, without running any merges.
+     */
     @GET
     @AnonymousAllowed
     @Produces({MediaType.APPLICATION_JSON})
-    @Path("/{repoIdStr}/{pullRequestIdStr}")
-    public Response getMergeResults(@PathParam("repoIdStr") String repoIdParam, @PathParam("pullRequestIdStr") String pullRequestIdParam)
+    @Path("/{repoIdStr}/{pullRequestIdStr}/summary")
+    public Response getMergeSummary(@PathParam("repoIdStr") String repoIdParam, @PathParam("pullRequestIdStr") String pullRequestIdParam,
+                                    @Context Request request,
+                                    @Context HttpServletRequest httpRequest)
     {
-      int repoId = Integer.parseInt(repoIdParam);
-      long pullRequestId = Long.parseLong(pullRequestIdParam);
-      MergeConflictDetector mcd = new MergeConflictDetector(authenticationContext.getCurrentUser(), 
-        pullRequestService.getById(repoId, pullRequestId), HOST_URL);
-      BranchClassifier bc = modelService.getModel(mcd.getToRepo()).getClassifier();
-      BranchType toBranchType = bc.getType(mcd.getToBranch());
-      // If the target is not master and is a release branch, find target branch and upstream releases (if any).
-      if (!mcd.getToBranchId().equals("refs/heads/master") && toBranchType != null && toBranchType.getId().equals("RELEASE") ) {
-        Page<Branch> branches = bc.getBranchesByType(toBranchType, new PageRequestImpl(0,PageRequestImpl.MAX_PAGE_LIMIT/2));
-        branches.stream()
-              .parallel()
-              .filter(b -> mcd.isRelated(b))
-              .filter(b -> mcd.isUpstreamBranch(b))
-              .sorted(branchComparator)
-              .forEach(b -> mcd.addResult(dryRunMerge(mcd, b)));
+      try (AdmissionController.Admission admission = admit(httpRequest, repoIdParam)) {
+        if (!admission.isAdmitted()) {
+          return tooManyRequests(admission);
+        }
+        MergeConflictDetector mcd = createDetector(repoIdParam, pullRequestIdParam);
+        if (!checker.checkAll(mcd, isCurrent(request))) {
+          return unchanged(request, mcd.getETag());
+        }
+        List<MergeSummaryModel> summaries;
+        synchronized (mcd.getMergeResults()) {
+          summaries = mcd.getMergeResults().stream().map(MergeResult::toSummaryModel).collect(Collectors.toList());
+        }
+        return tagged(Response.ok(summaries), mcd.getETag());
+      }
+    }
+
+    /**
+     * Returns a page of one target's conflicting files. The target may be given by name or by its
+     * full ref id, and must be one of the pull request's merge targets.
+     */
+    @GET
+    @AnonymousAllowed
+    @Produces({MediaType.APPLICATION_JSON})
+    @Path("/{repoIdStr}/{pullRequestIdStr}/detail")
+    public Response getMergeDetail(@PathParam("repoIdStr") String repoIdParam, @PathParam("pullRequestIdStr") String pullRequestIdParam,
+                                   @QueryParam("targetBranch") String targetBranchParam,
+                                   @QueryParam("start") @DefaultValue("0") int start,
+                                   @QueryParam("limit") @DefaultValue("100") int limit,
+                                   @Context Request request,
+                                   @Context HttpServletRequest httpRequest)
+    {
+      try (AdmissionController.Admission admission = admit(httpRequest, repoIdParam)) {
+        if (!admission.isAdmitted()) {
+          return tooManyRequests(admission);
+        }
+        if (targetBranchParam == null || targetBranchParam.isEmpty()) {
+          return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        MergeConflictDetector mcd = createDetector(repoIdParam, pullRequestIdParam);
+        String targetBranchId = targetBranchParam.startsWith("refs/") ? targetBranchParam : "refs/heads/" + targetBranchParam;
+        Branch target = checker.getTargets(mcd).stream()
+                               .filter(branch -> branch.getId().equals(targetBranchId))
+                               .findFirst()
+                               .orElse(null);
+        if (target == null) {
+          return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        String eTag = checker.getETag(mcd, target);
+        if (isCurrent(request).test(eTag)) {
+          return unchanged(request, eTag);
+        }
+        MergeResult result = checker.checkTarget(mcd, target);
+        return tagged(Response.ok(result.toDetailModel(Math.max(0, start), Math.max(1, Math.min(limit, MAX_DETAIL_LIMIT)))),
+                      result.isCacheable() ? eTag : null);
       }
-      mcd.sortMergeResults();
-      mcd.addResult(dryRunMerge(mcd, refService.getDefaultBranch(mcd.getToRepo()))); // Always merge to default.
-      checkForAutoMergeFailure(mcd);
-      return Response.ok(mcd.getMergeResultsModelList()).build();
     }
 
-    private void checkForAutoMergeFailure(MergeConflictDetector mcd)
+    /**
+     * Simulates the automatic merge cascade hop by hop, each hop merging the result of the one
+     * before, and reports the branch where it would stop.
+     */
+    @GET
+    @AnonymousAllowed
+    @Produces({MediaType.APPLICATION_JSON})
+    @Path("/{repoIdStr}/{pullRequestIdStr}/cascade")
+    public Response getCascade(@PathParam("repoIdStr") String repoIdParam, @PathParam("pullRequestIdStr") String pullRequestIdParam,
+                               @Context Request request,
+                               @Context HttpServletRequest httpRequest)
     {
-      try {
-        PullRequestSearchRequest prsReq = new PullRequestSearchRequest.Builder().state(PullRequestState.OPEN)
-          .order(PullRequestOrder.NEWEST)
-          .fromRepositoryId(mcd.getFromRepo().getId())
-          .toRepositoryId(mcd.getToRepo().getId())
+      try (AdmissionController.Admission admission = admit(httpRequest, repoIdParam)) {
+        if (!admission.isAdmitted()) {
+          return tooManyRequests(admission);
+        }
+        MergeConflictDetector mcd = createDetector(repoIdParam, pullRequestIdParam);
+        List<Branch> targets = checker.getTargets(mcd);
+        String eTag = cascadeSimulator.getETag(mcd, targets);
+        if (isCurrent(request).test(eTag)) {
+          return unchanged(request, eTag);
+        }
+        CascadeModel cascade = cascadeSimulator.simulate(mcd, targets);
+        // Failed and pending cascades are not final, clients ask again.
+        boolean isFinal = !"FAILED".equals(cascade.getStatus()) && !"PENDING".equals(cascade.getStatus());
+        return tagged(Response.ok(cascade), isFinal ? eTag : null);
+      }
+    }
+
+    /**
+     * Returns conflict counts for a page of the repository's open pull requests against each of
+     * their targets, for dashboards that would otherwise check every pull request separately.
+     * Only OPEN is accepted for state: merged and declined pull requests are never merged again,
+     * and there are far more of them to check.
+     */
+    @GET
+    @AnonymousAllowed
+    @Produces({MediaType.APPLICATION_JSON})
+    @Path("/{repoIdStr}")
+    public Response getRepositoryMergeResults(@PathParam("repoIdStr") String repoIdParam,
+                                              @QueryParam("state") @DefaultValue("OPEN") String stateParam,
+                                              @QueryParam("start") @DefaultValue("0") int start,
+                                              @QueryParam("limit") @DefaultValue("100") int limit,
+                                              @Context HttpServletRequest httpRequest)
+    {
+      try (AdmissionController.Admission admission = admit(httpRequest, repoIdParam)) {
+        if (!admission.isAdmitted()) {
+          return tooManyRequests(admission);
+        }
+        Repository repository = repositoryService.getById(Integer.parseInt(repoIdParam));
+        if (repository == null) {
+          return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        if (!PullRequestState.OPEN.name().equalsIgnoreCase(stateParam)) {
+          return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        PullRequestSearchRequest request = new PullRequestSearchRequest.Builder().state(PullRequestState.OPEN)
+          .toRepositoryId(repository.getId())
           .build();
-        long totalNPRs = pullRequestService.count(prsReq);
-        int maxNPRs = 100;
-        if (totalNPRs < maxNPRs) {
-          maxNPRs = (int) totalNPRs;
-        }
-        int begIdx = 0;
-        while (begIdx < totalNPRs) {
-          PageRequest pgReq = new PageRequestImpl(begIdx, maxNPRs).buildRestrictedPageRequest(maxNPRs);
-          Page<PullRequest> pPRs = pullRequestService.search(prsReq, pgReq);
-          boolean amfPRExists = pPRs.stream().anyMatch(r -> r.getTitle().equals(AUTO_MERGE_FAIL));
-          if (amfPRExists) {
-            mcd.addResult(
-              refService.getDefaultBranch(mcd.getToRepo()),
-              Collections.emptyList(),
-              Arrays.asList("Please check for " + AUTO_MERGE_FAIL + "!"),
-              Collections.emptyList());
-            return;
-          }
-          begIdx += maxNPRs;
+        Page<PullRequest> pullRequests = pullRequestService.search(request,
+          new PageRequestImpl(Math.max(0, start), Math.max(1, Math.min(limit, MAX_BATCH_LIMIT))));
+        return Response.ok(checker.checkRepository(authenticationContext.getCurrentUser(), repository, pullRequests)).build();
+      }
+    }
+
+    /**
+     * Predicts which open pull requests into the target branch will conflict with each other.
+     * The target branch may be given by name or by its full ref id.
+     */
+    @GET
+    @AnonymousAllowed
+    @Produces({MediaType.APPLICATION_JSON})
+    @Path("/{repoIdStr}/predictions")
+    public Response getConflictPredictions(@PathParam("repoIdStr") String repoIdParam,
+                                           @QueryParam("targetBranch") String targetBranchParam,
+                                           @Context HttpServletRequest httpRequest)
+    {
+      try (AdmissionController.Admission admission = admit(httpRequest, repoIdParam)) {
+        if (!admission.isAdmitted()) {
+          return tooManyRequests(admission);
+        }
+        if (targetBranchParam == null || targetBranchParam.isEmpty()) {
+          return Response.status(Response.Status.BAD_REQUEST).build();
         }
+        Repository repository = repositoryService.getById(Integer.parseInt(repoIdParam));
+        if (repository == null) {
+          return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        String targetBranchId = targetBranchParam.startsWith("refs/") ? targetBranchParam : "refs/heads/" + targetBranchParam;
+        return Response.ok(conflictPredictor.predict(authenticationContext.getCurrentUser(), repository, targetBranchId)).build();
       }
-      catch (Exception e) {
-        mcd.addResult(refService.getDefaultBranch(mcd.getToRepo()), null, Arrays.asList(e.getMessage()), null);
+    }
+
+    /**
+     * Starts a merge conflict check in the background. Poll the returned job for results. A client
+     * holding the results of an earlier job can send its etag in If-None-Match, and gets 412 with
+     * no job started if those results are still current.
+     */
+    @POST
+    @AnonymousAllowed
+    @Produces({MediaType.APPLICATION_JSON})
+    @Path("/{repoIdStr}/{pullRequestIdStr}/jobs")
+    public Response startMergeCheck(@PathParam("repoIdStr") String repoIdParam, @PathParam("pullRequestIdStr") String pullRequestIdParam,
+                                    @Context Request request,
+                                    @Context HttpServletRequest httpRequest)
+    {
+      try (AdmissionController.Admission admission = admit(httpRequest, repoIdParam)) {
+        if (!admission.isAdmitted()) {
+          return tooManyRequests(admission);
+        }
+        MergeConflictDetector mcd = createDetector(repoIdParam, pullRequestIdParam);
+        MergeCheckJob job = jobManager.start(mcd, isCurrent(request));
+        if (job == null) {
+          return unchanged(request, mcd.getETag());
+        }
+        return Response.ok(job.toModel(0)).build();
       }
     }
 
-    private MergeResult dryRunMerge(MergeConflictDetector mcd, Branch toBranch)
+    /**
+     * Returns the results a job has collected since the cursor from the previous poll.
+     */
+    @GET
+    @AnonymousAllowed
+    @Produces({MediaType.APPLICATION_JSON})
+    @Path("/{repoIdStr}/{pullRequestIdStr}/jobs/{jobId}")
+    public Response getMergeCheck(@PathParam("repoIdStr") String repoIdParam, @PathParam("pullRequestIdStr") String pullRequestIdParam,
+                                  @PathParam("jobId") String jobId, @QueryParam("cursor") @DefaultValue("0") int cursor)
     {
-      List<String> files = null;
-      List<GitMergeConflict> mergeConflicts = null;
-      List<String> message = new LinkedList<String>();
-      MergeCommandParameters params = new MergeCommandParameters
-        .Builder()
-        .dryRun(true)
-        .author(mcd.getUser())
-        .fromBranch(mcd.getFromBranchId())
-        .toBranch(toBranch.getId())
-        .message("MergeConflictDetector dry run merge check.")
-        .build();
-      try {
-        Branch result = extendedCmdFactory.merge(mcd.getToRepo(), params).call();
-        // A result from the merge indicates an unsuccessful dry run!
-        if (result != null) {
-          message.add("Merge committed! Commit ID: " + result.getLatestCommit());
-        }
-      } catch (MergeException e) {
-        files = new LinkedList<String>();
-        mergeConflicts = new LinkedList<GitMergeConflict>();
-        // When a merge cannot be completed automatically, a CommandFailedException is being thrown and caught in this MergeException block by mistake.
-        // The (GitMergeException) cast below causes the plugin to crash because of it.
-        // Adding a CommandFailedException catch block did not work.
-        // Checking the type of the Exception obj prior to the cast using instanceof did not work.
-        // Encasing the cast inside its own try/catch was the only way I could find to keep the plugin from crashing.
-        try {
-          for (GitMergeConflict mergeConflict : ((GitMergeException)e.getCause()).getConflicts()) {
-            files.add(mergeConflict.getMessage().replaceFirst("Merge conflict in ", ""));
-            message.add("Source change: " + mergeConflict.getOurChange() + " Target change: " 
-                                          + mergeConflict.getTheirChange());
-            mergeConflicts.add(mergeConflict);
-          }
-        } catch (Exception f) {
-          message.add(e.getMessage());
-        }
-      } catch (Exception e) {
-        // Non Merge Exception
-        message.add(e.getMessage());
+      MergeConflictDetector mcd = createDetector(repoIdParam, pullRequestIdParam);
+      MergeCheckJob job = jobManager.get(jobId);
+      if (job == null || job.getRepositoryId() != mcd.getToRepo().getId() || job.getPullRequestId() != mcd.getPullRequest().getId()) {
+        return Response.status(Response.Status.NOT_FOUND).build();
       }
-      return new MergeResult(toBranch, mergeConflicts, message, files);
+      return Response.ok(job.toModel(cursor)).build();
     }
-}
 
+    /**
+     * Returns cache, executor, admission and latency statistics. Only administrators may read them,
+     * since the latency breakdowns name every repository and branch merged into.
+     */
+    @GET
+    @Produces({MediaType.APPLICATION_JSON})
+    @Path("/stats")
+    public Response getStats()
+    {
+      if (!permissionService.hasGlobalPermission(Permission.ADMIN)) {
+        return Response.status(Response.Status.FORBIDDEN).build();
+      }
+      return Response.ok(new StatsModel(new CacheStatsModel(resultCache.size(), resultCache.getStats()),
+                                        new ExecutorStatsModel(mergeExecutor),
+                                        metrics.toModel(),
+                                        admissionController.toModel())).build();
+    }
+
+    private AdmissionController.Admission admit(HttpServletRequest httpRequest, String repoIdParam)
+    {
+      ApplicationUser user = authenticationContext.getCurrentUser();
+      String client = (user != null)
+          ? "user:" + user.getId()
+          : "address:" + admissionController.getClientAddress(httpRequest.getRemoteAddr(),
+                                                              httpRequest.getHeader("X-Forwarded-For"));
+      return admissionController.admit(client, Integer.parseInt(repoIdParam));
+    }
+
+    private static Response tooManyRequests(AdmissionController.Admission admission)
+    {
+      return Response.status(TOO_MANY_REQUESTS)
+                     .header("Retry-After", admission.getRetryAfterSeconds())
+                     .build();
+    }
+
+    private static Predicate<String> isCurrent(Request request)
+    {
+      return eTag -> request.evaluatePreconditions(new EntityTag(eTag)) != null;
+    }
+
+    // 304 for GET, 412 for anything else.
+    private static Response unchanged(Request request, String eTag)
+    {
+      return request.evaluatePreconditions(new EntityTag(eTag)).tag(new EntityTag(eTag)).build();
+    }
+
+    // Clients must revalidate, browsers and proxies would otherwise reuse results across users.
+    private static Response tagged(Response.ResponseBuilder response, String eTag)
+    {
+      CacheControl cacheControl = new CacheControl();
+      cacheControl.setPrivate(true);
+      cacheControl.setNoCache(true);
+      if (eTag != null) {
+        response.tag(new EntityTag(eTag));
+      }
+      return response.cacheControl(cacheControl).build();
+    }
+
+    private MergeConflictDetector createDetector(String repoIdParam, String pullRequestIdParam)
+    {
+      int repoId = Integer.parseInt(repoIdParam);
+      long pullRequestId = Long.parseLong(pullRequestIdParam);
+      return checker.createDetector(authenticationContext.getCurrentUser(), 
+        pullRequestService.getById(repoId, pullRequestId));
+    }
+}
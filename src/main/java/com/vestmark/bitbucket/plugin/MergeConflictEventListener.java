@@ -0,0 +1,149 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.event.pull.PullRequestDeclinedEvent;
+import com.atlassian.bitbucket.event.pull.PullRequestDeletedEvent;
+import com.atlassian.bitbucket.event.pull.PullRequestMergedEvent;
+import com.atlassian.bitbucket.event.pull.PullRequestOpenedEvent;
+import com.atlassian.bitbucket.event.pull.PullRequestReopenedEvent;
+import com.atlassian.bitbucket.event.pull.PullRequestRescopedEvent;
+import com.atlassian.bitbucket.event.pull.PullRequestUpdatedEvent;
+import com.atlassian.bitbucket.event.repository.RepositoryDeletedEvent;
+import com.atlassian.bitbucket.event.repository.RepositoryRefsChangedEvent;
+import com.atlassian.bitbucket.repository.RefChange;
+import com.atlassian.bitbucket.repository.RefChangeType;
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.bitbucket.repository.StandardRefType;
+import com.atlassian.event.api.EventListener;
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+
+/**
+ * Keeps merge results warm. New and rescoped pull requests have all of their targets queued for
+ * precomputation, and pushes are handed to the precompute queue, which works out the open pull
+ * requests they affect on its own thread rather than the event dispatcher's. Results against a
+ * branch's old commit are not looked for, they are no longer asked for and age out of the cache.
+ * Branch creation and deletion are also applied to the release branch index, and pull request
+ * changes to the automatic merge failure index. Stored results of a deleted repository are
+ * removed, since nothing will ask for them again.
+ */
+@Component
+public class MergeConflictEventListener
+    implements InitializingBean, DisposableBean
+{
+  private final EventPublisher eventPublisher;
+  private final PrecomputeQueue precomputeQueue;
+  private final ReleaseBranchIndex releaseBranchIndex;
+  private final AutoMergeFailureIndex autoMergeFailureIndex;
+  private final MergeResultStore resultStore;
+
+  @Autowired
+  public MergeConflictEventListener(@ComponentImport EventPublisher eventPublisher,
+                                    PrecomputeQueue precomputeQueue,
+                                    ReleaseBranchIndex releaseBranchIndex,
+                                    AutoMergeFailureIndex autoMergeFailureIndex,
+                                    MergeResultStore resultStore)
+  {
+    this.eventPublisher = eventPublisher;
+    this.precomputeQueue = precomputeQueue;
+    this.releaseBranchIndex = releaseBranchIndex;
+    this.autoMergeFailureIndex = autoMergeFailureIndex;
+    this.resultStore = resultStore;
+  }
+
+  @Override
+  public void afterPropertiesSet()
+  {
+    eventPublisher.register(this);
+  }
+
+  @Override
+  public void destroy()
+  {
+    eventPublisher.unregister(this);
+  }
+
+  @EventListener
+  public void onPullRequestOpened(PullRequestOpenedEvent event)
+  {
+    autoMergeFailureIndex.update(event.getPullRequest());
+    precomputeQueue.enqueue(event.getPullRequest(), null, PrecomputeQueue.Priority.PULL_REQUEST);
+  }
+
+  @EventListener
+  public void onPullRequestReopened(PullRequestReopenedEvent event)
+  {
+    autoMergeFailureIndex.update(event.getPullRequest());
+    precomputeQueue.enqueue(event.getPullRequest(), null, PrecomputeQueue.Priority.PULL_REQUEST);
+  }
+
+  @EventListener
+  public void onPullRequestUpdated(PullRequestUpdatedEvent event)
+  {
+    autoMergeFailureIndex.update(event.getPullRequest());
+  }
+
+  @EventListener
+  public void onPullRequestDeclined(PullRequestDeclinedEvent event)
+  {
+    autoMergeFailureIndex.remove(event.getPullRequest());
+  }
+
+  @EventListener
+  public void onPullRequestMerged(PullRequestMergedEvent event)
+  {
+    autoMergeFailureIndex.remove(event.getPullRequest());
+  }
+
+  @EventListener
+  public void onPullRequestDeleted(PullRequestDeletedEvent event)
+  {
+    autoMergeFailureIndex.remove(event.getPullRequest());
+  }
+
+  @EventListener
+  public void onPullRequestRescoped(PullRequestRescopedEvent event)
+  {
+    precomputeQueue.enqueue(event.getPullRequest(), null, PrecomputeQueue.Priority.PULL_REQUEST);
+  }
+
+  @EventListener
+  public void onRepositoryDeleted(RepositoryDeletedEvent event)
+  {
+    resultStore.removeRepository(event.getRepository().getId());
+  }
+
+  @EventListener
+  public void onRefsChanged(RepositoryRefsChangedEvent event)
+  {
+    Repository repository = event.getRepository();
+    for (RefChange refChange : event.getRefChanges()) {
+      if (refChange.getRef().getType() != StandardRefType.BRANCH) {
+        continue;
+      }
+      releaseBranchIndex.onRefChange(repository, refChange);
+      if (refChange.getType() == RefChangeType.DELETE) {
+        continue;
+      }
+      precomputeQueue.enqueuePush(repository, refChange.getRef());
+    }
+  }
+}
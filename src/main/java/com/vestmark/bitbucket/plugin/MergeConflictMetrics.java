@@ -0,0 +1,435 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.repository.Branch;
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+
+/**
+ * Latency and throughput of merge conflict checks: each phase of a check, every dry run merge by
+ * repository and by target branch, conflicts, errors, checks in flight, merges spread over the
+ * cluster, and how long admitted requests queued and why others were rejected. Published over JMX
+ * and through the stats resource, which only administrators may read. Checks slower than
+ * plugin.mcd.slow.request.ms are logged with their phase breakdown.
+ */
+@Component
+public class MergeConflictMetrics
+    implements MergeConflictMetricsMXBean, InitializingBean, DisposableBean
+{
+  public static final String SLOW_REQUEST_PROPERTY = "plugin.mcd.slow.request.ms";
+  public static final int DEFAULT_SLOW_REQUEST_MS = 5000;
+  public static final String OBJECT_NAME = "com.vestmark.bitbucket.plugin:type=MergeConflictMetrics";
+  // Repositories and branches beyond this many are left out of the breakdowns to bound memory.
+  private static final int MAX_TRACKED_KEYS = 1000;
+
+  private static final Logger log = LoggerFactory.getLogger(MergeConflictMetrics.class);
+
+  private final long slowRequestNanos;
+  private final LatencyHistogram requests;
+  private final Map<MergeCheckTimings.Phase, LatencyHistogram> phases;
+  private final LatencyHistogram merges;
+  private final ConcurrentMap<String, LatencyHistogram> repositoryMerges;
+  private final ConcurrentMap<String, LatencyHistogram> branchMerges;
+  private final AtomicInteger inFlight;
+  private final LongAdder slowRequests;
+  private final LongAdder mergeErrors;
+  private final LongAdder conflictedMerges;
+  private final LongAdder conflicts;
+  private final LongAdder coalescedChecks;
+  private final LongAdder coalescedMerges;
+  private final LongAdder timedOutChecks;
+  private final LongAdder cancelledMerges;
+  private final LongAdder distributedMerges;
+  private final LongAdder clusterFallbacks;
+  private final LongAdder clusterWork;
+  private final LatencyHistogram admissionWaits;
+  private final Map<AdmissionController.Rejection, LongAdder> rejections;
+
+  @Autowired
+  public MergeConflictMetrics(@ComponentImport ApplicationPropertiesService applicationPropertiesService)
+  {
+    this(applicationPropertiesService.getPluginProperty(SLOW_REQUEST_PROPERTY, DEFAULT_SLOW_REQUEST_MS));
+  }
+
+  public MergeConflictMetrics(int slowRequestMs)
+  {
+    slowRequestNanos = TimeUnit.MILLISECONDS.toNanos(slowRequestMs);
+    requests = new LatencyHistogram();
+    phases = new EnumMap<MergeCheckTimings.Phase, LatencyHistogram>(MergeCheckTimings.Phase.class);
+    for (MergeCheckTimings.Phase phase : MergeCheckTimings.Phase.values()) {
+      phases.put(phase, new LatencyHistogram());
+    }
+    merges = new LatencyHistogram();
+    repositoryMerges = new ConcurrentHashMap<String, LatencyHistogram>();
+    branchMerges = new ConcurrentHashMap<String, LatencyHistogram>();
+    inFlight = new AtomicInteger();
+    slowRequests = new LongAdder();
+    mergeErrors = new LongAdder();
+    conflictedMerges = new LongAdder();
+    conflicts = new LongAdder();
+    coalescedChecks = new LongAdder();
+    coalescedMerges = new LongAdder();
+    timedOutChecks = new LongAdder();
+    cancelledMerges = new LongAdder();
+    distributedMerges = new LongAdder();
+    clusterFallbacks = new LongAdder();
+    clusterWork = new LongAdder();
+    admissionWaits = new LatencyHistogram();
+    rejections = new EnumMap<AdmissionController.Rejection, LongAdder>(AdmissionController.Rejection.class);
+    for (AdmissionController.Rejection rejection : AdmissionController.Rejection.values()) {
+      rejections.put(rejection, new LongAdder());
+    }
+  }
+
+  @Override
+  public void afterPropertiesSet()
+    throws JMException
+  {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(OBJECT_NAME);
+    // Left behind by a previous copy of the plugin that was not shut down cleanly.
+    if (server.isRegistered(name)) {
+      server.unregisterMBean(name);
+    }
+    server.registerMBean(this, name);
+  }
+
+  @Override
+  public void destroy()
+    throws JMException
+  {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(OBJECT_NAME);
+    if (server.isRegistered(name)) {
+      server.unregisterMBean(name);
+    }
+  }
+
+  /**
+   * Starts timing a merge conflict check. Every started check must be passed to finishCheck.
+   */
+  public MergeCheckTimings startCheck(MergeConflictDetector mcd)
+  {
+    inFlight.incrementAndGet();
+    return new MergeCheckTimings(repositoryName(mcd.getToRepo()) + "#" + mcd.getPullRequest().getId());
+  }
+
+  public void finishCheck(MergeCheckTimings timings)
+  {
+    inFlight.decrementAndGet();
+    long elapsed = timings.getElapsedNanos();
+    requests.record(elapsed);
+    for (Map.Entry<MergeCheckTimings.Phase, Long> phase : timings.getPhaseNanos().entrySet()) {
+      phases.get(phase.getKey()).record(phase.getValue());
+    }
+    if (elapsed > slowRequestNanos) {
+      slowRequests.increment();
+      log.warn("Slow merge conflict check for pull request {}: {}", timings.getLabel(), timings);
+    }
+  }
+
+  /**
+   * Records a dry run merge that was actually run, as opposed to answered from the cache.
+   */
+  public void recordMerge(Repository repository, Branch toBranch, long nanos, MergeResult result)
+  {
+    merges.record(nanos);
+    String repositoryName = repositoryName(repository);
+    histogram(repositoryMerges, repositoryName).record(nanos);
+    histogram(branchMerges, repositoryName + ":" + toBranch.getDisplayId()).record(nanos);
+    if (!result.isCacheable()) {
+      mergeErrors.increment();
+    } else if (result.getMergeConflictsTotal() > 0) {
+      conflictedMerges.increment();
+      conflicts.add(result.getMergeConflictsTotal());
+    }
+  }
+
+  /**
+   * Records a check that joined an identical check already in flight instead of starting its own.
+   */
+  public void recordCoalescedCheck()
+  {
+    coalescedChecks.increment();
+  }
+
+  /**
+   * Records a dry run merge that joined an identical merge already in flight.
+   */
+  public void recordCoalescedMerge()
+  {
+    coalescedMerges.increment();
+  }
+
+  /**
+   * Records a check that ran out of time and returned some of its targets as pending.
+   */
+  public void recordTimedOutCheck()
+  {
+    timedOutChecks.increment();
+  }
+
+  /**
+   * Records a dry run merge that nobody was waiting for any more. A merge that was still queued is
+   * not started, one already running is left to finish and fill the cache.
+   */
+  public void recordCancelledMerge()
+  {
+    cancelledMerges.increment();
+  }
+
+  /**
+   * Records a dry run merge whose result came back from the cluster's work queue.
+   */
+  public void recordDistributedMerge()
+  {
+    distributedMerges.increment();
+  }
+
+  /**
+   * Records a dry run merge put on the cluster's work queue that this node ran itself, because no
+   * node claimed it in time or the node that did was lost or too slow.
+   */
+  public void recordClusterFallback()
+  {
+    clusterFallbacks.increment();
+  }
+
+  /**
+   * Records a dry run merge this node took off the cluster's work queue.
+   */
+  public void recordClusterWork()
+  {
+    clusterWork.increment();
+  }
+
+  /**
+   * Records an admitted request and how long it waited in the admission queue.
+   */
+  public void recordAdmitted(long waitNanos)
+  {
+    admissionWaits.record(waitNanos);
+  }
+
+  public void recordRejected(AdmissionController.Rejection rejection)
+  {
+    rejections.get(rejection).increment();
+  }
+
+  @Override
+  public long getRequestCount()
+  {
+    return requests.getCount();
+  }
+
+  @Override
+  public int getInFlightRequests()
+  {
+    return inFlight.get();
+  }
+
+  @Override
+  public long getSlowRequestCount()
+  {
+    return slowRequests.sum();
+  }
+
+  @Override
+  public long getMergeCount()
+  {
+    return merges.getCount();
+  }
+
+  @Override
+  public long getMergeErrorCount()
+  {
+    return mergeErrors.sum();
+  }
+
+  @Override
+  public long getConflictedMergeCount()
+  {
+    return conflictedMerges.sum();
+  }
+
+  @Override
+  public long getConflictCount()
+  {
+    return conflicts.sum();
+  }
+
+  @Override
+  public long getCoalescedCheckCount()
+  {
+    return coalescedChecks.sum();
+  }
+
+  @Override
+  public long getCoalescedMergeCount()
+  {
+    return coalescedMerges.sum();
+  }
+
+  @Override
+  public long getTimedOutCheckCount()
+  {
+    return timedOutChecks.sum();
+  }
+
+  @Override
+  public long getCancelledMergeCount()
+  {
+    return cancelledMerges.sum();
+  }
+
+  @Override
+  public long getDistributedMergeCount()
+  {
+    return distributedMerges.sum();
+  }
+
+  @Override
+  public long getClusterFallbackCount()
+  {
+    return clusterFallbacks.sum();
+  }
+
+  @Override
+  public long getClusterWorkCount()
+  {
+    return clusterWork.sum();
+  }
+
+  @Override
+  public long getAdmittedCount()
+  {
+    return admissionWaits.getCount();
+  }
+
+  @Override
+  public long getRejectedCount()
+  {
+    long rejected = 0;
+    for (LongAdder count : rejections.values()) {
+      rejected += count.sum();
+    }
+    return rejected;
+  }
+
+  @Override
+  public Map<String, Long> getRejections()
+  {
+    Map<String, Long> counts = new TreeMap<String, Long>();
+    for (Map.Entry<AdmissionController.Rejection, LongAdder> rejection : rejections.entrySet()) {
+      counts.put(rejection.getKey().name().toLowerCase(), rejection.getValue().sum());
+    }
+    return counts;
+  }
+
+  @Override
+  public LatencyStatsModel getAdmissionWaitLatency()
+  {
+    return admissionWaits.toModel();
+  }
+
+  @Override
+  public LatencyStatsModel getRequestLatency()
+  {
+    return requests.toModel();
+  }
+
+  @Override
+  public Map<String, LatencyStatsModel> getPhaseLatency()
+  {
+    Map<String, LatencyStatsModel> models = new TreeMap<String, LatencyStatsModel>();
+    for (Map.Entry<MergeCheckTimings.Phase, LatencyHistogram> phase : phases.entrySet()) {
+      models.put(phase.getKey().name().toLowerCase(), phase.getValue().toModel());
+    }
+    return models;
+  }
+
+  @Override
+  public LatencyStatsModel getMergeLatency()
+  {
+    return merges.toModel();
+  }
+
+  @Override
+  public Map<String, LatencyStatsModel> getRepositoryMergeLatency()
+  {
+    return toModels(repositoryMerges);
+  }
+
+  @Override
+  public Map<String, LatencyStatsModel> getBranchMergeLatency()
+  {
+    return toModels(branchMerges);
+  }
+
+  public MetricsStatsModel toModel()
+  {
+    return new MetricsStatsModel(this);
+  }
+
+  private static LatencyHistogram histogram(ConcurrentMap<String, LatencyHistogram> histograms, String key)
+  {
+    LatencyHistogram histogram = histograms.get(key);
+    if (histogram == null) {
+      if (histograms.size() >= MAX_TRACKED_KEYS) {
+        // Still counted in the overall merge latency, just not broken down.
+        return new LatencyHistogram();
+      }
+      histogram = histograms.computeIfAbsent(key, k -> new LatencyHistogram());
+    }
+    return histogram;
+  }
+
+  private static Map<String, LatencyStatsModel> toModels(Map<String, LatencyHistogram> histograms)
+  {
+    Map<String, LatencyStatsModel> models = new TreeMap<String, LatencyStatsModel>();
+    for (Map.Entry<String, LatencyHistogram> histogram : histograms.entrySet()) {
+      models.put(histogram.getKey(), histogram.getValue().toModel());
+    }
+    return models;
+  }
+
+  private static String repositoryName(Repository repository)
+  {
+    return repository.getProject().getKey() + "/" + repository.getSlug();
+  }
+}
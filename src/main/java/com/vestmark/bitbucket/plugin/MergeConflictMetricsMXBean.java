@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.Map;
+
+/**
+ * Merge conflict detector metrics published over JMX as
+ * com.vestmark.bitbucket.plugin:type=MergeConflictMetrics.
+ */
+public interface MergeConflictMetricsMXBean
+{
+  long getRequestCount();
+
+  int getInFlightRequests();
+
+  long getSlowRequestCount();
+
+  long getMergeCount();
+
+  long getMergeErrorCount();
+
+  long getConflictedMergeCount();
+
+  long getConflictCount();
+
+  long getCoalescedCheckCount();
+
+  long getCoalescedMergeCount();
+
+  long getTimedOutCheckCount();
+
+  long getCancelledMergeCount();
+
+  long getDistributedMergeCount();
+
+  long getClusterFallbackCount();
+
+  long getClusterWorkCount();
+
+  long getAdmittedCount();
+
+  long getRejectedCount();
+
+  Map<String, Long> getRejections();
+
+  LatencyStatsModel getAdmissionWaitLatency();
+
+  LatencyStatsModel getRequestLatency();
+
+  Map<String, LatencyStatsModel> getPhaseLatency();
+
+  LatencyStatsModel getMergeLatency();
+
+  Map<String, LatencyStatsModel> getRepositoryMergeLatency();
+
+  Map<String, LatencyStatsModel> getBranchMergeLatency();
+}
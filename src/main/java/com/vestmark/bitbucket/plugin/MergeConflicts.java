@@ -0,0 +1,277 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.atlassian.bitbucket.content.ChangeType;
+import com.atlassian.bitbucket.scm.git.command.merge.conflict.GitMergeConflict;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * The conflicting files of a dry run merge, held in arrays rather than as Bitbucket's conflict
+ * objects and formatted strings. Each path is split into its directory, interned so every result
+ * naming it shares one copy, and its file name. Change types are kept as ChangeType ordinals and
+ * messages are only formatted when they are read. Conflicts past the builder's cap are counted in
+ * getTotal but not kept.
+ */
+public final class MergeConflicts
+{
+  private static final MergeConflicts EMPTY = new MergeConflicts(new String[0], new String[0], new byte[0], new byte[0], 0);
+  private static final Interner<String> DIRECTORIES = Interners.newWeakInterner();
+  private static final ChangeType[] CHANGE_TYPES = ChangeType.values();
+  private static final byte NO_CHANGE = -1;
+
+  private final String[] directories;
+  private final String[] names;
+  private final byte[] ourChanges;
+  private final byte[] theirChanges;
+  private final int total;
+
+  private MergeConflicts(String[] directories, String[] names, byte[] ourChanges, byte[] theirChanges, int total)
+  {
+    this.directories = directories;
+    this.names = names;
+    this.ourChanges = ourChanges;
+    this.theirChanges = theirChanges;
+    this.total = total;
+  }
+
+  public static MergeConflicts empty()
+  {
+    return EMPTY;
+  }
+
+  /**
+   * Returns the number of conflicts kept.
+   */
+  public int size()
+  {
+    return names.length;
+  }
+
+  /**
+   * Returns the number of conflicts the merge reported, including any past the cap.
+   */
+  public int getTotal()
+  {
+    return total;
+  }
+
+  public boolean isTruncated()
+  {
+    return total > names.length;
+  }
+
+  public String getPath(int index)
+  {
+    return directories[index].isEmpty() ? names[index] : directories[index] + '/' + names[index];
+  }
+
+  public ChangeType getOurChange(int index)
+  {
+    return toChangeType(ourChanges[index]);
+  }
+
+  public ChangeType getTheirChange(int index)
+  {
+    return toChangeType(theirChanges[index]);
+  }
+
+  public String getMessage(int index)
+  {
+    return "Source change: " + getOurChange(index) + " Target change: " + getTheirChange(index);
+  }
+
+  /**
+   * Returns the paths of the conflicts kept, built as they are read.
+   */
+  public List<String> getPaths()
+  {
+    return new AbstractList<String>()
+    {
+      @Override
+      public String get(int index)
+      {
+        return getPath(index);
+      }
+
+      @Override
+      public int size()
+      {
+        return names.length;
+      }
+    };
+  }
+
+  /**
+   * Returns the message of each conflict kept, in the same order as getPaths.
+   */
+  public List<String> getMessages()
+  {
+    return new AbstractList<String>()
+    {
+      @Override
+      public String get(int index)
+      {
+        return getMessage(index);
+      }
+
+      @Override
+      public int size()
+      {
+        return names.length;
+      }
+    };
+  }
+
+  /**
+   * Writes the conflicts with each distinct directory written once and referred to by its index.
+   */
+  void write(DataOutput out)
+    throws IOException
+  {
+    Map<String, Integer> indexes = new HashMap<String, Integer>();
+    int[] directoryIndexes = new int[names.length];
+    for (int i = 0; i < names.length; i++) {
+      Integer index = indexes.get(directories[i]);
+      if (index == null) {
+        index = indexes.size();
+        indexes.put(directories[i], index);
+      }
+      directoryIndexes[i] = index;
+    }
+    String[] table = new String[indexes.size()];
+    indexes.forEach((directory, index) -> table[index] = directory);
+    out.writeInt(total);
+    out.writeInt(table.length);
+    for (String directory : table) {
+      out.writeUTF(directory);
+    }
+    out.writeInt(names.length);
+    for (int i = 0; i < names.length; i++) {
+      out.writeInt(directoryIndexes[i]);
+      out.writeUTF(names[i]);
+      out.writeByte(ourChanges[i]);
+      out.writeByte(theirChanges[i]);
+    }
+  }
+
+  static MergeConflicts read(DataInput in)
+    throws IOException
+  {
+    int total = in.readInt();
+    String[] table = new String[in.readInt()];
+    for (int i = 0; i < table.length; i++) {
+      table[i] = DIRECTORIES.intern(in.readUTF());
+    }
+    int size = in.readInt();
+    if (size > total) {
+      throw new IOException("Stored " + size + " conflicts of " + total);
+    }
+    String[] directories = new String[size];
+    String[] names = new String[size];
+    byte[] ourChanges = new byte[size];
+    byte[] theirChanges = new byte[size];
+    for (int i = 0; i < size; i++) {
+      directories[i] = table[in.readInt()];
+      names[i] = in.readUTF();
+      ourChanges[i] = in.readByte();
+      theirChanges[i] = in.readByte();
+    }
+    return new MergeConflicts(directories, names, ourChanges, theirChanges, total);
+  }
+
+  private static ChangeType toChangeType(byte ordinal)
+  {
+    return (ordinal == NO_CHANGE) ? null : CHANGE_TYPES[ordinal];
+  }
+
+  private static byte toOrdinal(ChangeType changeType)
+  {
+    return (changeType == null) ? NO_CHANGE : (byte) changeType.ordinal();
+  }
+
+  public static class Builder
+  {
+    private final int max;
+    private String[] directories;
+    private String[] names;
+    private byte[] ourChanges;
+    private byte[] theirChanges;
+    private int size;
+    private int total;
+
+    /**
+     * Creates a builder that keeps at most max conflicts, or all of them if max is zero or less.
+     */
+    public Builder(int max)
+    {
+      this.max = (max <= 0) ? Integer.MAX_VALUE : max;
+      directories = new String[8];
+      names = new String[8];
+      ourChanges = new byte[8];
+      theirChanges = new byte[8];
+    }
+
+    /**
+     * Adds a conflict reported by git, whose message names the conflicting path.
+     */
+    public Builder add(GitMergeConflict conflict)
+    {
+      return add(conflict.getMessage().replaceFirst("Merge conflict in ", ""), conflict.getOurChange(),
+                 conflict.getTheirChange());
+    }
+
+    public Builder add(String path, ChangeType ourChange, ChangeType theirChange)
+    {
+      total++;
+      if (size == max) {
+        return this;
+      }
+      if (size == names.length) {
+        int capacity = (int) Math.min((long) max, 2L * size);
+        directories = Arrays.copyOf(directories, capacity);
+        names = Arrays.copyOf(names, capacity);
+        ourChanges = Arrays.copyOf(ourChanges, capacity);
+        theirChanges = Arrays.copyOf(theirChanges, capacity);
+      }
+      int slash = path.lastIndexOf('/');
+      directories[size] = DIRECTORIES.intern((slash < 0) ? "" : path.substring(0, slash));
+      names[size] = path.substring(slash + 1);
+      ourChanges[size] = toOrdinal(ourChange);
+      theirChanges[size] = toOrdinal(theirChange);
+      size++;
+      return this;
+    }
+
+    public MergeConflicts build()
+    {
+      if (total == 0) {
+        return EMPTY;
+      }
+      return new MergeConflicts(Arrays.copyOf(directories, size), Arrays.copyOf(names, size),
+                                Arrays.copyOf(ourChanges, size), Arrays.copyOf(theirChanges, size), total);
+    }
+  }
+}
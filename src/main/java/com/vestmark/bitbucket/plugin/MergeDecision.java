@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+/**
+ * How the outcome of a merge check was decided. Stored by ordinal in the shared home, so new
+ * decisions go at the end.
+ */
+public enum MergeDecision
+{
+  /** The source commit is already in the target, there is nothing to merge. */
+  ALREADY_MERGED,
+  /**
+   * The target has not moved since the merge base and the merge strategy fast forwards the
+   * source onto it.
+   */
+  FAST_FORWARD,
+  /** The two sides changed different files since the merge base, so they cannot conflict. */
+  DISJOINT_CHANGES,
+  /** A dry run merge was needed. */
+  MERGED,
+  /**
+   * The target has not moved since the merge base, but the merge strategy makes a new commit
+   * rather than fast forwarding, which cannot conflict.
+   */
+  TARGET_UNCHANGED
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import javax.xml.bind.annotation.*;
+import java.util.List;
+
+/**
+ * One page of a target's conflicting files, with the source and target change for each, and the
+ * target's total number of conflicts. When truncated, the pages end before mergeConflicts files.
+ */
+@XmlRootElement(name = "mergedetailmodel")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+public class MergeDetailModel {
+
+    private String toBranchDisplayId;
+    private String toBranchId;
+    private int mergeConflicts;
+    private List<String> mergeFiles;
+    private List<String> mergeMessages;
+    private int start;
+    private boolean lastPage;
+    private Integer nextPageStart;
+    private boolean truncated;
+
+    public MergeDetailModel(String toBranchDisplayId,
+                            String toBranchId,
+                            int mergeConflicts,
+                            List<String> mergeFiles,
+                            List<String> mergeMessages,
+                            int start,
+                            boolean lastPage,
+                            Integer nextPageStart,
+                            boolean truncated) {
+      this.toBranchDisplayId = toBranchDisplayId;
+      this.toBranchId = toBranchId;
+      this.mergeConflicts = mergeConflicts;
+      this.mergeFiles = mergeFiles;
+      this.mergeMessages = mergeMessages;
+      this.start = start;
+      this.lastPage = lastPage;
+      this.nextPageStart = nextPageStart;
+      this.truncated = truncated;
+    }
+
+    public String getToBranchDisplayId() {
+      return toBranchDisplayId;
+    }
+
+    public String getToBranchId() {
+      return toBranchId;
+    }
+
+    public int getMergeConflicts() {
+      return mergeConflicts;
+    }
+
+    public List<String> getMergeFiles() {
+      return mergeFiles;
+    }
+
+    public List<String> getMergeMessages() {
+      return mergeMessages;
+    }
+
+    public int getStart() {
+      return start;
+    }
+
+    public boolean isLastPage() {
+      return lastPage;
+    }
+
+    public Integer getNextPageStart() {
+      return nextPageStart;
+    }
+
+    public boolean isTruncated() {
+      return truncated;
+    }
+
+}
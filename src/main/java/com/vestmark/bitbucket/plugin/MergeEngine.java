@@ -0,0 +1,35 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import com.atlassian.bitbucket.repository.Branch;
+
+/**
+ * Works out whether a pull request's source merges cleanly into a target, without changing either
+ * branch. Which engine MergeConflictChecker uses is set by plugin.mcd.merge.engine.
+ */
+public interface MergeEngine
+{
+  /**
+   * Returns the name the engine is selected by.
+   */
+  String getName();
+
+  /**
+   * Merges the pull request's source into the target. Failures that may not repeat are returned
+   * as results that are not cacheable rather than thrown.
+   */
+  MergeResult merge(MergeConflictDetector mcd, Branch toBranch);
+}
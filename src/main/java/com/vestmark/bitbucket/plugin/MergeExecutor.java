@@ -0,0 +1,261 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Plugin owned thread pool for dry run merges. The pool bounds the number of merges running across
+ * the whole instance, and each repository may only occupy a limited number of the pool's workers
+ * so that one large cascade cannot hold up merge checks for every other repository.
+ * Limits are configured in bitbucket.properties:
+ * <ul>
+ *   <li>plugin.mcd.executor.threads - merges running at once across all repositories</li>
+ *   <li>plugin.mcd.executor.repository.threads - merges running at once within one repository</li>
+ *   <li>plugin.mcd.executor.queue.size - merges waiting for a worker before new ones are rejected</li>
+ * </ul>
+ */
+@Component
+public class MergeExecutor
+    implements DisposableBean
+{
+  public static final String THREADS_PROPERTY = "plugin.mcd.executor.threads";
+  public static final String REPOSITORY_THREADS_PROPERTY = "plugin.mcd.executor.repository.threads";
+  public static final String QUEUE_SIZE_PROPERTY = "plugin.mcd.executor.queue.size";
+  public static final int DEFAULT_THREADS = 4;
+  public static final int DEFAULT_REPOSITORY_THREADS = 2;
+  public static final int DEFAULT_QUEUE_SIZE = 1000;
+
+  private final ThreadPoolExecutor executor;
+  private final int repositoryThreads;
+  private final int queueSize;
+  private final ConcurrentMap<Integer, RepositoryQueue> repositoryQueues;
+
+  @Autowired
+  public MergeExecutor(@ComponentImport ApplicationPropertiesService applicationPropertiesService)
+  {
+    this(applicationPropertiesService.getPluginProperty(THREADS_PROPERTY, DEFAULT_THREADS),
+         applicationPropertiesService.getPluginProperty(REPOSITORY_THREADS_PROPERTY, DEFAULT_REPOSITORY_THREADS),
+         applicationPropertiesService.getPluginProperty(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE));
+  }
+
+  public MergeExecutor(int threads, int repositoryThreads, int queueSize)
+  {
+    int poolSize = Math.max(1, threads);
+    this.repositoryThreads = Math.max(1, repositoryThreads);
+    this.queueSize = Math.max(1, queueSize);
+    executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                                      new LinkedBlockingQueue<Runnable>(),
+                                      new ThreadFactoryBuilder().setNameFormat("mcd-merge-%d")
+                                                                .setDaemon(true)
+                                                                .build());
+    executor.allowCoreThreadTimeOut(true);
+    repositoryQueues = new ConcurrentHashMap<Integer, RepositoryQueue>();
+  }
+
+  /**
+   * Queues a task against the given repository's share of the pool. The returned future completes
+   * exceptionally with a RejectedExecutionException when too many merges are already waiting or
+   * the executor has been shut down. The future can be cancelled until a worker picks the task up, after which the task runs to
+   * completion and cancel returns false.
+   */
+  public <T> CompletableFuture<T> submit(Repository repository, Callable<T> task)
+  {
+    TaskFuture<T> future = new TaskFuture<T>();
+    if (getQueueDepth() >= queueSize) {
+      future.completeExceptionally(new RejectedExecutionException("Too many merge checks are waiting, please try again later."));
+      return future;
+    }
+    QueuedTask<T> queued = new QueuedTask<T>(future, task);
+    // A queue that went idle and removed itself after being looked up turns the task away, and the
+    // repository's next queue takes it.
+    RepositoryQueue queue;
+    do {
+      queue = repositoryQueues.computeIfAbsent(repository.getId(), RepositoryQueue::new);
+    } while (!queue.offer(queued));
+    return future;
+  }
+
+  /**
+   * Number of merges waiting for a worker, whether held back by their repository's limit or
+   * queued in the pool itself.
+   */
+  public int getQueueDepth()
+  {
+    int waiting = executor.getQueue().size();
+    for (RepositoryQueue queue : repositoryQueues.values()) {
+      waiting += queue.getWaiting();
+    }
+    return waiting;
+  }
+
+  public int getActiveWorkers()
+  {
+    return executor.getActiveCount();
+  }
+
+  public int getPoolSize()
+  {
+    return executor.getMaximumPoolSize();
+  }
+
+  public long getCompletedTasks()
+  {
+    return executor.getCompletedTaskCount();
+  }
+
+  @Override
+  public void destroy()
+  {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Holds back a repository's tasks once it has reached its share of the pool and hands them to
+   * the pool one at a time as its running tasks complete. A queue with nothing running or waiting
+   * removes itself, so only repositories with merges in hand are kept.
+   */
+  private class RepositoryQueue
+  {
+    private final int repositoryId;
+    private final Deque<QueuedTask<?>> waiting = new ArrayDeque<QueuedTask<?>>();
+    private int running;
+    private boolean removed;
+
+    RepositoryQueue(int repositoryId)
+    {
+      this.repositoryId = repositoryId;
+    }
+
+    // Returns false if the queue has been removed and the task must go to a new one.
+    synchronized boolean offer(QueuedTask<?> task)
+    {
+      if (removed) {
+        return false;
+      }
+      waiting.add(task);
+      dispatchWaiting();
+      return true;
+    }
+
+    synchronized int getWaiting()
+    {
+      return waiting.size();
+    }
+
+    private synchronized void finished()
+    {
+      running--;
+      dispatchWaiting();
+    }
+
+    private void dispatchWaiting()
+    {
+      while (running < repositoryThreads && !waiting.isEmpty()) {
+        running++;
+        dispatch(waiting.poll());
+      }
+      if (running == 0) {
+        removed = true;
+        repositoryQueues.remove(repositoryId, this);
+      }
+    }
+
+    private void dispatch(QueuedTask<?> task)
+    {
+      try {
+        executor.execute(() -> {
+          try {
+            task.run();
+          } finally {
+            finished();
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        // Shut down, the task will never run.
+        running--;
+        task.reject(e);
+      }
+    }
+  }
+
+  private static final class QueuedTask<T>
+      implements Runnable
+  {
+    private final TaskFuture<T> future;
+    private final Callable<T> task;
+
+    QueuedTask(TaskFuture<T> future, Callable<T> task)
+    {
+      this.future = future;
+      this.task = task;
+    }
+
+    @Override
+    public void run()
+    {
+      // Cancelled while it was waiting, nobody needs the result any more.
+      if (!future.start()) {
+        return;
+      }
+      try {
+        future.complete(task.call());
+      } catch (Throwable t) {
+        future.completeExceptionally(t);
+      }
+    }
+
+    void reject(RejectedExecutionException e)
+    {
+      future.completeExceptionally(e);
+    }
+  }
+
+  private static final class TaskFuture<T>
+      extends CompletableFuture<T>
+  {
+    private final AtomicBoolean claimed = new AtomicBoolean();
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning)
+    {
+      return claimed.compareAndSet(false, true) && super.cancel(mayInterruptIfRunning);
+    }
+
+    boolean start()
+    {
+      return claimed.compareAndSet(false, true);
+    }
+  }
+}
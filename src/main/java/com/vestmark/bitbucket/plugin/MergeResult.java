@@ -14,25 +14,77 @@
 
 package com.vestmark.bitbucket.plugin;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import com.atlassian.bitbucket.repository.Branch;
 import com.atlassian.bitbucket.repository.Repository;
-import com.atlassian.bitbucket.scm.git.command.merge.conflict.GitMergeConflict;
 
 public class MergeResult
 {
   private final Branch toBranch;
-  private final List<GitMergeConflict> mergeConflicts;
-  private final List<String> messages;
-  private final List<String> files;
+  private final MergeConflicts mergeConflicts;
+  private final List<String> notes;
+  private final boolean cacheable;
+  private final MergeDecision decision;
+  private final boolean pending;
 
-  public MergeResult(Branch toBranch, List<GitMergeConflict> mergeConflicts,
-                     List<String> messages, List<String> files)
+  public MergeResult(Branch toBranch, List<String> notes)
+  {
+    this(toBranch, null, notes, false, null);
+  }
+
+  public MergeResult(Branch toBranch, MergeConflicts mergeConflicts, List<String> notes, boolean cacheable)
+  {
+    this(toBranch, mergeConflicts, notes, cacheable, MergeDecision.MERGED);
+  }
+
+  public MergeResult(Branch toBranch, MergeConflicts mergeConflicts, List<String> notes, boolean cacheable,
+                     MergeDecision decision)
+  {
+    this(toBranch, mergeConflicts, notes, cacheable, decision, false);
+  }
+
+  /**
+   * Notes are the messages that are not about a single conflict, such as a merge failure. The
+   * conflicts are null when the merge did not get as far as reporting them.
+   */
+  private MergeResult(Branch toBranch, MergeConflicts mergeConflicts, List<String> notes, boolean cacheable,
+                      MergeDecision decision, boolean pending)
   {
     this.toBranch = toBranch;
     this.mergeConflicts = mergeConflicts;
-    this.messages = messages;
-    this.files = files;
+    this.notes = (notes == null) ? Collections.<String>emptyList() : notes;
+    this.cacheable = cacheable;
+    this.decision = decision;
+    this.pending = pending;
+  }
+
+  /**
+   * Rebuilds a cacheable result read back from a MergeResultStore.
+   */
+  public static MergeResult restore(MergeConflicts mergeConflicts, List<String> notes, MergeDecision decision)
+  {
+    return new MergeResult(null, mergeConflicts, notes, true, decision, false);
+  }
+
+  /**
+   * Returns a placeholder for a target whose merge had not finished when the request ran out of time.
+   */
+  public static MergeResult pending(Branch toBranch)
+  {
+    return new MergeResult(toBranch, null, Arrays.asList("Merge check is still running, please try again later."),
+                           false, null, true);
+  }
+
+  /**
+   * Returns a copy of this result for the given branch, used when a cached result is served for
+   * a branch instance looked up by a later request. The conflicts are shared, not copied.
+   */
+  public MergeResult withToBranch(Branch toBranch)
+  {
+    return new MergeResult(toBranch, mergeConflicts, notes, cacheable, decision, pending);
   }
 
   public Branch getToBranch()
@@ -45,23 +97,129 @@ public class MergeResult
     return toBranch.getDisplayId();
   }
 
-  public List<GitMergeConflict> getMergeConflicts()
+  /**
+   * Returns the conflicts kept for this result, or null if the merge did not report any.
+   */
+  public MergeConflicts getMergeConflicts()
   {
     return mergeConflicts;
- }
+  }
+
+  /**
+   * Returns the messages that are not about a single conflict.
+   */
+  public List<String> getNotes()
+  {
+    return notes;
+  }
 
+  /**
+   * Returns the message of each conflict kept, followed by the notes.
+   */
   public List<String> getMessages()
   {
+    if (mergeConflicts == null || mergeConflicts.size() == 0) {
+      return notes;
+    }
+    if (notes.isEmpty()) {
+      return mergeConflicts.getMessages();
+    }
+    List<String> messages = new ArrayList<String>(mergeConflicts.size() + notes.size());
+    messages.addAll(mergeConflicts.getMessages());
+    messages.addAll(notes);
     return messages;
   }
 
   public List<String> getFiles()
   {
-    return files;
+    return (mergeConflicts == null) ? null : mergeConflicts.getPaths();
+  }
+
+  public boolean isCacheable()
+  {
+    return cacheable;
+  }
+
+  /**
+   * Returns how the result was decided, or null for results that are not a merge check.
+   */
+  public MergeDecision getDecision()
+  {
+    return decision;
   }
 
   public int getMergeConflictsTotal() {
-    return (mergeConflicts==null) ? 0 : mergeConflicts.size();
+    return (mergeConflicts == null) ? 0 : mergeConflicts.getTotal();
+  }
+
+  /**
+   * Returns true if there were more conflicts than plugin.mcd.conflicts.max and only the first of
+   * them were kept.
+   */
+  public boolean isTruncated()
+  {
+    return mergeConflicts != null && mergeConflicts.isTruncated();
+  }
+
+  public boolean isPending()
+  {
+    return pending;
   }
-}
 
+  /**
+   * Returns PENDING for merges that had not finished, FAILED for results that may not repeat,
+   * NOTICE for results that are not a merge check, and otherwise CONFLICTED or CLEAN.
+   */
+  public String getStatus()
+  {
+    if (pending) {
+      return "PENDING";
+    }
+    if (!cacheable) {
+      return "FAILED";
+    }
+    if (decision == null) {
+      return "NOTICE";
+    }
+    return (getMergeConflictsTotal() > 0) ? "CONFLICTED" : "CLEAN";
+  }
+
+  public MergeSummaryModel toSummaryModel()
+  {
+    String status = getStatus();
+    String message = ("FAILED".equals(status) || "NOTICE".equals(status) || "PENDING".equals(status)) && !notes.isEmpty()
+      ? notes.get(0) : null;
+    return new MergeSummaryModel(toBranch.getDisplayId(), toBranch.getId(), status, getMergeConflictsTotal(),
+                                 (mergeConflicts == null) ? 0 : mergeConflicts.size(), isTruncated(),
+                                 (decision == null) ? null : decision.name(), message);
+  }
+
+  /**
+   * Returns a page of the conflicting files with each file's message. The notes are returned on
+   * the first page, after that page's conflict messages.
+   */
+  public MergeDetailModel toDetailModel(int start, int limit)
+  {
+    int size = (mergeConflicts == null) ? 0 : mergeConflicts.size();
+    int from = Math.max(0, Math.min(start, size));
+    int to = Math.min(size, from + limit);
+    List<String> pageFiles = new ArrayList<String>(to - from);
+    List<String> pageMessages = new ArrayList<String>(to - from);
+    for (int i = from; i < to; i++) {
+      pageFiles.add(mergeConflicts.getPath(i));
+      pageMessages.add(mergeConflicts.getMessage(i));
+    }
+    if (from == 0) {
+      pageMessages.addAll(notes);
+    }
+    boolean lastPage = to >= size;
+    return new MergeDetailModel(toBranch.getDisplayId(), toBranch.getId(), getMergeConflictsTotal(),
+                                pageFiles, pageMessages, from, lastPage, lastPage ? null : to, isTruncated());
+  }
+
+  public MergeResultsModel toModel()
+  {
+    return new MergeResultsModel(toBranch.getDisplayId(), toBranch.getId(), getMergeConflictsTotal(), getMessages(),
+                                 getFiles(), (decision == null) ? null : decision.name(), pending, isTruncated());
+  }
+}
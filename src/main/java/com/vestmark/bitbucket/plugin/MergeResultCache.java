@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Bounded cache of dry run merge results. A merge between two commits always has the same outcome,
+ * so results are keyed by the repository and the commit hashes on both sides of the merge.
+ * The size can be tuned with the plugin.mcd.cache.max.size property in bitbucket.properties.
+ */
+@Component
+public class MergeResultCache
+{
+  public static final String MAX_SIZE_PROPERTY = "plugin.mcd.cache.max.size";
+  public static final int DEFAULT_MAX_SIZE = 5000;
+
+  private final Cache<Key, MergeResult> results;
+
+  @Autowired
+  public MergeResultCache(@ComponentImport ApplicationPropertiesService applicationPropertiesService)
+  {
+    this(applicationPropertiesService.getPluginProperty(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE));
+  }
+
+  public MergeResultCache(int maxSize)
+  {
+    results = CacheBuilder.newBuilder()
+                          .maximumSize(maxSize)
+                          .recordStats()
+                          .build();
+  }
+
+  public MergeResult get(Key key)
+  {
+    return results.getIfPresent(key);
+  }
+
+  public void put(Key key, MergeResult result)
+  {
+    results.put(key, result);
+  }
+
+  public long size()
+  {
+    return results.size();
+  }
+
+  public CacheStats getStats()
+  {
+    return results.stats();
+  }
+
+  /**
+   * Identifies a dry run merge of one commit into another within a repository.
+   */
+  public static final class Key
+  {
+    private final int repositoryId;
+    private final String fromCommit;
+    private final String toCommit;
+
+    public Key(int repositoryId, String fromCommit, String toCommit)
+    {
+      this.repositoryId = repositoryId;
+      this.fromCommit = fromCommit;
+      this.toCommit = toCommit;
+    }
+
+    public static Key of(Repository repository, String fromCommit, String toCommit)
+    {
+      return new Key(repository.getId(), fromCommit, toCommit);
+    }
+
+    public int getRepositoryId()
+    {
+      return repositoryId;
+    }
+
+    public String getFromCommit()
+    {
+      return fromCommit;
+    }
+
+    public String getToCommit()
+    {
+      return toCommit;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return repositoryId == other.repositoryId
+             && Objects.equals(fromCommit, other.fromCommit)
+             && Objects.equals(toCommit, other.toCommit);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return Objects.hash(repositoryId, fromCommit, toCommit);
+    }
+
+    @Override
+    public String toString()
+    {
+      return repositoryId + ":" + fromCommit + ".." + toCommit;
+    }
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+/**
+ * Durable home for merge results, shared by every node of a cluster and kept across restarts.
+ * Results are keyed like MergeResultCache, by repository and the commits on both sides of the
+ * merge, and are only ever cacheable results. Implementations treat storage failures as a miss.
+ */
+public interface MergeResultStore
+{
+  /**
+   * Returns the stored result without a target branch, or null if there is none or it expired.
+   */
+  MergeResult get(MergeResultCache.Key key);
+
+  void put(MergeResultCache.Key key, MergeResult result);
+
+  /**
+   * Drops results older than the store's time to live.
+   */
+  void removeExpired();
+
+  /**
+   * Drops every result of the repository, once it has been deleted.
+   */
+  void removeRepository(int repositoryId);
+}
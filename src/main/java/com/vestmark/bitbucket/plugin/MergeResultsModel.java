@@ -29,17 +29,26 @@ public class MergeResultsModel {
     private int mergeConflicts;
     private List<String> mergeMessages;
     private List<String> mergeFiles;
+    private String decision;
+    private boolean pending;
+    private boolean truncated;
 
     public MergeResultsModel(String toBranchDisplayId,
                              String toBranchId,
                              int mergeConflicts,
                              List<String> mergeMessages,
-                             List<String> mergeFiles) {
+                             List<String> mergeFiles,
+                             String decision,
+                             boolean pending,
+                             boolean truncated) {
       this.toBranchDisplayId = toBranchDisplayId;
       this.toBranchId = toBranchId;
       this.mergeConflicts = mergeConflicts;
       this.mergeMessages = mergeMessages;
       this.mergeFiles = mergeFiles;
+      this.decision = decision;
+      this.pending = pending;
+      this.truncated = truncated;
     }
 
     public String getToBranchDisplayId() {
@@ -62,4 +71,16 @@ public class MergeResultsModel {
       return (mergeFiles == null) ? Collections.singletonList("None") : mergeFiles;
     }
 
+    public String getDecision() {
+      return decision;
+    }
+
+    public boolean isPending() {
+      return pending;
+    }
+
+    public boolean isTruncated() {
+      return truncated;
+    }
+
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import javax.xml.bind.annotation.*;
+
+/**
+ * A target's merge result without its file and message lists. Status is CLEAN, CONFLICTED or
+ * FAILED, the latter with the reason in message. FileCount is less than mergeConflicts when the
+ * result was truncated to plugin.mcd.conflicts.max files.
+ */
+@XmlRootElement(name = "mergesummarymodel")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+public class MergeSummaryModel {
+
+    private String toBranchDisplayId;
+    private String toBranchId;
+    private String status;
+    private int mergeConflicts;
+    private int fileCount;
+    private boolean truncated;
+    private String decision;
+    private String message;
+
+    public MergeSummaryModel(String toBranchDisplayId,
+                             String toBranchId,
+                             String status,
+                             int mergeConflicts,
+                             int fileCount,
+                             boolean truncated,
+                             String decision,
+                             String message) {
+      this.toBranchDisplayId = toBranchDisplayId;
+      this.toBranchId = toBranchId;
+      this.status = status;
+      this.mergeConflicts = mergeConflicts;
+      this.fileCount = fileCount;
+      this.truncated = truncated;
+      this.decision = decision;
+      this.message = message;
+    }
+
+    public String getToBranchDisplayId() {
+      return toBranchDisplayId;
+    }
+
+    public String getToBranchId() {
+      return toBranchId;
+    }
+
+    public String getStatus() {
+      return status;
+    }
+
+    public int getMergeConflicts() {
+      return mergeConflicts;
+    }
+
+    public int getFileCount() {
+      return fileCount;
+    }
+
+    public boolean isTruncated() {
+      return truncated;
+    }
+
+    public String getDecision() {
+      return decision;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.repository.Branch;
+
+/**
+ * Merges with git merge-tree in the bare repository, without the working copy Bitbucket's dry run
+ * merge checks out, and merges the exact commits results are cached by. Pull requests from forks
+ * are left to the dry run merge, the source commit may not be in the target repository. So is
+ * every merge once git turns out to be too old for merge-tree --write-tree, and every merge whose
+ * conflicts merge-tree reports without naming a path, which would otherwise count as clean.
+ */
+@Component
+public class MergeTreeMergeEngine
+    implements MergeEngine
+{
+  public static final String NAME = "merge-tree";
+
+  private static final Logger log = LoggerFactory.getLogger(MergeTreeMergeEngine.class);
+
+  private final GitMergeTree mergeTree;
+  private final DryRunMergeEngine fallback;
+  private final AtomicBoolean unsupported;
+
+  @Autowired
+  public MergeTreeMergeEngine(GitMergeTree mergeTree, DryRunMergeEngine fallback)
+  {
+    this.mergeTree = mergeTree;
+    this.fallback = fallback;
+    unsupported = new AtomicBoolean();
+  }
+
+  @Override
+  public String getName()
+  {
+    return NAME;
+  }
+
+  @Override
+  public MergeResult merge(MergeConflictDetector mcd, Branch toBranch)
+  {
+    if (unsupported.get() || mcd.getFromRepo().getId() != mcd.getToRepo().getId()) {
+      return fallback.merge(mcd, toBranch);
+    }
+    MergeTreeResult result;
+    try {
+      result = mergeTree.merge(mcd.getToRepo(), mcd.getFromBranch().getLatestCommit(), toBranch.getLatestCommit(), null);
+    } catch (MergeTreeUnsupportedException e) {
+      if (unsupported.compareAndSet(false, true)) {
+        log.warn("Falling back to dry run merges: {}", e.getMessage());
+      }
+      return fallback.merge(mcd, toBranch);
+    } catch (Exception e) {
+      return new MergeResult(toBranch, null, Collections.singletonList(e.getMessage()), false);
+    }
+    if (!result.isClean() && result.getMergeConflicts().getTotal() == 0) {
+      return fallback.merge(mcd, toBranch);
+    }
+    // A clean merge is reported without a file list, the same as a clean dry run merge.
+    return new MergeResult(toBranch, result.isClean() ? null : result.getMergeConflicts(), result.getNotes(), true);
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.atlassian.bitbucket.content.ChangeType;
+import com.atlassian.bitbucket.io.LineReader;
+import com.atlassian.bitbucket.io.LineReaderOutputHandler;
+import com.atlassian.bitbucket.scm.CommandOutputHandler;
+
+/**
+ * Reads the output of git merge-tree --write-tree --name-only -z: the merged tree, the conflicting
+ * paths, then for each message its paths, its type and its text. Each conflicting path takes its
+ * change types from the first CONFLICT message naming it, with ours being the first side merged.
+ */
+class MergeTreeOutputHandler
+    extends LineReaderOutputHandler
+    implements CommandOutputHandler<MergeTreeResult>
+{
+  private final String ours;
+  private final int maxConflicts;
+  private final StringBuilder output;
+
+  MergeTreeOutputHandler(String ours, int maxConflicts)
+  {
+    super(StandardCharsets.UTF_8);
+    this.ours = ours;
+    this.maxConflicts = maxConflicts;
+    output = new StringBuilder();
+  }
+
+  @Override
+  public MergeTreeResult getOutput()
+  {
+    String[] fields = output.toString().split("\0", -1);
+    int i = 1;
+    List<String> paths = new ArrayList<String>();
+    for (; i < fields.length && !fields[i].isEmpty(); i++) {
+      paths.add(fields[i]);
+    }
+    i++;
+    Map<String, ChangeType[]> changes = new HashMap<String, ChangeType[]>();
+    List<String> notes = new ArrayList<String>();
+    while (i < fields.length && !fields[i].isEmpty()) {
+      int count;
+      try {
+        count = Integer.parseInt(fields[i]);
+      } catch (NumberFormatException e) {
+        break;
+      }
+      if (i + count + 2 >= fields.length) {
+        break;
+      }
+      String type = fields[i + count + 1];
+      String message = fields[i + count + 2].trim();
+      if (type.startsWith("CONFLICT")) {
+        ChangeType[] change = toChangeTypes(type, message);
+        for (int p = i + 1; p <= i + count; p++) {
+          changes.putIfAbsent(fields[p], change);
+        }
+        if (count == 0) {
+          notes.add(message);
+        }
+      }
+      i += count + 3;
+    }
+    MergeConflicts.Builder conflicts = new MergeConflicts.Builder(maxConflicts);
+    for (String path : paths) {
+      ChangeType[] change = changes.getOrDefault(path, new ChangeType[] { ChangeType.UNKNOWN, ChangeType.UNKNOWN });
+      conflicts.add(path, change[0], change[1]);
+    }
+    return new MergeTreeResult(fields[0].trim(), conflicts.build(), notes);
+  }
+
+  @Override
+  protected void processReader(LineReader reader)
+    throws IOException
+  {
+    // Fields are separated by NULs, newlines only occur inside them and are put back as they were.
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (output.length() > 0) {
+        output.append('\n');
+      }
+      output.append(line);
+    }
+  }
+
+  private ChangeType[] toChangeTypes(String type, String message)
+  {
+    boolean deletedInOurs = message.contains("deleted in " + ours);
+    if (message.contains("(add/add)")) {
+      return new ChangeType[] { ChangeType.ADD, ChangeType.ADD };
+    }
+    if (type.contains("modify/delete")) {
+      return deletedInOurs ? new ChangeType[] { ChangeType.DELETE, ChangeType.MODIFY }
+                           : new ChangeType[] { ChangeType.MODIFY, ChangeType.DELETE };
+    }
+    if (type.contains("rename/delete")) {
+      return deletedInOurs ? new ChangeType[] { ChangeType.DELETE, ChangeType.MOVE }
+                           : new ChangeType[] { ChangeType.MOVE, ChangeType.DELETE };
+    }
+    if (type.contains("rename")) {
+      return new ChangeType[] { ChangeType.MOVE, ChangeType.MOVE };
+    }
+    if (type.contains("contents") || type.contains("binary") || type.contains("submodule")) {
+      return new ChangeType[] { ChangeType.MODIFY, ChangeType.MODIFY };
+    }
+    return new ChangeType[] { ChangeType.UNKNOWN, ChangeType.UNKNOWN };
+  }
+}
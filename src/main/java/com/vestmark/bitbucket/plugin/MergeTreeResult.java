@@ -0,0 +1,56 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.List;
+
+/**
+ * The outcome of git merge-tree: the tree the merge would commit, written to the object store but
+ * not referenced by any commit, and the merge's conflicts. Notes are conflict messages that do not
+ * name a path.
+ */
+public class MergeTreeResult
+{
+  private final String treeId;
+  private final MergeConflicts mergeConflicts;
+  private final List<String> notes;
+
+  public MergeTreeResult(String treeId, MergeConflicts mergeConflicts, List<String> notes)
+  {
+    this.treeId = treeId;
+    this.mergeConflicts = mergeConflicts;
+    this.notes = notes;
+  }
+
+  public String getTreeId()
+  {
+    return treeId;
+  }
+
+  public MergeConflicts getMergeConflicts()
+  {
+    return mergeConflicts;
+  }
+
+  public List<String> getNotes()
+  {
+    return notes;
+  }
+
+  public boolean isClean()
+  {
+    return mergeConflicts.getTotal() == 0 && notes.isEmpty();
+  }
+}
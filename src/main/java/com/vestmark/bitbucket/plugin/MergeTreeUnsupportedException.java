@@ -0,0 +1,30 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+/**
+ * Thrown by GitMergeTree when git rejects the merge-tree options it is given, which means the
+ * installed git is too old for merges without a working copy. Callers fall back to dry run merges.
+ */
+public class MergeTreeUnsupportedException
+    extends RuntimeException
+{
+  private static final long serialVersionUID = 1L;
+
+  public MergeTreeUnsupportedException(String message)
+  {
+    super(message);
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.UUID;
+
+import com.atlassian.bitbucket.repository.Branch;
+
+/**
+ * A dry run merge put on the cluster's work queue by the node that needs its result. The node that
+ * takes it looks the pull request and target branch up again, and checks the commits on both sides
+ * against the ones given here before merging, so that it never answers for a different merge.
+ */
+public final class MergeWork
+{
+  private static final int FORMAT_VERSION = 1;
+
+  private final String id;
+  private final String requesterNodeId;
+  private final int repositoryId;
+  private final long pullRequestId;
+  private final String toBranchId;
+  private final String fromCommit;
+  private final String toCommit;
+
+  private MergeWork(String id, String requesterNodeId, int repositoryId, long pullRequestId, String toBranchId,
+                    String fromCommit, String toCommit)
+  {
+    this.id = id;
+    this.requesterNodeId = requesterNodeId;
+    this.repositoryId = repositoryId;
+    this.pullRequestId = pullRequestId;
+    this.toBranchId = toBranchId;
+    this.fromCommit = fromCommit;
+    this.toCommit = toCommit;
+  }
+
+  /**
+   * Describes merging the pull request into the target at their current commits. Ids start with the
+   * time so that sorting them puts the oldest work first.
+   */
+  public static MergeWork of(String requesterNodeId, MergeConflictDetector mcd, Branch toBranch)
+  {
+    return new MergeWork(String.format("%013d-%s", System.currentTimeMillis(), UUID.randomUUID()), requesterNodeId,
+                         mcd.getToRepo().getId(), mcd.getPullRequest().getId(), toBranch.getId(),
+                         mcd.getFromBranch().getLatestCommit(), toBranch.getLatestCommit());
+  }
+
+  public String getId()
+  {
+    return id;
+  }
+
+  public String getRequesterNodeId()
+  {
+    return requesterNodeId;
+  }
+
+  public int getRepositoryId()
+  {
+    return repositoryId;
+  }
+
+  public long getPullRequestId()
+  {
+    return pullRequestId;
+  }
+
+  public String getToBranchId()
+  {
+    return toBranchId;
+  }
+
+  public String getFromCommit()
+  {
+    return fromCommit;
+  }
+
+  public String getToCommit()
+  {
+    return toCommit;
+  }
+
+  void write(DataOutput out)
+    throws IOException
+  {
+    out.writeByte(FORMAT_VERSION);
+    out.writeUTF(id);
+    out.writeUTF(requesterNodeId);
+    out.writeInt(repositoryId);
+    out.writeLong(pullRequestId);
+    out.writeUTF(toBranchId);
+    out.writeUTF(fromCommit);
+    out.writeUTF(toCommit);
+  }
+
+  static MergeWork read(DataInput in)
+    throws IOException
+  {
+    int version = in.readByte();
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unsupported format version " + version);
+    }
+    return new MergeWork(in.readUTF(), in.readUTF(), in.readInt(), in.readLong(), in.readUTF(), in.readUTF(), in.readUTF());
+  }
+}
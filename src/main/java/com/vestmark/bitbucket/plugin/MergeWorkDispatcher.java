@@ -0,0 +1,385 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.permission.Permission;
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.pull.PullRequestService;
+import com.atlassian.bitbucket.repository.Branch;
+import com.atlassian.bitbucket.repository.Ref;
+import com.atlassian.bitbucket.repository.RefService;
+import com.atlassian.bitbucket.repository.ResolveRefRequest;
+import com.atlassian.bitbucket.repository.StandardRefType;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.bitbucket.user.SecurityService;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Spreads dry run merges over the nodes of a Data Center cluster when plugin.mcd.cluster.enabled is
+ * set. Each merge is put on the cluster's work queue, every node takes work off it for up to
+ * plugin.mcd.cluster.worker.merges merges at a time, and the result is sent back to the node that
+ * asked for it. That node runs the merge itself when nobody claims it within
+ * plugin.mcd.cluster.claim.timeout.ms, when the node that claimed it leaves the cluster, or when no
+ * result comes back within plugin.mcd.cluster.work.timeout.ms. The queue is looked at less often
+ * while it stays empty, and who claimed a piece of work only once it could matter, to keep the
+ * load on the shared home down.
+ */
+@Component
+public class MergeWorkDispatcher
+    implements InitializingBean, DisposableBean
+{
+  public static final String ENABLED_PROPERTY = "plugin.mcd.cluster.enabled";
+  public static final boolean DEFAULT_ENABLED = false;
+  public static final String WORKER_MERGES_PROPERTY = "plugin.mcd.cluster.worker.merges";
+  public static final int DEFAULT_WORKER_MERGES = 4;
+  public static final String CLAIM_TIMEOUT_PROPERTY = "plugin.mcd.cluster.claim.timeout.ms";
+  public static final int DEFAULT_CLAIM_TIMEOUT_MS = 2000;
+  public static final String WORK_TIMEOUT_PROPERTY = "plugin.mcd.cluster.work.timeout.ms";
+  public static final int DEFAULT_WORK_TIMEOUT_MS = 120000;
+  private static final long POLL_INTERVAL_MS = 100;
+  // Longest wait between looks at an empty queue, further capped to a quarter of the claim timeout.
+  private static final long MAX_IDLE_POLL_MS = 1000;
+  private static final long CLAIMANT_CHECK_MS = 1000;
+  private static final String WORK_REASON = "Checking merge conflicts for another cluster node";
+
+  private static final Logger log = LoggerFactory.getLogger(MergeWorkDispatcher.class);
+
+  private final MergeWorkTransport transport;
+  private final PullRequestService pullRequestService;
+  private final RefService refService;
+  private final SecurityService securityService;
+  private final MergeConflictMetrics metrics;
+  private final boolean enabled;
+  private final Semaphore workerMerges;
+  private final long claimTimeoutMs;
+  private final long workTimeoutMs;
+  private final long maxIdlePollMs;
+  private final ConcurrentMap<String, Outstanding> outstanding;
+  private volatile BiFunction<PullRequest, Branch, CompletableFuture<MergeResult>> worker;
+  private ScheduledExecutorService poller;
+  // Only used on the poller thread.
+  private long queuePollMs;
+  private long nextQueuePoll;
+
+  @Autowired
+  public MergeWorkDispatcher(@ComponentImport ApplicationPropertiesService applicationPropertiesService,
+                             MergeWorkTransport transport,
+                             @ComponentImport PullRequestService pullRequestService,
+                             @ComponentImport RefService refService,
+                             @ComponentImport SecurityService securityService,
+                             MergeConflictMetrics metrics)
+  {
+    this(transport, pullRequestService, refService, securityService, metrics,
+         applicationPropertiesService.getPluginProperty(ENABLED_PROPERTY, DEFAULT_ENABLED),
+         applicationPropertiesService.getPluginProperty(WORKER_MERGES_PROPERTY, DEFAULT_WORKER_MERGES),
+         applicationPropertiesService.getPluginProperty(CLAIM_TIMEOUT_PROPERTY, DEFAULT_CLAIM_TIMEOUT_MS),
+         applicationPropertiesService.getPluginProperty(WORK_TIMEOUT_PROPERTY, DEFAULT_WORK_TIMEOUT_MS));
+  }
+
+  public MergeWorkDispatcher(MergeWorkTransport transport, PullRequestService pullRequestService, RefService refService,
+                             SecurityService securityService, MergeConflictMetrics metrics, boolean enabled,
+                             int workerMerges, long claimTimeoutMs, long workTimeoutMs)
+  {
+    this.transport = transport;
+    this.pullRequestService = pullRequestService;
+    this.refService = refService;
+    this.securityService = securityService;
+    this.metrics = metrics;
+    this.enabled = enabled;
+    this.workerMerges = new Semaphore(Math.max(1, workerMerges));
+    this.claimTimeoutMs = claimTimeoutMs;
+    this.workTimeoutMs = workTimeoutMs;
+    maxIdlePollMs = Math.max(POLL_INTERVAL_MS, Math.min(MAX_IDLE_POLL_MS, claimTimeoutMs / 4));
+    queuePollMs = POLL_INTERVAL_MS;
+    outstanding = new ConcurrentHashMap<String, Outstanding>();
+  }
+
+  /**
+   * Sets how this node runs merges claimed from the queue, with the pull request and target branch
+   * looked up again on this node.
+   */
+  public void setWorker(BiFunction<PullRequest, Branch, CompletableFuture<MergeResult>> worker)
+  {
+    this.worker = worker;
+  }
+
+  @Override
+  public void afterPropertiesSet()
+  {
+    if (!enabled) {
+      return;
+    }
+    poller = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("mcd-cluster-work")
+                                                                                  .setDaemon(true)
+                                                                                  .build());
+    poller.scheduleWithFixedDelay(this::poll, POLL_INTERVAL_MS, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void destroy()
+  {
+    if (poller != null) {
+      poller.shutdownNow();
+    }
+    for (Outstanding work : outstanding.values()) {
+      work.future.cancel(false);
+    }
+    outstanding.clear();
+  }
+
+  /**
+   * Returns whether merges are being spread over the cluster, which needs at least one other node.
+   */
+  public boolean isActive()
+  {
+    return enabled && worker != null && poller != null && transport.getNodeIds().size() > 1;
+  }
+
+  /**
+   * Puts the merge on the cluster's work queue and returns its result once a node has run it. When
+   * merges are not being spread over the cluster, or the work cannot be queued, the local merge is
+   * started instead. Cancelling the returned future takes the work back off the queue if nobody
+   * has claimed it yet.
+   */
+  public CompletableFuture<MergeResult> submit(MergeConflictDetector mcd, Branch toBranch,
+                                               Supplier<CompletableFuture<MergeResult>> local)
+  {
+    if (!isActive()) {
+      return local.get();
+    }
+    MergeWork work = MergeWork.of(transport.getNodeId(), mcd, toBranch);
+    try {
+      transport.offer(work);
+    } catch (RuntimeException e) {
+      log.warn("Could not queue merge work for the cluster, running it here: {}", e.getMessage());
+      return local.get();
+    }
+    Outstanding queued = new Outstanding(work, local);
+    outstanding.put(work.getId(), queued);
+    return queued.future;
+  }
+
+  /**
+   * Returns the number of merges this node has queued for the cluster and not yet had back.
+   */
+  public int getOutstanding()
+  {
+    return outstanding.size();
+  }
+
+  private void poll()
+  {
+    // An exception escaping would stop the poller for good.
+    try {
+      long now = System.currentTimeMillis();
+      if (!outstanding.isEmpty()) {
+        collect(now);
+      }
+      if (now >= nextQueuePoll) {
+        // Backs off while the queue is empty, and looks again at once after taking work.
+        queuePollMs = claim() ? Math.min(queuePollMs * 2, maxIdlePollMs) : POLL_INTERVAL_MS;
+        nextQueuePoll = now + queuePollMs;
+      }
+    } catch (RuntimeException e) {
+      log.warn("Could not exchange merge work with the cluster: {}", e.getMessage());
+    }
+  }
+
+  // Hands results back to whoever is waiting, and runs here the work the cluster did not.
+  private void collect(long now)
+  {
+    Set<String> nodeIds = null;
+    for (Map.Entry<String, Outstanding> entry : outstanding.entrySet()) {
+      Outstanding queued = entry.getValue();
+      MergeWork work = queued.work;
+      try {
+        if (queued.future.isCancelled()) {
+          // A result for work that was already claimed is left for the transport to clear up.
+          outstanding.remove(entry.getKey());
+          transport.withdraw(work);
+        } else if (transport.isComplete(work)) {
+          outstanding.remove(entry.getKey());
+          MergeResult result = transport.takeResult(work);
+          if (result == null) {
+            // Handed back unrun, the pull request or branch had moved on as that node saw it.
+            runLocally(queued);
+          } else {
+            metrics.recordDistributedMerge();
+            queued.future.complete(result);
+          }
+        } else if (now - queued.offeredAt > claimTimeoutMs && now >= queued.nextClaimantCheck) {
+          // Before the claim timeout there is nothing to act on whoever claimed it.
+          queued.nextClaimantCheck = now + CLAIMANT_CHECK_MS;
+          if (nodeIds == null) {
+            nodeIds = transport.getNodeIds();
+          }
+          String claimant = transport.getClaimant(work);
+          boolean fallBack;
+          if (claimant == null) {
+            // Not claimed in time and taken back, or twice found neither queued nor claimed: dropped
+            // by the node that claimed it. Once could be a claim made just before the withdrawal.
+            fallBack = transport.withdraw(work) || queued.missing;
+            queued.missing = !fallBack;
+          } else {
+            fallBack = !nodeIds.contains(claimant) || now - queued.offeredAt > workTimeoutMs;
+            queued.missing = false;
+          }
+          if (fallBack) {
+            outstanding.remove(entry.getKey());
+            metrics.recordClusterFallback();
+            runLocally(queued);
+          }
+        }
+      } catch (RuntimeException e) {
+        log.warn("Could not collect merge work {}, running it here: {}", work.getId(), e.getMessage());
+        outstanding.remove(entry.getKey());
+        metrics.recordClusterFallback();
+        runLocally(queued);
+      }
+    }
+  }
+
+  // Takes work off the queue while this node has room for more. Returns true if the queue was empty.
+  private boolean claim()
+  {
+    while (worker != null && workerMerges.tryAcquire()) {
+      MergeWork work;
+      try {
+        work = transport.claim();
+      } catch (RuntimeException e) {
+        workerMerges.release();
+        throw e;
+      }
+      if (work == null) {
+        workerMerges.release();
+        return true;
+      }
+      run(work);
+    }
+    return false;
+  }
+
+  private void run(MergeWork work)
+  {
+    CompletableFuture<MergeResult> merge;
+    try {
+      merge = securityService.withPermission(Permission.REPO_READ, WORK_REASON).call(() -> start(work));
+    } catch (RuntimeException e) {
+      log.debug("Could not start merge work {}: {}", work.getId(), e.getMessage());
+      merge = null;
+    }
+    if (merge == null) {
+      complete(work, null);
+      return;
+    }
+    metrics.recordClusterWork();
+    // A merge that failed to run is handed back, the requester may yet be able to run it.
+    merge.whenComplete((result, e) -> complete(work, (e == null) ? result : null));
+  }
+
+  /**
+   * Starts the merge as it was asked for, or returns null if the pull request or the target branch
+   * is no longer at the commits the requester saw.
+   */
+  private CompletableFuture<MergeResult> start(MergeWork work)
+  {
+    PullRequest pullRequest = pullRequestService.getById(work.getRepositoryId(), work.getPullRequestId());
+    if (pullRequest == null || !work.getFromCommit().equals(pullRequest.getFromRef().getLatestCommit())) {
+      return null;
+    }
+    Ref ref = refService.resolveRef(new ResolveRefRequest.Builder(pullRequest.getToRef().getRepository())
+                                      .refId(work.getToBranchId())
+                                      .type(StandardRefType.BRANCH)
+                                      .build());
+    if (!(ref instanceof Branch) || !work.getToCommit().equals(ref.getLatestCommit())) {
+      return null;
+    }
+    return worker.apply(pullRequest, (Branch) ref);
+  }
+
+  private void complete(MergeWork work, MergeResult result)
+  {
+    try {
+      transport.complete(work, result);
+    } catch (RuntimeException e) {
+      // The requester runs the work itself once it times out.
+      log.warn("Could not complete merge work {}: {}", work.getId(), e.getMessage());
+    } finally {
+      workerMerges.release();
+    }
+  }
+
+  private void runLocally(Outstanding queued)
+  {
+    CompletableFuture<MergeResult> local;
+    try {
+      local = queued.local.get();
+    } catch (RuntimeException e) {
+      queued.future.completeExceptionally(e);
+      return;
+    }
+    local.whenComplete((result, e) -> {
+      if (e == null) {
+        queued.future.complete(result);
+      } else {
+        queued.future.completeExceptionally(e);
+      }
+    });
+    queued.future.whenComplete((result, e) -> {
+      if (queued.future.isCancelled()) {
+        local.cancel(false);
+      }
+    });
+  }
+
+  private static final class Outstanding
+  {
+    private final MergeWork work;
+    private final Supplier<CompletableFuture<MergeResult>> local;
+    private final long offeredAt;
+    private final CompletableFuture<MergeResult> future;
+    // Only used on the poller thread.
+    private long nextClaimantCheck;
+    private boolean missing;
+
+    Outstanding(MergeWork work, Supplier<CompletableFuture<MergeResult>> local)
+    {
+      this.work = work;
+      this.local = local;
+      offeredAt = System.currentTimeMillis();
+      future = new CompletableFuture<MergeResult>();
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.Set;
+
+/**
+ * Carries merge work between the nodes of a cluster: a queue that every node takes work from, and
+ * the results back to the node that asked for them. A node that has left the cluster is lost, and
+ * work it had claimed will never be completed.
+ */
+public interface MergeWorkTransport
+{
+  String getNodeId();
+
+  /**
+   * Returns the ids of the nodes in the cluster, this one included.
+   */
+  Set<String> getNodeIds();
+
+  void offer(MergeWork work);
+
+  /**
+   * Claims the oldest work nobody has claimed yet for this node, or returns null if there is none.
+   */
+  MergeWork claim();
+
+  /**
+   * Takes work back off the queue. Returns false if a node has already claimed it.
+   */
+  boolean withdraw(MergeWork work);
+
+  /**
+   * Returns the node that claimed the work, or null if it is still queued or already complete.
+   */
+  String getClaimant(MergeWork work);
+
+  /**
+   * Sends the result of claimed work back to the node that asked for it. A null result hands the
+   * work back unrun, for that node to run itself.
+   */
+  void complete(MergeWork work, MergeResult result);
+
+  boolean isComplete(MergeWork work);
+
+  /**
+   * Removes and returns the result of complete work, or null if it was handed back unrun.
+   */
+  MergeResult takeResult(MergeWork work);
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.Map;
+
+import javax.xml.bind.annotation.*;
+
+@XmlRootElement(name = "metricsstatsmodel")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+public class MetricsStatsModel {
+
+    private long requestCount;
+    private int inFlightRequests;
+    private long slowRequestCount;
+    private long mergeCount;
+    private long mergeErrorCount;
+    private long conflictedMergeCount;
+    private long conflictCount;
+    private long coalescedCheckCount;
+    private long coalescedMergeCount;
+    private long timedOutCheckCount;
+    private long cancelledMergeCount;
+    private long distributedMergeCount;
+    private long clusterFallbackCount;
+    private long clusterWorkCount;
+    private long admittedCount;
+    private long rejectedCount;
+    private Map<String, Long> rejections;
+    private LatencyStatsModel admissionWaitLatency;
+    private LatencyStatsModel requestLatency;
+    private Map<String, LatencyStatsModel> phaseLatency;
+    private LatencyStatsModel mergeLatency;
+    private Map<String, LatencyStatsModel> repositoryMergeLatency;
+    private Map<String, LatencyStatsModel> branchMergeLatency;
+
+    public MetricsStatsModel(MergeConflictMetrics metrics) {
+      this.requestCount = metrics.getRequestCount();
+      this.inFlightRequests = metrics.getInFlightRequests();
+      this.slowRequestCount = metrics.getSlowRequestCount();
+      this.mergeCount = metrics.getMergeCount();
+      this.mergeErrorCount = metrics.getMergeErrorCount();
+      this.conflictedMergeCount = metrics.getConflictedMergeCount();
+      this.conflictCount = metrics.getConflictCount();
+      this.coalescedCheckCount = metrics.getCoalescedCheckCount();
+      this.coalescedMergeCount = metrics.getCoalescedMergeCount();
+      this.timedOutCheckCount = metrics.getTimedOutCheckCount();
+      this.cancelledMergeCount = metrics.getCancelledMergeCount();
+      this.distributedMergeCount = metrics.getDistributedMergeCount();
+      this.clusterFallbackCount = metrics.getClusterFallbackCount();
+      this.clusterWorkCount = metrics.getClusterWorkCount();
+      this.admittedCount = metrics.getAdmittedCount();
+      this.rejectedCount = metrics.getRejectedCount();
+      this.rejections = metrics.getRejections();
+      this.admissionWaitLatency = metrics.getAdmissionWaitLatency();
+      this.requestLatency = metrics.getRequestLatency();
+      this.phaseLatency = metrics.getPhaseLatency();
+      this.mergeLatency = metrics.getMergeLatency();
+      this.repositoryMergeLatency = metrics.getRepositoryMergeLatency();
+      this.branchMergeLatency = metrics.getBranchMergeLatency();
+    }
+
+    public long getRequestCount() {
+      return requestCount;
+    }
+
+    public int getInFlightRequests() {
+      return inFlightRequests;
+    }
+
+    public long getSlowRequestCount() {
+      return slowRequestCount;
+    }
+
+    public long getMergeCount() {
+      return mergeCount;
+    }
+
+    public long getMergeErrorCount() {
+      return mergeErrorCount;
+    }
+
+    public long getConflictedMergeCount() {
+      return conflictedMergeCount;
+    }
+
+    public long getConflictCount() {
+      return conflictCount;
+    }
+
+    public long getCoalescedCheckCount() {
+      return coalescedCheckCount;
+    }
+
+    public long getCoalescedMergeCount() {
+      return coalescedMergeCount;
+    }
+
+    public long getTimedOutCheckCount() {
+      return timedOutCheckCount;
+    }
+
+    public long getCancelledMergeCount() {
+      return cancelledMergeCount;
+    }
+
+    public long getDistributedMergeCount() {
+      return distributedMergeCount;
+    }
+
+    public long getClusterFallbackCount() {
+      return clusterFallbackCount;
+    }
+
+    public long getClusterWorkCount() {
+      return clusterWorkCount;
+    }
+
+    public long getAdmittedCount() {
+      return admittedCount;
+    }
+
+    public long getRejectedCount() {
+      return rejectedCount;
+    }
+
+    public Map<String, Long> getRejections() {
+      return rejections;
+    }
+
+    public LatencyStatsModel getAdmissionWaitLatency() {
+      return admissionWaitLatency;
+    }
+
+    public LatencyStatsModel getRequestLatency() {
+      return requestLatency;
+    }
+
+    public Map<String, LatencyStatsModel> getPhaseLatency() {
+      return phaseLatency;
+    }
+
+    public LatencyStatsModel getMergeLatency() {
+      return mergeLatency;
+    }
+
+    public Map<String, LatencyStatsModel> getRepositoryMergeLatency() {
+      return repositoryMergeLatency;
+    }
+
+    public Map<String, LatencyStatsModel> getBranchMergeLatency() {
+      return branchMergeLatency;
+    }
+
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.branch.model.BranchModelService;
+import com.atlassian.bitbucket.branch.model.BranchType;
+import com.atlassian.bitbucket.permission.Permission;
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.pull.PullRequestOrder;
+import com.atlassian.bitbucket.pull.PullRequestSearchRequest;
+import com.atlassian.bitbucket.pull.PullRequestService;
+import com.atlassian.bitbucket.pull.PullRequestState;
+import com.atlassian.bitbucket.repository.Branch;
+import com.atlassian.bitbucket.repository.MinimalRef;
+import com.atlassian.bitbucket.repository.RefService;
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.bitbucket.user.SecurityService;
+import com.atlassian.bitbucket.util.PagedIterable;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+
+/**
+ * Work queue of merge results to compute before anyone asks for them. Each entry is a pull request
+ * and optionally a single merge target, or a push to a branch, queuing the same entry again only
+ * raises its priority. A single dispatcher thread hands entries to the merge executor, and at most
+ * plugin.mcd.precompute.merges background merges are outstanding at once so that interactive
+ * checks are not stuck behind a backlog of precomputation. A push is turned into the pull requests
+ * it affects on the dispatcher thread too, so the caller only ever queues: a push to a release
+ * branch queues the open pull requests whose cascade may include it, and a push to the default
+ * branch the newest plugin.mcd.precompute.default.push.max open pull requests behind all other work.
+ */
+@Component
+public class PrecomputeQueue
+    implements InitializingBean, DisposableBean
+{
+  public static final String MERGES_PROPERTY = "plugin.mcd.precompute.merges";
+  public static final int DEFAULT_MERGES = 2;
+  public static final String DEFAULT_PUSH_MAX_PROPERTY = "plugin.mcd.precompute.default.push.max";
+  public static final int DEFAULT_DEFAULT_PUSH_MAX = 200;
+  private static final String PRECOMPUTE_REASON = "Precomputing merge conflicts";
+  private static final int PAGE_SIZE = 100;
+
+  public enum Priority
+  {
+    // Declared from most to least urgent.
+    PULL_REQUEST,
+    TARGET_PUSH,
+    DEFAULT_BRANCH_PUSH
+  }
+
+  private final PullRequestService pullRequestService;
+  private final RefService refService;
+  private final BranchModelService modelService;
+  private final SecurityService securityService;
+  private final MergeConflictChecker checker;
+  private final int defaultPushMax;
+  private final ConcurrentMap<Key, Task> pending;
+  private final PriorityBlockingQueue<Task> queue;
+  private final Semaphore outstandingMerges;
+  private final AtomicLong sequence;
+  private Thread dispatcher;
+
+  @Autowired
+  public PrecomputeQueue(@ComponentImport ApplicationPropertiesService applicationPropertiesService,
+                         @ComponentImport PullRequestService pullRequestService,
+                         @ComponentImport RefService refService,
+                         @ComponentImport BranchModelService modelService,
+                         @ComponentImport SecurityService securityService,
+                         MergeConflictChecker checker)
+  {
+    this.pullRequestService = pullRequestService;
+    this.refService = refService;
+    this.modelService = modelService;
+    this.securityService = securityService;
+    this.checker = checker;
+    defaultPushMax = applicationPropertiesService.getPluginProperty(DEFAULT_PUSH_MAX_PROPERTY, DEFAULT_DEFAULT_PUSH_MAX);
+    pending = new ConcurrentHashMap<Key, Task>();
+    queue = new PriorityBlockingQueue<Task>();
+    outstandingMerges = new Semaphore(Math.max(1, applicationPropertiesService.getPluginProperty(MERGES_PROPERTY, DEFAULT_MERGES)));
+    sequence = new AtomicLong();
+  }
+
+  /**
+   * Queues the pull request's merge into the given target, or into every target when the target
+   * branch id is null.
+   */
+  public void enqueue(PullRequest pullRequest, String targetBranchId, Priority priority)
+  {
+    add(new Task(Key.forPullRequest(pullRequest.getToRef().getRepository().getId(), pullRequest.getId(), targetBranchId),
+                 priority, sequence.incrementAndGet(), null));
+  }
+
+  /**
+   * Queues the open pull requests into the repository whose results a push to the branch may have
+   * changed. They are looked up later, by the dispatcher.
+   */
+  public void enqueuePush(Repository repository, MinimalRef branch)
+  {
+    add(new Task(Key.forPush(repository.getId(), branch.getId()), Priority.TARGET_PUSH, sequence.incrementAndGet(),
+                 new Push(repository, branch.getId(), branch.getDisplayId())));
+  }
+
+  private void add(Task task)
+  {
+    Key key = task.key;
+    pending.merge(key, task, (queued, added) -> queued.priority.compareTo(added.priority) <= 0 ? queued : added);
+    // Only queue the task if it is the one now held in pending, the dispatcher skips superseded tasks.
+    if (pending.get(key) == task) {
+      queue.add(task);
+    }
+  }
+
+  public int getPending()
+  {
+    return pending.size();
+  }
+
+  @Override
+  public void afterPropertiesSet()
+  {
+    dispatcher = new Thread(this::dispatch, "mcd-precompute");
+    dispatcher.setDaemon(true);
+    dispatcher.start();
+  }
+
+  @Override
+  public void destroy()
+  {
+    dispatcher.interrupt();
+  }
+
+  private void dispatch()
+  {
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        Task task = queue.take();
+        if (pending.remove(task.key, task)) {
+          if (task.push != null) {
+            queueCascadesInto(task.push);
+          } else {
+            run(task.key);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (RuntimeException e) {
+        // The pull request or branch may have gone away since the task was queued.
+      }
+    }
+  }
+
+  private void run(Key key) throws InterruptedException
+  {
+    MergeConflictDetector mcd = securityService.withPermission(Permission.REPO_READ, PRECOMPUTE_REASON).call(() -> {
+      PullRequest pullRequest = pullRequestService.getById(key.repositoryId, key.pullRequestId);
+      if (pullRequest == null || !pullRequest.isOpen()) {
+        return null;
+      }
+      return checker.createDetector(pullRequest.getAuthor().getUser(), pullRequest);
+    });
+    if (mcd == null) {
+      return;
+    }
+    List<Branch> targets = securityService.withPermission(Permission.REPO_READ, PRECOMPUTE_REASON)
+                                          .call(() -> checker.getTargets(mcd));
+    for (Branch target : targets) {
+      if (key.targetBranchId == null || key.targetBranchId.equals(target.getId())) {
+        outstandingMerges.acquire();
+        checker.submitMerge(mcd, target).whenComplete((result, e) -> outstandingMerges.release());
+      }
+    }
+  }
+
+  private void queueCascadesInto(Push push)
+  {
+    securityService.withPermission(Permission.REPO_READ, PRECOMPUTE_REASON).call(() -> {
+      boolean defaultBranch = push.branchId.equals(refService.getDefaultBranch(push.repository).getId());
+      if (!defaultBranch && !isRelease(push.repository, push.branchDisplayId)) {
+        return null;
+      }
+      PullRequestSearchRequest request = new PullRequestSearchRequest.Builder().state(PullRequestState.OPEN)
+        .toRepositoryId(push.repository.getId())
+        .order(PullRequestOrder.NEWEST)
+        .build();
+      int queued = 0;
+      for (PullRequest pullRequest : new PagedIterable<PullRequest>(pr -> pullRequestService.search(request, pr), PAGE_SIZE)) {
+        if (defaultBranch) {
+          // Every open pull request cascades into the default branch, so only the newest are kept warm.
+          if (queued++ >= defaultPushMax) {
+            break;
+          }
+          enqueue(pullRequest, push.branchId, Priority.DEFAULT_BRANCH_PUSH);
+        } else if (mayCascadeInto(pullRequest, push.branchDisplayId)) {
+          enqueue(pullRequest, push.branchId, Priority.TARGET_PUSH);
+        }
+      }
+      return null;
+    });
+  }
+
+  // By name, as the branch model classifies branches by prefix.
+  private boolean isRelease(Repository repository, String branchDisplayId)
+  {
+    for (BranchType type : modelService.getModel(repository).getClassifier().getTypes()) {
+      if ("RELEASE".equals(type.getId()) && type.getPrefix() != null && branchDisplayId.startsWith(type.getPrefix())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Cheap check on branch names only. Running the task resolves the pull request's real targets
+   * and skips the branch if it is not one of them.
+   */
+  private static boolean mayCascadeInto(PullRequest pullRequest, String branchDisplayId)
+  {
+    try {
+      VersionKey toBranch = VersionComparator.AS_STRING.getKey(pullRequest.getToRef().getDisplayId());
+      VersionKey branch = VersionComparator.AS_STRING.getKey(branchDisplayId);
+      return toBranch.getFamily() != null && branch.getPrefix().equals(toBranch.getPrefix())
+             && branch.isSameFamily(toBranch) && branch.compareTo(toBranch) >= 0;
+    } catch (RuntimeException e) {
+      return false;
+    }
+  }
+
+  // A pull request with an optional target, or a push to a branch, which has no pull request.
+  private static final class Key
+  {
+    private final int repositoryId;
+    private final long pullRequestId;
+    private final String targetBranchId;
+    private final boolean push;
+
+    private Key(int repositoryId, long pullRequestId, String targetBranchId, boolean push)
+    {
+      this.repositoryId = repositoryId;
+      this.pullRequestId = pullRequestId;
+      this.targetBranchId = targetBranchId;
+      this.push = push;
+    }
+
+    static Key forPullRequest(int repositoryId, long pullRequestId, String targetBranchId)
+    {
+      return new Key(repositoryId, pullRequestId, targetBranchId, false);
+    }
+
+    static Key forPush(int repositoryId, String branchId)
+    {
+      return new Key(repositoryId, 0, branchId, true);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return repositoryId == other.repositoryId
+             && pullRequestId == other.pullRequestId
+             && Objects.equals(targetBranchId, other.targetBranchId)
+             && push == other.push;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return Objects.hash(repositoryId, pullRequestId, targetBranchId, push);
+    }
+  }
+
+  private static final class Push
+  {
+    private final Repository repository;
+    private final String branchId;
+    private final String branchDisplayId;
+
+    Push(Repository repository, String branchId, String branchDisplayId)
+    {
+      this.repository = repository;
+      this.branchId = branchId;
+      this.branchDisplayId = branchDisplayId;
+    }
+  }
+
+  private static final class Task
+      implements Comparable<Task>
+  {
+    private final Key key;
+    private final Priority priority;
+    private final long sequence;
+    // Set for a push, which is turned into pull request tasks when it is run.
+    private final Push push;
+
+    Task(Key key, Priority priority, long sequence, Push push)
+    {
+      this.key = key;
+      this.priority = priority;
+      this.sequence = sequence;
+      this.push = push;
+    }
+
+    @Override
+    public int compareTo(Task other)
+    {
+      int result = priority.compareTo(other.priority);
+      // First in, first out within a priority.
+      return result != 0 ? result : Long.compare(sequence, other.sequence);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import javax.xml.bind.annotation.*;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of merging one pull request's source branch into another's. Merge conflicts is -1
+ * when the merge could not be checked.
+ */
+@XmlRootElement(name = "predictedconflictmodel")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+public class PredictedConflictModel {
+
+    private long pullRequestId;
+    private long otherPullRequestId;
+    private int sharedPaths;
+    private int mergeConflicts;
+    private List<String> mergeFiles;
+
+    public PredictedConflictModel(long pullRequestId,
+                                  long otherPullRequestId,
+                                  int sharedPaths,
+                                  int mergeConflicts,
+                                  List<String> mergeFiles) {
+      this.pullRequestId = pullRequestId;
+      this.otherPullRequestId = otherPullRequestId;
+      this.sharedPaths = sharedPaths;
+      this.mergeConflicts = mergeConflicts;
+      this.mergeFiles = mergeFiles;
+    }
+
+    public long getPullRequestId() {
+      return pullRequestId;
+    }
+
+    public long getOtherPullRequestId() {
+      return otherPullRequestId;
+    }
+
+    public int getSharedPaths() {
+      return sharedPaths;
+    }
+
+    public int getMergeConflicts() {
+      return mergeConflicts;
+    }
+
+    public List<String> getMergeFiles() {
+      return (mergeFiles == null) ? Collections.emptyList() : mergeFiles;
+    }
+
+}
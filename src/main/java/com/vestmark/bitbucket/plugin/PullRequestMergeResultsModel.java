@@ -0,0 +1,74 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import javax.xml.bind.annotation.*;
+import java.util.List;
+
+/**
+ * One row of a repository's merge results. Conflicts holds a count per column of the enclosing
+ * model: null where the branch is not one of this pull request's targets and -1 where the merge
+ * could not be checked or did not finish within the request's time.
+ */
+@XmlRootElement(name = "pullrequestmergeresultsmodel")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+public class PullRequestMergeResultsModel {
+
+    private long pullRequestId;
+    private String title;
+    private String fromBranchDisplayId;
+    private String toBranchDisplayId;
+    private List<Integer> conflicts;
+    private boolean autoMergeFailure;
+
+    public PullRequestMergeResultsModel(long pullRequestId,
+                                        String title,
+                                        String fromBranchDisplayId,
+                                        String toBranchDisplayId,
+                                        List<Integer> conflicts,
+                                        boolean autoMergeFailure) {
+      this.pullRequestId = pullRequestId;
+      this.title = title;
+      this.fromBranchDisplayId = fromBranchDisplayId;
+      this.toBranchDisplayId = toBranchDisplayId;
+      this.conflicts = conflicts;
+      this.autoMergeFailure = autoMergeFailure;
+    }
+
+    public long getPullRequestId() {
+      return pullRequestId;
+    }
+
+    public String getTitle() {
+      return title;
+    }
+
+    public String getFromBranchDisplayId() {
+      return fromBranchDisplayId;
+    }
+
+    public String getToBranchDisplayId() {
+      return toBranchDisplayId;
+    }
+
+    public List<Integer> getConflicts() {
+      return conflicts;
+    }
+
+    public boolean isAutoMergeFailure() {
+      return autoMergeFailure;
+    }
+
+}
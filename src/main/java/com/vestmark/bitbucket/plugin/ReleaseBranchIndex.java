@@ -0,0 +1,220 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.branch.model.BranchClassifier;
+import com.atlassian.bitbucket.branch.model.BranchType;
+import com.atlassian.bitbucket.repository.Branch;
+import com.atlassian.bitbucket.repository.RefChange;
+import com.atlassian.bitbucket.repository.RefChangeType;
+import com.atlassian.bitbucket.repository.Repository;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.bitbucket.util.PagedIterable;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Per repository index of release branches by family, each family kept in version order.
+ * A repository's index is built on first use by reading every page of its release branches and is
+ * then kept current from branch created and deleted events. Callers asking while it is built wait
+ * for that one build. An index built while a release branch was created or deleted may have
+ * missed it and is built again. Events only reach the node they happen on, and the branch model
+ * itself can change, so an index is also rebuilt after plugin.mcd.index.rebuild.minutes.
+ */
+@Component
+public class ReleaseBranchIndex
+{
+  public static final String REBUILD_PROPERTY = "plugin.mcd.index.rebuild.minutes";
+  public static final int DEFAULT_REBUILD_MINUTES = 60;
+  private static final int PAGE_SIZE = 500;
+
+  private final Cache<Integer, RepositoryIndex> indexes;
+  // Counts the changes each repository has had that no index was there to take.
+  private final ConcurrentMap<Integer, AtomicLong> generations;
+
+  @Autowired
+  public ReleaseBranchIndex(@ComponentImport ApplicationPropertiesService applicationPropertiesService)
+  {
+    indexes = CacheBuilder.newBuilder()
+                          .expireAfterWrite(applicationPropertiesService.getPluginProperty(REBUILD_PROPERTY, DEFAULT_REBUILD_MINUTES),
+                                            TimeUnit.MINUTES)
+                          .build();
+    generations = new ConcurrentHashMap<Integer, AtomicLong>();
+  }
+
+  /**
+   * Returns the ids of the release branches in the same family as the given branch that are at the
+   * same version or upstream of it, in version order.
+   */
+  public List<String> getUpstreamBranchIds(Repository repository, BranchClassifier classifier, BranchType releaseType,
+                                           String branchDisplayId)
+  {
+    RepositoryIndex index = getIndex(repository, classifier, releaseType);
+    if (index.generation != generation(repository).get()) {
+      // A change arrived while the index was built. Built once more, later changes find it in place.
+      indexes.asMap().remove(repository.getId(), index);
+      index = getIndex(repository, classifier, releaseType);
+    }
+    return index.getUpstream(VersionComparator.AS_STRING.getKey(branchDisplayId));
+  }
+
+  /**
+   * Applies a branch being created or deleted to the repository's index, if it has one.
+   */
+  public void onRefChange(Repository repository, RefChange refChange)
+  {
+    if (refChange.getType() == RefChangeType.UPDATE) {
+      return;
+    }
+    RepositoryIndex index = indexes.getIfPresent(repository.getId());
+    if (index == null) {
+      // An index being built may already have read past the branch.
+      generation(repository).incrementAndGet();
+      return;
+    }
+    String displayId = refChange.getRef().getDisplayId();
+    if (!index.isRelease(displayId)) {
+      return;
+    }
+    if (refChange.getType() == RefChangeType.ADD) {
+      index.add(refChange.getRef().getId(), displayId);
+    } else {
+      index.remove(refChange.getRef().getId());
+    }
+  }
+
+  public void invalidate(Repository repository)
+  {
+    generation(repository).incrementAndGet();
+    indexes.invalidate(repository.getId());
+  }
+
+  private RepositoryIndex getIndex(Repository repository, BranchClassifier classifier, BranchType releaseType)
+  {
+    try {
+      return indexes.get(repository.getId(), () -> {
+        RepositoryIndex index = new RepositoryIndex(releaseType.getPrefix(), generation(repository).get());
+        for (Branch branch : new PagedIterable<Branch>(pr -> classifier.getBranchesByType(releaseType, pr), PAGE_SIZE)) {
+          index.add(branch.getId(), branch.getDisplayId());
+        }
+        return index;
+      });
+    } catch (UncheckedExecutionException e) {
+      throw (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : e;
+    } catch (ExecutionException e) {
+      // Building an index throws nothing checked.
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private AtomicLong generation(Repository repository)
+  {
+    return generations.computeIfAbsent(repository.getId(), id -> new AtomicLong());
+  }
+
+  private class RepositoryIndex
+  {
+    private final String prefix;
+    private final long generation;
+    private final Map<String, List<Entry>> families;
+
+    RepositoryIndex(String prefix, long generation)
+    {
+      this.prefix = prefix;
+      this.generation = generation;
+      families = new HashMap<String, List<Entry>>();
+    }
+
+    boolean isRelease(String displayId)
+    {
+      return prefix != null && displayId.startsWith(prefix);
+    }
+
+    synchronized void add(String id, String displayId)
+    {
+      VersionKey key = VersionComparator.AS_STRING.getKey(displayId);
+      if (key.getFamily() == null) {
+        return;
+      }
+      List<Entry> family = families.computeIfAbsent(key.getFamily(), f -> new ArrayList<Entry>());
+      family.removeIf(e -> e.id.equals(id));
+      family.add(lowerBound(family, key), new Entry(id, key));
+    }
+
+    synchronized void remove(String id)
+    {
+      for (List<Entry> family : families.values()) {
+        family.removeIf(e -> e.id.equals(id));
+      }
+    }
+
+    synchronized List<String> getUpstream(VersionKey key)
+    {
+      List<Entry> family = (key.getFamily() == null) ? null : families.get(key.getFamily());
+      if (family == null) {
+        return Collections.emptyList();
+      }
+      List<String> upstream = new ArrayList<String>();
+      for (int i = lowerBound(family, key); i < family.size(); i++) {
+        upstream.add(family.get(i).id);
+      }
+      return upstream;
+    }
+
+    // Index of the first entry at or upstream of the key.
+    private int lowerBound(List<Entry> family, VersionKey key)
+    {
+      int low = 0;
+      int high = family.size();
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (family.get(mid).key.compareTo(key) < 0) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+
+  private static final class Entry
+  {
+    private final String id;
+    private final VersionKey key;
+
+    Entry(String id, VersionKey key)
+    {
+      this.id = id;
+      this.key = key;
+    }
+  }
+}
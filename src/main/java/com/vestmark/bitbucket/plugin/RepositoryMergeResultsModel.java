@@ -0,0 +1,66 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import javax.xml.bind.annotation.*;
+import java.util.List;
+
+/**
+ * Conflict counts for a page of a repository's pull requests. Each pull request's conflicts line
+ * up with targets.
+ */
+@XmlRootElement(name = "repositorymergeresultsmodel")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+public class RepositoryMergeResultsModel {
+
+    private int repositoryId;
+    private List<String> targets;
+    private List<PullRequestMergeResultsModel> pullRequests;
+    private boolean lastPage;
+    private Integer nextPageStart;
+
+    public RepositoryMergeResultsModel(int repositoryId,
+                                       List<String> targets,
+                                       List<PullRequestMergeResultsModel> pullRequests,
+                                       boolean lastPage,
+                                       Integer nextPageStart) {
+      this.repositoryId = repositoryId;
+      this.targets = targets;
+      this.pullRequests = pullRequests;
+      this.lastPage = lastPage;
+      this.nextPageStart = nextPageStart;
+    }
+
+    public int getRepositoryId() {
+      return repositoryId;
+    }
+
+    public List<String> getTargets() {
+      return targets;
+    }
+
+    public List<PullRequestMergeResultsModel> getPullRequests() {
+      return pullRequests;
+    }
+
+    public boolean isLastPage() {
+      return lastPage;
+    }
+
+    public Integer getNextPageStart() {
+      return nextPageStart;
+    }
+
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * MergeResultStore on the shared home, so results survive restarts and are seen by every node of
+ * a Data Center cluster. Each result is a small binary file under
+ * shared/data/merge-conflict-detector/results/{repositoryId}/{from commit prefix}, written to a
+ * temporary file and moved into place so readers never see a partial result. Results are kept for
+ * plugin.mcd.store.ttl.hours and swept hourly, and a deleted repository's results are removed with it.
+ */
+@Component
+public class SharedHomeMergeResultStore
+    implements MergeResultStore, InitializingBean, DisposableBean
+{
+  public static final String TTL_PROPERTY = "plugin.mcd.store.ttl.hours";
+  public static final int DEFAULT_TTL_HOURS = 168;
+  // Files in an older format are read as misses and replaced when the merge runs again.
+  private static final int FORMAT_VERSION = 2;
+  private static final long SWEEP_INTERVAL_MINUTES = 60;
+
+  private static final Logger log = LoggerFactory.getLogger(SharedHomeMergeResultStore.class);
+
+  private final Path root;
+  private final long ttlMs;
+  private ScheduledExecutorService sweeper;
+
+  @Autowired
+  public SharedHomeMergeResultStore(@ComponentImport ApplicationPropertiesService applicationPropertiesService)
+  {
+    this(applicationPropertiesService.getSharedHomeDir().toPath().resolve("data").resolve("merge-conflict-detector").resolve("results"),
+         TimeUnit.HOURS.toMillis(applicationPropertiesService.getPluginProperty(TTL_PROPERTY, DEFAULT_TTL_HOURS)));
+  }
+
+  public SharedHomeMergeResultStore(Path root, long ttlMs)
+  {
+    this.root = root;
+    this.ttlMs = ttlMs;
+  }
+
+  @Override
+  public void afterPropertiesSet()
+  {
+    sweeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("mcd-store-sweeper")
+                                                                                   .setDaemon(true)
+                                                                                   .build());
+    sweeper.scheduleWithFixedDelay(this::removeExpired, SWEEP_INTERVAL_MINUTES, SWEEP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+  }
+
+  @Override
+  public void destroy()
+  {
+    sweeper.shutdownNow();
+  }
+
+  @Override
+  public MergeResult get(MergeResultCache.Key key)
+  {
+    Path file = path(key);
+    try {
+      if (isExpired(file)) {
+        Files.deleteIfExists(file);
+        return null;
+      }
+      try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+        return read(in);
+      }
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not read stored merge result {}: {}", file, e.getMessage());
+      return null;
+    }
+  }
+
+  @Override
+  public void put(MergeResultCache.Key key, MergeResult result)
+  {
+    Path file = path(key);
+    Path temp = null;
+    try {
+      Files.createDirectories(file.getParent());
+      temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+        write(out, result);
+      }
+      try {
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not store merge result {}: {}", file, e.getMessage());
+      deleteQuietly(temp);
+    }
+  }
+
+  @Override
+  public void removeExpired()
+  {
+    sweep(root, false);
+  }
+
+  @Override
+  public void removeRepository(int repositoryId)
+  {
+    sweep(root.resolve(Integer.toString(repositoryId)), true);
+  }
+
+  // Deletes expired results under the directory, or all of them and the directories themselves.
+  // An entry that cannot be read or deleted, usually because another node removed it first, is
+  // passed over rather than ending the walk.
+  private void sweep(Path directory, boolean all)
+  {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    try {
+      Files.walkFileTree(directory, new SimpleFileVisitor<Path>()
+      {
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+        {
+          if (all || System.currentTimeMillis() - attributes.lastModifiedTime().toMillis() > ttlMs) {
+            deleteQuietly(file);
+          }
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e)
+        {
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException e)
+        {
+          if (all) {
+            deleteQuietly(dir);
+          }
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not sweep stored merge results in {}: {}", directory, e.getMessage());
+    }
+  }
+
+  static void write(OutputStream stream, MergeResult result)
+    throws IOException
+  {
+    DataOutputStream out = new DataOutputStream(stream);
+    out.writeByte(FORMAT_VERSION);
+    out.writeByte((result.getDecision() == null) ? -1 : result.getDecision().ordinal());
+    out.writeBoolean(result.getMergeConflicts() != null);
+    if (result.getMergeConflicts() != null) {
+      result.getMergeConflicts().write(out);
+    }
+    writeStrings(out, result.getNotes());
+    out.flush();
+  }
+
+  static MergeResult read(InputStream stream)
+    throws IOException
+  {
+    DataInputStream in = new DataInputStream(stream);
+    int version = in.readByte();
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unsupported format version " + version);
+    }
+    int decision = in.readByte();
+    MergeConflicts mergeConflicts = in.readBoolean() ? MergeConflicts.read(in) : null;
+    List<String> notes = readStrings(in);
+    return MergeResult.restore(mergeConflicts, notes, (decision < 0) ? null : MergeDecision.values()[decision]);
+  }
+
+  // A null list is written as -1 so it reads back as null, which the REST model shows as "None".
+  private static void writeStrings(DataOutputStream out, List<String> strings)
+    throws IOException
+  {
+    if (strings == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(strings.size());
+    for (String string : strings) {
+      out.writeUTF(string);
+    }
+  }
+
+  private static List<String> readStrings(DataInputStream in)
+    throws IOException
+  {
+    int size = in.readInt();
+    if (size < 0) {
+      return null;
+    }
+    List<String> strings = new ArrayList<String>(size);
+    for (int i = 0; i < size; i++) {
+      strings.add(in.readUTF());
+    }
+    return Collections.unmodifiableList(strings);
+  }
+
+  private Path path(MergeResultCache.Key key)
+  {
+    String fromCommit = key.getFromCommit();
+    return root.resolve(Integer.toString(key.getRepositoryId()))
+               .resolve(fromCommit.substring(0, Math.min(2, fromCommit.length())))
+               .resolve(fromCommit + "-" + key.getToCommit());
+  }
+
+  private boolean isExpired(Path file)
+    throws IOException
+  {
+    return System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis() > ttlMs;
+  }
+
+  private static void deleteQuietly(Path file)
+  {
+    if (file != null) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        // Swept up with the expired results.
+      }
+    }
+  }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.atlassian.bitbucket.cluster.ClusterInformation;
+import com.atlassian.bitbucket.cluster.ClusterNode;
+import com.atlassian.bitbucket.cluster.ClusterService;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * MergeWorkTransport on the shared home, which every node of a Data Center cluster can see. Under
+ * shared/data/merge-conflict-detector/work, queued work is a file in queue/{id}, a node claims it by
+ * moving it into claimed/{node}/{id}, and results are written to results/{requester}/{id}. Files are
+ * written to a temporary name and moved into place, and the move out of the queue is atomic, so no
+ * two nodes can claim the same work. Files left behind by lost nodes are swept hourly.
+ */
+@Component
+public class SharedHomeMergeWorkTransport
+    implements MergeWorkTransport, InitializingBean, DisposableBean
+{
+  private static final long SWEEP_INTERVAL_MINUTES = 60;
+  private static final long MAX_AGE_MS = TimeUnit.HOURS.toMillis(1);
+  private static final int DECLINED = 0;
+  private static final int RESULT = 1;
+  private static final int FAILURE = 2;
+
+  private static final Logger log = LoggerFactory.getLogger(SharedHomeMergeWorkTransport.class);
+
+  private final ClusterService clusterService;
+  private final Path queue;
+  private final Path claimed;
+  private final Path results;
+  private ScheduledExecutorService sweeper;
+
+  @Autowired
+  public SharedHomeMergeWorkTransport(@ComponentImport ApplicationPropertiesService applicationPropertiesService,
+                                      @ComponentImport ClusterService clusterService)
+  {
+    this(applicationPropertiesService.getSharedHomeDir().toPath().resolve("data").resolve("merge-conflict-detector").resolve("work"),
+         clusterService);
+  }
+
+  public SharedHomeMergeWorkTransport(Path root, ClusterService clusterService)
+  {
+    this.clusterService = clusterService;
+    queue = root.resolve("queue");
+    claimed = root.resolve("claimed");
+    results = root.resolve("results");
+  }
+
+  @Override
+  public void afterPropertiesSet()
+  {
+    sweeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("mcd-work-sweeper")
+                                                                                   .setDaemon(true)
+                                                                                   .build());
+    sweeper.scheduleWithFixedDelay(this::removeAbandoned, SWEEP_INTERVAL_MINUTES, SWEEP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+  }
+
+  @Override
+  public void destroy()
+  {
+    sweeper.shutdownNow();
+  }
+
+  @Override
+  public String getNodeId()
+  {
+    return clusterService.getInformation().getLocalNode().getId();
+  }
+
+  @Override
+  public Set<String> getNodeIds()
+  {
+    ClusterInformation information = clusterService.getInformation();
+    Set<String> nodeIds = new TreeSet<String>();
+    for (ClusterNode node : information.getNodes()) {
+      nodeIds.add(node.getId());
+    }
+    nodeIds.add(information.getLocalNode().getId());
+    return nodeIds;
+  }
+
+  @Override
+  public void offer(MergeWork work)
+  {
+    try {
+      write(queue.resolve(work.getId()), out -> work.write(new DataOutputStream(out)));
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not queue merge work " + work.getId() + ": " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public MergeWork claim()
+  {
+    Path mine = claimed.resolve(toFileName(getNodeId()));
+    for (String id : listQueue()) {
+      Path file = mine.resolve(id);
+      try {
+        Files.createDirectories(mine);
+        Files.move(queue.resolve(id), file, StandardCopyOption.ATOMIC_MOVE);
+      } catch (NoSuchFileException e) {
+        // Claimed by another node or withdrawn first.
+        continue;
+      } catch (AtomicMoveNotSupportedException e) {
+        // Claiming without an atomic move could run the same work twice, leave it to the requester.
+        log.warn("The shared home does not support atomic moves, merge work will not be distributed");
+        return null;
+      } catch (IOException e) {
+        log.warn("Could not claim merge work {}: {}", id, e.getMessage());
+        continue;
+      }
+      try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+        return MergeWork.read(new DataInputStream(in));
+      } catch (IOException | RuntimeException e) {
+        // Nobody can run it, so it is dropped. The requester runs it itself once it finds the work
+        // neither queued nor claimed.
+        log.warn("Could not read merge work {}: {}", file, e.getMessage());
+        deleteQuietly(file);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public boolean withdraw(MergeWork work)
+  {
+    try {
+      return Files.deleteIfExists(queue.resolve(work.getId()));
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public String getClaimant(MergeWork work)
+  {
+    for (String nodeId : getNodeIds()) {
+      if (Files.exists(claimed.resolve(toFileName(nodeId)).resolve(work.getId()))) {
+        return nodeId;
+      }
+    }
+    if (!Files.isDirectory(claimed)) {
+      return null;
+    }
+    // Claimed by a node that has since left the cluster.
+    try (DirectoryStream<Path> nodes = Files.newDirectoryStream(claimed)) {
+      for (Path node : nodes) {
+        if (Files.exists(node.resolve(work.getId()))) {
+          return node.getFileName().toString();
+        }
+      }
+    } catch (IOException e) {
+      log.warn("Could not find the claimant of merge work {}: {}", work.getId(), e.getMessage());
+    }
+    return null;
+  }
+
+  @Override
+  public void complete(MergeWork work, MergeResult result)
+  {
+    Path file = results.resolve(toFileName(work.getRequesterNodeId())).resolve(work.getId());
+    try {
+      write(file, out -> {
+        if (result == null) {
+          out.write(DECLINED);
+        } else {
+          out.write(result.isCacheable() ? RESULT : FAILURE);
+          SharedHomeMergeResultStore.write(out, result);
+        }
+      });
+    } catch (IOException | RuntimeException e) {
+      // The requester runs the work itself once it times out.
+      log.warn("Could not return the result of merge work {}: {}", work.getId(), e.getMessage());
+    }
+    deleteQuietly(claimed.resolve(toFileName(getNodeId())).resolve(work.getId()));
+  }
+
+  @Override
+  public boolean isComplete(MergeWork work)
+  {
+    return Files.exists(results.resolve(toFileName(work.getRequesterNodeId())).resolve(work.getId()));
+  }
+
+  @Override
+  public MergeResult takeResult(MergeWork work)
+  {
+    Path file = results.resolve(toFileName(work.getRequesterNodeId())).resolve(work.getId());
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+      int kind = in.read();
+      if (kind == RESULT) {
+        return SharedHomeMergeResultStore.read(in);
+      }
+      if (kind == FAILURE) {
+        // Read back as cacheable, which a failure is not.
+        return new MergeResult(null, SharedHomeMergeResultStore.read(in).getNotes());
+      }
+      return null;
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not read the result of merge work {}: {}", work.getId(), e.getMessage());
+      return null;
+    } finally {
+      deleteQuietly(file);
+    }
+  }
+
+  /**
+   * Removes work, claims and results older than an hour, left behind by nodes that were lost or
+   * stopped waiting.
+   */
+  public void removeAbandoned()
+  {
+    for (Path directory : new Path[] {queue, claimed, results}) {
+      if (!Files.isDirectory(directory)) {
+        continue;
+      }
+      try (Stream<Path> files = Files.walk(directory)) {
+        files.filter(Files::isRegularFile).forEach(file -> {
+          try {
+            if (System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis() > MAX_AGE_MS) {
+              Files.deleteIfExists(file);
+            }
+          } catch (IOException e) {
+            // Taken by another node, or will be tried again on the next sweep.
+          }
+        });
+      } catch (IOException | RuntimeException e) {
+        log.warn("Could not sweep abandoned merge work: {}", e.getMessage());
+      }
+    }
+  }
+
+  // Ids start with the time they were queued, so name order is oldest first.
+  private List<String> listQueue()
+  {
+    if (!Files.isDirectory(queue)) {
+      return Collections.emptyList();
+    }
+    List<String> ids = new ArrayList<String>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(queue)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        // Temporary files are still being written.
+        if (!name.startsWith(".")) {
+          ids.add(name);
+        }
+      }
+    } catch (IOException e) {
+      log.warn("Could not read the merge work queue: {}", e.getMessage());
+    }
+    Collections.sort(ids);
+    return ids;
+  }
+
+  // Written to a temporary file and moved into place, so no node ever reads a partial file.
+  private static void write(Path file, Contents contents)
+    throws IOException
+  {
+    Files.createDirectories(file.getParent());
+    Path temp = file.resolveSibling("." + file.getFileName() + ".tmp");
+    try {
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+        contents.writeTo(out);
+      }
+      try {
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException | RuntimeException e) {
+      deleteQuietly(temp);
+      throw e;
+    }
+  }
+
+  // Node ids are chosen by the cluster and may not be valid file names.
+  private static String toFileName(String nodeId)
+  {
+    return nodeId.replaceAll("[^A-Za-z0-9._-]", "_");
+  }
+
+  private static void deleteQuietly(Path file)
+  {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      // Swept up with the abandoned work.
+    }
+  }
+
+  private interface Contents
+  {
+    void writeTo(OutputStream out)
+      throws IOException;
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent computations of the same key: the first caller starts the computation and
+ * everyone who asks for the key before it completes shares its result. Completed computations are
+ * forgotten, caching their results is left to the caller. Callers that stop waiting abandon the
+ * computation, and it is cancelled when the last of them does.
+ */
+public class SingleFlight<K, V>
+{
+  private final ConcurrentMap<K, Flight<V>> inFlight;
+  private final Runnable onCoalesced;
+
+  /**
+   * @param onCoalesced run each time a caller joins a computation already in flight
+   */
+  public SingleFlight(Runnable onCoalesced)
+  {
+    inFlight = new ConcurrentHashMap<K, Flight<V>>();
+    this.onCoalesced = onCoalesced;
+  }
+
+  /**
+   * Returns the computation in flight for the key, or starts one. The computation is registered
+   * before it is started, so a computation that runs on the calling thread is shared too.
+   */
+  public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> computation)
+  {
+    Flight<V> created = new Flight<V>();
+    Flight<V> flight = inFlight.compute(key, (k, existing) -> {
+      if (existing == null) {
+        return created;
+      }
+      existing.waiters++;
+      return existing;
+    });
+    if (flight != created) {
+      onCoalesced.run();
+      return flight.result;
+    }
+    try {
+      flight.computation = computation.get();
+      flight.computation.whenComplete((result, e) -> {
+        inFlight.remove(key, flight);
+        if (e != null) {
+          flight.result.completeExceptionally(e);
+        } else {
+          flight.result.complete(result);
+        }
+      });
+    } catch (RuntimeException e) {
+      inFlight.remove(key, flight);
+      flight.result.completeExceptionally(e);
+    }
+    return flight.result;
+  }
+
+  /**
+   * Stops waiting for a result returned by execute. When the last caller waiting for a computation
+   * stops, the computation is cancelled and its result completes with a CancellationException.
+   * A computation that refuses to be cancelled stays in flight for later callers to join.
+   * Returns true if the computation was cancelled.
+   */
+  public boolean abandon(K key, CompletableFuture<V> result)
+  {
+    List<Flight<V>> last = new ArrayList<Flight<V>>(1);
+    inFlight.computeIfPresent(key, (k, existing) -> {
+      if (existing.result == result && --existing.waiters == 0) {
+        last.add(existing);
+      }
+      return existing;
+    });
+    // Cancelled outside of the map's lock, as completing the computation removes the flight.
+    return !last.isEmpty() && last.get(0).computation != null && last.get(0).computation.cancel(false);
+  }
+
+  public int getInFlight()
+  {
+    return inFlight.size();
+  }
+
+  private static final class Flight<V>
+  {
+    private final CompletableFuture<V> result = new CompletableFuture<V>();
+    private int waiters = 1;
+    private volatile CompletableFuture<V> computation;
+  }
+}
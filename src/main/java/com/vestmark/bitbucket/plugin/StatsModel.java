@@ -0,0 +1,52 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import javax.xml.bind.annotation.*;
+
+@XmlRootElement(name = "statsmodel")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+public class StatsModel {
+
+    private CacheStatsModel cache;
+    private ExecutorStatsModel executor;
+    private MetricsStatsModel metrics;
+    private AdmissionStatsModel admission;
+
+    public StatsModel(CacheStatsModel cache, ExecutorStatsModel executor, MetricsStatsModel metrics,
+                      AdmissionStatsModel admission) {
+      this.cache = cache;
+      this.executor = executor;
+      this.metrics = metrics;
+      this.admission = admission;
+    }
+
+    public CacheStatsModel getCache() {
+      return cache;
+    }
+
+    public ExecutorStatsModel getExecutor() {
+      return executor;
+    }
+
+    public MetricsStatsModel getMetrics() {
+      return metrics;
+    }
+
+    public AdmissionStatsModel getAdmission() {
+      return admission;
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.util.regex.Pattern;
+
+/**
+ * A branch name broken into the parts VersionComparator works with, parsed once so that sorting
+ * and family filtering do not repeat the string splitting for every comparison.
+ * For release/app-8.1.2 the prefix is "release", the family is "app" and the version is "8.1.2".
+ */
+public final class VersionKey
+    implements Comparable<VersionKey>
+{
+  private final String name;
+  private final String prefix;
+  private final String family;
+  private final String version;
+  private final String[] components;
+  private final boolean[] numeric;
+  private final boolean[] parsed;
+  private final int[] values;
+
+  private VersionKey(String name, Pattern splitPattern)
+  {
+    this.name = name;
+    String[] branchComponents = name.split("/");
+    String last = branchComponents[branchComponents.length-1];
+    int letters = 0;
+    while (letters < last.length() && isLetter(last.charAt(letters))) {
+      letters++;
+    }
+    int versionStart = (letters < last.length() && last.charAt(letters) == '-') ? letters + 1 : letters;
+    prefix = branchComponents[0];
+    version = last.substring(versionStart);
+    // Family is everything in the branch name between the prefix and the version, exclusively
+    int familyStart = prefix.length() + 1;
+    int familyEnd = name.length() - (last.length() - letters);
+    family = (familyStart <= familyEnd) ? name.substring(familyStart, familyEnd) : null;
+
+    components = splitPattern.split(version);
+    numeric = new boolean[components.length];
+    parsed = new boolean[components.length];
+    values = new int[components.length];
+    for (int i = 0; i < components.length; i++) {
+      numeric[i] = NumberUtils.isNumber(components[i]);
+      if (numeric[i]) {
+        try {
+          values[i] = Integer.parseInt(components[i]);
+          parsed[i] = true;
+        } catch (NumberFormatException e) {
+          // Numbers that do not fit an int fail when compared, as they always have.
+        }
+      }
+    }
+  }
+
+  public static VersionKey parse(String name, Pattern splitPattern)
+  {
+    return new VersionKey(name, splitPattern);
+  }
+
+  public String getName()
+  {
+    return name;
+  }
+
+  public String getPrefix()
+  {
+    return prefix;
+  }
+
+  /**
+   * Returns the family, or null for a name without a prefix.
+   */
+  public String getFamily()
+  {
+    return family;
+  }
+
+  public String getVersion()
+  {
+    return version;
+  }
+
+  /**
+   * Returns the trailing non-numeric part of the version, such as "text" in 8.1-text, or null.
+   */
+  public String getQualifier()
+  {
+    return (components.length == 0 || numeric[components.length-1]) ? null : components[components.length-1];
+  }
+
+  public boolean isSameFamily(VersionKey other)
+  {
+    return family != null && family.equals(other.family);
+  }
+
+  public int compareTo(VersionKey other)
+  {
+    int length = components.length < other.components.length ? components.length : other.components.length;
+    for (int i = 0; i < length; i++) {
+      int result = 0;
+      if (numeric[i] && other.numeric[i]) {
+        result = Integer.compare(getValue(i), other.getValue(i));
+      }
+      else {
+        // If we made it here, we are at the same split index in each version and there is at least one string in the comparison.
+        // Example, 8.1.1 versus 8.1-text
+        // If Left is a number and Right is a string that is not master, then Left is downstream from Right
+        if (numeric[i] && !other.numeric[i] && other.components.length != 1) {
+          return 1;
+        }
+        // If Left is a string that is not master and Right is a number, then Left is upstream from Right
+        if (!numeric[i] && other.numeric[i] && components.length != 1) {
+          return -1;
+        }
+        // If we are here, must be two strings.  A simple comparison will do.
+        return components[i].compareTo(other.components[i]);
+      }
+      if (result != 0) {
+        return result;
+      }
+    }
+    // If we are here, we have two versions of unequal lengths, with equal split values up to the shorter of the two
+    // But the longer version might have a string value on the end and not an integer
+    // A version with a string value should register upstream.
+    // Example, 8.1 versus 8.1-text.  8.1 is downstream from 8.1-text.
+    if (!numeric[components.length-1]) {
+      return -1;
+    }
+    if (!other.numeric[other.components.length-1]) {
+      return 1;
+    }
+    // If we made it here, a simple length comparison will do.
+    // Example, 8.1 versus 8.1.1.  8.1 is upstream from 8.1.1.
+    return Integer.compare(components.length, other.components.length);
+  }
+
+  @Override
+  public String toString()
+  {
+    return name;
+  }
+
+  private int getValue(int i)
+  {
+    // Rethrows the NumberFormatException for numbers too large for an int.
+    return parsed[i] ? values[i] : Integer.parseInt(components[i]);
+  }
+
+  private static boolean isLetter(char c)
+  {
+    return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.vestmark.bitbucket.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Checks admission through the rate limits and the slot queue, the rejections and retry hints it
+ * gives, and which address an anonymous request behind reverse proxies is limited by.
+ */
+public class AdmissionControllerTest
+{
+  private static final Set<String> NO_PROXIES = Collections.<String>emptySet();
+  private static final int NO_LIMIT = 0;
+
+  private final MergeConflictMetrics metrics = new MergeConflictMetrics(0);
+
+  @Test
+  public void limitsEachClientAndRefillsItsBucket()
+    throws InterruptedException
+  {
+    // Ten a second, so a token is back well within the wait below.
+    AdmissionController controller = new AdmissionController(1, 0, 0, 600, NO_LIMIT, NO_PROXIES, metrics);
+    for (int i = 0; i < 600; i++) {
+      admitAndClose(controller, "alice", 1);
+    }
+    AdmissionController.Admission limited = controller.admit("alice", 1);
+    assertEquals(AdmissionController.Rejection.CLIENT_RATE, limited.getRejection());
+    assertEquals(1, limited.getRetryAfterSeconds());
+    // Another client has a bucket of its own.
+    admitAndClose(controller, "bob", 1);
+    Thread.sleep(300);
+    admitAndClose(controller, "alice", 1);
+  }
+
+  @Test
+  public void limitsEachRepository()
+  {
+    AdmissionController controller = new AdmissionController(1, 0, 0, NO_LIMIT, 2, NO_PROXIES, metrics);
+    admitAndClose(controller, "alice", 1);
+    admitAndClose(controller, "bob", 1);
+    AdmissionController.Admission limited = controller.admit("carol", 1);
+    assertEquals(AdmissionController.Rejection.REPOSITORY_RATE, limited.getRejection());
+    // Two a minute, so the next token is half a minute away.
+    assertEquals(30, limited.getRetryAfterSeconds());
+    admitAndClose(controller, "carol", 2);
+  }
+
+  @Test
+  public void rejectsWhenTheQueueIsFull()
+  {
+    AdmissionController controller = new AdmissionController(1, 0, 3000, NO_LIMIT, NO_LIMIT, NO_PROXIES, metrics);
+    try (AdmissionController.Admission running = controller.admit("alice", 1)) {
+      assertTrue(running.isAdmitted());
+      AdmissionController.Admission rejected = controller.admit("bob", 1);
+      assertEquals(AdmissionController.Rejection.QUEUE_FULL, rejected.getRejection());
+      assertEquals(3, rejected.getRetryAfterSeconds());
+    }
+    admitAndClose(controller, "bob", 1);
+  }
+
+  @Test
+  public void rejectsAfterWaitingTooLongInTheQueue()
+  {
+    AdmissionController controller = new AdmissionController(1, 1, 100, NO_LIMIT, NO_LIMIT, NO_PROXIES, metrics);
+    try (AdmissionController.Admission running = controller.admit("alice", 1)) {
+      long started = System.nanoTime();
+      AdmissionController.Admission rejected = controller.admit("bob", 1);
+      assertEquals(AdmissionController.Rejection.QUEUE_TIMEOUT, rejected.getRejection());
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) >= 100);
+      assertEquals(1, rejected.getRetryAfterSeconds());
+      assertEquals(0, controller.getQueued());
+    }
+  }
+
+  @Test
+  public void admitsAQueuedRequestOnceASlotIsFree()
+    throws Exception
+  {
+    AdmissionController controller = new AdmissionController(1, 1, 10000, NO_LIMIT, NO_LIMIT, NO_PROXIES, metrics);
+    AdmissionController.Admission running = controller.admit("alice", 1);
+    CompletableFuture<AdmissionController.Admission> queued = CompletableFuture.supplyAsync(() -> controller.admit("bob", 1));
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (controller.getQueued() == 0) {
+      assertTrue("Timed out waiting for the request to queue", System.nanoTime() < deadline);
+      Thread.sleep(10);
+    }
+    running.close();
+    // Closing twice frees only the one slot.
+    running.close();
+    try (AdmissionController.Admission admitted = queued.get(10, TimeUnit.SECONDS)) {
+      assertTrue(admitted.isAdmitted());
+      assertEquals(1, controller.getRunning());
+    }
+    assertEquals(0, controller.getRunning());
+  }
+
+  @Test
+  public void limitsByTheRemoteAddressWithoutTrustedProxies()
+  {
+    AdmissionController controller = controller("10.0.0.1");
+    assertEquals("203.0.113.9", controller.getClientAddress("203.0.113.9", "198.51.100.7"));
+    assertEquals("10.0.0.1", controller.getClientAddress("10.0.0.1", null));
+  }
+
+  @Test
+  public void limitsByTheNearestUntrustedHopBehindTrustedProxies()
+  {
+    AdmissionController controller = controller("10.0.0.1", "10.0.0.2");
+    assertEquals("198.51.100.7", controller.getClientAddress("10.0.0.1", "198.51.100.7"));
+    assertEquals("198.51.100.7", controller.getClientAddress("10.0.0.1", "198.51.100.7, 10.0.0.2"));
+    // Entries left of the first untrusted hop were written by the client and are not believed.
+    assertEquals("198.51.100.7", controller.getClientAddress("10.0.0.1", "192.0.2.66, 198.51.100.7"));
+    assertEquals("198.51.100.7", controller.getClientAddress("10.0.0.1", "198.51.100.7,, 10.0.0.2 "));
+  }
+
+  @Test
+  public void limitsByTheFarthestProxyWhenEveryHopIsTrusted()
+  {
+    AdmissionController controller = controller("10.0.0.1", "10.0.0.2");
+    assertEquals("10.0.0.2", controller.getClientAddress("10.0.0.1", "10.0.0.2"));
+    assertEquals("10.0.0.1", controller.getClientAddress("10.0.0.1", " "));
+  }
+
+  private AdmissionController controller(String... trustedProxies)
+  {
+    return new AdmissionController(1, 0, 0, NO_LIMIT, NO_LIMIT, new HashSet<String>(Arrays.asList(trustedProxies)), metrics);
+  }
+
+  private static void admitAndClose(AdmissionController controller, String client, int repositoryId)
+  {
+    try (AdmissionController.Admission admission = controller.admit(client, repositoryId)) {
+      assertTrue(client + " was rejected: " + admission.getRejection(), admission.isAdmitted());
+    }
+    assertEquals(0, controller.getRunning());
+  }
+}
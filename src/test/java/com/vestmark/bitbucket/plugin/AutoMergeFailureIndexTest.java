@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.vestmark.bitbucket.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.atlassian.bitbucket.permission.Permission;
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.pull.PullRequestSearchRequest;
+import com.atlassian.bitbucket.pull.PullRequestService;
+import com.atlassian.bitbucket.user.EscalatedSecurityContext;
+import com.atlassian.bitbucket.user.SecurityService;
+import com.atlassian.bitbucket.util.Operation;
+import com.atlassian.bitbucket.util.PageImpl;
+import com.atlassian.bitbucket.util.PageRequest;
+
+/**
+ * Checks that a pair is searched with repository read permission whatever the caller may see, that
+ * events keep a built pair current without searching again, and that no more pairs are kept than
+ * the index is allowed.
+ */
+public class AutoMergeFailureIndexTest
+{
+  private static final int FROM_REPOSITORY_ID = 1;
+  private static final int TO_REPOSITORY_ID = 2;
+
+  // Pull requests the search finds, but only for a caller holding repository read permission.
+  private final List<PullRequest> openPullRequests = new ArrayList<PullRequest>();
+  private final AtomicInteger searches = new AtomicInteger();
+  private boolean escalated;
+
+  @Test
+  public void searchesWithRepositoryReadPermission()
+  {
+    openPullRequests.add(pullRequest(1, MergeConflictChecker.AUTO_MERGE_FAIL));
+    assertTrue(index(AutoMergeFailureIndex.DEFAULT_MAX_PAIRS).hasOpenFailure(FROM_REPOSITORY_ID, TO_REPOSITORY_ID));
+  }
+
+  @Test
+  public void keepsABuiltPairCurrentFromEvents()
+  {
+    AutoMergeFailureIndex index = index(AutoMergeFailureIndex.DEFAULT_MAX_PAIRS);
+    assertFalse(index.hasOpenFailure(FROM_REPOSITORY_ID, TO_REPOSITORY_ID));
+    PullRequest failure = pullRequest(1, MergeConflictChecker.AUTO_MERGE_FAIL);
+    index.update(failure);
+    assertTrue(index.hasOpenFailure(FROM_REPOSITORY_ID, TO_REPOSITORY_ID));
+    index.update(pullRequest(2, "Some other change"));
+    index.remove(failure);
+    assertFalse(index.hasOpenFailure(FROM_REPOSITORY_ID, TO_REPOSITORY_ID));
+    assertEquals(1, searches.get());
+  }
+
+  @Test
+  public void keepsNoMorePairsThanAllowed()
+  {
+    AutoMergeFailureIndex index = index(0);
+    index.hasOpenFailure(FROM_REPOSITORY_ID, TO_REPOSITORY_ID);
+    index.hasOpenFailure(FROM_REPOSITORY_ID, TO_REPOSITORY_ID);
+    assertEquals(2, searches.get());
+  }
+
+  private AutoMergeFailureIndex index(int maxPairs)
+  {
+    PullRequestService pullRequestService = mock(PullRequestService.class);
+    when(pullRequestService.search(any(PullRequestSearchRequest.class), any(PageRequest.class))).thenAnswer(invocation -> {
+      searches.incrementAndGet();
+      List<PullRequest> visible = escalated ? openPullRequests : Collections.<PullRequest>emptyList();
+      return new PageImpl<PullRequest>((PageRequest) invocation.getArguments()[1], visible, true);
+    });
+    return new AutoMergeFailureIndex(pullRequestService, securityService(), TimeUnit.HOURS.toMillis(1), maxPairs);
+  }
+
+  @SuppressWarnings("unchecked")
+  private SecurityService securityService()
+  {
+    EscalatedSecurityContext escalatedContext = mock(EscalatedSecurityContext.class);
+    try {
+      when(escalatedContext.call(any(Operation.class))).thenAnswer(invocation -> {
+        escalated = true;
+        try {
+          return ((Operation<?, ?>) invocation.getArguments()[0]).perform();
+        } finally {
+          escalated = false;
+        }
+      });
+    } catch (Throwable t) {
+      throw new AssertionError(t);
+    }
+    SecurityService securityService = mock(SecurityService.class);
+    when(securityService.withPermission(any(Permission.class), anyString())).thenAnswer(invocation -> {
+      assertEquals(Permission.REPO_READ, invocation.getArguments()[0]);
+      return escalatedContext;
+    });
+    return securityService;
+  }
+
+  private static PullRequest pullRequest(long id, String title)
+  {
+    PullRequest pullRequest = mock(PullRequest.class, RETURNS_DEEP_STUBS);
+    when(pullRequest.getId()).thenReturn(id);
+    when(pullRequest.getTitle()).thenReturn(title);
+    when(pullRequest.isOpen()).thenReturn(true);
+    when(pullRequest.getFromRef().getRepository().getId()).thenReturn(FROM_REPOSITORY_ID);
+    when(pullRequest.getToRef().getRepository().getId()).thenReturn(TO_REPOSITORY_ID);
+    return pullRequest;
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.vestmark.bitbucket.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.atlassian.bitbucket.hook.repository.PullRequestMergeHookRequest;
+import com.atlassian.bitbucket.hook.repository.RepositoryHookResult;
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.repository.Branch;
+import com.atlassian.bitbucket.server.ApplicationPropertiesService;
+import com.atlassian.bitbucket.user.ApplicationUser;
+
+/**
+ * Runs the merge check against results already in memory and checks each way it answers: vetoed
+ * for known conflicts, held back while the cascade is checked or a failed merge retried, and let
+ * through once the checks are clean, have failed too often or have taken too long.
+ */
+public class CascadeMergeCheckTest
+{
+  private static final String TARGET_COMMIT = "4e5f6a7b";
+
+  private final MergeConflictChecker checker = mock(MergeConflictChecker.class);
+  private final PrecomputeQueue precomputeQueue = mock(PrecomputeQueue.class);
+  private final PullRequest pullRequest = mock(PullRequest.class, RETURNS_DEEP_STUBS);
+  private final MergeConflictDetector mcd = mock(MergeConflictDetector.class, RETURNS_DEEP_STUBS);
+  private final Branch ownTarget = branch("release/1.0");
+  private final Branch upstream = branch("release/1.1");
+  private final Branch defaultBranch = branch("master");
+
+  public CascadeMergeCheckTest()
+  {
+    when(pullRequest.getId()).thenReturn(7L);
+    when(mcd.getToRepo().getId()).thenReturn(1);
+    when(mcd.getToBranchId()).thenReturn("refs/heads/release/1.0");
+    when(mcd.getToBranch().getLatestCommit()).thenReturn(TARGET_COMMIT);
+    when(mcd.getFromBranch().getLatestCommit()).thenReturn("0a1b2c3d");
+    when(checker.createDetector(any(ApplicationUser.class), any(PullRequest.class))).thenReturn(mcd);
+    when(checker.getTargets(mcd)).thenReturn(Arrays.asList(ownTarget, upstream, defaultBranch));
+  }
+
+  @Test
+  public void vetoesKnownConflicts()
+  {
+    cached(upstream, 2);
+    // Still being checked, which does not hold back the veto.
+    when(checker.getCachedResult(mcd, defaultBranch)).thenReturn(null);
+    RepositoryHookResult result = check(CascadeMergeCheck.DEFAULT_TIMEOUT_MS);
+    assertEquals("Merge conflicts in the release cascade", summary(result));
+    assertTrue(detail(result).contains("release/1.1 (2 files)"));
+  }
+
+  @Test
+  public void holdsTheMergeBackWhileTheCascadeIsChecked()
+  {
+    cached(upstream, 0);
+    RepositoryHookResult result = check(CascadeMergeCheck.DEFAULT_TIMEOUT_MS);
+    assertEquals("Checking the release cascade for merge conflicts...", summary(result));
+    verify(precomputeQueue).enqueue(pullRequest, null, PrecomputeQueue.Priority.PULL_REQUEST);
+  }
+
+  @Test
+  public void retriesAFailedMergeUpToTheAttemptLimit()
+  {
+    cleanExceptDefaultBranch();
+    MergeResult error = result(defaultBranch, 0);
+    when(error.getNotes()).thenReturn(Collections.singletonList("git failed"));
+    when(checker.getFailedMerge(mcd, defaultBranch)).thenReturn(new MergeConflictChecker.FailedMerge(error, 1));
+    RepositoryHookResult result = check(CascadeMergeCheck.DEFAULT_TIMEOUT_MS);
+    assertEquals("Could not check the release cascade for merge conflicts, retrying...", summary(result));
+    assertTrue(detail(result).contains("master (git failed)"));
+
+    when(checker.getFailedMerge(mcd, defaultBranch))
+      .thenReturn(new MergeConflictChecker.FailedMerge(error, CascadeMergeCheck.DEFAULT_ATTEMPTS));
+    assertTrue(check(CascadeMergeCheck.DEFAULT_TIMEOUT_MS).isAccepted());
+  }
+
+  @Test
+  public void letsTheMergeThroughOnceTheCheckTakesTooLong()
+    throws InterruptedException
+  {
+    cleanExceptDefaultBranch();
+    CascadeMergeCheck mergeCheck = mergeCheck(200);
+    assertTrue(mergeCheck.preUpdate(null, request()).isRejected());
+    Thread.sleep(250);
+    assertTrue(mergeCheck.preUpdate(null, request()).isAccepted());
+  }
+
+  @Test
+  public void acceptsACleanCascade()
+  {
+    cached(upstream, 0);
+    cached(defaultBranch, 0);
+    assertTrue(check(CascadeMergeCheck.DEFAULT_TIMEOUT_MS).isAccepted());
+    verify(precomputeQueue, never()).enqueue(any(PullRequest.class), anyString(), any(PrecomputeQueue.Priority.class));
+    // The pull request's own target branch is left to Bitbucket.
+    verify(checker, never()).getCachedResult(mcd, ownTarget);
+  }
+
+  @Test
+  public void resolvesTheTargetsOncePerTargetCommit()
+  {
+    cached(upstream, 0);
+    cached(defaultBranch, 0);
+    CascadeMergeCheck mergeCheck = mergeCheck(CascadeMergeCheck.DEFAULT_TIMEOUT_MS);
+    mergeCheck.preUpdate(null, request());
+    mergeCheck.preUpdate(null, request());
+    verify(checker, times(1)).getTargets(mcd);
+    when(mcd.getToBranch().getLatestCommit()).thenReturn("9f8e7d6c");
+    mergeCheck.preUpdate(null, request());
+    verify(checker, times(2)).getTargets(mcd);
+    verify(checker, never()).getComputedResult(any(MergeConflictDetector.class), any(Branch.class));
+  }
+
+  private void cached(Branch toBranch, int conflicts)
+  {
+    MergeResult result = result(toBranch, conflicts);
+    when(checker.getCachedResult(mcd, toBranch)).thenReturn(result);
+  }
+
+  private void cleanExceptDefaultBranch()
+  {
+    cached(upstream, 0);
+  }
+
+  private RepositoryHookResult check(int timeoutMs)
+  {
+    return mergeCheck(timeoutMs).preUpdate(null, request());
+  }
+
+  private CascadeMergeCheck mergeCheck(int timeoutMs)
+  {
+    ApplicationPropertiesService properties = mock(ApplicationPropertiesService.class);
+    when(properties.getPluginProperty(eq(CascadeMergeCheck.ATTEMPTS_PROPERTY), anyInt()))
+      .thenReturn(CascadeMergeCheck.DEFAULT_ATTEMPTS);
+    when(properties.getPluginProperty(eq(CascadeMergeCheck.TIMEOUT_PROPERTY), anyInt())).thenReturn(timeoutMs);
+    return new CascadeMergeCheck(properties, checker, precomputeQueue);
+  }
+
+  private PullRequestMergeHookRequest request()
+  {
+    PullRequestMergeHookRequest request = mock(PullRequestMergeHookRequest.class);
+    when(request.getPullRequest()).thenReturn(pullRequest);
+    return request;
+  }
+
+  private static MergeResult result(Branch toBranch, int conflicts)
+  {
+    String displayId = toBranch.getDisplayId();
+    MergeResult result = mock(MergeResult.class);
+    when(result.getMergeConflictsTotal()).thenReturn(conflicts);
+    when(result.getToBranchDisplayId()).thenReturn(displayId);
+    when(result.getNotes()).thenReturn(Collections.<String>emptyList());
+    return result;
+  }
+
+  private static Branch branch(String displayId)
+  {
+    Branch branch = mock(Branch.class);
+    when(branch.getId()).thenReturn("refs/heads/" + displayId);
+    when(branch.getDisplayId()).thenReturn(displayId);
+    when(branch.getLatestCommit()).thenReturn(TARGET_COMMIT);
+    return branch;
+  }
+
+  private static String summary(RepositoryHookResult result)
+  {
+    assertEquals(1, result.getVetoes().size());
+    return result.getVetoes().get(0).getSummaryMessage();
+  }
+
+  private static String detail(RepositoryHookResult result)
+  {
+    return result.getVetoes().get(0).getDetailedMessage();
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * MergeWorkTransport between nodes that are all in this JVM, for tests, benchmarks and load tests
+ * that stand in for a cluster. A node that leaves the cluster is lost to the others as a real node would
+ * be: the work it claimed is never completed, and it claims no more.
+ */
+public final class InProcessMergeWorkTransport
+    implements MergeWorkTransport
+{
+  private final Cluster cluster;
+  private final String nodeId;
+
+  private InProcessMergeWorkTransport(Cluster cluster, String nodeId)
+  {
+    this.cluster = cluster;
+    this.nodeId = nodeId;
+  }
+
+  @Override
+  public String getNodeId()
+  {
+    return nodeId;
+  }
+
+  // A node that has left the cluster sees a cluster of its own.
+  @Override
+  public Set<String> getNodeIds()
+  {
+    synchronized (cluster) {
+      return cluster.nodeIds.contains(nodeId) ? new TreeSet<String>(cluster.nodeIds) : Collections.singleton(nodeId);
+    }
+  }
+
+  @Override
+  public void offer(MergeWork work)
+  {
+    synchronized (cluster) {
+      cluster.queue.put(work.getId(), work);
+    }
+  }
+
+  @Override
+  public MergeWork claim()
+  {
+    synchronized (cluster) {
+      Iterator<MergeWork> queued = cluster.queue.values().iterator();
+      if (!cluster.nodeIds.contains(nodeId) || !queued.hasNext()) {
+        return null;
+      }
+      MergeWork work = queued.next();
+      queued.remove();
+      cluster.claimants.put(work.getId(), nodeId);
+      return work;
+    }
+  }
+
+  @Override
+  public boolean withdraw(MergeWork work)
+  {
+    synchronized (cluster) {
+      return cluster.queue.remove(work.getId()) != null;
+    }
+  }
+
+  @Override
+  public String getClaimant(MergeWork work)
+  {
+    synchronized (cluster) {
+      return cluster.claimants.get(work.getId());
+    }
+  }
+
+  @Override
+  public void complete(MergeWork work, MergeResult result)
+  {
+    synchronized (cluster) {
+      if (cluster.nodeIds.contains(nodeId) && cluster.claimants.remove(work.getId(), nodeId)) {
+        cluster.results.put(work.getId(), result);
+      }
+    }
+  }
+
+  @Override
+  public boolean isComplete(MergeWork work)
+  {
+    synchronized (cluster) {
+      return cluster.results.containsKey(work.getId());
+    }
+  }
+
+  @Override
+  public MergeResult takeResult(MergeWork work)
+  {
+    synchronized (cluster) {
+      return cluster.results.remove(work.getId());
+    }
+  }
+
+  /**
+   * The queue, claims and results shared by the nodes of one stand-in cluster.
+   */
+  public static final class Cluster
+  {
+    private final Set<String> nodeIds = new TreeSet<String>();
+    // Insertion order is the order work was offered in.
+    private final Map<String, MergeWork> queue = new LinkedHashMap<String, MergeWork>();
+    private final Map<String, String> claimants = new HashMap<String, String>();
+    // A null result is work handed back unrun.
+    private final Map<String, MergeResult> results = new HashMap<String, MergeResult>();
+
+    public synchronized MergeWorkTransport join(String nodeId)
+    {
+      nodeIds.add(nodeId);
+      return new InProcessMergeWorkTransport(this, nodeId);
+    }
+
+    public synchronized void leave(String nodeId)
+    {
+      nodeIds.remove(nodeId);
+    }
+  }
+}
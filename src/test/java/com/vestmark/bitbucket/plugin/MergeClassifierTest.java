@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.vestmark.bitbucket.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Checks the decisions the classifier takes without merging: from the merge base under each kind
+ * of merge strategy, and from the files each side changed.
+ */
+public class MergeClassifierTest
+{
+  private static final String MERGE_BASE = "1111111";
+  private static final String OTHER = "2222222";
+
+  @Test
+  public void settlesASourceAlreadyInTheTargetUnderAnyStrategy()
+  {
+    for (String strategyId : Arrays.asList("ff", "ff-only", "no-ff", "squash", "squash-ff-only", "rebase-no-ff")) {
+      assertEquals(strategyId, MergeDecision.ALREADY_MERGED, MergeClassifier.decide(MERGE_BASE, MERGE_BASE, OTHER, strategyId));
+    }
+  }
+
+  @Test
+  public void fastForwardsOnlyUnderAFastForwardingStrategy()
+  {
+    assertEquals(MergeDecision.FAST_FORWARD, MergeClassifier.decide(MERGE_BASE, OTHER, MERGE_BASE, "ff"));
+    assertEquals(MergeDecision.FAST_FORWARD, MergeClassifier.decide(MERGE_BASE, OTHER, MERGE_BASE, "ff-only"));
+    assertEquals(MergeDecision.FAST_FORWARD, MergeClassifier.decide(MERGE_BASE, OTHER, MERGE_BASE, "rebase-ff-only"));
+    assertEquals(MergeDecision.TARGET_UNCHANGED, MergeClassifier.decide(MERGE_BASE, OTHER, MERGE_BASE, "no-ff"));
+    assertEquals(MergeDecision.TARGET_UNCHANGED, MergeClassifier.decide(MERGE_BASE, OTHER, MERGE_BASE, "squash"));
+    assertEquals(MergeDecision.TARGET_UNCHANGED, MergeClassifier.decide(MERGE_BASE, OTHER, MERGE_BASE,
+                                                                        MergeClassifier.DEFAULT_STRATEGY));
+  }
+
+  @Test
+  public void leavesMovedTargetsToTheMerge()
+  {
+    assertEquals(MergeDecision.MERGED, MergeClassifier.decide(MERGE_BASE, OTHER, "3333333", "ff"));
+    assertEquals(MergeDecision.MERGED, MergeClassifier.decide(MERGE_BASE, OTHER, "3333333", "ff-only"));
+  }
+
+  @Test
+  public void findsDifferentFilesDisjoint()
+  {
+    assertTrue(MergeClassifier.isDisjoint(paths("src/a.txt", "docs/readme.md"), paths("src/b.txt", "pom.xml")));
+    assertTrue(MergeClassifier.isDisjoint(paths("src/a.txt"), Collections.<String>emptyList()));
+    // A common prefix is not a common directory.
+    assertTrue(MergeClassifier.isDisjoint(paths("src/app"), paths("src/application/Main.java")));
+  }
+
+  @Test
+  public void findsTheSameFileOnBothSidesOverlapping()
+  {
+    assertFalse(MergeClassifier.isDisjoint(paths("src/a.txt", "src/b.txt"), paths("src/b.txt")));
+  }
+
+  @Test
+  public void findsAFileReplacedByADirectoryOverlapping()
+  {
+    // One side changes the file src/config, the other adds files under a directory of that name.
+    assertFalse(MergeClassifier.isDisjoint(paths("src/config"), paths("src/config/app.properties")));
+    assertFalse(MergeClassifier.isDisjoint(paths("src/config/nested/app.properties"), paths("src/config")));
+  }
+
+  @Test
+  public void findsRenamedPathsOverlapping()
+  {
+    // Without rename detection a rename is listed as its old path deleted and its new path added.
+    List<String> renamed = paths("src/Old.java", "src/New.java");
+    assertFalse("edited at the old path", MergeClassifier.isDisjoint(renamed, paths("src/Old.java")));
+    assertFalse("added at the new path", MergeClassifier.isDisjoint(paths("src/New.java"), renamed));
+    assertFalse("moved into a file's place", MergeClassifier.isDisjoint(paths("lib", "lib/Old.java"), paths("lib")));
+    assertTrue("unrelated", MergeClassifier.isDisjoint(renamed, paths("src/Other.java")));
+  }
+
+  private static List<String> paths(String... paths)
+  {
+    return Arrays.asList(paths);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.vestmark.bitbucket.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.atlassian.bitbucket.content.ChangeType;
+
+/**
+ * Checks that conflicts come back out of the compact representation as they went in, that the
+ * builder keeps no more than its cap while counting the rest, and that the written form reads
+ * back the same.
+ */
+public class MergeConflictsTest
+{
+  @Test
+  public void keepsPathsAndChangesAsAdded()
+  {
+    MergeConflicts conflicts = new MergeConflicts.Builder(0).add("README.md", ChangeType.MODIFY, ChangeType.DELETE)
+                                                             .add("src/main/App.java", ChangeType.ADD, null)
+                                                             .build();
+    assertEquals(Arrays.asList("README.md", "src/main/App.java"), conflicts.getPaths());
+    assertEquals(ChangeType.MODIFY, conflicts.getOurChange(0));
+    assertEquals(ChangeType.DELETE, conflicts.getTheirChange(0));
+    assertNull(conflicts.getTheirChange(1));
+    assertEquals("Source change: ADD Target change: null", conflicts.getMessage(1));
+    assertEquals(2, conflicts.getTotal());
+  }
+
+  @Test
+  public void keepsNoMoreThanTheCapButCountsEveryConflict()
+  {
+    MergeConflicts.Builder builder = new MergeConflicts.Builder(10);
+    for (int i = 0; i < 25; i++) {
+      builder.add("src/File" + i + ".java", ChangeType.MODIFY, ChangeType.MODIFY);
+    }
+    MergeConflicts conflicts = builder.build();
+    assertEquals(10, conflicts.size());
+    assertEquals(25, conflicts.getTotal());
+    assertTrue(conflicts.isTruncated());
+    assertEquals("src/File9.java", conflicts.getPath(9));
+  }
+
+  @Test
+  public void buildsNoConflictsAsTheEmptyInstance()
+  {
+    MergeConflicts conflicts = new MergeConflicts.Builder(0).build();
+    assertSame(MergeConflicts.empty(), conflicts);
+    assertEquals(0, conflicts.size());
+    assertFalse(conflicts.isTruncated());
+  }
+
+  @Test
+  public void readsBackWhatWasWritten()
+    throws IOException
+  {
+    MergeConflicts.Builder builder = new MergeConflicts.Builder(3);
+    for (String path : Arrays.asList("a/x.txt", "b/y.txt", "a/z.txt", "top.txt", "a/w.txt")) {
+      builder.add(path, ChangeType.MODIFY, ChangeType.MOVE);
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    builder.build().write(new DataOutputStream(bytes));
+    MergeConflicts read = MergeConflicts.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    assertEquals(Arrays.asList("a/x.txt", "b/y.txt", "a/z.txt"), read.getPaths());
+    assertEquals(ChangeType.MOVE, read.getTheirChange(2));
+    assertEquals(5, read.getTotal());
+    assertTrue(read.isTruncated());
+  }
+}
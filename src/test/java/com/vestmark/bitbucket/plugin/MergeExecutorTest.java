@@ -0,0 +1,201 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.atlassian.bitbucket.repository.Repository;
+
+/**
+ * Checks that a repository never runs more than its share of the pool while other repositories
+ * keep running, that tasks cancelled before a worker picks them up never run, and that tasks the
+ * executor cannot take complete exceptionally rather than throwing.
+ */
+public class MergeExecutorTest
+{
+  private static final long TIMEOUT_SECONDS = 10;
+
+  private final Repository first = repository(1);
+  private final Repository second = repository(2);
+  private MergeExecutor executor;
+
+  @After
+  public void tearDown()
+  {
+    if (executor != null) {
+      executor.destroy();
+    }
+  }
+
+  @Test
+  public void runsNoMoreThanTheRepositoryLimitAtOnce()
+    throws Exception
+  {
+    executor = new MergeExecutor(4, 2, 100);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger mostRunning = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    List<CompletableFuture<Integer>> merges = new ArrayList<CompletableFuture<Integer>>();
+    for (int i = 0; i < 6; i++) {
+      merges.add(executor.submit(first, () -> {
+        mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        release.await();
+        return running.getAndDecrement();
+      }));
+    }
+    // The first repository holds only two of the four workers, so the second still gets one.
+    assertEquals("other", executor.submit(second, () -> "other").get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    assertEquals(4, executor.getQueueDepth());
+    release.countDown();
+    for (CompletableFuture<Integer> merge : merges) {
+      merge.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+    assertEquals(2, mostRunning.get());
+    assertEquals(0, executor.getQueueDepth());
+  }
+
+  @Test
+  public void neverRunsATaskCancelledBeforeItStarted()
+    throws Exception
+  {
+    executor = new MergeExecutor(1, 1, 100);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<String> blocking = executor.submit(first, () -> {
+      started.countDown();
+      release.await();
+      return "blocking";
+    });
+    AtomicBoolean ran = new AtomicBoolean();
+    CompletableFuture<String> waiting = executor.submit(first, () -> {
+      ran.set(true);
+      return "waiting";
+    });
+    assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    assertTrue(waiting.cancel(false));
+    release.countDown();
+    assertEquals("blocking", blocking.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    // Runs after the cancelled task was handed its worker, so that has had its chance to run.
+    assertEquals("after", executor.submit(first, () -> "after").get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    assertFalse(ran.get());
+    assertTrue(waiting.isCancelled());
+  }
+
+  @Test
+  public void cannotCancelATaskThatStarted()
+    throws Exception
+  {
+    executor = new MergeExecutor(1, 1, 100);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<String> merge = executor.submit(first, () -> {
+      started.countDown();
+      release.await();
+      return "done";
+    });
+    assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    assertFalse(merge.cancel(true));
+    release.countDown();
+    assertEquals("done", merge.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void rejectsTasksBeyondTheQueueSize()
+    throws Exception
+  {
+    executor = new MergeExecutor(1, 1, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<String> running = executor.submit(first, () -> {
+      release.await();
+      return "running";
+    });
+    CompletableFuture<String> waiting = executor.submit(first, () -> "waiting");
+    assertRejected(executor.submit(first, () -> "rejected"));
+    release.countDown();
+    assertEquals("running", running.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    assertEquals("waiting", waiting.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void rejectsTasksOnceShutDown()
+    throws Exception
+  {
+    executor = new MergeExecutor(1, 1, 100);
+    executor.destroy();
+    assertRejected(executor.submit(first, () -> "first"));
+    // The repository's queue gave its slot back, so the next task is turned away the same way.
+    assertRejected(executor.submit(first, () -> "second"));
+    assertEquals(0, executor.getQueueDepth());
+  }
+
+  @Test
+  public void takesNewTasksForARepositoryThatWentIdle()
+    throws Exception
+  {
+    executor = new MergeExecutor(2, 1, 100);
+    for (int i = 0; i < 100; i++) {
+      int value = i;
+      assertEquals(Integer.valueOf(value), executor.submit(first, () -> value).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  public void usesOneWorkerWhenConfiguredWithNone()
+    throws Exception
+  {
+    executor = new MergeExecutor(0, 0, 0);
+    assertEquals(1, executor.getPoolSize());
+    assertEquals("merged", executor.submit(first, () -> "merged").get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+  }
+
+  private static void assertRejected(CompletableFuture<?> future)
+    throws Exception
+  {
+    try {
+      future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      fail("Expected the task to be rejected");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof RejectedExecutionException);
+    } catch (CancellationException e) {
+      fail("Expected the task to be rejected, not cancelled");
+    }
+  }
+
+  private static Repository repository(int id)
+  {
+    Repository repository = mock(Repository.class);
+    when(repository.getId()).thenReturn(id);
+    return repository;
+  }
+}
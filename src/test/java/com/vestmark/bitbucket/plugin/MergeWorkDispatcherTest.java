@@ -0,0 +1,293 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.atlassian.bitbucket.pull.PullRequest;
+import com.atlassian.bitbucket.pull.PullRequestService;
+import com.atlassian.bitbucket.repository.Branch;
+import com.atlassian.bitbucket.repository.RefService;
+import com.atlassian.bitbucket.repository.ResolveRefRequest;
+import com.atlassian.bitbucket.user.EscalatedSecurityContext;
+import com.atlassian.bitbucket.user.SecurityService;
+import com.atlassian.bitbucket.util.Operation;
+
+/**
+ * Runs a dispatcher on an in-process stand-in cluster and checks each way a merge gets back to the
+ * node that asked for it: run by another node, run locally when nobody claims it in time, when the
+ * node that claimed it leaves the cluster or when that node hands it back unrun, and taken back off
+ * the queue when the request is cancelled before anyone claims it.
+ */
+public class MergeWorkDispatcherTest
+{
+  private static final long CLAIM_TIMEOUT_MS = 500;
+  private static final long WORK_TIMEOUT_MS = 30000;
+  private static final long WAIT_SECONDS = 10;
+  private static final String FROM_COMMIT = "0a1b2c3d";
+  private static final String TO_COMMIT = "4e5f6a7b";
+
+  private final InProcessMergeWorkTransport.Cluster cluster = new InProcessMergeWorkTransport.Cluster();
+  private final List<MergeWorkDispatcher> dispatchers = new ArrayList<MergeWorkDispatcher>();
+  private final AtomicInteger localMerges = new AtomicInteger();
+  private final MergeResult localResult = mock(MergeResult.class);
+  private final MergeResult remoteResult = mock(MergeResult.class);
+  private MergeConflictMetrics metrics;
+  private Pausable requesterTransport;
+  private MergeWorkDispatcher requester;
+
+  @Before
+  public void setUp()
+  {
+    metrics = new MergeConflictMetrics(0);
+    // The requester never claims work itself, so only the other node can run it.
+    requesterTransport = new Pausable(cluster.join("node-1"));
+    requesterTransport.claiming = false;
+    requester = start(requesterTransport, pullRequestService(true));
+  }
+
+  @After
+  public void tearDown()
+  {
+    for (MergeWorkDispatcher dispatcher : dispatchers) {
+      dispatcher.destroy();
+    }
+  }
+
+  @Test
+  public void returnsTheResultOfAnotherNode()
+    throws Exception
+  {
+    start(cluster.join("node-2"), pullRequestService(true));
+    CompletableFuture<MergeResult> merge = requester.submit(detector(), branch(), this::mergeLocally);
+    assertSame(remoteResult, merge.get(WAIT_SECONDS, TimeUnit.SECONDS));
+    assertEquals(0, localMerges.get());
+    assertEquals(1, metrics.getDistributedMergeCount());
+  }
+
+  @Test
+  public void runsLocallyWhenNobodyClaimsTheWorkInTime()
+    throws Exception
+  {
+    MergeWorkTransport idle = cluster.join("node-2");
+    CompletableFuture<MergeResult> merge = requester.submit(detector(), branch(), this::mergeLocally);
+    assertSame(localResult, merge.get(WAIT_SECONDS, TimeUnit.SECONDS));
+    assertEquals(1, localMerges.get());
+    assertEquals(1, metrics.getClusterFallbackCount());
+    // Taken back off the queue, so it cannot be run twice.
+    assertNull(idle.claim());
+  }
+
+  @Test
+  public void runsLocallyWhenTheClaimantLeavesTheCluster()
+    throws Exception
+  {
+    MergeWorkTransport leaving = cluster.join("node-2");
+    CompletableFuture<MergeResult> merge = requester.submit(detector(), branch(), this::mergeLocally);
+    assertTrue(leaving.claim() != null);
+    cluster.leave("node-2");
+    assertSame(localResult, merge.get(WAIT_SECONDS, TimeUnit.SECONDS));
+    assertEquals(1, localMerges.get());
+    assertEquals(1, metrics.getClusterFallbackCount());
+  }
+
+  @Test
+  public void runsLocallyWhenTheClaimantHandsTheWorkBack()
+    throws Exception
+  {
+    // The other node does not find the pull request at the requested commit and declines the work.
+    start(cluster.join("node-2"), pullRequestService(false));
+    CompletableFuture<MergeResult> merge = requester.submit(detector(), branch(), this::mergeLocally);
+    assertSame(localResult, merge.get(WAIT_SECONDS, TimeUnit.SECONDS));
+    assertEquals(1, localMerges.get());
+    assertEquals(0, metrics.getDistributedMergeCount());
+  }
+
+  @Test
+  public void withdrawsWorkCancelledBeforeItWasClaimed()
+    throws Exception
+  {
+    MergeWorkTransport idle = cluster.join("node-2");
+    CompletableFuture<MergeResult> merge = requester.submit(detector(), branch(), this::mergeLocally);
+    assertEquals(1, requester.getOutstanding());
+    assertTrue(merge.cancel(false));
+    waitFor(() -> requester.getOutstanding() == 0);
+    assertNull(idle.claim());
+    // Well past the claim timeout, nothing falls back to run the cancelled merge.
+    Thread.sleep(CLAIM_TIMEOUT_MS * 3);
+    assertEquals(0, localMerges.get());
+    assertEquals(0, metrics.getClusterFallbackCount());
+  }
+
+  private MergeWorkDispatcher start(MergeWorkTransport transport, PullRequestService pullRequestService)
+  {
+    RefService refService = mock(RefService.class);
+    Branch branch = branch();
+    when(refService.resolveRef(any(ResolveRefRequest.class))).thenReturn(branch);
+    MergeWorkDispatcher dispatcher = new MergeWorkDispatcher(transport, pullRequestService, refService, securityService(),
+                                                             metrics, true, 1, CLAIM_TIMEOUT_MS, WORK_TIMEOUT_MS);
+    dispatcher.setWorker((pullRequest, toBranch) -> CompletableFuture.completedFuture(remoteResult));
+    dispatcher.afterPropertiesSet();
+    dispatchers.add(dispatcher);
+    return dispatcher;
+  }
+
+  private CompletableFuture<MergeResult> mergeLocally()
+  {
+    localMerges.incrementAndGet();
+    return CompletableFuture.completedFuture(localResult);
+  }
+
+  // Finds the pull request at the requested commit, or at a later one when it has moved on.
+  private static PullRequestService pullRequestService(boolean atRequestedCommit)
+  {
+    PullRequest pullRequest = mock(PullRequest.class, RETURNS_DEEP_STUBS);
+    when(pullRequest.getFromRef().getLatestCommit()).thenReturn(atRequestedCommit ? FROM_COMMIT : "9f8e7d6c");
+    PullRequestService pullRequestService = mock(PullRequestService.class);
+    when(pullRequestService.getById(anyInt(), anyLong())).thenReturn(pullRequest);
+    return pullRequestService;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static SecurityService securityService()
+  {
+    EscalatedSecurityContext escalated = mock(EscalatedSecurityContext.class);
+    try {
+      when(escalated.call(any(Operation.class))).thenAnswer(invocation -> ((Operation<?, ?>) invocation.getArguments()[0]).perform());
+    } catch (Throwable t) {
+      throw new AssertionError(t);
+    }
+    SecurityService securityService = mock(SecurityService.class);
+    when(securityService.withPermission(any(), any())).thenReturn(escalated);
+    return securityService;
+  }
+
+  private static MergeConflictDetector detector()
+  {
+    MergeConflictDetector mcd = mock(MergeConflictDetector.class, RETURNS_DEEP_STUBS);
+    when(mcd.getToRepo().getId()).thenReturn(1);
+    when(mcd.getPullRequest().getId()).thenReturn(7L);
+    when(mcd.getFromBranch().getLatestCommit()).thenReturn(FROM_COMMIT);
+    return mcd;
+  }
+
+  private static Branch branch()
+  {
+    Branch branch = mock(Branch.class);
+    when(branch.getId()).thenReturn("refs/heads/release/app-1.0");
+    when(branch.getLatestCommit()).thenReturn(TO_COMMIT);
+    return branch;
+  }
+
+  private static void waitFor(BooleanSupplier condition)
+    throws InterruptedException
+  {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(WAIT_SECONDS);
+    while (!condition.getAsBoolean()) {
+      assertTrue("Timed out waiting", System.nanoTime() < deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  /**
+   * A node's transport that can be kept from claiming work, as a node too busy to take any would.
+   */
+  private static final class Pausable
+      implements MergeWorkTransport
+  {
+    private final MergeWorkTransport delegate;
+    private volatile boolean claiming = true;
+
+    Pausable(MergeWorkTransport delegate)
+    {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public String getNodeId()
+    {
+      return delegate.getNodeId();
+    }
+
+    @Override
+    public Set<String> getNodeIds()
+    {
+      return delegate.getNodeIds();
+    }
+
+    @Override
+    public void offer(MergeWork work)
+    {
+      delegate.offer(work);
+    }
+
+    @Override
+    public MergeWork claim()
+    {
+      return claiming ? delegate.claim() : null;
+    }
+
+    @Override
+    public boolean withdraw(MergeWork work)
+    {
+      return delegate.withdraw(work);
+    }
+
+    @Override
+    public String getClaimant(MergeWork work)
+    {
+      return delegate.getClaimant(work);
+    }
+
+    @Override
+    public void complete(MergeWork work, MergeResult result)
+    {
+      delegate.complete(work, result);
+    }
+
+    @Override
+    public boolean isComplete(MergeWork work)
+    {
+      return delegate.isComplete(work);
+    }
+
+    @Override
+    public MergeResult takeResult(MergeWork work)
+    {
+      return delegate.takeResult(work);
+    }
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.vestmark.bitbucket.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.atlassian.bitbucket.content.ChangeType;
+
+/**
+ * Writes merge results to a store in a temporary directory standing in for the shared home and
+ * checks what reads back: the conflicts and how many were dropped, nothing once a result has
+ * expired or was written in another format, and nothing of a deleted repository.
+ */
+public class SharedHomeMergeResultStoreTest
+{
+  private static final long TTL_MS = TimeUnit.HOURS.toMillis(1);
+  private static final MergeResultCache.Key KEY = new MergeResultCache.Key(1, "0a1b2c3d", "4e5f6a7b");
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path root;
+  private SharedHomeMergeResultStore store;
+
+  @Before
+  public void setUp()
+  {
+    root = folder.getRoot().toPath().resolve("results");
+    store = new SharedHomeMergeResultStore(root, TTL_MS);
+  }
+
+  @Test
+  public void readsBackWhatWasWritten()
+  {
+    MergeConflicts conflicts = new MergeConflicts.Builder(0).add("pom.xml", ChangeType.MODIFY, ChangeType.MODIFY)
+                                                             .add("src/main/App.java", ChangeType.DELETE, null)
+                                                             .build();
+    store.put(KEY, new MergeResult(null, conflicts, Arrays.asList("first note", "second note"), true,
+                                   MergeDecision.MERGED));
+    MergeResult read = store.get(KEY);
+    assertEquals(MergeDecision.MERGED, read.getDecision());
+    assertEquals(Arrays.asList("first note", "second note"), read.getNotes());
+    MergeConflicts readConflicts = read.getMergeConflicts();
+    assertEquals(Arrays.asList("pom.xml", "src/main/App.java"), readConflicts.getPaths());
+    assertEquals(ChangeType.MODIFY, readConflicts.getOurChange(0));
+    assertEquals(ChangeType.DELETE, readConflicts.getOurChange(1));
+    assertNull(readConflicts.getTheirChange(1));
+    assertFalse(readConflicts.isTruncated());
+  }
+
+  @Test
+  public void readsBackAResultWithoutConflictsOrNotes()
+  {
+    store.put(KEY, MergeResult.restore(null, null, null));
+    MergeResult read = store.get(KEY);
+    assertNull(read.getMergeConflicts());
+    assertTrue(read.getNotes().isEmpty());
+    assertNull(read.getDecision());
+  }
+
+  @Test
+  public void keepsTheTotalOfTruncatedConflicts()
+  {
+    MergeConflicts.Builder builder = new MergeConflicts.Builder(2);
+    for (int i = 0; i < 5; i++) {
+      builder.add("src/File" + i + ".java", ChangeType.MODIFY, ChangeType.MODIFY);
+    }
+    store.put(KEY, new MergeResult(null, builder.build(), null, true));
+    MergeConflicts read = store.get(KEY).getMergeConflicts();
+    assertEquals(2, read.size());
+    assertEquals(5, read.getTotal());
+    assertTrue(read.isTruncated());
+  }
+
+  @Test
+  public void missesAndDeletesAnExpiredResult()
+    throws IOException
+  {
+    store.put(KEY, MergeResult.restore(MergeConflicts.empty(), null, MergeDecision.MERGED));
+    Path file = age(storedFile(), 2 * TTL_MS);
+    assertNull(store.get(KEY));
+    assertFalse(Files.exists(file));
+  }
+
+  @Test
+  public void missesAResultInAnotherFormat()
+    throws IOException
+  {
+    store.put(KEY, MergeResult.restore(MergeConflicts.empty(), null, MergeDecision.MERGED));
+    Path file = storedFile();
+    byte[] bytes = Files.readAllBytes(file);
+    bytes[0]--;
+    Files.write(file, bytes);
+    assertNull(store.get(KEY));
+  }
+
+  @Test
+  public void sweepsOnlyExpiredResults()
+    throws IOException
+  {
+    MergeResultCache.Key fresh = new MergeResultCache.Key(1, "9f8e7d6c", "4e5f6a7b");
+    store.put(KEY, MergeResult.restore(null, null, MergeDecision.MERGED));
+    age(storedFile(), 2 * TTL_MS);
+    store.put(fresh, MergeResult.restore(null, null, MergeDecision.FAST_FORWARD));
+    store.removeExpired();
+    assertEquals(1, storedFiles().size());
+    assertEquals(MergeDecision.FAST_FORWARD, store.get(fresh).getDecision());
+  }
+
+  @Test
+  public void removesADeletedRepositorysResults()
+    throws IOException
+  {
+    MergeResultCache.Key otherRepository = new MergeResultCache.Key(2, "0a1b2c3d", "4e5f6a7b");
+    store.put(KEY, MergeResult.restore(null, null, MergeDecision.MERGED));
+    store.put(otherRepository, MergeResult.restore(null, null, MergeDecision.MERGED));
+    store.removeRepository(1);
+    assertFalse(Files.exists(root.resolve("1")));
+    assertNull(store.get(KEY));
+    assertEquals(MergeDecision.MERGED, store.get(otherRepository).getDecision());
+  }
+
+  private Path storedFile()
+    throws IOException
+  {
+    List<Path> files = storedFiles();
+    assertEquals(1, files.size());
+    return files.get(0);
+  }
+
+  private List<Path> storedFiles()
+    throws IOException
+  {
+    try (Stream<Path> paths = Files.walk(root)) {
+      return paths.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+  }
+
+  private static Path age(Path file, long ageMs)
+    throws IOException
+  {
+    return Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - ageMs));
+  }
+}
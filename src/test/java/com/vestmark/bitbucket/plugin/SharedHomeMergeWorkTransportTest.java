@@ -0,0 +1,270 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.atlassian.bitbucket.cluster.ClusterInformation;
+import com.atlassian.bitbucket.cluster.ClusterNode;
+import com.atlassian.bitbucket.cluster.ClusterService;
+import com.atlassian.bitbucket.content.ChangeType;
+import com.atlassian.bitbucket.repository.Branch;
+
+/**
+ * Runs several nodes' transports against one shared home in a temporary directory: each piece of
+ * work is claimed once however many nodes race for it, work is either withdrawn or claimed but
+ * never both, claims of nodes that left the cluster are still found, and results come back as
+ * they were sent.
+ */
+public class SharedHomeMergeWorkTransportTest
+{
+  private static final int NODES = 4;
+
+  @Rule
+  public TemporaryFolder sharedHome = new TemporaryFolder();
+
+  // The ids of the nodes in the cluster as every node sees it.
+  private final Set<String> members = new CopyOnWriteArraySet<String>();
+  private ExecutorService threads;
+  private Path root;
+
+  @Before
+  public void setUp()
+  {
+    root = sharedHome.getRoot().toPath().resolve("work");
+    threads = Executors.newFixedThreadPool(NODES);
+  }
+
+  @After
+  public void tearDown()
+  {
+    threads.shutdownNow();
+  }
+
+  @Test
+  public void claimsEachWorkOnceAcrossConcurrentNodes()
+    throws Exception
+  {
+    List<SharedHomeMergeWorkTransport> nodes = new ArrayList<SharedHomeMergeWorkTransport>();
+    for (int i = 1; i <= NODES; i++) {
+      nodes.add(node("node-" + i));
+    }
+    Set<String> offered = new HashSet<String>();
+    for (int i = 0; i < 200; i++) {
+      MergeWork work = work("node-1");
+      nodes.get(0).offer(work);
+      offered.add(work.getId());
+    }
+    Set<String> claimed = ConcurrentHashMap.newKeySet();
+    List<String> duplicates = Collections.synchronizedList(new ArrayList<String>());
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> claimers = new ArrayList<Future<?>>();
+    for (SharedHomeMergeWorkTransport node : nodes) {
+      claimers.add(threads.submit((Callable<Void>) () -> {
+        start.await();
+        for (MergeWork work = node.claim(); work != null; work = node.claim()) {
+          if (!claimed.add(work.getId())) {
+            duplicates.add(work.getId());
+          }
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> claimer : claimers) {
+      claimer.get(1, TimeUnit.MINUTES);
+    }
+    assertEquals(Collections.emptyList(), duplicates);
+    assertEquals(offered, claimed);
+  }
+
+  @Test
+  public void withdrawsOrClaimsButNeverBoth()
+    throws Exception
+  {
+    SharedHomeMergeWorkTransport requester = node("node-1");
+    SharedHomeMergeWorkTransport worker = node("node-2");
+    for (int i = 0; i < 100; i++) {
+      MergeWork work = work("node-1");
+      requester.offer(work);
+      CountDownLatch start = new CountDownLatch(1);
+      Future<Boolean> withdrawn = threads.submit(() -> {
+        start.await();
+        return requester.withdraw(work);
+      });
+      Future<MergeWork> claim = threads.submit(() -> {
+        start.await();
+        return worker.claim();
+      });
+      start.countDown();
+      boolean wasWithdrawn = withdrawn.get(1, TimeUnit.MINUTES);
+      MergeWork claimed = claim.get(1, TimeUnit.MINUTES);
+      assertTrue("work " + i + " was both withdrawn and claimed, or neither", wasWithdrawn != (claimed != null));
+      assertEquals(claimed == null ? null : "node-2", requester.getClaimant(work));
+      if (claimed != null) {
+        worker.complete(claimed, null);
+        assertNull(requester.takeResult(work));
+      }
+    }
+  }
+
+  @Test
+  public void findsTheClaimOfANodeThatLeftTheCluster()
+    throws Exception
+  {
+    SharedHomeMergeWorkTransport requester = node("node-1");
+    SharedHomeMergeWorkTransport worker = node("node-2");
+    MergeWork work = work("node-1");
+    requester.offer(work);
+    assertEquals(work.getId(), worker.claim().getId());
+    members.remove("node-2");
+    assertFalse(requester.getNodeIds().contains("node-2"));
+    assertEquals("node-2", requester.getClaimant(work));
+    assertFalse(requester.withdraw(work));
+    assertFalse(requester.isComplete(work));
+  }
+
+  @Test
+  public void dropsWorkThatCannotBeRead()
+    throws Exception
+  {
+    SharedHomeMergeWorkTransport requester = node("node-1");
+    SharedHomeMergeWorkTransport worker = node("node-2");
+    MergeWork work = work("node-1");
+    Files.createDirectories(root.resolve("queue"));
+    Files.write(root.resolve("queue").resolve(work.getId()), new byte[] {42});
+    assertNull(worker.claim());
+    assertNull(requester.getClaimant(work));
+    assertFalse(requester.withdraw(work));
+    try (Stream<Path> files = Files.walk(root)) {
+      assertFalse(files.anyMatch(Files::isRegularFile));
+    }
+  }
+
+  @Test
+  public void returnsResults()
+    throws Exception
+  {
+    SharedHomeMergeWorkTransport requester = node("node-1");
+    SharedHomeMergeWorkTransport worker = node("node-2");
+    MergeConflicts conflicts = new MergeConflicts.Builder(0).add("src/main/App.java", ChangeType.MODIFY, ChangeType.DELETE)
+                                                            .add("README.md", ChangeType.MODIFY, ChangeType.MODIFY)
+                                                            .build();
+
+    MergeResult result = roundTrip(requester, worker, new MergeResult(null, conflicts, Arrays.asList("note"), true));
+    assertTrue(result.isCacheable());
+    assertEquals(Arrays.asList("src/main/App.java", "README.md"), result.getMergeConflicts().getPaths());
+    assertEquals(ChangeType.DELETE, result.getMergeConflicts().getTheirChange(0));
+    assertEquals(Arrays.asList("note"), result.getNotes());
+
+    result = roundTrip(requester, worker, new MergeResult(null, Arrays.asList("git exited with 128")));
+    assertFalse(result.isCacheable());
+    assertNull(result.getMergeConflicts());
+    assertEquals(Arrays.asList("git exited with 128"), result.getNotes());
+
+    assertNull(roundTrip(requester, worker, null));
+  }
+
+  // Sends the result for a piece of work from the worker and takes it back on the requester.
+  private MergeResult roundTrip(SharedHomeMergeWorkTransport requester, SharedHomeMergeWorkTransport worker, MergeResult sent)
+    throws Exception
+  {
+    MergeWork work = work("node-1");
+    requester.offer(work);
+    MergeWork claimed = worker.claim();
+    assertNotNull(claimed);
+    assertEquals("node-2", requester.getClaimant(work));
+    assertFalse(requester.isComplete(work));
+    worker.complete(claimed, sent);
+    assertTrue(requester.isComplete(work));
+    assertNull(requester.getClaimant(work));
+    MergeResult taken = requester.takeResult(work);
+    assertFalse(requester.isComplete(work));
+    return taken;
+  }
+
+  private SharedHomeMergeWorkTransport node(String nodeId)
+  {
+    members.add(nodeId);
+    ClusterService clusterService = mock(ClusterService.class);
+    ClusterInformation information = mock(ClusterInformation.class);
+    ClusterNode localNode = clusterNode(nodeId);
+    when(clusterService.getInformation()).thenReturn(information);
+    when(information.getLocalNode()).thenReturn(localNode);
+    when(information.getNodes()).thenAnswer(new Answer<Set<ClusterNode>>()
+    {
+      @Override
+      public Set<ClusterNode> answer(InvocationOnMock invocation)
+      {
+        Set<ClusterNode> nodes = new HashSet<ClusterNode>();
+        for (String member : members) {
+          nodes.add(member.equals(nodeId) ? localNode : clusterNode(member));
+        }
+        return nodes;
+      }
+    });
+    return new SharedHomeMergeWorkTransport(root, clusterService);
+  }
+
+  private static ClusterNode clusterNode(String nodeId)
+  {
+    ClusterNode node = mock(ClusterNode.class);
+    when(node.getId()).thenReturn(nodeId);
+    return node;
+  }
+
+  private static MergeWork work(String requesterNodeId)
+  {
+    MergeConflictDetector mcd = mock(MergeConflictDetector.class, RETURNS_DEEP_STUBS);
+    when(mcd.getFromBranch().getLatestCommit()).thenReturn("0a1b2c3d");
+    Branch toBranch = mock(Branch.class);
+    when(toBranch.getId()).thenReturn("refs/heads/release/app-1.0");
+    when(toBranch.getLatestCommit()).thenReturn("4e5f6a7b");
+    return MergeWork.of(requesterNodeId, mcd, toBranch);
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.vestmark.bitbucket.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Checks that callers asking for the same key while it is computed share one computation and its
+ * result, and that the computation is cancelled only once every one of them has stopped waiting.
+ */
+public class SingleFlightTest
+{
+  private final AtomicInteger coalesced = new AtomicInteger();
+  private final AtomicInteger started = new AtomicInteger();
+  private final SingleFlight<String, String> flights = new SingleFlight<String, String>(coalesced::incrementAndGet);
+
+  @Test
+  public void sharesOneComputationBetweenJoiners()
+    throws Exception
+  {
+    CompletableFuture<String> computation = new CompletableFuture<String>();
+    CompletableFuture<String> first = flights.execute("key", () -> start(computation));
+    CompletableFuture<String> second = flights.execute("key", () -> start(new CompletableFuture<String>()));
+    assertSame(first, second);
+    assertEquals(1, started.get());
+    assertEquals(1, coalesced.get());
+    computation.complete("merged");
+    assertEquals("merged", first.get());
+    assertEquals("merged", second.get());
+    assertEquals(0, flights.getInFlight());
+  }
+
+  @Test
+  public void startsAgainOnceTheComputationIsDone()
+  {
+    flights.execute("key", () -> start(CompletableFuture.completedFuture("first")));
+    flights.execute("key", () -> start(CompletableFuture.completedFuture("second")));
+    assertEquals(2, started.get());
+    assertEquals(0, coalesced.get());
+  }
+
+  @Test
+  public void keepsKeysApart()
+  {
+    CompletableFuture<String> first = flights.execute("one", () -> start(new CompletableFuture<String>()));
+    CompletableFuture<String> second = flights.execute("two", () -> start(new CompletableFuture<String>()));
+    assertNotSame(first, second);
+    assertEquals(2, flights.getInFlight());
+  }
+
+  @Test
+  public void cancelsWhenTheLastWaiterAbandons()
+  {
+    CompletableFuture<String> computation = new CompletableFuture<String>();
+    CompletableFuture<String> first = flights.execute("key", () -> start(computation));
+    CompletableFuture<String> second = flights.execute("key", () -> start(computation));
+    assertFalse(flights.abandon("key", first));
+    assertFalse(computation.isCancelled());
+    assertTrue(flights.abandon("key", second));
+    assertTrue(computation.isCancelled());
+    // Completed with a CancellationException, which a CompletableFuture reports as cancelled.
+    assertTrue(second.isCancelled());
+    assertEquals(0, flights.getInFlight());
+  }
+
+  @Test
+  public void keepsAComputationThatRefusesToBeCancelledForLaterCallers()
+  {
+    CompletableFuture<String> computation = new CompletableFuture<String>()
+    {
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning)
+      {
+        return false;
+      }
+    };
+    CompletableFuture<String> first = flights.execute("key", () -> start(computation));
+    assertFalse(flights.abandon("key", first));
+    assertEquals(1, flights.getInFlight());
+    assertSame(first, flights.execute("key", () -> start(new CompletableFuture<String>())));
+    assertEquals(1, started.get());
+  }
+
+  @Test
+  public void ignoresAnAbandonedResultOfAnotherComputation()
+  {
+    CompletableFuture<String> computation = new CompletableFuture<String>();
+    flights.execute("key", () -> start(computation));
+    assertFalse(flights.abandon("key", new CompletableFuture<String>()));
+    assertFalse(computation.isCancelled());
+  }
+
+  @Test
+  public void failsAndForgetsAComputationThatCannotStart()
+  {
+    CompletableFuture<String> result = flights.execute("key", () -> {
+      throw new IllegalStateException("no merge slot");
+    });
+    assertTrue(result.isCompletedExceptionally());
+    assertEquals(0, flights.getInFlight());
+  }
+
+  @Test
+  public void passesAFailureToEveryWaiter()
+  {
+    CompletableFuture<String> computation = new CompletableFuture<String>();
+    CompletableFuture<String> first = flights.execute("key", () -> start(computation));
+    CompletableFuture<String> second = flights.execute("key", () -> start(computation));
+    computation.completeExceptionally(new IllegalStateException("git failed"));
+    assertTrue(first.isCompletedExceptionally());
+    assertTrue(second.isCompletedExceptionally());
+    assertEquals(0, flights.getInFlight());
+  }
+
+  private CompletableFuture<String> start(CompletableFuture<String> computation)
+  {
+    started.incrementAndGet();
+    return computation;
+  }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2026 Vestmark, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vestmark.bitbucket.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.junit.Test;
+
+/**
+ * Checks that ordering branches by their parsed VersionKey gives the same answers as the string
+ * comparator it replaced, over every pair of a corpus of branch names as projects name them, and
+ * that the ordering is a total order, which the binary search in ReleaseBranchIndex relies on.
+ */
+public class VersionKeyConformanceTest
+{
+  private static final Pattern SPLIT_PATTERN = Pattern.compile(VersionComparator.DEFAULT_SPLIT_PATTERN);
+  private static final List<String> VERSIONS = Arrays.asList(
+    "0", "1", "01", "2", "10", "1.0", "1.1", "1.2", "1.10", "1.0.1", "1.1.1", "1.2.3.4", "8-text", "8.a", "8.b.1",
+    "8.1", "8.1.1", "8.1.a", "8.1-beta", "8.1-text", "8.1.1-rc", "9.9", "10.0", "10.0-alpha", "2.0-rc.1", "master");
+  private static final List<String> NAMES = names();
+  private static final List<String> CORPUS = corpus("branch-names.txt");
+
+  @Test
+  public void ordersEveryPairOfTheCorpusAsTheLegacyComparator()
+  {
+    // Parsed once up front, the pairs are what is under test and there are millions of them.
+    Map<String, VersionKey> keys = new HashMap<String, VersionKey>();
+    Map<String, String[]> segments = new HashMap<String, String[]>();
+    for (String name : CORPUS) {
+      keys.put(name, key(name));
+      segments.put(name, legacySegments(name));
+    }
+    for (String left : CORPUS) {
+      for (String right : CORPUS) {
+        int expected = Integer.signum(legacyCompare(segments.get(left), segments.get(right)));
+        int actual = Integer.signum(keys.get(left).compareTo(keys.get(right)));
+        if (expected != actual) {
+          assertEquals(left + " against " + right, expected, actual);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void parsesFamilyAndVersionOfTheCorpusAsTheLegacyComparator()
+  {
+    for (String name : CORPUS) {
+      assertEquals(name, legacyFamily(name), key(name).getFamily());
+      assertEquals(name, legacyVersion(name), key(name).getVersion());
+    }
+  }
+
+  @Test
+  public void ordersEveryPairAsTheLegacyComparator()
+  {
+    for (String left : NAMES) {
+      for (String right : NAMES) {
+        assertEquals(left + " against " + right, Integer.signum(legacyCompare(left, right)),
+                     Integer.signum(key(left).compareTo(key(right))));
+      }
+    }
+  }
+
+  @Test
+  public void parsesFamilyAndVersionAsTheLegacyComparator()
+  {
+    for (String name : NAMES) {
+      assertEquals(name, legacyFamily(name), key(name).getFamily());
+      assertEquals(name, legacyVersion(name), key(name).getVersion());
+    }
+  }
+
+  @Test
+  public void comparesNumericSegmentsAsNumbers()
+  {
+    assertTrue(compare("release/app-1.10", "release/app-1.2") > 0);
+    assertTrue(compare("release/app-10.0", "release/app-9.9") > 0);
+    assertTrue(compare("release/app-1.0", "release/app-1.0.1") < 0);
+  }
+
+  @Test
+  public void comparesLexicalSegmentsUpstreamOfNumbers()
+  {
+    // A qualifier is upstream of a number in the same place, and of the same version without it.
+    assertTrue(compare("release/app-8.1-text", "release/app-8.1.1") < 0);
+    assertTrue(compare("release/app-8.1-text", "release/app-8.1") < 0);
+    assertTrue(compare("release/app-8.a", "release/app-8.b.1") < 0);
+    assertTrue(compare("release/app-8.1-beta", "release/app-8.1-text") < 0);
+  }
+
+  @Test
+  public void comparesEqualVersionsAsEqual()
+  {
+    assertEquals(0, compare("release/app-8.1.1", "release/app-8.1.1"));
+    assertEquals(0, compare("release/app-8.1-text", "release/app-8.1-text"));
+    assertEquals(0, compare("release/app-1", "release/app-01"));
+    // Families are filtered before sorting, the key orders by version alone.
+    assertEquals(0, compare("release/producta-1.2", "release/productb-1.2"));
+  }
+
+  @Test
+  public void isATotalOrderAcrossFamilies()
+  {
+    for (String left : NAMES) {
+      for (String right : NAMES) {
+        assertEquals(left + " against " + right, Integer.signum(compare(left, right)), -Integer.signum(compare(right, left)));
+        for (String third : NAMES) {
+          if (compare(left, right) <= 0 && compare(right, third) <= 0) {
+            assertTrue(left + " <= " + right + " <= " + third, compare(left, third) <= 0);
+          }
+        }
+      }
+    }
+  }
+
+  private static List<String> names()
+  {
+    List<String> names = new ArrayList<String>();
+    for (String version : VERSIONS) {
+      names.add("release/app-" + version);
+      names.add("release/producta-" + version);
+      names.add("release/team/productb-" + version);
+    }
+    return names;
+  }
+
+  // One branch name per line, skipping blank lines and # comments.
+  private static List<String> corpus(String resource)
+  {
+    List<String> names = new ArrayList<String>();
+    try (InputStream in = VersionKeyConformanceTest.class.getClassLoader().getResourceAsStream(resource)) {
+      if (in == null) {
+        throw new IllegalStateException("Missing test resource " + resource);
+      }
+      BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        line = line.trim();
+        if (!line.isEmpty() && !line.startsWith("#")) {
+          names.add(line);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not read test resource " + resource, e);
+    }
+    return names;
+  }
+
+  private static int compare(String left, String right)
+  {
+    return key(left).compareTo(key(right));
+  }
+
+  private static VersionKey key(String name)
+  {
+    return VersionKey.parse(name, SPLIT_PATTERN);
+  }
+
+  // The comparator as it was before branch names were parsed into keys, kept here as the reference.
+  private static int legacyCompare(String left, String right)
+  {
+    return legacyCompare(legacySegments(left), legacySegments(right));
+  }
+
+  private static int legacyCompare(String[] l, String[] r)
+  {
+    int length = l.length < r.length ? l.length : r.length;
+    for (int i = 0; i < length; i++) {
+      int result = 0;
+      if (NumberUtils.isNumber(l[i]) && NumberUtils.isNumber(r[i])) {
+        result = Integer.valueOf(Integer.parseInt(l[i])).compareTo(Integer.parseInt(r[i]));
+      }
+      else {
+        if (NumberUtils.isNumber(l[i]) && !NumberUtils.isNumber(r[i]) && r.length != 1) {
+          return 1;
+        }
+        if (!NumberUtils.isNumber(l[i]) && NumberUtils.isNumber(r[i]) && l.length != 1) {
+          return -1;
+        }
+        return l[i].compareTo(r[i]);
+      }
+      if (result != 0) {
+        return result;
+      }
+    }
+    if (!NumberUtils.isNumber(l[l.length-1])) {
+      return -1;
+    }
+    if (!NumberUtils.isNumber(r[r.length-1])) {
+      return 1;
+    }
+    if (l.length < r.length) {
+      return -1;
+    }
+    if (l.length > r.length) {
+      return 1;
+    }
+    return 0;
+  }
+
+  private static String[] legacySegments(String branchName)
+  {
+    return legacyVersion(branchName).split(VersionComparator.DEFAULT_SPLIT_PATTERN);
+  }
+
+  private static String legacyFamily(String branchName)
+  {
+    String[] branchComponents = branchName.split("\\/");
+    int prefixLength = branchComponents[0].length();
+    int versionLength = branchComponents[branchComponents.length-1].replaceAll("[A-Za-z]*(-?.*)$","$1").length();
+    return branchName.substring(prefixLength + 1, branchName.length() - versionLength);
+  }
+
+  private static String legacyVersion(String branchName)
+  {
+    String[] branchComponents = branchName.split("\\/");
+    return branchComponents[branchComponents.length-1].replaceAll("[A-Za-z]*-?(.*)$","$1");
+  }
+}